@@ -7,6 +7,7 @@ import com.github.ocraft.s2client.protocol.game.*;
 import com.supalosa.bot.SupaBot;
 import com.supalosa.bot.debug.JFrameDebugTarget;
 import com.supalosa.bot.debug.NoOpDebugTarget;
+import com.supalosa.bot.replay.GameRecorder;
 
 import java.io.File;
 import java.io.IOException;
@@ -21,7 +22,14 @@ import static com.github.ocraft.s2client.api.OcraftApiConfig.*;
 
 public class LocalMain {
 
+    // Records the game to LatestGame.rec, so it can be replayed offline with ReplayMain.
+    private static final String RECORD_OPTION = "--record";
+
     public static void main(String[] args) throws IOException, InterruptedException {
+        boolean isRecording = Arrays.asList(args).contains(RECORD_OPTION);
+        String[] coordinatorArgs = Arrays.stream(args)
+                .filter(arg -> !arg.equals(RECORD_OPTION))
+                .toArray(String[]::new);
 
         // see https://github.com/ocraft/ocraft-s2client/blob/master/ocraft-s2client-protocol/src/main/resources/versions.json
         Path gameRoot = Paths.get("D:\\StarCraft II\\Versions\\Base75689\\SC2_x64.exe");
@@ -44,7 +52,9 @@ public class LocalMain {
         try {
             sc2Process = builder.start();
             Thread.sleep(10000);
-            SupaBot supaBot = new SupaBot(true, new JFrameDebugTarget());
+            SupaBot supaBot = isRecording ?
+                    new SupaBot(true, new JFrameDebugTarget(), GameRecorder.open(Path.of("LatestGame.rec"))) :
+                    new SupaBot(true, new JFrameDebugTarget());
             MultiplayerOptions multiplayerOptions = MultiplayerOptions.multiplayerSetup()
                     .sharedPort(8002)
                     .serverPort(PortSet.of(8003, 8004))
@@ -53,7 +63,7 @@ public class LocalMain {
                     .build();
             S2Coordinator s2Coordinator = S2Coordinator.setup()
                     .setTimeoutMS(300000)
-                    .loadSettings(args)
+                    .loadSettings(coordinatorArgs)
                     //.setProcessPath(Path.of("D:\\StarCraft II\\Versions\\Base75689\\SC2_x64.exe"))
                     //.setDataVersion("B89B5D6FA7CBF6452E721311BFBC6CB2")
                     .setMultiplayerOptions(multiplayerOptions)
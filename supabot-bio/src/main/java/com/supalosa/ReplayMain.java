@@ -0,0 +1,60 @@
+package com.supalosa;
+
+import com.supalosa.bot.SupaBot;
+import com.supalosa.bot.debug.NoOpDebugTarget;
+import com.supalosa.bot.instrumentation.LatencyHistogram;
+import com.supalosa.bot.replay.GameReplay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Replays a game recorded by LocalMain through the bot, without the game client, and reports how long the steps
+ * took. The commands the bot issued are written out so that runs can be compared.
+ *
+ * Usage: ReplayMain recording [commands file]
+ */
+public class ReplayMain {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ReplayMain <recording> [commands file]");
+            return;
+        }
+        Path commandsPath = Path.of(args.length > 1 ? args[1] : "ReplayCommands.txt");
+
+        try (GameReplay replay = GameReplay.open(Path.of(args[0]))) {
+            SupaBot supaBot = new SupaBot(false, new NoOpDebugTarget(), replay.interfaces());
+            LatencyHistogram stepTimes = new LatencyHistogram();
+            boolean started = false;
+            while (replay.advance()) {
+                if (!started) {
+                    supaBot.onGameStart();
+                    started = true;
+                }
+                // Includes the unit events, as they are handled on the same thread before the step.
+                long start = System.nanoTime();
+                replay.dispatchEvents(supaBot);
+                supaBot.onStep();
+                stepTimes.record(System.nanoTime() - start);
+            }
+            if (started) {
+                supaBot.onGameEnd();
+            }
+
+            Files.write(commandsPath, replay.getCommands());
+            System.out.println(String.format("Replayed %d steps (to loop %d): mean %.2fms, p50 %.2fms, p99 %.2fms, " +
+                            "max %.2fms",
+                    replay.getSteps(), replay.getGameLoop(),
+                    stepTimes.getSamples() == 0 ? 0.0 : stepTimes.getTotalNanos() / 1_000_000.0 / stepTimes.getSamples(),
+                    stepTimes.getPercentileNanos(50) / 1_000_000.0,
+                    stepTimes.getPercentileNanos(99) / 1_000_000.0,
+                    stepTimes.getMaxNanos() / 1_000_000.0));
+            System.out.println("Wrote " + replay.getCommands().size() + " commands to " + commandsPath);
+            if (!replay.getMissedCalls().isEmpty()) {
+                System.out.println("Calls with no recorded result: " + replay.getMissedCalls());
+            }
+        }
+    }
+}
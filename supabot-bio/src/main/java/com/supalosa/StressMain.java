@@ -0,0 +1,141 @@
+package com.supalosa;
+
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.supalosa.bot.SupaBot;
+import com.supalosa.bot.debug.NoOpDebugTarget;
+import com.supalosa.bot.instrumentation.LatencyHistogram;
+import com.supalosa.bot.instrumentation.StepProfiler;
+import com.supalosa.bot.replay.BattleScenario;
+import com.supalosa.bot.replay.BlankGame;
+import com.supalosa.bot.replay.GameInterfaces;
+import com.supalosa.bot.replay.GameReplay;
+import com.supalosa.bot.replay.ImmutableBattleScenario;
+import com.supalosa.bot.replay.ImmutableUnitGroup;
+import com.supalosa.bot.replay.SyntheticGame;
+import com.supalosa.bot.replay.UnitGroup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs the bot through a made-up large battle (or economy) and reports how fast the steps were and how much they
+ * allocated. The map, game data and everything else that isn't about units comes from the end of a recording (any
+ * recording made by LocalMain will do), or from a {@link BlankGame} if no recording is given.
+ *
+ * Usage: StressMain [scenario] [recording]
+ */
+public class StressMain {
+
+    static final Map<String, BattleScenario> SCENARIOS = Map.of(
+            "bio-200v200", ImmutableBattleScenario.builder()
+                    .name("bio-200v200")
+                    .addGroups(
+                            group(Alliance.SELF, Units.TERRAN_MARINE, 90, 0.4f),
+                            group(Alliance.SELF, Units.TERRAN_MARAUDER, 30, 0.4f),
+                            group(Alliance.SELF, Units.TERRAN_MEDIVAC, 10, 0.35f),
+                            group(Alliance.SELF, Units.TERRAN_SIEGE_TANK, 10, 0.35f),
+                            group(Alliance.ENEMY, Units.ZERG_ZERGLING, 80, 0.6f),
+                            group(Alliance.ENEMY, Units.ZERG_ROACH, 40, 0.6f),
+                            group(Alliance.ENEMY, Units.ZERG_HYDRALISK, 40, 0.65f))
+                    .build(),
+            "workers-80", ImmutableBattleScenario.builder()
+                    .name("workers-80")
+                    .addGroups(ImmutableUnitGroup.builder()
+                            .alliance(Alliance.SELF)
+                            .type(Units.TERRAN_SCV)
+                            .count(80)
+                            .position(0f)
+                            .bases(4)
+                            .build())
+                    .build());
+
+    public static void main(String[] args) throws IOException {
+        String scenarioName = args.length > 0 ? args[0] : "bio-200v200";
+        BattleScenario scenario = SCENARIOS.get(scenarioName);
+        if (scenario == null) {
+            System.out.println("Usage: StressMain [scenario] [recording], scenarios: " + SCENARIOS.keySet());
+            return;
+        }
+
+        if (args.length > 1) {
+            try (GameReplay replay = GameReplay.open(Path.of(args[1]))) {
+                // The end of the recording answers everything the scenario doesn't.
+                while (replay.advance()) {
+                }
+                run(replay.interfaces(), scenario);
+            }
+        } else {
+            run(new BlankGame().interfaces(), scenario);
+        }
+    }
+
+    private static void run(GameInterfaces base, BattleScenario scenario) throws IOException {
+        SyntheticGame game = new SyntheticGame(base, scenario);
+        SupaBot supaBot = new SupaBot(false, new NoOpDebugTarget(), game.interfaces());
+        if (!start(supaBot, game)) {
+            System.out.println("The base game has no map to place the units on.");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        for (int step = 0; step < scenario.steps(); ++step) {
+            step(supaBot, game);
+        }
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        supaBot.onGameEnd();
+
+        // The bot's own profile of its steps, which doesn't include the simulation.
+        StepProfiler stepProfiler = supaBot.stepProfiler();
+        stepProfiler.writeCsv(Path.of("StepProfile.csv"));
+        LatencyHistogram stepTimes = stepProfiler.getHistograms().get(StepProfiler.STEP);
+        long steps = stepTimes.getSamples();
+        System.out.println(String.format("Scenario %s: %d steps in %.1fs (%.1f steps/s), mean %.2fms, p50 %.2fms, " +
+                        "p99 %.2fms, max %.2fms, %dKB allocated per step",
+                scenario.name(), steps, elapsedSeconds, steps / elapsedSeconds,
+                steps == 0 ? 0.0 : stepTimes.getTotalNanos() / 1_000_000.0 / steps,
+                stepTimes.getPercentileNanos(50) / 1_000_000.0,
+                stepTimes.getPercentileNanos(99) / 1_000_000.0,
+                stepTimes.getMaxNanos() / 1_000_000.0,
+                stepProfiler.getAllocatedBytesPerStep(StepProfiler.STEP) / 1024));
+        System.out.println(String.format("%d of our units and %d enemy units left, %d commands issued",
+                game.countUnits(Alliance.SELF), game.countUnits(Alliance.ENEMY), game.getCommandCount()));
+    }
+
+    /**
+     * Starts the game and places the scenario's units between the two start locations. Returns false if the base game
+     * has no map to place them on.
+     */
+    static boolean start(SupaBot supaBot, SyntheticGame game) {
+        supaBot.onGameStart();
+        Point2d start = supaBot.observation().getStartLocation().toPoint2d();
+        Optional<Point2d> enemyStart = supaBot.observation().getGameInfo().getStartRaw()
+                .flatMap(startRaw -> startRaw.getStartLocations().stream().findFirst());
+        if (supaBot.mapAnalysis().isEmpty() || enemyStart.isEmpty()) {
+            return false;
+        }
+        game.placeUnits(supaBot.mapAnalysis().get(), start, enemyStart.get());
+        return true;
+    }
+
+    /**
+     * Simulates the next step, and runs the bot on it.
+     */
+    static void step(SupaBot supaBot, SyntheticGame game) {
+        game.advance();
+        game.dispatchEvents(supaBot);
+        supaBot.onStep();
+    }
+
+    private static UnitGroup group(Alliance alliance, Units type, int count, float position) {
+        return ImmutableUnitGroup.builder()
+                .alliance(alliance)
+                .type(type)
+                .count(count)
+                .position(position)
+                .build();
+    }
+}
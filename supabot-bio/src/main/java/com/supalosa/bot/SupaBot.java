@@ -1,13 +1,14 @@
 package com.supalosa.bot;
 
 import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
 import com.github.ocraft.s2client.protocol.action.ActionChat;
 import com.github.ocraft.s2client.protocol.data.*;
 import com.github.ocraft.s2client.protocol.debug.Color;
 import com.github.ocraft.s2client.protocol.observation.ChatReceived;
 import com.github.ocraft.s2client.protocol.spatial.Point2d;
-import com.github.ocraft.s2client.protocol.unit.Alliance;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
@@ -19,15 +20,27 @@ import com.supalosa.bot.builds.terran.ThreeRaxStimCombatConcussivePush;
 import com.supalosa.bot.debug.DebugTarget;
 import com.supalosa.bot.engagement.TerranBioThreatCalculator;
 import com.supalosa.bot.engagement.ThreatCalculator;
+import com.supalosa.bot.instrumentation.ActionStatistics;
+import com.supalosa.bot.instrumentation.CadenceController;
+import com.supalosa.bot.instrumentation.CallStatistics;
+import com.supalosa.bot.instrumentation.CoalescingActionInterface;
 import com.supalosa.bot.instrumentation.InstrumentedActionInterface;
+import com.supalosa.bot.instrumentation.InstrumentedObservationInterface;
+import com.supalosa.bot.instrumentation.InstrumentedQueryInterface;
+import com.supalosa.bot.instrumentation.PrioritisedActionInterface;
+import com.supalosa.bot.instrumentation.RedundantCommandFilter;
+import com.supalosa.bot.instrumentation.StepProfiler;
+import com.supalosa.bot.pathfinding.DynamicPathingGrid;
 import com.supalosa.bot.placement.StructurePlacementCalculator;
+import com.supalosa.bot.replay.GameInterfaces;
+import com.supalosa.bot.replay.GameRecorder;
 import com.supalosa.bot.task.*;
+import com.supalosa.bot.task.army.ArmyTask;
 import com.supalosa.bot.task.army.TerranBioArmyTask;
 import com.supalosa.bot.task.terran.OrbitalCommandManagerTask;
 import com.supalosa.bot.task.SimpleBuildOrderTask;
 import com.supalosa.bot.task.terran.TerranStrategyTask;
-import com.supalosa.bot.utils.UnitComparator;
-import com.supalosa.bot.utils.UnitFilter;
+import com.supalosa.bot.utils.StepPipeline;
 import com.supalosa.bot.utils.Utils;
 
 import java.io.IOException;
@@ -37,17 +50,38 @@ import java.util.function.Supplier;
 
 public class SupaBot extends AgentWithData {
 
+    // Maximum number of actions sent per step (every 2 game loops), after identical commands are coalesced.
+    private static final int ACTIONS_PER_STEP = 20;
+
+    private ActionStatistics actionStatistics;
     private InstrumentedActionInterface instrumentedActionInterface;
+    private CoalescingActionInterface coalescingActionInterface;
+    private PrioritisedActionInterface prioritisedActionInterface;
+    private RedundantCommandFilter redundantCommandFilter;
+    private final CallStatistics queryStatistics = new CallStatistics("Queries");
+    private final CallStatistics observationStatistics = new CallStatistics("Observation scans");
+    private QueryInterface instrumentedQueryInterface;
+    private ObservationInterface observationInterface;
+    private ObservationInterface instrumentedObservationInterface;
+    private final StepProfiler stepProfiler = new StepProfiler();
+    private final CadenceController cadenceController = new CadenceController();
+    private final StepPipeline stepPipeline = new StepPipeline();
+    private final Optional<GameRecorder> gameRecorder;
 
     private final TaskManager taskManager;
     private final FightManager fightManager;
     private final GameData gameData;
     private final MapAwareness mapAwareness;
     private final EnemyAwareness enemyAwareness;
+    private final ObservationDeltaTracker observationDeltaTracker;
     private boolean isDebug = false;
     private boolean isSlow = false;
+    private boolean isProfilerOverlay = false;
+    private boolean isPipelined = false;
+    private boolean isCallerAttribution = false;
     private Optional<AnalysisResults> mapAnalysis = Optional.empty();
     private Optional<StructurePlacementCalculator> structurePlacementCalculator = Optional.empty();
+    private Optional<DynamicPathingGrid> pathingGrid = Optional.empty();
     private Map<UnitType, UnitTypeData> unitTypeData = null;
     private long lastRebalanceAt = 0L;
     private long resetActionsTime = 0L;
@@ -59,28 +93,124 @@ public class SupaBot extends AgentWithData {
     private StrategyTask strategyTask = new TerranStrategyTask();
 
     public SupaBot(boolean isDebug, DebugTarget debugTarget) {
+        this(isDebug, debugTarget, Optional.empty(), Optional.empty());
+    }
+
+    /**
+     * Creates a bot that records what it sees during the game, so that the game can be replayed without the client.
+     */
+    public SupaBot(boolean isDebug, DebugTarget debugTarget, GameRecorder gameRecorder) {
+        this(isDebug, debugTarget, Optional.of(gameRecorder), Optional.empty());
+    }
+
+    /**
+     * Creates a bot that runs without a game, e.g. to replay a recording.
+     */
+    public SupaBot(boolean isDebug, DebugTarget debugTarget, GameInterfaces headlessInterfaces) {
+        this(isDebug, debugTarget, Optional.empty(), Optional.of(headlessInterfaces));
+    }
+
+    private SupaBot(boolean isDebug,
+                    DebugTarget debugTarget,
+                    Optional<GameRecorder> gameRecorder,
+                    Optional<GameInterfaces> headlessInterfaces) {
+        super(headlessInterfaces);
+        // Must be set first, as the observation is used while the bot is being constructed.
+        this.gameRecorder = gameRecorder;
         this.isDebug = isDebug;
         ThreatCalculator threatCalculator = new TerranBioThreatCalculator();
-        this.taskManager = new TaskManagerImpl();
-        this.fightManager = new TerranFightManagerImpl(this,
+        TaskManagerImpl taskManagerImpl = new TaskManagerImpl();
+        this.taskManager = taskManagerImpl;
+        TerranFightManagerImpl terranFightManager = new TerranFightManagerImpl(this,
                 name -> new TerranBioArmyTask(name, 10),
                 new TerranBioCompositionChooser());
+        this.fightManager = terranFightManager;
         this.mapAwareness = new MapAwarenessImpl(threatCalculator);
-        this.enemyAwareness = new EnemyAwarenessImpl(threatCalculator);
         this.gameData = new GameData(observation());
+        this.enemyAwareness = new EnemyAwarenessImpl(threatCalculator);
+        this.observationDeltaTracker = new ObservationDeltaTracker(gameData.getUnitHandles());
+        this.observationDeltaTracker.addListener(terranFightManager);
+        this.observationDeltaTracker.addListener(taskManagerImpl);
         this.debugTarget = debugTarget;
-        this.instrumentedActionInterface = new InstrumentedActionInterface(super.actions());
+        this.actionStatistics = new ActionStatistics(observation());
+        this.instrumentedActionInterface = new InstrumentedActionInterface(super.actions(), actionStatistics);
+        this.coalescingActionInterface = new CoalescingActionInterface(instrumentedActionInterface);
+        this.prioritisedActionInterface = new PrioritisedActionInterface(coalescingActionInterface, observation(),
+                ACTIONS_PER_STEP);
+        this.redundantCommandFilter = new RedundantCommandFilter(prioritisedActionInterface, observation(),
+                actionStatistics);
+        this.prioritisedActionInterface.addDroppedCommandListener(this.redundantCommandFilter::forget);
     }
 
     @Override
     public ActionInterface actions() {
-        return this.instrumentedActionInterface;
+        return this.redundantCommandFilter;
+    }
+
+    @Override
+    public QueryInterface query() {
+        if (this.instrumentedQueryInterface == null) {
+            QueryInterface query = gameRecorder.isPresent() ?
+                    gameRecorder.get().wrap(QueryInterface.class, super.query()) :
+                    super.query();
+            this.instrumentedQueryInterface = new InstrumentedQueryInterface(query, queryStatistics);
+        }
+        return this.instrumentedQueryInterface;
+    }
+
+    @Override
+    public ObservationInterface observation() {
+        // Created on first use, as the observation is needed while the bot is being constructed.
+        if (this.observationInterface == null) {
+            this.observationInterface = gameRecorder.isPresent() ?
+                    gameRecorder.get().wrap(ObservationInterface.class, super.observation()) :
+                    super.observation();
+        }
+        // Timing the scans adds a proxy call to every observation call, so it's only done in debug mode (which the
+        // profiler also turns on). Anything that kept the observation from before debug mode isn't timed.
+        if (!this.isDebug) {
+            return this.observationInterface;
+        }
+        if (this.instrumentedObservationInterface == null) {
+            this.instrumentedObservationInterface = InstrumentedObservationInterface.create(observationInterface,
+                    observationStatistics);
+        }
+        return this.instrumentedObservationInterface;
     }
 
     @Override
     public void onGameEnd() {
         this.debugTarget.stop();
+        taskManager.onGameEnd();
+        stepPipeline.shutdown();
+        gameRecorder.ifPresent(GameRecorder::close);
+        if (this.isDebug) {
+            try {
+                actionStatistics.writeReport(Path.of("ActionReport.txt"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        System.out.println("Actions sent: " + actionStatistics.getTotalActions() + ", peak APM: " +
+                actionStatistics.getPeakActionsPerMinute());
+        if (this.isDebug) {
+            try {
+                queryStatistics.writeCsv(Path.of("QueryProfile.csv"));
+                observationStatistics.writeCsv(Path.of("ObservationProfile.csv"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            System.out.println(queryStatistics.getSummary());
+            System.out.println(observationStatistics.getSummary());
+        }
         if (this.isDebug) {
+            try {
+                stepProfiler.writeCsv(Path.of("StepProfile.csv"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            stepProfiler.printSummary();
+            System.out.println(cadenceController.getSummary());
             try {
                 control().saveReplay(Path.of("LatestReplay.SC2Replay"));
             } catch (IOException e) {
@@ -93,6 +223,7 @@ public class SupaBot extends AgentWithData {
     public void onGameStart() {
         this.debugTarget.initialise(this);
         this.unitTypeData = observation().getUnitTypeData(true);
+        this.gameData.onGameStart(observation());
         mapAnalysis = observation().getGameInfo(true).getStartRaw().map(startRaw -> AnalyseMap.analyse(
                 observation(),
                 gameData,
@@ -100,6 +231,9 @@ public class SupaBot extends AgentWithData {
         structurePlacementCalculator = mapAnalysis
                 .map(analysisResults -> new StructurePlacementCalculator(analysisResults, gameData,
                         observation().getStartLocation().toPoint2d()));
+        structurePlacementCalculator.ifPresent(observationDeltaTracker::addListener);
+        pathingGrid = mapAnalysis.map(analysisResults -> new DynamicPathingGrid(analysisResults, gameData));
+        pathingGrid.ifPresent(observationDeltaTracker::addListener);
         this.mapAwareness.setStartPosition(observation().getStartLocation().toPoint2d());
         mapAnalysis.ifPresent(analysis -> this.mapAwareness.setMapAnalysisResults(analysis));
 
@@ -113,12 +247,19 @@ public class SupaBot extends AgentWithData {
 
     @Override
     public void onStep() {
-        mapAwareness.onStep(this, this);
-        enemyAwareness.onStep(this);
-        structurePlacementCalculator.ifPresent(spc -> spc.onStep(this, this));
-        gameData.onStep(this);
-        taskManager.onStep(this);
-        fightManager.onStep(taskManager, this);
+        gameRecorder.ifPresent(recorder -> recorder.beginStep(super.observation()));
+        stepProfiler.startStep(observation().getGameLoop());
+        // Pick up the work that was done while the server was simulating.
+        stepProfiler.span("PipelineJoin", stepPipeline::join);
+        stepProfiler.span("ObservationDelta", () -> observationDeltaTracker.onStep(observation()));
+        stepProfiler.span("MapAwareness", () -> mapAwareness.onStep(this, this));
+        stepProfiler.span("EnemyAwareness", () -> enemyAwareness.onStep(this));
+        stepProfiler.span("StructurePlacement",
+                () -> structurePlacementCalculator.ifPresent(spc -> spc.onStep(this, this)));
+        stepProfiler.span("GameData", () -> gameData.onStep(this));
+        taskManager.setDebugMode(isDebug);
+        stepProfiler.span("TaskManager", () -> taskManager.onStep(this));
+        stepProfiler.span("FightManager", () -> fightManager.onStep(taskManager, this));
 
         // Dispatch one-off tasks.
         if (singletonTasksToDispatch.size() > 0) {
@@ -139,7 +280,7 @@ public class SupaBot extends AgentWithData {
 
         // Every 2 minutes ensure there's a scout sent out.
         if (observation().getGameLoop() > lastScoutTask + 120 * 22L && mapAwareness.getNextScoutTarget().isPresent()) {
-            if (taskManager.countTasks(task -> task instanceof ScoutTask) == 0) {
+            if (taskManager.countTasks(ScoutTask.class, task -> true) == 0) {
                 taskManager.addTask(new ScoutTask(mapAwareness.getNextScoutTarget(), false, 1), 1);
                 lastScoutTask = observation().getGameLoop();
             }
@@ -162,11 +303,36 @@ public class SupaBot extends AgentWithData {
                 this.isSlow = !this.isSlow;
                 actions().sendChat("Slow: " + isSlow, ActionChat.Channel.TEAM);
             }
+
+            if (chatReceived.getMessage().contains("pipeline")) {
+                this.isPipelined = !this.isPipelined;
+                stepPipeline.setEnabled(isPipelined);
+                actions().sendChat("Pipeline: " + isPipelined, ActionChat.Channel.TEAM);
+            }
+
+            if (chatReceived.getMessage().contains("profile")) {
+                this.isDebug = true;
+                this.isProfilerOverlay = !this.isProfilerOverlay;
+                actions().sendChat("Profiler: " + isProfilerOverlay, ActionChat.Channel.TEAM);
+            }
+
+            if (chatReceived.getMessage().contains("callers")) {
+                this.isCallerAttribution = !this.isCallerAttribution;
+                queryStatistics.setCallerAttributionEnabled(isCallerAttribution);
+                observationStatistics.setCallerAttributionEnabled(isCallerAttribution);
+                actions().sendChat("Callers: " + isCallerAttribution, ActionChat.Channel.TEAM);
+            }
         }
 
         if (observation().getGameLoop() > this.resetActionsTime + (long)(22.4 * 60.0)) {
             long actionsSentInMinute = instrumentedActionInterface.getCountAndReset();
-            System.out.println("[" + observation().getGameLoop() + "] Actions sent in last minute: "  + actionsSentInMinute);
+            long[] commandCounts = coalescingActionInterface.getCommandCountsAndReset();
+            long commandsFiltered = redundantCommandFilter.getFilteredCountAndReset();
+            long[] deferredAndDropped = prioritisedActionInterface.getDeferredAndDroppedCountsAndReset();
+            System.out.println("[" + observation().getGameLoop() + "] Actions sent in last minute: "  + actionsSentInMinute +
+                    " (" + commandCounts[0] + " unit commands coalesced into " + commandCounts[1] + ", " +
+                    commandsFiltered + " redundant commands filtered, " + deferredAndDropped[0] +
+                    " units deferred, " + deferredAndDropped[1] + " dropped)");
             this.resetActionsTime = observation().getGameLoop();
         }
 
@@ -189,9 +355,36 @@ public class SupaBot extends AgentWithData {
             this.fightManager.debug(this);
             mapAwareness.getObservedCreepCoverage().ifPresent(creep ->
                     debug().debugTextOut(String.format("Creep: %.1f%%", (creep * 100f)), Point2d.of(0.92f, 0.25f), Color.WHITE, 8));
+            debug().debugTextOut(String.format("Queries: %d (%.1fms), Scans: %d (%.1fms)",
+                    queryStatistics.getCallsLastStep(), queryStatistics.getNanosLastStep() / 1_000_000.0,
+                    observationStatistics.getCallsLastStep(), observationStatistics.getNanosLastStep() / 1_000_000.0),
+                    Point2d.of(0.78f, 0.27f), Color.WHITE, 8);
+            cadenceController.debug(this);
+            debug().debugTextOut(String.format("Pipeline: %s, %d jobs, launch %.1fms, join %.1fms",
+                    isPipelined ? "on" : "off", stepPipeline.getLastWorkCount(),
+                    stepPipeline.getLastLaunchNanos() / 1_000_000.0, stepPipeline.getLastJoinWaitNanos() / 1_000_000.0),
+                    Point2d.of(0.78f, 0.225f), Color.WHITE, 8);
+            if (isProfilerOverlay) {
+                stepProfiler.debug(this);
+            }
 
             debug().sendDebug();
         }
+
+        // Send this step's unit commands, including those issued from unit events before the step.
+        stepProfiler.span("Actions", () -> {
+            prioritisedActionInterface.flush();
+            coalescingActionInterface.flush();
+        });
+        // The actions are on their way, so start the work for the next step.
+        stepProfiler.span("PipelineLaunch", stepPipeline::launch);
+        stepProfiler.endStep();
+        cadenceController.onStepCompleted(stepProfiler.getLastStepNanos(),
+                fightManager.getAllArmies().stream().anyMatch(ArmyTask::isEngaging));
+        actionStatistics.endStep(observation().getGameLoop());
+        queryStatistics.endStep();
+        observationStatistics.endStep();
+        gameRecorder.ifPresent(GameRecorder::endStep);
     }
 
     private void dispatchTaskOnce(int atSupply, Supplier<Task> task) {
@@ -204,28 +397,21 @@ public class SupaBot extends AgentWithData {
 
     @Override
     public void onUnitCreated(UnitInPool unitInPool) {
-        if (!(unitInPool.unit().getType() instanceof Units)) {
-            return;
-        }
-        taskManager.dispatchUnit(unitInPool.unit());
+        gameRecorder.ifPresent(recorder -> recorder.onUnitCreated(unitInPool));
+        gameData.onUnitCreated(unitInPool);
+        // New units are handed to tasks by the task manager, from the observation delta at the next step.
     }
 
     private Optional<Unit> findNearestCommandCentreWithMinerals(Point2d start) {
-        List<UnitInPool> units = observation().getUnits(
-                UnitFilter.builder()
-                        .alliance(Alliance.SELF)
-                        .unitTypes(Constants.TERRAN_CC_TYPES)
-                        .filter(unit -> unit.getIdealHarvesters().isPresent())
-                        .build());
-        return units.stream()
-                .min(UnitComparator.builder()
-                        .distanceToPoint(start)
-                        .ascending(true).build())
+        return gameData.getMyStructureMap().getNearest(start, unitInPool ->
+                        Constants.TERRAN_CC_TYPES.contains(unitInPool.unit().getType()) &&
+                        unitInPool.unit().getIdealHarvesters().isPresent())
                 .map(unitInPool -> unitInPool.unit());
     }
 
     @Override
     public void onUnitIdle(UnitInPool unitInPool) {
+        gameRecorder.ifPresent(recorder -> recorder.onUnitIdle(unitInPool));
         Unit unit = unitInPool.unit();
         if (!(unit.getType() instanceof Units)) {
             return;
@@ -234,7 +420,7 @@ public class SupaBot extends AgentWithData {
             case TERRAN_SCV:
                 // TODO mining task
                 findNearestCommandCentreWithMinerals(unit.getPosition().toPoint2d()).ifPresent(commandCentre -> {
-                    Utils.findNearestMineralPatch(observation(), commandCentre.getPosition().toPoint2d()).ifPresent(mineralPatch ->
+                    Utils.findNearestMineralPatch(gameData, commandCentre.getPosition().toPoint2d()).ifPresent(mineralPatch ->
                             actions().unitCommand(unit, Abilities.SMART, mineralPatch, false));
                 });
                 break;
@@ -259,6 +445,11 @@ public class SupaBot extends AgentWithData {
         return this.mapAnalysis;
     }
 
+    @Override
+    public Optional<DynamicPathingGrid> pathingGrid() {
+        return this.pathingGrid;
+    }
+
     @Override
     public MapAwareness mapAwareness() {
         return mapAwareness;
@@ -284,9 +475,34 @@ public class SupaBot extends AgentWithData {
         return strategyTask;
     }
 
+    @Override
+    public ObservationDeltaTracker observationDeltaTracker() {
+        return observationDeltaTracker;
+    }
+
+    @Override
+    public CadenceController cadenceController() {
+        return cadenceController;
+    }
+
+    @Override
+    public StepPipeline stepPipeline() {
+        return stepPipeline;
+    }
+
+    /**
+     * The step timings of this game, for tools that run the bot offline.
+     */
+    public StepProfiler stepProfiler() {
+        return stepProfiler;
+    }
+
     @Override
     public void onUnitDestroyed(UnitInPool unit) {
+        gameRecorder.ifPresent(recorder -> recorder.onUnitDestroyed(unit));
+        gameData.onUnitDestroyed(unit);
         enemyAwareness.onUnitDestroyed(unit);
+        taskManager.onUnitDestroyed(unit.getTag());
     }
 
 }
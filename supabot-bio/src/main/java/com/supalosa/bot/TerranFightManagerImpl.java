@@ -15,7 +15,10 @@ import com.supalosa.bot.production.UnitRequester;
 import com.supalosa.bot.production.UnitTypeRequest;
 import com.supalosa.bot.awareness.Army;
 import com.supalosa.bot.awareness.MapAwareness;
+import com.supalosa.bot.awareness.ObservationDelta;
+import com.supalosa.bot.awareness.ObservationDeltaListener;
 import com.supalosa.bot.awareness.RegionData;
+import com.supalosa.bot.instrumentation.UpdateCadence;
 import com.supalosa.bot.task.Task;
 import com.supalosa.bot.task.TaskWithUnits;
 import com.supalosa.bot.task.army.*;
@@ -39,7 +42,7 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class TerranFightManagerImpl implements FightManager, ArmyTaskListener {
+public class TerranFightManagerImpl implements FightManager, ArmyTaskListener, ObservationDeltaListener {
 
     private final S2Agent agent;
     private final List<ArmyTask> armyTasks;
@@ -47,10 +50,10 @@ public class TerranFightManagerImpl implements FightManager, ArmyTaskListener {
     private ArmyTask attackingArmy;
     private ArmyTask reserveArmy;
 
-    private final Map<Tag, Float> rememberedUnitHealth = new HashMap<>();
+    // My units that took damage since the last step, as reported by the observation delta.
+    private final List<UnitInPool> damagedUnits = new ArrayList<>();
 
     private long lastCloakOrBurrowedUpdate = 0L;
-    private static final long CLOAK_OR_BURROW_UPDATE_INTERVAL = 44L;
     private HashSet<Tag> cloakedOrBurrowedUnits = new HashSet<>();
     private List<Point2d> cloakedOrBurrowedUnitClusters = new ArrayList<>();
 
@@ -95,6 +98,15 @@ public class TerranFightManagerImpl implements FightManager, ArmyTaskListener {
         this.compositionChooser = compositionChooser;
     }
 
+    @Override
+    public void onObservationDelta(ObservationDelta delta) {
+        delta.damaged().forEach(unit -> {
+            if (unit.unit().getAlliance() == Alliance.SELF) {
+                damagedUnits.add(unit);
+            }
+        });
+    }
+
     private void setHarassPosition(Optional<Point2d> harassPosition) {
         armyTasks.forEach(armyTask -> {
             if (armyTask instanceof TerranBioHarassArmyTask) {
@@ -173,28 +185,21 @@ public class TerranFightManagerImpl implements FightManager, ArmyTaskListener {
             pendingDefenceTasks.clear();
         }
 
-        if (gameLoop > positionalLogicUpdatedAt + 22L) {
+        if (gameLoop > positionalLogicUpdatedAt +
+                agentWithData.cadenceController().getInterval(UpdateCadence.FIGHT_TARGETING)) {
             positionalLogicUpdatedAt = gameLoop;
             updateTargetingLogic(agentWithData);
         }
 
-        agent.observation().getUnits(Alliance.SELF).stream().forEach(unit -> {
-            float health = unit.unit().getHealth().orElse(0.0f);
-            Tag tag = unit.getTag();
-
-            if (rememberedUnitHealth.containsKey(tag) &&
-                    unit.unit().getHealth().isPresent() &&
-                    unit.unit().getHealth().get() < rememberedUnitHealth.get(tag)) {
-                float prevHealth = rememberedUnitHealth.get(tag);
-                float currentHealth = unit.unit().getHealth().get();
-                // TODO dispatch damage taken event to armies
-                if (agentWithData.gameData().isStructure(unit.unit().getType())) {
-                    createRepairTask(taskManager, unit.unit());
-                }
+        damagedUnits.forEach(unit -> {
+            // TODO dispatch damage taken event to armies
+            if (unit.isAlive() && agentWithData.gameData().isStructure(unit.unit().getType())) {
+                createRepairTask(taskManager, unit.unit());
             }
-            rememberedUnitHealth.put(tag, health);
         });
-        if (gameLoop > lastCloakOrBurrowedUpdate + CLOAK_OR_BURROW_UPDATE_INTERVAL) {
+        damagedUnits.clear();
+        if (gameLoop > lastCloakOrBurrowedUpdate +
+                agentWithData.cadenceController().getInterval(UpdateCadence.CLOAK_OR_BURROW_DETECTION)) {
             updateCloakOrBurrowed();
             lastCloakOrBurrowedUpdate = gameLoop;
         }
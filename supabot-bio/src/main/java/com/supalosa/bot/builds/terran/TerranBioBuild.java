@@ -415,8 +415,8 @@ public class TerranBioBuild implements BuildOrder {
         int completeCount = agentWithData.observation().getUnits(UnitFilter.mine(unitTypeForStructure)).size();
         if (completeCount < max) {
             // Check in-progress tasks. We nest it this way to reduce unnecessary iteration over the task list.
-            long taskCount = agentWithData.taskManager().countTasks(task ->
-                    task instanceof BuildStructureTask && ((BuildStructureTask)task).getTargetUnitType().equals(unitTypeForStructure));
+            long taskCount = agentWithData.taskManager().countTasks(BuildStructureTask.class, task ->
+                    task.getTargetUnitType().equals(unitTypeForStructure));
             if (completeCount + taskCount < max) {
                 tryBuildStructure(agentWithData.observation().getGameLoop(), abilityTypeForStructure, maxParallel, rules);
             }
@@ -21,9 +21,7 @@ import java.util.concurrent.atomic.AtomicLong;
 public class TerranMicro {
 
     // Used to filter out duplicate move commands.
-    // TODO rather than having units submit actions, perhaps we should implement 'commands' (attack position,
-    //  attack-move unit, move position, use ability on unit, use ability on position). This will allow grouping of
-    // commands.
+    // Identical commands issued to several units in a step are grouped by CoalescingActionInterface.
     private static boolean isAlreadyMovingTo(Point2d position, Optional<UnitOrder> order) {
         return isAlreadyUsingAbilityAt(Abilities.MOVE, position, order);
     }
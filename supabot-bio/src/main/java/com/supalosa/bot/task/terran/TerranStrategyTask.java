@@ -28,27 +28,26 @@ public class TerranStrategyTask extends BaseTask implements StrategyTask {
     private List<StrategicObservation> observationList = new ArrayList<>(StrategicObservation.allObservations());
     private Set<Class<? extends StrategicObservation>> seenObservations = new HashSet<>();
 
-    private long observationsLastCheckedAt = 0L;
-
     @Override
     public void onStep(TaskManager taskManager, AgentWithData agentWithData) {
-        long gameLoop = agentWithData.observation().getGameLoop();
-        if (gameLoop > observationsLastCheckedAt + OBSERVATION_CHECK_INTERVAL) {
-            observationsLastCheckedAt = gameLoop;
-            observationList.forEach(strategicObservation -> {
-               if (strategicObservation.apply(agentWithData)) {
-                   taskManager.dispatchMessage(this, strategicObservation);
-                   agentWithData.actions().sendChat(
-                           "Tag:" + strategicObservation.getClass().getSimpleName(),
-                           ActionChat.Channel.BROADCAST);
-                   seenObservations.add(strategicObservation.getClass());
-               }
-            });
-
-            observationList = observationList.stream().filter(obs -> !obs.isComplete()).collect(Collectors.toList());
+        observationList.forEach(strategicObservation -> {
+           if (strategicObservation.apply(agentWithData)) {
+               taskManager.dispatchMessage(this, strategicObservation);
+               agentWithData.actions().sendChat(
+                       "Tag:" + strategicObservation.getClass().getSimpleName(),
+                       ActionChat.Channel.BROADCAST);
+               seenObservations.add(strategicObservation.getClass());
+           }
+        });
+
+        observationList = observationList.stream().filter(obs -> !obs.isComplete()).collect(Collectors.toList());
+
+        handleObservations(taskManager, agentWithData);
+    }
 
-            handleObservations(taskManager, agentWithData);
-        }
+    @Override
+    public long getUpdateInterval() {
+        return OBSERVATION_CHECK_INTERVAL;
     }
 
     private void handleObservations(TaskManager taskManager, AgentWithData agentWithData) {
@@ -0,0 +1,42 @@
+package com.supalosa;
+
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.supalosa.bot.SupaBot;
+import com.supalosa.bot.debug.NoOpDebugTarget;
+import com.supalosa.bot.instrumentation.StepProfiler;
+import com.supalosa.bot.replay.BattleScenario;
+import com.supalosa.bot.replay.BlankGame;
+import com.supalosa.bot.replay.ImmutableBattleScenario;
+import com.supalosa.bot.replay.SyntheticGame;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StressMainTest {
+
+    @Test
+    void botFightsTheBioScenarioOnABlankMap() {
+        BattleScenario scenario = ImmutableBattleScenario.copyOf(StressMain.SCENARIOS.get("bio-200v200"))
+                .withSteps(300);
+        SyntheticGame game = new SyntheticGame(new BlankGame().interfaces(), scenario);
+        SupaBot supaBot = new SupaBot(false, new NoOpDebugTarget(), game.interfaces());
+
+        assertThat(StressMain.start(supaBot, game)).isTrue();
+        long unitsPlaced = game.countUnits(Alliance.SELF) + game.countUnits(Alliance.ENEMY);
+        assertThat(unitsPlaced).isEqualTo(300L);
+        for (int step = 0; step < scenario.steps(); ++step) {
+            StressMain.step(supaBot, game);
+        }
+        supaBot.onGameEnd();
+
+        assertThat(supaBot.stepProfiler().getHistograms().get(StepProfiler.STEP).getSamples())
+                .isEqualTo(scenario.steps());
+        // The army tasks took the units and ordered them around.
+        assertThat(supaBot.fightManager().getAllArmies()).isNotEmpty();
+        assertThat(game.getCommandCount()).isPositive();
+        assertThat(game.countUnits(Alliance.SELF) + game.countUnits(Alliance.ENEMY)).isLessThan(unitsPlaced);
+        // The enemy was seen, and its threat made it into the region data.
+        assertThat(supaBot.enemyAwareness().getEnemyUnitHistory().getTrackedUnitCount()).isPositive();
+        assertThat(supaBot.mapAwareness().getAllRegionData()).anyMatch(regionData -> regionData.enemyThreat() > 0);
+    }
+}
@@ -3,9 +3,13 @@ package com.supalosa.bot;
 import com.supalosa.bot.analysis.AnalysisResults;
 import com.supalosa.bot.awareness.EnemyAwareness;
 import com.supalosa.bot.awareness.MapAwareness;
+import com.supalosa.bot.awareness.ObservationDeltaTracker;
+import com.supalosa.bot.instrumentation.CadenceController;
+import com.supalosa.bot.pathfinding.DynamicPathingGrid;
 import com.supalosa.bot.placement.StructurePlacementCalculator;
 import com.supalosa.bot.task.StrategyTask;
 import com.supalosa.bot.task.TaskManager;
+import com.supalosa.bot.utils.StepPipeline;
 
 import java.util.Optional;
 
@@ -17,6 +21,8 @@ public interface AgentData {
 
     Optional<AnalysisResults> mapAnalysis();
 
+    Optional<DynamicPathingGrid> pathingGrid();
+
     MapAwareness mapAwareness();
 
     FightManager fightManager();
@@ -26,4 +32,10 @@ public interface AgentData {
     EnemyAwareness enemyAwareness();
 
     StrategyTask strategyTask();
+
+    ObservationDeltaTracker observationDeltaTracker();
+
+    CadenceController cadenceController();
+
+    StepPipeline stepPipeline();
 }
@@ -1,9 +1,47 @@
 package com.supalosa.bot;
 
 import com.github.ocraft.s2client.bot.S2Agent;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.DebugInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.supalosa.bot.replay.GameInterfaces;
+
+import java.util.Optional;
 
 /**
  * Convenience class to contain an S2 Agent with the data.
  */
 public abstract class AgentWithData extends S2Agent implements AgentData {
+
+    // Replaces the game's interfaces when the agent is run without a game.
+    private final Optional<GameInterfaces> headlessInterfaces;
+
+    protected AgentWithData() {
+        this(Optional.empty());
+    }
+
+    protected AgentWithData(Optional<GameInterfaces> headlessInterfaces) {
+        this.headlessInterfaces = headlessInterfaces;
+    }
+
+    @Override
+    public ObservationInterface observation() {
+        return headlessInterfaces.isPresent() ? headlessInterfaces.get().observation() : super.observation();
+    }
+
+    @Override
+    public QueryInterface query() {
+        return headlessInterfaces.isPresent() ? headlessInterfaces.get().query() : super.query();
+    }
+
+    @Override
+    public ActionInterface actions() {
+        return headlessInterfaces.isPresent() ? headlessInterfaces.get().actions() : super.actions();
+    }
+
+    @Override
+    public DebugInterface debug() {
+        return headlessInterfaces.isPresent() ? headlessInterfaces.get().debug() : super.debug();
+    }
 }
@@ -12,6 +12,8 @@ import com.github.ocraft.s2client.protocol.unit.DisplayType;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.supalosa.bot.utils.Point2dMap;
+import com.supalosa.bot.utils.TrackedUnitMap;
+import com.supalosa.bot.utils.UnitHandleRegistry;
 import com.supalosa.bot.utils.UnitFilter;
 
 import java.util.*;
@@ -24,6 +26,8 @@ import java.util.stream.Collectors;
  */
 public class GameData {
 
+    private static final long STATIC_INDEX_REFRESH_INTERVAL = 22L;
+
     private final ObservationInterface observationInterface;
 
     // Data Caches
@@ -34,10 +38,21 @@ public class GameData {
     private Map<UnitType, Optional<Float>> unitMaxRange = new HashMap<>();
 
     // Frame caches
-    private Map<Tag, Set<Ability>> availableAbilities = new HashMap<>();
+    // Indexed by unit handle.
+    private List<Set<Ability>> availableAbilities = new ArrayList<>();
     private Point2dMap<Unit> enemyArmyUnitMap = new Point2dMap<>(unit -> unit.getPosition().toPoint2d());
     private Point2dMap<Unit> enemyStructureMap = new Point2dMap<>(unit -> unit.getPosition().toPoint2d());
 
+    // Maintained indexes, updated from unit lifecycle events.
+    private final TrackedUnitMap myWorkerMap = new TrackedUnitMap();
+    private final TrackedUnitMap myArmyMap = new TrackedUnitMap();
+    private final TrackedUnitMap myStructureMap = new TrackedUnitMap();
+    private final TrackedUnitMap mineralFieldMap = new TrackedUnitMap();
+    private final TrackedUnitMap vespeneGeyserMap = new TrackedUnitMap();
+    private long staticIndexesRefreshedAt = 0L;
+
+    private final UnitHandleRegistry unitHandles = new UnitHandleRegistry();
+
     public GameData(ObservationInterface observationInterface) {
         this.observationInterface = observationInterface;
     }
@@ -188,7 +203,11 @@ public class GameData {
      * Return all abilities available to this unit, including resource requirements.
      */
     public Set<Ability> getAvailableAbilities(Tag tag) {
-        return availableAbilities.getOrDefault(tag, Collections.emptySet());
+        int handle = unitHandles.getHandle(tag);
+        if (handle == UnitHandleRegistry.NO_HANDLE || handle >= availableAbilities.size()) {
+            return Collections.emptySet();
+        }
+        return availableAbilities.get(handle);
     }
 
     /**
@@ -233,6 +252,89 @@ public class GameData {
         return enemyStructureMap;
     }
 
+    /**
+     * Returns a spatial index of all my workers.
+     */
+    public TrackedUnitMap getMyWorkerMap() {
+        return myWorkerMap;
+    }
+
+    /**
+     * Returns a spatial index of all my non-worker units that are not structures.
+     */
+    public TrackedUnitMap getMyArmyMap() {
+        return myArmyMap;
+    }
+
+    /**
+     * Returns a spatial index of all my structures, including those under construction.
+     */
+    public TrackedUnitMap getMyStructureMap() {
+        return myStructureMap;
+    }
+
+    /**
+     * Returns a spatial index of all mineral fields (including snapshots).
+     */
+    public TrackedUnitMap getMineralFieldMap() {
+        return mineralFieldMap;
+    }
+
+    /**
+     * Returns a spatial index of all vespene geysers (including snapshots).
+     */
+    public TrackedUnitMap getVespeneGeyserMap() {
+        return vespeneGeyserMap;
+    }
+
+    /**
+     * Returns the registry of dense handles for the units in the current observation. Handles are acquired and
+     * released by the {@code ObservationDeltaTracker}, which runs before everything else in the step.
+     */
+    public UnitHandleRegistry getUnitHandles() {
+        return unitHandles;
+    }
+
+    /**
+     * Seeds the maintained indexes with the units that exist at the start of the game.
+     * Neutral units never trigger a creation event, so this is the only time they are added.
+     */
+    public void onGameStart(ObservationInterface observationInterface) {
+        observationInterface.getUnits(Alliance.SELF).forEach(this::onUnitCreated);
+        observationInterface.getUnits(Alliance.NEUTRAL).forEach(unitInPool -> {
+            UnitType type = unitInPool.unit().getType();
+            if (Constants.MINERAL_TYPES.contains(type)) {
+                mineralFieldMap.add(unitInPool);
+            } else if (Constants.VESPENE_GEYSER_TYPES.contains(type)) {
+                vespeneGeyserMap.add(unitInPool);
+            }
+        });
+    }
+
+    public void onUnitCreated(UnitInPool unitInPool) {
+        if (unitInPool.unit().getAlliance() != Alliance.SELF) {
+            return;
+        }
+        UnitType type = unitInPool.unit().getType();
+        if (Constants.WORKER_TYPES.contains(type)) {
+            myWorkerMap.add(unitInPool);
+        } else if (isStructure(type)) {
+            myStructureMap.add(unitInPool);
+        } else {
+            myArmyMap.add(unitInPool);
+        }
+    }
+
+    public void onUnitDestroyed(UnitInPool unitInPool) {
+        Tag tag = unitInPool.getTag();
+        if (myWorkerMap.remove(tag) || myArmyMap.remove(tag) || myStructureMap.remove(tag)) {
+            return;
+        }
+        if (!mineralFieldMap.remove(tag)) {
+            vespeneGeyserMap.remove(tag);
+        }
+    }
+
     public void onStep(AgentWithData agentWithData) {
         ObservationInterface observationInterface = agentWithData.observation();
         QueryInterface queryInterface = agentWithData.query();
@@ -240,12 +342,16 @@ public class GameData {
                 unitInPool.unit()).collect(Collectors.toList());
         List<AvailableAbilities> available = queryInterface.getAbilitiesForUnits(myUnits, false);
 
-        availableAbilities = available.stream().collect(
-                Collectors.toMap(
-                        AvailableAbilities::getUnitTag,
-                        abilities ->
-                                abilities.getAbilities().stream().map(AvailableAbility::getAbility).collect(Collectors.toSet()))
-        );
+        List<Set<Ability>> newAvailableAbilities =
+                new ArrayList<>(Collections.nCopies(unitHandles.handleLimit(), Collections.<Ability>emptySet()));
+        available.forEach(abilities -> {
+            int handle = unitHandles.getHandle(abilities.getUnitTag());
+            if (handle != UnitHandleRegistry.NO_HANDLE) {
+                newAvailableAbilities.set(handle,
+                        abilities.getAbilities().stream().map(AvailableAbility::getAbility).collect(Collectors.toSet()));
+            }
+        });
+        availableAbilities = newAvailableAbilities;
 
         List<UnitInPool> enemyUnits = observationInterface.getUnits(
                 UnitFilter.builder().alliance(Alliance.ENEMY).build());
@@ -258,6 +364,16 @@ public class GameData {
                 .filter(unitInPool -> this.isStructure(unitInPool.unit().getType()))
                 .map(UnitInPool::unit)
                 .collect(Collectors.toList()));
+
+        // Workers and army move every step; structures and resources rarely move, so are refreshed less often.
+        myWorkerMap.refresh();
+        myArmyMap.refresh();
+        if (observationInterface.getGameLoop() > staticIndexesRefreshedAt + STATIC_INDEX_REFRESH_INTERVAL) {
+            staticIndexesRefreshedAt = observationInterface.getGameLoop();
+            myStructureMap.refresh();
+            mineralFieldMap.refresh();
+            vespeneGeyserMap.refresh();
+        }
     }
 
 
@@ -0,0 +1,46 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.supalosa.bot.utils.IncrementalJob;
+
+/**
+ * Counts the creep on the map as a percentage of the pathable tiles, one column of the creep map per step.
+ */
+class CreepCoverageJob implements IncrementalJob<Float> {
+
+    private final ImageData creepData;
+    private final int pathableTiles;
+    private final int width;
+    private final int height;
+
+    private int x = 0;
+    private int pixelsWithCreep = 0;
+
+    CreepCoverageJob(ImageData creepData, int pathableTiles) {
+        this.creepData = creepData;
+        this.pathableTiles = pathableTiles;
+        this.width = creepData.getSize().getX();
+        this.height = creepData.getSize().getY();
+    }
+
+    @Override
+    public boolean step() {
+        if (x >= width) {
+            return true;
+        }
+        for (int y = 0; y < height; ++y) {
+            boolean creepAtPoint = (creepData.sample(Point2d.of(x, y), ImageData.Origin.BOTTOM_LEFT) > 0);
+            if (creepAtPoint) {
+                ++pixelsWithCreep;
+            }
+        }
+        ++x;
+        return x >= width;
+    }
+
+    @Override
+    public Float getResult() {
+        return pixelsWithCreep / (float)pathableTiles;
+    }
+}
@@ -31,6 +31,12 @@ public interface EnemyAwareness extends EnemyEconomyAwareness {
      */
     Army getOverallEnemyArmy();
 
+    /**
+     * Returns the recent positions and health of enemy units, including the last known position of units we can't
+     * see anymore.
+     */
+    EnemyUnitHistory getEnemyUnitHistory();
+
     void debug(S2Agent agent);
 
     void onUnitDestroyed(UnitInPool unit);
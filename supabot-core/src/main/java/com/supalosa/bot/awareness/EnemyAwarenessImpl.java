@@ -17,6 +17,7 @@ import com.supalosa.bot.AgentWithData;
 import com.supalosa.bot.Constants;
 import com.supalosa.bot.Expansions;
 import com.supalosa.bot.engagement.ThreatCalculator;
+import com.supalosa.bot.instrumentation.UpdateCadence;
 import com.supalosa.bot.utils.UnitFilter;
 
 import java.util.ArrayList;
@@ -52,16 +53,25 @@ public class EnemyAwarenessImpl implements EnemyAwareness {
 
     private EnemyEconomyAwarenessImpl enemyEconomyAwareness;
 
+    private final EnemyUnitHistory enemyUnitHistory;
+
     public EnemyAwarenessImpl(ThreatCalculator threatCalculator) {
         this.threatCalculator = threatCalculator;
         this.enemyEconomyAwareness = new EnemyEconomyAwarenessImpl();
+        this.enemyUnitHistory = new EnemyUnitHistory();
     }
 
     @Override
     public void onStep(AgentWithData agentWithData) {
         ObservationInterface observationInterface = agentWithData.observation();
         final long gameLoop = observationInterface.getGameLoop();
-        if (gameLoop > maybeEnemyArmyCalculatedAt + 22L) {
+        observationInterface.getUnits(Alliance.ENEMY).forEach(unitInPool -> {
+            if (unitInPool.unit().getDisplayType() == DisplayType.VISIBLE) {
+                enemyUnitHistory.record(unitInPool, gameLoop);
+            }
+        });
+        if (gameLoop > maybeEnemyArmyCalculatedAt +
+                agentWithData.cadenceController().getInterval(UpdateCadence.ENEMY_ARMY_CLUSTERS)) {
             maybeEnemyArmyCalculatedAt = observationInterface.getGameLoop();
             List<UnitInPool> allEnemyUnits = observationInterface.getUnits(
                     UnitFilter.builder()
@@ -194,6 +204,11 @@ public class EnemyAwarenessImpl implements EnemyAwareness {
         return fullEnemyArmy;
     }
 
+    @Override
+    public EnemyUnitHistory getEnemyUnitHistory() {
+        return enemyUnitHistory;
+    }
+
     private Collection<UnitType> getComposition(List<UnitInPool> unitInPools) {
         return unitInPools.stream().map(unitInPool -> unitInPool.unit().getType()).collect(Collectors.toList());
     }
@@ -214,12 +229,21 @@ public class EnemyAwarenessImpl implements EnemyAwareness {
                 }
             });
         });
+        // Show where we think missing units have gone.
+        final long gameLoop = agent.observation().getGameLoop();
+        missingEnemyUnits.forEach(unitInPool ->
+                enemyUnitHistory.getPredictedPosition(unitInPool.getTag(), gameLoop).ifPresent(predictedPosition -> {
+                    float z = agent.observation().terrainHeight(predictedPosition);
+                    Point point = Point.of(predictedPosition.getX(), predictedPosition.getY(), z);
+                    agent.debug().debugSphereOut(point, 0.5f, Color.YELLOW);
+                }));
         enemyEconomyAwareness.debug(agent);
     }
 
     @Override
     public void onUnitDestroyed(UnitInPool unit) {
         this.destroyedUnits.add(unit);
+        enemyUnitHistory.forget(unit.getTag());
     }
 
     @Override
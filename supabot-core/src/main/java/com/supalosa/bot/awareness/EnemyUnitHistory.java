@@ -0,0 +1,236 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.supalosa.bot.utils.UnitHandleRegistry;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Keeps the last few observed positions, health and game loops of each enemy unit in fixed-size ring buffers.
+ *
+ * The buffers are stored as flat arrays indexed by a slot handle. History has to outlive the unit being in vision,
+ * so the slots have their own handles rather than the observation's: a slot is freed when the unit dies, or
+ * evicted (oldest sighting first) when all of them are in use. Memory is bounded by
+ * {@code MAX_TRACKED_UNITS * SAMPLES_PER_UNIT}, regardless of how long the game runs.
+ */
+public class EnemyUnitHistory {
+
+    // Number of samples kept per unit.
+    static final int SAMPLES_PER_UNIT = 16;
+    // Minimum game loops between samples of the same unit, so the buffer covers a few seconds.
+    static final long SAMPLE_INTERVAL = 4L;
+    // Hard limit on the number of units tracked at once.
+    static final int MAX_TRACKED_UNITS = 2048;
+    // Velocity is not extrapolated further than this.
+    private static final long MAX_EXTRAPOLATION_LOOPS = 22L * 5;
+
+    private final UnitHandleRegistry slotHandles = new UnitHandleRegistry();
+
+    // Per unit. slotTags[handle] is 0 if the slot is free.
+    private long[] slotTags = new long[0];
+    private int[] heads = new int[0];
+    private int[] counts = new int[0];
+
+    // Per sample, at [handle * SAMPLES_PER_UNIT + index].
+    private float[] sampleX = new float[0];
+    private float[] sampleY = new float[0];
+    private float[] sampleHealth = new float[0];
+    private long[] sampleGameLoop = new long[0];
+
+    public void record(UnitInPool unitInPool, long gameLoop) {
+        Unit unit = unitInPool.unit();
+        record(unitInPool.getTag(),
+                unit.getPosition().toPoint2d(),
+                unit.getHealth().orElse(0f) + unit.getShield().orElse(0f),
+                gameLoop);
+    }
+
+    public void record(Tag tag, Point2d position, float healthAndShields, long gameLoop) {
+        int handle = slotHandles.getHandle(tag);
+        if (handle == UnitHandleRegistry.NO_HANDLE) {
+            if (slotHandles.size() >= MAX_TRACKED_UNITS) {
+                evictOldest();
+            }
+            handle = slotHandles.acquire(tag);
+        }
+        ensureCapacity(handle + 1);
+        long tagValue = tag.getValue();
+        if (slotTags[handle] != tagValue) {
+            // New unit, or the slot was freed by a dead or evicted one.
+            slotTags[handle] = tagValue;
+            heads[handle] = 0;
+            counts[handle] = 0;
+        } else if (counts[handle] > 0 && gameLoop < sampleGameLoop[latestIndex(handle)] + SAMPLE_INTERVAL) {
+            return;
+        }
+        int index = handle * SAMPLES_PER_UNIT + heads[handle];
+        sampleX[index] = position.getX();
+        sampleY[index] = position.getY();
+        sampleHealth[index] = healthAndShields;
+        sampleGameLoop[index] = gameLoop;
+        heads[handle] = (heads[handle] + 1) % SAMPLES_PER_UNIT;
+        counts[handle] = Math.min(counts[handle] + 1, SAMPLES_PER_UNIT);
+    }
+
+    /**
+     * Frees the unit's slot. Called when the unit dies.
+     */
+    public void forget(Tag tag) {
+        int handle = slotHandles.getHandle(tag);
+        if (handle == UnitHandleRegistry.NO_HANDLE) {
+            return;
+        }
+        slotHandles.release(tag);
+        if (handle < slotTags.length) {
+            slotTags[handle] = 0L;
+            counts[handle] = 0;
+        }
+    }
+
+    /**
+     * The number of units that currently have a slot.
+     */
+    public int getTrackedUnitCount() {
+        return slotHandles.size();
+    }
+
+    /**
+     * Returns the position where the unit was last seen.
+     */
+    public Optional<Point2d> getLastKnownPosition(Tag tag) {
+        int handle = getTrackedHandle(tag);
+        if (handle == UnitHandleRegistry.NO_HANDLE) {
+            return Optional.empty();
+        }
+        int index = latestIndex(handle);
+        return Optional.of(Point2d.of(sampleX[index], sampleY[index]));
+    }
+
+    public OptionalLong getLastSeenGameLoop(Tag tag) {
+        int handle = getTrackedHandle(tag);
+        if (handle == UnitHandleRegistry.NO_HANDLE) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(sampleGameLoop[latestIndex(handle)]);
+    }
+
+    /**
+     * Returns the average velocity of the unit over the buffered samples, in distance per game loop.
+     */
+    public Optional<Point2d> getVelocity(Tag tag) {
+        int handle = getTrackedHandle(tag);
+        if (handle == UnitHandleRegistry.NO_HANDLE || counts[handle] < 2) {
+            return Optional.empty();
+        }
+        int latest = latestIndex(handle);
+        int oldest = oldestIndex(handle);
+        long elapsed = sampleGameLoop[latest] - sampleGameLoop[oldest];
+        if (elapsed <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Point2d.of(
+                (sampleX[latest] - sampleX[oldest]) / elapsed,
+                (sampleY[latest] - sampleY[oldest]) / elapsed));
+    }
+
+    /**
+     * Estimates where the unit is at the given game loop by extrapolating its last known velocity.
+     * Extrapolation is limited to a few seconds past when it was last seen.
+     */
+    public Optional<Point2d> getPredictedPosition(Tag tag, long gameLoop) {
+        Optional<Point2d> lastKnownPosition = getLastKnownPosition(tag);
+        if (lastKnownPosition.isEmpty()) {
+            return Optional.empty();
+        }
+        long elapsed = Math.min(MAX_EXTRAPOLATION_LOOPS, gameLoop - getLastSeenGameLoop(tag).getAsLong());
+        return Optional.of(getVelocity(tag)
+                .map(velocity -> lastKnownPosition.get().add(velocity.mul((float) elapsed)))
+                .orElse(lastKnownPosition.get()));
+    }
+
+    /**
+     * Returns the total change in health and shields of the given units since the given game loop, as
+     * seen in the buffered samples. A negative value means the units are taking damage.
+     */
+    public float getHealthChangeSince(Collection<Tag> tags, long sinceGameLoop) {
+        float total = 0f;
+        for (Tag tag : tags) {
+            int handle = getTrackedHandle(tag);
+            if (handle == UnitHandleRegistry.NO_HANDLE) {
+                continue;
+            }
+            int latest = latestIndex(handle);
+            // Find the oldest sample that is still within the window.
+            int earliest = latest;
+            for (int i = 1; i < counts[handle]; ++i) {
+                int index = handle * SAMPLES_PER_UNIT + Math.floorMod(heads[handle] - 1 - i, SAMPLES_PER_UNIT);
+                if (sampleGameLoop[index] < sinceGameLoop) {
+                    break;
+                }
+                earliest = index;
+            }
+            total += sampleHealth[latest] - sampleHealth[earliest];
+        }
+        return total;
+    }
+
+    private int getTrackedHandle(Tag tag) {
+        int handle = slotHandles.getHandle(tag);
+        if (handle == UnitHandleRegistry.NO_HANDLE ||
+                handle >= slotTags.length ||
+                slotTags[handle] != tag.getValue() ||
+                counts[handle] == 0) {
+            return UnitHandleRegistry.NO_HANDLE;
+        }
+        return handle;
+    }
+
+    /**
+     * Frees the slot of the unit that was seen least recently.
+     */
+    private void evictOldest() {
+        int oldestHandle = UnitHandleRegistry.NO_HANDLE;
+        long oldestGameLoop = Long.MAX_VALUE;
+        for (int handle = 0; handle < slotTags.length; ++handle) {
+            if (slotTags[handle] == 0L) {
+                continue;
+            }
+            long lastSeen = counts[handle] == 0 ? Long.MIN_VALUE : sampleGameLoop[latestIndex(handle)];
+            if (lastSeen < oldestGameLoop) {
+                oldestGameLoop = lastSeen;
+                oldestHandle = handle;
+            }
+        }
+        if (oldestHandle != UnitHandleRegistry.NO_HANDLE) {
+            forget(Tag.of(slotTags[oldestHandle]));
+        }
+    }
+
+    private int latestIndex(int handle) {
+        return handle * SAMPLES_PER_UNIT + Math.floorMod(heads[handle] - 1, SAMPLES_PER_UNIT);
+    }
+
+    private int oldestIndex(int handle) {
+        return handle * SAMPLES_PER_UNIT + Math.floorMod(heads[handle] - counts[handle], SAMPLES_PER_UNIT);
+    }
+
+    private void ensureCapacity(int units) {
+        if (units <= slotTags.length) {
+            return;
+        }
+        int newCapacity = Math.min(MAX_TRACKED_UNITS, Math.max(units, Math.max(64, slotTags.length * 2)));
+        slotTags = Arrays.copyOf(slotTags, newCapacity);
+        heads = Arrays.copyOf(heads, newCapacity);
+        counts = Arrays.copyOf(counts, newCapacity);
+        sampleX = Arrays.copyOf(sampleX, newCapacity * SAMPLES_PER_UNIT);
+        sampleY = Arrays.copyOf(sampleY, newCapacity * SAMPLES_PER_UNIT);
+        sampleHealth = Arrays.copyOf(sampleHealth, newCapacity * SAMPLES_PER_UNIT);
+        sampleGameLoop = Arrays.copyOf(sampleGameLoop, newCapacity * SAMPLES_PER_UNIT);
+    }
+}
@@ -0,0 +1,106 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.supalosa.bot.Constants;
+import com.supalosa.bot.Expansion;
+import com.supalosa.bot.utils.IncrementalJob;
+import com.supalosa.bot.utils.UnitFilter;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Checks which expansions we could build on, and which ones the enemy has taken, one expansion per step. Each
+ * check can involve a placement query to the server, which is what makes doing them all at once expensive.
+ */
+class ExpansionValidationJob implements IncrementalJob<ExpansionValidationJob.Result> {
+
+    /**
+     * The expansions that passed validation (in the order they were given) and the positions of known enemy bases.
+     */
+    static class Result {
+        final List<Expansion> validExpansions;
+        final List<Point2d> knownEnemyBases;
+
+        Result(List<Expansion> validExpansions, List<Point2d> knownEnemyBases) {
+            this.validExpansions = validExpansions;
+            this.knownEnemyBases = knownEnemyBases;
+        }
+    }
+
+    private final ObservationInterface observationInterface;
+    private final QueryInterface queryInterface;
+    private final Function<Point2d, Optional<RegionData>> regionDataForPoint;
+    private final List<Expansion> expansions;
+    private final List<UnitInPool> minerals;
+
+    private final List<Expansion> validExpansions = new ArrayList<>();
+    private final List<Point2d> knownEnemyBases = new ArrayList<>();
+    private int index = 0;
+
+    ExpansionValidationJob(ObservationInterface observationInterface,
+                           QueryInterface queryInterface,
+                           Function<Point2d, Optional<RegionData>> regionDataForPoint,
+                           List<Expansion> expansions) {
+        this.observationInterface = observationInterface;
+        this.queryInterface = queryInterface;
+        this.regionDataForPoint = regionDataForPoint;
+        this.expansions = expansions;
+        this.minerals = observationInterface.getUnits(UnitFilter.builder()
+                .alliance(Alliance.NEUTRAL)
+                .unitTypes(Constants.MINERAL_TYPES).build());
+    }
+
+    @Override
+    public boolean step() {
+        if (index >= expansions.size()) {
+            return true;
+        }
+        Expansion expansion = expansions.get(index++);
+        if (isValid(expansion)) {
+            validExpansions.add(expansion);
+        }
+        List<UnitInPool> units = observationInterface.getUnits(
+                UnitFilter.builder()
+                        .unitTypes(Constants.ALL_TOWN_HALL_TYPES)
+                        .alliance(Alliance.ENEMY)
+                        .inRangeOf(expansion.position())
+                        .range(2.5f)
+                        .includeIncomplete(true)
+                        .build());
+        if (units.size() > 0) {
+            knownEnemyBases.add(expansion.position());
+        }
+        return index >= expansions.size();
+    }
+
+    private boolean isValid(Expansion expansion) {
+        if (!observationInterface.isPlacable(expansion.position())) {
+            return false;
+        }
+        // Only expand if the region is not controlled by the enemy.
+        Optional<RegionData> region = regionDataForPoint.apply(expansion.position());
+        if (region.isPresent() && region.get().isEnemyControlled()) {
+            return false;
+        }
+        int remainingMinerals = expansion.resourcePositions().stream().mapToInt(point2d -> {
+            Optional<UnitInPool> maybeMineral = minerals.stream()
+                    .filter(mineral -> mineral.unit().getPosition().toPoint2d().equals(point2d))
+                    .findFirst();
+            // We use '100' for unknown mineral content (placeholder for snapshots)
+            return maybeMineral.map(unitInPool -> unitInPool.unit().getMineralContents().orElse(100)).orElse(0);
+        }).sum();
+        return remainingMinerals > 0 &&
+                queryInterface.placement(Abilities.BUILD_COMMAND_CENTER, expansion.position());
+    }
+
+    @Override
+    public Result getResult() {
+        return new Result(validExpansions, knownEnemyBases);
+    }
+}
@@ -0,0 +1,89 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+
+import java.util.Arrays;
+
+/**
+ * Stores the last game loop that each tile of the map was visible, at full tile resolution.
+ *
+ * The raster is updated from the visibility map in one pass per step, so asking how stale an area is only costs an
+ * array lookup rather than a visibility query against the observation.
+ */
+public class LastSeenRaster {
+
+    public static final int NEVER_SEEN = -1;
+
+    // Value of a tile in the visibility map that is currently visible (0 = hidden, 1 = fogged).
+    private static final int VISIBLE = 2;
+
+    private int width = 0;
+    private int height = 0;
+    // Indexed by [x + y * width], with the origin in the bottom left like world coordinates.
+    private int[] lastSeen = new int[0];
+
+    public void update(ImageData visibilityMap, long gameLoop) {
+        int mapWidth = visibilityMap.getSize().getX();
+        int mapHeight = visibilityMap.getSize().getY();
+        if (visibilityMap.getBitsPerPixel() == 8) {
+            update(visibilityMap.getData().toByteArray(), mapWidth, mapHeight, gameLoop);
+        } else {
+            // Not expected for the visibility map, but fall back to sampling each tile.
+            resize(mapWidth, mapHeight);
+            int loop = (int) gameLoop;
+            for (int y = 0; y < mapHeight; ++y) {
+                for (int x = 0; x < mapWidth; ++x) {
+                    if (visibilityMap.sample(Point2d.of(x, y), ImageData.Origin.BOTTOM_LEFT) == VISIBLE) {
+                        lastSeen[x + y * mapWidth] = loop;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the raster from raw 8-bit visibility data, which has its origin in the upper left.
+     */
+    void update(byte[] visibility, int mapWidth, int mapHeight, long gameLoop) {
+        resize(mapWidth, mapHeight);
+        int loop = (int) gameLoop;
+        for (int row = 0; row < mapHeight; ++row) {
+            int sourceOffset = row * mapWidth;
+            int destinationOffset = (mapHeight - 1 - row) * mapWidth;
+            for (int x = 0; x < mapWidth; ++x) {
+                if (visibility[sourceOffset + x] == VISIBLE) {
+                    lastSeen[destinationOffset + x] = loop;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the game loop the tile was last visible, or {@code NEVER_SEEN}.
+     */
+    public int getLastSeenGameLoop(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return NEVER_SEEN;
+        }
+        return lastSeen[x + y * width];
+    }
+
+    public int getLastSeenGameLoop(Point2d point) {
+        return getLastSeenGameLoop((int) point.getX(), (int) point.getY());
+    }
+
+    public boolean hasBeenSeen(Point2d point) {
+        return getLastSeenGameLoop(point) != NEVER_SEEN;
+    }
+
+    private void resize(int mapWidth, int mapHeight) {
+        if (mapWidth == width && mapHeight == height) {
+            return;
+        }
+        width = mapWidth;
+        height = mapHeight;
+        lastSeen = new int[mapWidth * mapHeight];
+        Arrays.fill(lastSeen, NEVER_SEEN);
+    }
+}
@@ -13,6 +13,7 @@ import com.supalosa.bot.pathfinding.RegionGraphPath;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 public interface MapAwareness {
 
@@ -96,6 +97,11 @@ public interface MapAwareness {
 
     Optional<Point2d> getNextScoutTarget();
 
+    /**
+     * Returns the game loop that the tile at the given point was last visible, or empty if it has never been seen.
+     */
+    OptionalLong getLastSeenGameLoop(Point2d point);
+
     Optional<Float> getObservedCreepCoverage();
 
     void setMapAnalysisResults(AnalysisResults mapAnalysis);
@@ -2,11 +2,9 @@ package com.supalosa.bot.awareness;
 
 import com.github.ocraft.s2client.bot.S2Agent;
 import com.github.ocraft.s2client.bot.gateway.*;
-import com.github.ocraft.s2client.protocol.data.Abilities;
 import com.github.ocraft.s2client.protocol.data.UnitAttribute;
 import com.github.ocraft.s2client.protocol.data.Units;
 import com.github.ocraft.s2client.protocol.debug.Color;
-import com.github.ocraft.s2client.protocol.observation.raw.Visibility;
 import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
 import com.github.ocraft.s2client.protocol.spatial.Point;
 import com.github.ocraft.s2client.protocol.spatial.Point2d;
@@ -19,13 +17,18 @@ import com.supalosa.bot.Expansions;
 import com.supalosa.bot.analysis.AnalysisResults;
 import com.supalosa.bot.analysis.Region;
 import com.supalosa.bot.engagement.ThreatCalculator;
-import com.supalosa.bot.pathfinding.GraphUtils;
+import com.supalosa.bot.instrumentation.CadenceController;
+import com.supalosa.bot.instrumentation.UpdateCadence;
+import com.supalosa.bot.pathfinding.DynamicPathingGrid;
 import com.supalosa.bot.pathfinding.RegionGraph;
 import com.supalosa.bot.pathfinding.RegionGraphPath;
+import com.supalosa.bot.utils.IncrementalJob;
+import com.supalosa.bot.utils.TimeSlicedJob;
 import com.supalosa.bot.utils.UnitFilter;
 
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class MapAwarenessImpl implements MapAwareness {
@@ -42,8 +45,8 @@ public class MapAwarenessImpl implements MapAwareness {
     // A map of locations that should be scouted, and when they were last seen.
     private final Map<Point2d, Long> scoutableLocationsToLastSeenTime = new HashMap<>();
 
-    // A map of region IDs to when their centre-point was last seen.
-    private final Map<Integer, Long> regionCentrepointToLastSeenTime = new HashMap<>();
+    // The last game loop each tile of the map was visible.
+    private final LastSeenRaster lastSeenRaster = new LastSeenRaster();
 
     // A set of points that need to be scouted.
     private final Set<Point2d> scoutableLocations = new HashSet<>();
@@ -54,21 +57,35 @@ public class MapAwarenessImpl implements MapAwareness {
     LinkedHashSet<Expansion> validExpansionLocations = new LinkedHashSet<>();
     private Optional<List<Expansion>> expansionLocations = Optional.empty();
 
-    private long expansionsValidatedAt = 0L;
+    // The heavy periodic jobs are spread over several steps, so they don't all land on the same step.
+    private static final long EXPANSION_VALIDATION_BUDGET_NANOS = 1_000_000L;
+    private static final long CREEP_ANALYSIS_BUDGET_NANOS = 500_000L;
+    private static final long REGION_REFRESH_BUDGET_NANOS = 2_000_000L;
+    private final TimeSlicedJob<ExpansionValidationJob.Result> expansionValidationJob =
+            new TimeSlicedJob<>("ExpansionValidation",
+                    UpdateCadence.EXPANSION_VALIDATION.getDefaultInterval(),
+                    EXPANSION_VALIDATION_BUDGET_NANOS);
 
     // Temporary 'binary' enemy positions.
     private Optional<Point2d> maybeEnemyPositionNearEnemy = Optional.empty();
     private Optional<Point2d> maybeEnemyPositionNearBase = Optional.empty();
 
-    private final long myDefendableStructuresCalculatedAt = 0L;
+    private long myDefendableStructuresCalculatedAt = 0L;
     private List<Unit> myDefendableStructures = new ArrayList<>();
 
-    private Optional<ImageData> cachedCreepMap = Optional.empty();
-    private Optional<Float> creepCoveragePercentage = Optional.empty();
-    private long creepMapUpdatedAt = 0L;
+    private final TimeSlicedJob<Float> creepAnalysisJob =
+            new TimeSlicedJob<>("CreepAnalysis",
+                    UpdateCadence.CREEP_ANALYSIS.getDefaultInterval(),
+                    CREEP_ANALYSIS_BUDGET_NANOS);
 
     private Map<Integer, RegionData> regionData = new HashMap<>();
+    // Refreshes the region data and graphs a slice at a time, unless the graphs are built by the step pipeline.
+    private final TimeSlicedJob<RegionRefreshJob.Result> regionRefreshJob =
+            new TimeSlicedJob<>("RegionRefresh",
+                    UpdateCadence.REGION_DATA.getDefaultInterval(),
+                    REGION_REFRESH_BUDGET_NANOS);
     private long regionDataCalculatedAt = 0L;
+    private long regionDataRampStateVersion = 0L;
 
     private Optional<RegionGraph> normalGraph = Optional.empty();
     private Optional<RegionGraph> avoidArmyGraph = Optional.empty();
@@ -194,6 +211,12 @@ public class MapAwarenessImpl implements MapAwareness {
 
     @Override
     public void onStep(AgentData data, S2Agent agent) {
+        CadenceController cadence = data.cadenceController();
+        expansionValidationJob.setIntervalLoops(cadence.getInterval(UpdateCadence.EXPANSION_VALIDATION));
+        creepAnalysisJob.setIntervalLoops(cadence.getInterval(UpdateCadence.CREEP_ANALYSIS));
+        regionRefreshJob.setIntervalLoops(cadence.getInterval(UpdateCadence.REGION_DATA));
+
+        updateLastSeenRaster(agent.observation());
         manageScouting(data, agent.observation(), agent.actions(), agent.query());
         updateExpansionsAndBases(agent.observation(), agent.query());
         updateMyDefendableStructures(data, agent.observation());
@@ -206,62 +229,111 @@ public class MapAwarenessImpl implements MapAwareness {
     }
 
     private void updateRegionData(AgentData data, S2Agent agent) {
+        if (data.mapAnalysis().isEmpty()) {
+            return;
+        }
         long gameLoop = agent.observation().getGameLoop();
-        if (data.mapAnalysis().isPresent() && gameLoop > regionDataCalculatedAt + 33L) {
+        AnalysisResults analysisResults = data.mapAnalysis().get();
+        // Recalculate immediately if a ramp was blocked or unblocked, as the pathing graphs depend on it.
+        long rampStateVersion = data.pathingGrid().map(DynamicPathingGrid::getRampStateVersion).orElse(0L);
+        boolean rampStateChanged = rampStateVersion != regionDataRampStateVersion;
+        // The region data reads the observation, so it is always calculated during the step.
+        Supplier<Map<Integer, RegionData>> regionDataCalculation = () ->
+                regionDataCalculator.calculateRegionData(agent,
+                        analysisResults,
+                        regionData,
+                        knownEnemyBases,
+                        scoutableLocationsToLastSeenTime,
+                        lastSeenRaster,
+                        data.pathingGrid());
+
+        if (data.stepPipeline().isEnabled()) {
+            // A run that was sliced before the pipeline was enabled would be out of date by the time it finished.
+            if (regionRefreshJob.isRunning()) {
+                regionRefreshJob.restart();
+            }
+            if (rampStateChanged || gameLoop > regionDataCalculatedAt +
+                    data.cadenceController().getInterval(UpdateCadence.REGION_DATA)) {
+                regionDataCalculatedAt = gameLoop;
+                regionDataRampStateVersion = rampStateVersion;
+                Map<Integer, RegionData> newRegionData =
+                        RegionRefreshJob.calculateRegionData(gameLoop, rampStateChanged, regionDataCalculation);
+                regionData = newRegionData;
+                // The graphs only depend on the region data, so they are built after the actions are sent and
+                // replaced at the start of the next step.
+                data.stepPipeline().schedule("RegionGraphs",
+                        () -> RegionGraphs.build(gameLoop, analysisResults, newRegionData),
+                        this::setRegionGraphs);
+            }
+            return;
+        }
+
+        // Without the pipeline the graphs would be built on the main thread all at once, so build one per step.
+        regionDataRampStateVersion = rampStateVersion;
+        Supplier<IncrementalJob<RegionRefreshJob.Result>> jobFactory =
+                () -> new RegionRefreshJob(gameLoop, rampStateChanged, analysisResults, regionDataCalculation);
+        boolean completed;
+        if (rampStateChanged) {
+            regionRefreshJob.runToCompletion(gameLoop, jobFactory);
+            completed = true;
+        } else {
+            completed = regionRefreshJob.onStep(gameLoop, jobFactory);
+        }
+        if (completed) {
             regionDataCalculatedAt = gameLoop;
-            AnalysisResults analysisResults = data.mapAnalysis().get();
-            regionData = regionDataCalculator.calculateRegionData(agent,
-                    analysisResults,
-                    regionData,
-                    knownEnemyBases,
-                    scoutableLocationsToLastSeenTime,
-                    regionCentrepointToLastSeenTime);
-
-            normalGraph = Optional.of(GraphUtils.createGraph(analysisResults, Region::connectedRegions, regionData,
-                    (sourceRegion, destinationRegion) -> destinationRegion.weight()));
-
-            // Edges are weighted by the diffuse enemy threat.
-            avoidArmyGraph = Optional.of(GraphUtils.createGraph(analysisResults, Region::connectedRegions, regionData,
-                    (sourceRegion, destinationRegion) -> destinationRegion.diffuseEnemyThreat()));
-
-            avoidKillzoneGraph = Optional.of(GraphUtils.createGraph(analysisResults, Region::connectedRegions, regionData,
-                    (sourceRegion, destinationRegion) -> destinationRegion.killzoneFactor() < 10.0f ? destinationRegion.killzoneFactor() : null));
-
-            airAvoidArmyGraph = Optional.of(GraphUtils.createGraph(analysisResults, Region::nearbyRegions, regionData,
-                    (sourceRegion, destinationRegion) -> destinationRegion.diffuseEnemyThreat()));
+            regionRefreshJob.getResult().ifPresent(result -> {
+                regionData = result.regionData;
+                setRegionGraphs(result.graphs);
+            });
         }
     }
 
+    private void setRegionGraphs(RegionGraphs graphs) {
+        normalGraph = Optional.of(graphs.normalGraph);
+        avoidArmyGraph = Optional.of(graphs.avoidArmyGraph);
+        avoidKillzoneGraph = Optional.of(graphs.avoidKillzoneGraph);
+        airAvoidArmyGraph = Optional.of(graphs.airAvoidArmyGraph);
+    }
+
+    private void updateLastSeenRaster(ObservationInterface observationInterface) {
+        long gameLoop = observationInterface.getGameLoop();
+        observationInterface.getRawObservation().getRaw()
+                .map(raw -> raw.getMapState().getVisibility())
+                .ifPresent(visibilityMap -> lastSeenRaster.update(visibilityMap, gameLoop));
+    }
+
+    @Override
+    public OptionalLong getLastSeenGameLoop(Point2d point) {
+        int lastSeen = lastSeenRaster.getLastSeenGameLoop(point);
+        return lastSeen == LastSeenRaster.NEVER_SEEN ? OptionalLong.empty() : OptionalLong.of(lastSeen);
+    }
+
     private void analyseCreep(AgentData data, S2Agent agent) {
-        if (agent.observation().getGameLoop() > creepMapUpdatedAt + 22L * 10) {
-            creepMapUpdatedAt = agent.observation().getGameLoop();
-            cachedCreepMap = agent.observation().getRawObservation().getRaw().map(raw -> raw.getMapState().getCreep());
-            cachedCreepMap.ifPresent(creepData -> {
-                data.mapAnalysis().ifPresent(mapAnalysis -> {
-                    int pixelsWithCreep = 0;
-                    for (int x = 0; x < creepData.getSize().getX(); ++x) {
-                        for (int y = 0; y < creepData.getSize().getY(); ++y) {
-                            boolean creepAtPoint = (creepData.sample(Point2d.of(x, y), ImageData.Origin.BOTTOM_LEFT) > 0);
-                            if (creepAtPoint) {
-                                ++pixelsWithCreep;
-                            }
-                        }
-                    }
-                    float creepPercentage = pixelsWithCreep / (float)mapAnalysis.getPathableTiles();
-                    creepCoveragePercentage = Optional.of(creepPercentage);
-                });
-            });
+        // Creep coverage is only used for strategy, so it waits while the step time is over budget.
+        if (data.cadenceController().isDegraded()) {
+            return;
         }
+        creepAnalysisJob.onStep(agent.observation().getGameLoop(), () -> {
+            Optional<ImageData> creepMap = agent.observation().getRawObservation().getRaw()
+                    .map(raw -> raw.getMapState().getCreep());
+            if (creepMap.isPresent() && data.mapAnalysis().isPresent()) {
+                return new CreepCoverageJob(creepMap.get(), data.mapAnalysis().get().getPathableTiles());
+            } else {
+                return IncrementalJob.empty();
+            }
+        });
     }
 
     @Override
     public Optional<Float> getObservedCreepCoverage() {
-        return creepCoveragePercentage;
+        return creepAnalysisJob.getResult();
     }
 
     private void updateMyDefendableStructures(AgentData data, ObservationInterface observation) {
         long gameLoop = observation.getGameLoop();
-        if (gameLoop > myDefendableStructuresCalculatedAt + 22L * 4) {
+        if (gameLoop > myDefendableStructuresCalculatedAt +
+                data.cadenceController().getInterval(UpdateCadence.DEFENDABLE_STRUCTURES)) {
+            myDefendableStructuresCalculatedAt = gameLoop;
             myDefendableStructures.clear();
             List<Unit> structures = observation.getUnits(Alliance.SELF, unitInPool ->
                 data.gameData().isStructure(unitInPool.unit().getType())
@@ -301,82 +373,59 @@ public class MapAwarenessImpl implements MapAwareness {
 
 
     private void updateExpansionsAndBases(ObservationInterface observationInterface, QueryInterface queryInterface) {
+        if (this.expansionLocations.isEmpty()) {
+            return;
+        }
         long gameLoop = observationInterface.getGameLoop();
-        if (this.expansionLocations.isPresent() && gameLoop > expansionsValidatedAt + 44L) {
-            expansionsValidatedAt = gameLoop;
-
-            // Calculate the region which represents our main, natural and third bases.
-            mainBaseRegion = startPosition.flatMap(this::getRegionDataForPoint);
-            if (naturalBaseRegion.isEmpty() || thirdBaseRegion.isEmpty()) {
-                List<UnitInPool> myTownHalls = observationInterface.getUnits(
-                        UnitFilter.builder()
-                                .unitTypes(Constants.ALL_TOWN_HALL_TYPES)
-                                .includeIncomplete(true)
-                                .alliance(Alliance.SELF)
-                                .build());
-                Set<Integer> accountedRegions = new HashSet<>();
-                mainBaseRegion.ifPresent(region -> accountedRegions.add(region.region().regionId()));
-                naturalBaseRegion.ifPresent(region -> accountedRegions.add(region.region().regionId()));
-                thirdBaseRegion.ifPresent(region -> accountedRegions.add(region.region().regionId()));
-                myTownHalls = myTownHalls.stream().filter(unitInPool ->
-                        getRegionDataForPoint(unitInPool.unit().getPosition().toPoint2d())
-                                .filter(region -> !accountedRegions.contains(region.region().regionId()))
-                                .isPresent())
-                        .collect(Collectors.toList());
-                if (myTownHalls.size() > 0) {
-                    if (naturalBaseRegion.isEmpty()) {
-                        naturalBaseRegion = getRegionDataForPoint(myTownHalls.get(0).unit().getPosition().toPoint2d());
-                    } else if (thirdBaseRegion.isEmpty()) {
-                        thirdBaseRegion = getRegionDataForPoint(myTownHalls.get(0).unit().getPosition().toPoint2d());
-                    }
-                }
-            }
+        boolean completed = expansionValidationJob.onStep(gameLoop, () -> new ExpansionValidationJob(
+                observationInterface,
+                queryInterface,
+                this::getRegionDataForPoint,
+                this.expansionLocations.get()));
+        if (!completed) {
+            return;
+        }
+        updateBaseRegions(observationInterface);
 
+        expansionValidationJob.getResult().ifPresent(result -> {
             // ExpansionLocations is ordered by distance to start point.
             this.validExpansionLocations = new LinkedHashSet<>();
-            List<UnitInPool> minerals = observationInterface.getUnits(UnitFilter.builder()
-                    .alliance(Alliance.NEUTRAL)
-                    .unitTypes(Constants.MINERAL_TYPES).build());
-            for (Expansion expansion : this.expansionLocations.get()) {
-                if (!observationInterface.isPlacable(expansion.position())) {
-                    continue;
-                }
-                // Only expand if the region is not controlled by the enemy.
-                Optional<RegionData> region = getRegionDataForPoint(expansion.position());
-                if (region.isPresent() && region.get().isEnemyControlled()) {
-                    continue;
+            result.validExpansions.forEach(expansion -> {
+                if (gameLoop > expansionNextValidAt.getOrDefault(expansion, 0L)) {
+                    this.validExpansionLocations.add(expansion);
                 }
-                int remainingMinerals = expansion.resourcePositions().stream().mapToInt(point2d -> {
-                    Optional<UnitInPool> maybeMineral = minerals.stream()
-                            .filter(mineral -> mineral.unit().getPosition().toPoint2d().equals(point2d))
-                            .findFirst();
-                    // We use '100' for unknown mineral content (placeholder for snapshots)
-                    return maybeMineral.map(unitInPool -> unitInPool.unit().getMineralContents().orElse(100)).orElse(0);
-                }).sum();
-                //System.out.println("Expansion at " + expansion.position() + " has " + remainingMinerals + " remaining");
-                if (remainingMinerals > 0 &&
-                        queryInterface.placement(Abilities.BUILD_COMMAND_CENTER, expansion.position())) {
-                    if (gameLoop > expansionNextValidAt.getOrDefault(expansion, 0L)) {
-                        this.validExpansionLocations.add(expansion);
-                    }
+            });
+            knownEnemyBases.clear();
+            knownEnemyBases.addAll(result.knownEnemyBases);
+        });
+    }
+
+    // Calculate the region which represents our main, natural and third bases.
+    private void updateBaseRegions(ObservationInterface observationInterface) {
+        mainBaseRegion = startPosition.flatMap(this::getRegionDataForPoint);
+        if (naturalBaseRegion.isEmpty() || thirdBaseRegion.isEmpty()) {
+            List<UnitInPool> myTownHalls = observationInterface.getUnits(
+                    UnitFilter.builder()
+                            .unitTypes(Constants.ALL_TOWN_HALL_TYPES)
+                            .includeIncomplete(true)
+                            .alliance(Alliance.SELF)
+                            .build());
+            Set<Integer> accountedRegions = new HashSet<>();
+            mainBaseRegion.ifPresent(region -> accountedRegions.add(region.region().regionId()));
+            naturalBaseRegion.ifPresent(region -> accountedRegions.add(region.region().regionId()));
+            thirdBaseRegion.ifPresent(region -> accountedRegions.add(region.region().regionId()));
+            myTownHalls = myTownHalls.stream().filter(unitInPool ->
+                    getRegionDataForPoint(unitInPool.unit().getPosition().toPoint2d())
+                            .filter(region -> !accountedRegions.contains(region.region().regionId()))
+                            .isPresent())
+                    .collect(Collectors.toList());
+            if (myTownHalls.size() > 0) {
+                if (naturalBaseRegion.isEmpty()) {
+                    naturalBaseRegion = getRegionDataForPoint(myTownHalls.get(0).unit().getPosition().toPoint2d());
+                } else if (thirdBaseRegion.isEmpty()) {
+                    thirdBaseRegion = getRegionDataForPoint(myTownHalls.get(0).unit().getPosition().toPoint2d());
                 }
             }
-            knownEnemyBases.clear();
-            expansionLocations.ifPresent(expansions -> {
-                expansions.forEach(expansion -> {
-                    List<UnitInPool> units = observationInterface.getUnits(
-                            UnitFilter.builder()
-                                    .unitTypes(Constants.ALL_TOWN_HALL_TYPES)
-                                    .alliance(Alliance.ENEMY)
-                                    .inRangeOf(expansion.position())
-                                    .range(2.5f)
-                                    .includeIncomplete(true)
-                                    .build());
-                    if (units.size() > 0) {
-                        knownEnemyBases.add(expansion.position());
-                    }
-                });
-            });
         }
     }
 
@@ -408,12 +457,12 @@ public class MapAwarenessImpl implements MapAwareness {
     }
 
     /**
-     * Returns a random, unscouted position on the map - either an expansion or a starting location
-     * that we haven't seen yet.
+     * Returns the unscouted position on the map that was seen the longest time ago - either an expansion or a
+     * starting location.
      */
-    private Optional<Point2d> findRandomUnscoutedLocation() {
-        // We're somewhat reliant on the undefined ordering of the keys of a hashmap...
-        return scoutableLocations.stream().findAny();
+    private Optional<Point2d> findStalestUnscoutedLocation() {
+        return scoutableLocations.stream()
+                .min(Comparator.comparing(location -> scoutableLocationsToLastSeenTime.getOrDefault(location, 0L)));
     }
 
     private void manageScouting(
@@ -486,23 +535,15 @@ public class MapAwarenessImpl implements MapAwareness {
         scoutableLocationsToLastSeenTime.entrySet().forEach(entry -> {
             Point2d location = entry.getKey();
             long lastSeenTime = entry.getValue();
-            Visibility visibility = observationInterface.getVisibility(location);
-            if (visibility == Visibility.VISIBLE) {
-                lastSeenTime = gameLoop;
-                scoutableLocationsToLastSeenTime.put(location, gameLoop);
+            int rasterLastSeenTime = lastSeenRaster.getLastSeenGameLoop(location);
+            if (rasterLastSeenTime != LastSeenRaster.NEVER_SEEN && rasterLastSeenTime > lastSeenTime) {
+                lastSeenTime = rasterLastSeenTime;
+                entry.setValue(lastSeenTime);
             }
             if (gameLoop > lastSeenTime + RESCOUT_TIME) {
                 scoutableLocations.add(location);
             }
         });
-
-        regionData.forEach((regionId, regionData) -> {
-            Point2d centrePoint = regionData.region().centrePoint();
-            Visibility visibility = observationInterface.getVisibility(centrePoint);
-            if (visibility == Visibility.VISIBLE) {
-                regionCentrepointToLastSeenTime.put(regionData.region().regionId(), gameLoop);
-            }
-        });
     }
 
     @Override
@@ -537,7 +578,7 @@ public class MapAwarenessImpl implements MapAwareness {
 
     @Override
     public Optional<Point2d> getNextScoutTarget() {
-        return findRandomUnscoutedLocation();
+        return findStalestUnscoutedLocation();
     }
 
     @Override
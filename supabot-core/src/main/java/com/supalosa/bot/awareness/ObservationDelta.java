@@ -0,0 +1,60 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import org.immutables.value.Value;
+
+import java.util.List;
+
+/**
+ * The set of units that changed between two consecutive observations.
+ */
+@Value.Immutable
+public interface ObservationDelta {
+
+    long gameLoop();
+
+    /**
+     * Units that were not in the previous observation (including snapshots and units coming out of the fog).
+     */
+    List<UnitInPool> appeared();
+
+    /**
+     * Units that were in the previous observation but not this one (destroyed, loaded or hidden by the fog).
+     */
+    List<UnitInPool> disappeared();
+
+    /**
+     * Units that moved further than the tracker's epsilon since the last time they were reported as moved.
+     */
+    List<UnitInPool> moved();
+
+    /**
+     * Units whose health plus shields went down.
+     */
+    List<UnitInPool> damaged();
+
+    /**
+     * Units whose order abilities or targets changed. Progress of an order is ignored.
+     */
+    List<UnitInPool> ordersChanged();
+
+    /**
+     * Units whose build progress reached 100%.
+     */
+    List<UnitInPool> constructionCompleted();
+
+    /**
+     * Units whose type changed, such as structures lifting off or landing, and supply depots being lowered.
+     */
+    List<UnitInPool> typeChanged();
+
+    default boolean isEmpty() {
+        return appeared().isEmpty() &&
+                disappeared().isEmpty() &&
+                moved().isEmpty() &&
+                damaged().isEmpty() &&
+                ordersChanged().isEmpty() &&
+                constructionCompleted().isEmpty() &&
+                typeChanged().isEmpty();
+    }
+}
@@ -0,0 +1,12 @@
+package com.supalosa.bot.awareness;
+
+/**
+ * Receives the changes in the observation once per step.
+ */
+public interface ObservationDeltaListener {
+
+    /**
+     * Called once per step, before any other subsystem has stepped. Not called for steps where nothing changed.
+     */
+    void onObservationDelta(ObservationDelta delta);
+}
@@ -0,0 +1,199 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.github.ocraft.s2client.protocol.unit.UnitOrder;
+import com.supalosa.bot.utils.UnitHandleRegistry;
+
+import java.util.*;
+
+/**
+ * Computes the difference between consecutive observations once per step, and publishes it to listeners.
+ * This replaces subsystems remembering and diffing the state of units themselves.
+ *
+ * The state of each unit as of the last observation is stored in arrays indexed by the unit's handle.
+ * This class owns the lifecycle of the handles: a unit holds a handle while it is in the observation, and the
+ * handle is released when it drops out (whether it died, left vision or was loaded into a transport).
+ */
+public class ObservationDeltaTracker {
+
+    // Units must move further than this from their last reported position to be considered moved.
+    private static final float MOVE_EPSILON = 0.5f;
+    private static final long NO_TAG = 0L;
+
+    private final UnitHandleRegistry unitHandles;
+
+    // Per-handle state of units in the previous observation. slotTags[handle] is NO_TAG if the slot is not in use.
+    private long[] slotTags = new long[0];
+    private UnitInPool[] slotUnits = new UnitInPool[0];
+    private float[] slotX = new float[0];
+    private float[] slotY = new float[0];
+    private float[] slotHealthAndShields = new float[0];
+    private float[] slotBuildProgress = new float[0];
+    private long[] slotSeenAt = new long[0];
+    private UnitType[] slotTypes = new UnitType[0];
+    private List<List<UnitOrder>> slotOrders = new ArrayList<>();
+
+    // Handles of the units in the previous observation.
+    private int[] presentHandles = new int[0];
+    private int presentHandleCount = 0;
+
+    private final List<ObservationDeltaListener> listeners = new ArrayList<>();
+    private ObservationDelta lastDelta = ImmutableObservationDelta.builder().gameLoop(0L).build();
+
+    public ObservationDeltaTracker(UnitHandleRegistry unitHandles) {
+        this.unitHandles = unitHandles;
+    }
+
+    public void addListener(ObservationDeltaListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(ObservationDeltaListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Returns the delta calculated on the most recent step.
+     */
+    public ObservationDelta getLastDelta() {
+        return lastDelta;
+    }
+
+    public void onStep(ObservationInterface observationInterface) {
+        final long gameLoop = observationInterface.getGameLoop();
+        ImmutableObservationDelta.Builder builder = ImmutableObservationDelta.builder().gameLoop(gameLoop);
+
+        List<UnitInPool> units = observationInterface.getUnits();
+        int[] previousHandles = presentHandles;
+        int previousHandleCount = presentHandleCount;
+        presentHandles = new int[units.size()];
+        presentHandleCount = 0;
+
+        for (UnitInPool unitInPool : units) {
+            Unit unit = unitInPool.unit();
+            int handle = unitHandles.acquire(unitInPool.getTag());
+            ensureCapacity(unitHandles.handleLimit());
+            presentHandles[presentHandleCount++] = handle;
+            long tagValue = unitInPool.getTag().getValue();
+            if (slotTags[handle] != tagValue) {
+                if (slotTags[handle] != NO_TAG) {
+                    // The handle was released and reused since the last step, so the previous holder is gone.
+                    builder.addDisappeared(slotUnits[handle]);
+                }
+                initialiseSlot(handle, unitInPool, gameLoop);
+                builder.addAppeared(unitInPool);
+                continue;
+            }
+            slotUnits[handle] = unitInPool;
+            slotSeenAt[handle] = gameLoop;
+
+            Point2d position = unit.getPosition().toPoint2d();
+            float dx = position.getX() - slotX[handle];
+            float dy = position.getY() - slotY[handle];
+            if (dx * dx + dy * dy > MOVE_EPSILON * MOVE_EPSILON) {
+                slotX[handle] = position.getX();
+                slotY[handle] = position.getY();
+                builder.addMoved(unitInPool);
+            }
+            float healthAndShields = getHealthAndShields(unit);
+            if (healthAndShields < slotHealthAndShields[handle]) {
+                builder.addDamaged(unitInPool);
+            }
+            slotHealthAndShields[handle] = healthAndShields;
+            float buildProgress = unit.getBuildProgress();
+            if (slotBuildProgress[handle] < 1f && buildProgress >= 1f) {
+                builder.addConstructionCompleted(unitInPool);
+            }
+            slotBuildProgress[handle] = buildProgress;
+            List<UnitOrder> orders = unit.getOrders();
+            if (!isSameOrders(slotOrders.get(handle), orders)) {
+                builder.addOrdersChanged(unitInPool);
+            }
+            slotOrders.set(handle, orders);
+            if (!unit.getType().equals(slotTypes[handle])) {
+                builder.addTypeChanged(unitInPool);
+            }
+            slotTypes[handle] = unit.getType();
+        }
+
+        for (int i = 0; i < previousHandleCount; ++i) {
+            int handle = previousHandles[i];
+            if (slotTags[handle] != NO_TAG && slotSeenAt[handle] != gameLoop) {
+                builder.addDisappeared(slotUnits[handle]);
+                unitHandles.release(slotUnits[handle].getTag());
+                clearSlot(handle);
+            }
+        }
+
+        lastDelta = builder.build();
+        if (!lastDelta.isEmpty()) {
+            listeners.forEach(listener -> listener.onObservationDelta(lastDelta));
+        }
+    }
+
+    private void initialiseSlot(int handle, UnitInPool unitInPool, long gameLoop) {
+        Unit unit = unitInPool.unit();
+        Point2d position = unit.getPosition().toPoint2d();
+        slotTags[handle] = unitInPool.getTag().getValue();
+        slotUnits[handle] = unitInPool;
+        slotX[handle] = position.getX();
+        slotY[handle] = position.getY();
+        slotHealthAndShields[handle] = getHealthAndShields(unit);
+        slotBuildProgress[handle] = unit.getBuildProgress();
+        slotSeenAt[handle] = gameLoop;
+        slotOrders.set(handle, unit.getOrders());
+        slotTypes[handle] = unit.getType();
+    }
+
+    private void clearSlot(int handle) {
+        slotTags[handle] = NO_TAG;
+        slotUnits[handle] = null;
+        slotTypes[handle] = null;
+        slotOrders.set(handle, Collections.emptyList());
+    }
+
+    private void ensureCapacity(int handleLimit) {
+        if (handleLimit <= slotTags.length) {
+            return;
+        }
+        int newCapacity = Math.max(handleLimit, slotTags.length * 2);
+        slotTags = Arrays.copyOf(slotTags, newCapacity);
+        slotUnits = Arrays.copyOf(slotUnits, newCapacity);
+        slotX = Arrays.copyOf(slotX, newCapacity);
+        slotY = Arrays.copyOf(slotY, newCapacity);
+        slotHealthAndShields = Arrays.copyOf(slotHealthAndShields, newCapacity);
+        slotBuildProgress = Arrays.copyOf(slotBuildProgress, newCapacity);
+        slotSeenAt = Arrays.copyOf(slotSeenAt, newCapacity);
+        slotTypes = Arrays.copyOf(slotTypes, newCapacity);
+        while (slotOrders.size() < newCapacity) {
+            slotOrders.add(Collections.emptyList());
+        }
+    }
+
+    private static float getHealthAndShields(Unit unit) {
+        return unit.getHealth().orElse(0f) + unit.getShield().orElse(0f);
+    }
+
+    /**
+     * Compares the ability and targets of the orders, but not their progress.
+     */
+    private static boolean isSameOrders(List<UnitOrder> previous, List<UnitOrder> current) {
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); ++i) {
+            UnitOrder previousOrder = previous.get(i);
+            UnitOrder currentOrder = current.get(i);
+            if (!previousOrder.getAbility().equals(currentOrder.getAbility()) ||
+                    !previousOrder.getTargetedUnitTag().equals(currentOrder.getTargetedUnitTag()) ||
+                    !previousOrder.getTargetedWorldSpacePosition().equals(currentOrder.getTargetedWorldSpacePosition())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -13,6 +13,7 @@ import com.supalosa.bot.Constants;
 import com.supalosa.bot.analysis.AnalysisResults;
 import com.supalosa.bot.analysis.Region;
 import com.supalosa.bot.engagement.ThreatCalculator;
+import com.supalosa.bot.pathfinding.DynamicPathingGrid;
 
 import java.util.*;
 import java.util.function.Function;
@@ -38,7 +39,8 @@ public class RegionDataCalculator {
             Map<Integer, RegionData> previousRegionData,
             List<Point2d> knownEnemyBases,
             Map<Point2d, Long> scoutableLocationsToLastSeenTime,
-            Map<Integer, Long> regionCentrepointToLastSeenTime) {
+            LastSeenRaster lastSeenRaster,
+            Optional<DynamicPathingGrid> pathingGrid) {
         // Used for region power calculation.
         Set<Upgrade> upgrades = agent.observation().getUpgrades().stream().collect(Collectors.toSet());
         Map<Integer, RegionData> result = new HashMap<>();
@@ -79,7 +81,7 @@ public class RegionDataCalculator {
         Map<Integer, Double> regionToPreviousDiffuseThreat = new HashMap<>();
         Map<Integer, Long> regionToLastScoutedTime = getLastScoutedTimeForRegions(analysisResults,
                 scoutableLocationsToLastSeenTime,
-                regionCentrepointToLastSeenTime);
+                lastSeenRaster);
 
         for (Region region : analysisResults.getRegions()) {
             Optional<RegionData> previousData = Optional.ofNullable(previousRegionData.get(region.regionId()));
@@ -135,9 +137,9 @@ public class RegionDataCalculator {
             // For ramps only, detect if they are blocked.
             boolean isRampAndBlocked = false;
             if (region.getRampId().isPresent()) {
-                isRampAndBlocked = analysisResults
-                        .getRamp(region.getRampId().get())
-                        .calculateIsBlocked(agent.observation());
+                isRampAndBlocked = pathingGrid
+                        .map(grid -> grid.isRampBlocked(region.getRampId().get()))
+                        .orElse(false);
             }
             // The cumulative control swings depending on whether the player or enemy has more control.
             double powerDelta = currentPower - enemyThreat;
@@ -340,9 +342,15 @@ public class RegionDataCalculator {
      */
     private Map<Integer, Long> getLastScoutedTimeForRegions(AnalysisResults analysisResults,
                                              Map<Point2d, Long> scoutableLocationsToLastSeenTime,
-                                             Map<Integer, Long> regionCentrepointToLastSeenTime) {
+                                             LastSeenRaster lastSeenRaster) {
         // Default to the region centrepoint.
-        Map<Integer, Long> result = new HashMap<>(regionCentrepointToLastSeenTime);
+        Map<Integer, Long> result = new HashMap<>();
+        for (Region region : analysisResults.getRegions()) {
+            int lastSeen = lastSeenRaster.getLastSeenGameLoop(region.centrePoint());
+            if (lastSeen != LastSeenRaster.NEVER_SEEN) {
+                result.put(region.regionId(), (long) lastSeen);
+            }
+        }
         // For expansions, check which tile the expansion sits on, then reassign the region's 'last seen' value to
         // the time the expansion was last seen.
         for (Map.Entry<Point2d, Long> entry : scoutableLocationsToLastSeenTime.entrySet()) {
@@ -0,0 +1,84 @@
+package com.supalosa.bot.awareness;
+
+import com.supalosa.bot.analysis.AnalysisResults;
+import com.supalosa.bot.analysis.Region;
+import com.supalosa.bot.instrumentation.events.RegionRefreshEvent;
+import com.supalosa.bot.pathfinding.GraphUtils;
+import com.supalosa.bot.pathfinding.RegionGraph;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The pathing graphs built from one calculation of the region data. Building them only reads the map analysis and
+ * the (immutable) region data, so it is safe to do off the main thread.
+ */
+class RegionGraphs {
+
+    final RegionGraph normalGraph;
+    final RegionGraph avoidArmyGraph;
+    final RegionGraph avoidKillzoneGraph;
+    final RegionGraph airAvoidArmyGraph;
+
+    RegionGraphs(RegionGraph normalGraph,
+                 RegionGraph avoidArmyGraph,
+                 RegionGraph avoidKillzoneGraph,
+                 RegionGraph airAvoidArmyGraph) {
+        this.normalGraph = normalGraph;
+        this.avoidArmyGraph = avoidArmyGraph;
+        this.avoidKillzoneGraph = avoidKillzoneGraph;
+        this.airAvoidArmyGraph = airAvoidArmyGraph;
+    }
+
+    /**
+     * Builds all the graphs at once.
+     */
+    static RegionGraphs build(long gameLoop, AnalysisResults analysisResults, Map<Integer, RegionData> regionData) {
+        return new RegionGraphs(
+                timed("NormalGraph", gameLoop, regionData, () -> normalGraph(analysisResults, regionData)),
+                timed("AvoidArmyGraph", gameLoop, regionData, () -> avoidArmyGraph(analysisResults, regionData)),
+                timed("AvoidKillzoneGraph", gameLoop, regionData,
+                        () -> avoidKillzoneGraph(analysisResults, regionData)),
+                timed("AirAvoidArmyGraph", gameLoop, regionData,
+                        () -> airAvoidArmyGraph(analysisResults, regionData)));
+    }
+
+    static RegionGraph normalGraph(AnalysisResults analysisResults, Map<Integer, RegionData> regionData) {
+        return GraphUtils.createGraph(analysisResults, Region::connectedRegions, regionData,
+                (sourceRegion, destinationRegion) -> destinationRegion.weight());
+    }
+
+    static RegionGraph avoidArmyGraph(AnalysisResults analysisResults, Map<Integer, RegionData> regionData) {
+        // Edges are weighted by the diffuse enemy threat.
+        return GraphUtils.createGraph(analysisResults, Region::connectedRegions, regionData,
+                (sourceRegion, destinationRegion) -> destinationRegion.diffuseEnemyThreat());
+    }
+
+    static RegionGraph avoidKillzoneGraph(AnalysisResults analysisResults, Map<Integer, RegionData> regionData) {
+        return GraphUtils.createGraph(analysisResults, Region::connectedRegions, regionData,
+                (sourceRegion, destinationRegion) -> destinationRegion.killzoneFactor() < 10.0f ? destinationRegion.killzoneFactor() : null);
+    }
+
+    static RegionGraph airAvoidArmyGraph(AnalysisResults analysisResults, Map<Integer, RegionData> regionData) {
+        return GraphUtils.createGraph(analysisResults, Region::nearbyRegions, regionData,
+                (sourceRegion, destinationRegion) -> destinationRegion.diffuseEnemyThreat());
+    }
+
+    /**
+     * Builds a graph, and records how long it took as a region refresh event.
+     */
+    static RegionGraph timed(String stage, long gameLoop, Map<Integer, RegionData> regionData,
+                             Supplier<RegionGraph> build) {
+        RegionRefreshEvent event = new RegionRefreshEvent();
+        event.begin();
+        RegionGraph graph = build.get();
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameLoop = gameLoop;
+            event.stage = stage;
+            event.regionCount = regionData.size();
+            event.commit();
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,103 @@
+package com.supalosa.bot.awareness;
+
+import com.supalosa.bot.analysis.AnalysisResults;
+import com.supalosa.bot.instrumentation.events.RegionRefreshEvent;
+import com.supalosa.bot.pathfinding.RegionGraph;
+import com.supalosa.bot.utils.IncrementalJob;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Recalculates the region data, then builds each of the pathing graphs from it in a separate step.
+ * The region data itself is calculated in one step, as every region depends on the threat in all the others.
+ */
+class RegionRefreshJob implements IncrementalJob<RegionRefreshJob.Result> {
+
+    static class Result {
+        final Map<Integer, RegionData> regionData;
+        final RegionGraphs graphs;
+
+        Result(Map<Integer, RegionData> regionData, RegionGraphs graphs) {
+            this.regionData = regionData;
+            this.graphs = graphs;
+        }
+    }
+
+    private final long gameLoop;
+    private final boolean rampStateChanged;
+    private final AnalysisResults analysisResults;
+    private final Supplier<Map<Integer, RegionData>> regionDataCalculation;
+
+    private int stage = 0;
+    private Map<Integer, RegionData> regionData;
+    private RegionGraph normalGraph;
+    private RegionGraph avoidArmyGraph;
+    private RegionGraph avoidKillzoneGraph;
+    private RegionGraph airAvoidArmyGraph;
+
+    /**
+     * @param regionDataCalculation Calculates the new region data. Called on the first step.
+     */
+    RegionRefreshJob(long gameLoop,
+                     boolean rampStateChanged,
+                     AnalysisResults analysisResults,
+                     Supplier<Map<Integer, RegionData>> regionDataCalculation) {
+        this.gameLoop = gameLoop;
+        this.rampStateChanged = rampStateChanged;
+        this.analysisResults = analysisResults;
+        this.regionDataCalculation = regionDataCalculation;
+    }
+
+    /**
+     * Calculates the region data, recording how long it took as a region refresh event.
+     */
+    static Map<Integer, RegionData> calculateRegionData(long gameLoop, boolean rampStateChanged,
+                                                        Supplier<Map<Integer, RegionData>> regionDataCalculation) {
+        RegionRefreshEvent event = new RegionRefreshEvent();
+        event.begin();
+        Map<Integer, RegionData> regionData = regionDataCalculation.get();
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameLoop = gameLoop;
+            event.stage = "RegionData";
+            event.rampStateChanged = rampStateChanged;
+            event.regionCount = regionData.size();
+            event.commit();
+        }
+        return regionData;
+    }
+
+    @Override
+    public boolean step() {
+        switch (stage++) {
+            case 0:
+                regionData = calculateRegionData(gameLoop, rampStateChanged, regionDataCalculation);
+                return false;
+            case 1:
+                normalGraph = RegionGraphs.timed("NormalGraph", gameLoop, regionData,
+                        () -> RegionGraphs.normalGraph(analysisResults, regionData));
+                return false;
+            case 2:
+                avoidArmyGraph = RegionGraphs.timed("AvoidArmyGraph", gameLoop, regionData,
+                        () -> RegionGraphs.avoidArmyGraph(analysisResults, regionData));
+                return false;
+            case 3:
+                avoidKillzoneGraph = RegionGraphs.timed("AvoidKillzoneGraph", gameLoop, regionData,
+                        () -> RegionGraphs.avoidKillzoneGraph(analysisResults, regionData));
+                return false;
+            case 4:
+                airAvoidArmyGraph = RegionGraphs.timed("AirAvoidArmyGraph", gameLoop, regionData,
+                        () -> RegionGraphs.airAvoidArmyGraph(analysisResults, regionData));
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public Result getResult() {
+        return new Result(regionData,
+                new RegionGraphs(normalGraph, avoidArmyGraph, avoidKillzoneGraph, airAvoidArmyGraph));
+    }
+}
@@ -0,0 +1,60 @@
+package com.supalosa.bot.instrumentation;
+
+/**
+ * Describes who is issuing commands on the current thread, so the action layer can prioritise and attribute them
+ * without every call site passing it along.
+ */
+public final class ActionContext {
+
+    private static final String DEFAULT_SOURCE = "Bot";
+    // Length of a random UUID in its string form.
+    private static final int UUID_LENGTH = 36;
+
+    private static final ThreadLocal<ActionPriority> currentPriority =
+            ThreadLocal.withInitial(() -> ActionPriority.MACRO);
+    private static final ThreadLocal<String> currentSource = ThreadLocal.withInitial(() -> DEFAULT_SOURCE);
+
+    private ActionContext() {
+    }
+
+    /**
+     * Runs the given code with commands issued on this thread taking the given priority and source.
+     */
+    public static void run(ActionPriority priority, String source, Runnable runnable) {
+        ActionPriority previousPriority = currentPriority.get();
+        String previousSource = currentSource.get();
+        currentPriority.set(priority);
+        currentSource.set(source);
+        try {
+            runnable.run();
+        } finally {
+            currentPriority.set(previousPriority);
+            currentSource.set(previousSource);
+        }
+    }
+
+    public static ActionPriority getPriority() {
+        return currentPriority.get();
+    }
+
+    public static String getSource() {
+        return currentSource.get();
+    }
+
+    /**
+     * Returns the source to attribute a task's commands to: its key, without the random UUID that some tasks append
+     * to make their key unique (e.g. {@code SCOUT.<uuid>} becomes {@code SCOUT}). This keeps tasks of different
+     * kinds (or different armies) apart, without an entry per task instance.
+     */
+    public static String sourceForTaskKey(String taskKey) {
+        int separator = taskKey.length() - UUID_LENGTH - 1;
+        if (separator > 0 && taskKey.charAt(separator) == '.' &&
+                taskKey.charAt(separator + 9) == '-' &&
+                taskKey.charAt(separator + 14) == '-' &&
+                taskKey.charAt(separator + 19) == '-' &&
+                taskKey.charAt(separator + 24) == '-') {
+            return taskKey.substring(0, separator);
+        }
+        return taskKey;
+    }
+}
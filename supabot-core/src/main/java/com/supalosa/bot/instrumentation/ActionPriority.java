@@ -0,0 +1,16 @@
+package com.supalosa.bot.instrumentation;
+
+/**
+ * How urgently a command needs to be sent. When more commands are issued in a step than the action budget allows,
+ * the scheduler sends the most urgent first.
+ */
+public enum ActionPriority {
+    // Army control in fights.
+    MICRO,
+    // Responding to threats at home, e.g. repairing or pulling workers.
+    DEFENCE,
+    // Building, training and worker management.
+    MACRO,
+    // Anything that can wait, e.g. scouting.
+    HOUSEKEEPING
+}
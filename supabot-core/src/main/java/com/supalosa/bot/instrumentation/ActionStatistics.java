@@ -0,0 +1,213 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collects statistics about the commands issued and the actions sent over a game: actions by ability and by unit,
+ * commands by the task that issued them, a histogram of actions per step and the busiest minutes.
+ */
+public class ActionStatistics {
+
+    private static final long LOOPS_PER_MINUTE = 1344L;
+    private static final double LOOPS_PER_SECOND = 22.4;
+    private static final int REPORT_LIMIT = 15;
+
+    // Upper bound (inclusive) of each histogram bucket. Anything above the last bound goes in an extra bucket.
+    private static final int[] HISTOGRAM_BOUNDS = {0, 1, 2, 4, 8, 16, 32};
+
+    private final ObservationInterface observation;
+
+    private final Map<String, Long> commandsIssuedBySource = new HashMap<>();
+    private final Map<String, Long> commandsFilteredBySource = new HashMap<>();
+    private final Map<Ability, Long> actionsByAbility = new HashMap<>();
+    private final Map<UnitType, Long> commandsByUnitType = new HashMap<>();
+    private final Map<Tag, Long> commandsByUnit = new HashMap<>();
+    private final Map<Tag, UnitType> unitTypes = new HashMap<>();
+
+    private final long[] actionsPerStepHistogram = new long[HISTOGRAM_BOUNDS.length + 1];
+    private final List<Long> actionsByMinute = new ArrayList<>();
+    // Game loop and action count of each step in the last minute.
+    private final Deque<long[]> recentSteps = new ArrayDeque<>();
+
+    private long actionsThisStep = 0L;
+    private long actionsInLastMinute = 0L;
+    private long totalActions = 0L;
+    private long steps = 0L;
+    private long peakActionsPerMinute = 0L;
+    private long peakMinuteEndedAt = 0L;
+
+    public ActionStatistics(ObservationInterface observation) {
+        this.observation = observation;
+    }
+
+    /**
+     * Records a unit command issued by the current {@code ActionContext} source, before it is filtered or scheduled.
+     */
+    public void recordIssued() {
+        commandsIssuedBySource.merge(ActionContext.getSource(), 1L, Long::sum);
+    }
+
+    /**
+     * Records a unit command from the current {@code ActionContext} source that was dropped as redundant.
+     */
+    public void recordFiltered() {
+        commandsFilteredBySource.merge(ActionContext.getSource(), 1L, Long::sum);
+    }
+
+    /**
+     * Records an action sent to the game.
+     */
+    public void recordAction(Ability ability, Collection<Unit> units) {
+        recordAction(ability);
+        units.forEach(unit -> recordUnit(unit.getTag(), Optional.of(unit.getType())));
+    }
+
+    /**
+     * Records an action sent to the game. The types of the units are looked up in the observation.
+     */
+    public void recordActionForTags(Ability ability, Collection<Tag> units) {
+        recordAction(ability);
+        units.forEach(tag -> recordUnit(tag, Optional.ofNullable(observation.getUnit(tag))
+                .map(UnitInPool::unit)
+                .map(Unit::getType)));
+    }
+
+    private void recordAction(Ability ability) {
+        ++actionsThisStep;
+        ++totalActions;
+        actionsByAbility.merge(ability, 1L, Long::sum);
+    }
+
+    private void recordUnit(Tag tag, Optional<UnitType> type) {
+        commandsByUnit.merge(tag, 1L, Long::sum);
+        type.ifPresent(unitType -> {
+            unitTypes.put(tag, unitType);
+            commandsByUnitType.merge(unitType, 1L, Long::sum);
+        });
+    }
+
+    /**
+     * Closes the current step. Must be called once per step, after all actions have been sent.
+     */
+    public void endStep(long gameLoop) {
+        ++steps;
+        actionsPerStepHistogram[histogramBucket(actionsThisStep)]++;
+
+        int minute = (int)(gameLoop / LOOPS_PER_MINUTE);
+        while (actionsByMinute.size() <= minute) {
+            actionsByMinute.add(0L);
+        }
+        actionsByMinute.set(minute, actionsByMinute.get(minute) + actionsThisStep);
+
+        recentSteps.addLast(new long[]{gameLoop, actionsThisStep});
+        actionsInLastMinute += actionsThisStep;
+        while (!recentSteps.isEmpty() && recentSteps.peekFirst()[0] <= gameLoop - LOOPS_PER_MINUTE) {
+            actionsInLastMinute -= recentSteps.removeFirst()[1];
+        }
+        if (actionsInLastMinute > peakActionsPerMinute) {
+            peakActionsPerMinute = actionsInLastMinute;
+            peakMinuteEndedAt = gameLoop;
+        }
+        actionsThisStep = 0L;
+    }
+
+    private static int histogramBucket(long actions) {
+        for (int i = 0; i < HISTOGRAM_BOUNDS.length; ++i) {
+            if (actions <= HISTOGRAM_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return HISTOGRAM_BOUNDS.length;
+    }
+
+    /**
+     * Returns the most actions sent in any one-minute window so far.
+     */
+    public long getPeakActionsPerMinute() {
+        return peakActionsPerMinute;
+    }
+
+    public long getTotalActions() {
+        return totalActions;
+    }
+
+    /**
+     * Writes a plain text report of everything recorded this game.
+     */
+    public void writeReport(Path path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.printf(Locale.ROOT, "Actions sent: %d over %d steps (%.2f per step)%n",
+                    totalActions, steps, steps > 0 ? totalActions / (double) steps : 0.0);
+            writer.printf(Locale.ROOT, "Peak APM: %d in the minute ending at %s%n",
+                    peakActionsPerMinute, formatGameTime(peakMinuteEndedAt));
+
+            writer.println();
+            writer.println("Actions per step:");
+            for (int i = 0; i < actionsPerStepHistogram.length; ++i) {
+                writer.printf(Locale.ROOT, "  %-6s %d%n", histogramLabel(i), actionsPerStepHistogram[i]);
+            }
+
+            writer.println();
+            writer.println("Actions by game minute:");
+            for (int minute = 0; minute < actionsByMinute.size(); ++minute) {
+                writer.printf(Locale.ROOT, "  %3d: %d%n", minute, actionsByMinute.get(minute));
+            }
+
+            writer.println();
+            writer.println("Actions by ability:");
+            writeTop(writer, actionsByAbility, Object::toString);
+
+            writer.println();
+            writer.println("Commands by unit type:");
+            writeTop(writer, commandsByUnitType, Object::toString);
+
+            writer.println();
+            writer.println("Most commanded units:");
+            writeTop(writer, commandsByUnit, tag -> tag + " (" +
+                    Optional.ofNullable(unitTypes.get(tag)).map(Object::toString).orElse("unknown") + ")");
+
+            writer.println();
+            writer.println("Commands issued by source (filtered as redundant):");
+            writeTop(writer, commandsIssuedBySource, source -> source + " (" +
+                    commandsFilteredBySource.getOrDefault(source, 0L) + ")");
+        }
+    }
+
+    private static <K> void writeTop(PrintWriter writer, Map<K, Long> counts, Function<K, String> label) {
+        List<Map.Entry<K, Long>> sorted = counts.entrySet().stream()
+                .sorted(Map.Entry.<K, Long>comparingByValue().reversed())
+                .collect(Collectors.toList());
+        sorted.stream().limit(REPORT_LIMIT).forEach(entry ->
+                writer.printf(Locale.ROOT, "  %s: %d%n", label.apply(entry.getKey()), entry.getValue()));
+        if (sorted.size() > REPORT_LIMIT) {
+            writer.printf(Locale.ROOT, "  ...and %d more%n", sorted.size() - REPORT_LIMIT);
+        }
+    }
+
+    private static String histogramLabel(int bucket) {
+        if (bucket == HISTOGRAM_BOUNDS.length) {
+            return (HISTOGRAM_BOUNDS[bucket - 1] + 1) + "+";
+        }
+        int lower = bucket == 0 ? 0 : HISTOGRAM_BOUNDS[bucket - 1] + 1;
+        int upper = HISTOGRAM_BOUNDS[bucket];
+        return lower == upper ? String.valueOf(upper) : lower + "-" + upper;
+    }
+
+    private static String formatGameTime(long gameLoop) {
+        long seconds = (long)(gameLoop / LOOPS_PER_SECOND);
+        return String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+    }
+}
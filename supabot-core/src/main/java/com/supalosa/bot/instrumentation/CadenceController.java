@@ -0,0 +1,122 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.S2Agent;
+import com.github.ocraft.s2client.protocol.debug.Color;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+
+import java.util.Locale;
+
+/**
+ * Chooses how often the periodic updates run, based on how long recent steps have taken.
+ *
+ * All intervals are scaled by the same factor. When the smoothed step time gets close to the budget the factor
+ * grows, so updates run less often. If the step time goes over the budget, subsystems are also told to switch to
+ * cheaper modes. When there is plenty of headroom during a fight, the factor shrinks so the bot reacts faster.
+ * Otherwise it drifts back to 1. Only used from the main thread.
+ */
+public class CadenceController {
+
+    public static final long DEFAULT_STEP_BUDGET_NANOS = 20_000_000L;
+
+    private static final double MIN_SCALE = 0.5;
+    private static final double MAX_SCALE = 3.0;
+    // How much the scale changes per step.
+    private static final double SCALE_STEP = 1.05;
+    // Fractions of the budget at which the intervals back off, tighten (only when fighting) or go degraded.
+    private static final double BACK_OFF_PRESSURE = 0.8;
+    private static final double TIGHTEN_PRESSURE = 0.4;
+    private static final double DEGRADE_PRESSURE = 1.0;
+    private static final double RECOVER_PRESSURE = 0.7;
+    // Weight of the latest step in the smoothed step time. About a second of history.
+    private static final double SMOOTHING = 0.1;
+
+    private final long stepBudgetNanos;
+    private double smoothedStepNanos = 0.0;
+    private double scale = 1.0;
+    private boolean degraded = false;
+
+    // Statistics for the end of game summary.
+    private long steps = 0L;
+    private long degradedSteps = 0L;
+    private double minScaleSeen = 1.0;
+    private double maxScaleSeen = 1.0;
+
+    public CadenceController() {
+        this(DEFAULT_STEP_BUDGET_NANOS);
+    }
+
+    public CadenceController(long stepBudgetNanos) {
+        this.stepBudgetNanos = stepBudgetNanos;
+    }
+
+    /**
+     * Updates the intervals after a step.
+     *
+     * @param stepNanos How long the step took.
+     * @param isFighting Whether any of our armies is in an engagement.
+     */
+    public void onStepCompleted(long stepNanos, boolean isFighting) {
+        smoothedStepNanos = steps == 0 ?
+                stepNanos :
+                smoothedStepNanos * (1.0 - SMOOTHING) + stepNanos * SMOOTHING;
+        double pressure = getPressure();
+        if (pressure > BACK_OFF_PRESSURE) {
+            scale = Math.min(MAX_SCALE, scale * SCALE_STEP);
+        } else if (isFighting && pressure < TIGHTEN_PRESSURE) {
+            scale = Math.max(MIN_SCALE, scale / SCALE_STEP);
+        } else if (scale > 1.0) {
+            scale = Math.max(1.0, scale / SCALE_STEP);
+        } else if (scale < 1.0) {
+            scale = Math.min(1.0, scale * SCALE_STEP);
+        }
+        if (pressure > DEGRADE_PRESSURE) {
+            degraded = true;
+        } else if (pressure < RECOVER_PRESSURE) {
+            degraded = false;
+        }
+
+        ++steps;
+        if (degraded) {
+            ++degradedSteps;
+        }
+        minScaleSeen = Math.min(minScaleSeen, scale);
+        maxScaleSeen = Math.max(maxScaleSeen, scale);
+    }
+
+    /**
+     * Returns the number of game loops that should pass between runs of the given update.
+     */
+    public long getInterval(UpdateCadence cadence) {
+        long interval = Math.round(cadence.getDefaultInterval() * scale);
+        return Math.max(cadence.getMinInterval(), Math.min(cadence.getMaxInterval(), interval));
+    }
+
+    /**
+     * Returns true if the step budget is at risk, and optional work should be skipped or done more cheaply.
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * Returns the smoothed step time as a fraction of the budget.
+     */
+    public double getPressure() {
+        return smoothedStepNanos / stepBudgetNanos;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public void debug(S2Agent agent) {
+        agent.debug().debugTextOut(String.format(Locale.ROOT, "Cadence: x%.2f, load %.0f%%%s",
+                scale, getPressure() * 100.0, degraded ? " (degraded)" : ""),
+                Point2d.of(0.78f, 0.285f), degraded ? Color.RED : Color.WHITE, 8);
+    }
+
+    public String getSummary() {
+        return String.format(Locale.ROOT, "Cadence: scale ranged x%.2f to x%.2f, degraded for %d of %d steps",
+                minScaleSeen, maxScaleSeen, degradedSteps, steps);
+    }
+}
@@ -0,0 +1,150 @@
+package com.supalosa.bot.instrumentation;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Counts and times calls to an interface, by method and optionally by the class that made the call, and keeps
+ * per-step totals. Used to see how long we spend in synchronous calls such as queries to the game server.
+ *
+ * Calls can be recorded from any thread.
+ */
+public class CallStatistics {
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private static class CallProfile {
+        private long calls = 0L;
+        private long nanos = 0L;
+        private long maxNanos = 0L;
+
+        private void add(long duration) {
+            ++calls;
+            nanos += duration;
+            maxNanos = Math.max(maxNanos, duration);
+        }
+    }
+
+    private final String name;
+    private final Map<String, CallProfile> profilesByMethod = new HashMap<>();
+    private final Map<String, CallProfile> profilesByCaller = new HashMap<>();
+
+    private long callsThisStep = 0L;
+    private long nanosThisStep = 0L;
+    private long callsLastStep = 0L;
+    private long nanosLastStep = 0L;
+    private long maxStepNanos = 0L;
+    private long totalNanos = 0L;
+    private long steps = 0L;
+
+    // Walking the stack costs more than many of the calls being timed, so callers are only found when asked for.
+    private volatile boolean isCallerAttributionEnabled = false;
+
+    public CallStatistics(String name) {
+        this.name = name;
+    }
+
+    public void setCallerAttributionEnabled(boolean isCallerAttributionEnabled) {
+        this.isCallerAttributionEnabled = isCallerAttributionEnabled;
+    }
+
+    /**
+     * Runs the call and records its duration against the method, and the calling class if caller attribution is
+     * enabled.
+     */
+    public <T> T time(String method, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            record(method, isCallerAttributionEnabled ? Optional.of(findCaller()) : Optional.empty(), nanos);
+        }
+    }
+
+    private synchronized void record(String method, Optional<String> caller, long nanos) {
+        profilesByMethod.computeIfAbsent(method, k -> new CallProfile()).add(nanos);
+        caller.ifPresent(theCaller -> profilesByCaller.computeIfAbsent(theCaller, k -> new CallProfile()).add(nanos));
+        ++callsThisStep;
+        nanosThisStep += nanos;
+    }
+
+    /**
+     * The first class on the stack outside of the instrumentation, the game client library and reflection.
+     */
+    private static String findCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .map(StackWalker.StackFrame::getClassName)
+                .filter(className -> !className.startsWith(CallStatistics.class.getPackageName()) &&
+                        !className.startsWith("com.github.ocraft") &&
+                        !className.startsWith("java.") &&
+                        !className.startsWith("jdk.") &&
+                        !className.startsWith("com.sun.proxy"))
+                .findFirst()
+                .map(className -> className.substring(className.lastIndexOf('.') + 1))
+                .orElse("unknown"));
+    }
+
+    /**
+     * Closes the current step. Must be called once per step.
+     */
+    public synchronized void endStep() {
+        callsLastStep = callsThisStep;
+        nanosLastStep = nanosThisStep;
+        maxStepNanos = Math.max(maxStepNanos, nanosThisStep);
+        totalNanos += nanosThisStep;
+        ++steps;
+        callsThisStep = 0L;
+        nanosThisStep = 0L;
+    }
+
+    public synchronized long getCallsLastStep() {
+        return callsLastStep;
+    }
+
+    public synchronized long getNanosLastStep() {
+        return nanosLastStep;
+    }
+
+    /**
+     * Returns a one-line summary of the per-step time spent in calls.
+     */
+    public synchronized String getSummary() {
+        return String.format(Locale.ROOT, "%s: %.3fms per step on average, %.3fms max, %.1fs total",
+                name,
+                steps > 0 ? totalNanos / (double) steps / 1_000_000.0 : 0.0,
+                maxStepNanos / 1_000_000.0,
+                totalNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Writes every method and caller to a CSV file, most expensive first.
+     */
+    public synchronized void writeCsv(Path path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("scope,name,calls,total_ms,mean_us,max_us");
+            writeRows(writer, "method", profilesByMethod);
+            writeRows(writer, "caller", profilesByCaller);
+        }
+    }
+
+    private static void writeRows(PrintWriter writer, String scope, Map<String, CallProfile> profiles) {
+        profiles.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, CallProfile> entry) -> entry.getValue().nanos)
+                        .reversed())
+                .forEach(entry -> {
+                    CallProfile profile = entry.getValue();
+                    writer.printf(Locale.ROOT, "%s,\"%s\",%d,%.3f,%.1f,%.1f%n",
+                            scope,
+                            entry.getKey(),
+                            profile.calls,
+                            profile.nanos / 1_000_000.0,
+                            profile.nanos / (double) profile.calls / 1_000.0,
+                            profile.maxNanos / 1_000.0);
+                });
+    }
+}
@@ -0,0 +1,218 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.protocol.action.ActionChat;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.*;
+
+/**
+ * Holds unit commands until the end of the step, then sends commands with the same ability, target and queue flag
+ * as a single multi-unit command. Each unit's commands are still sent in the order they were issued.
+ */
+public class CoalescingActionInterface implements ActionInterface {
+
+    private static final class CommandKey {
+        private final Ability ability;
+        private final Optional<Point2d> targetPoint;
+        private final Optional<Tag> targetUnit;
+        private final boolean queued;
+        // How many commands each unit in the group had already been given this step.
+        private final int sequence;
+
+        CommandKey(Ability ability, Optional<Point2d> targetPoint, Optional<Tag> targetUnit, boolean queued,
+                   int sequence) {
+            this.ability = ability;
+            this.targetPoint = targetPoint;
+            this.targetUnit = targetUnit;
+            this.queued = queued;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CommandKey that = (CommandKey) o;
+            return queued == that.queued && sequence == that.sequence && ability.equals(that.ability) &&
+                    targetPoint.equals(that.targetPoint) && targetUnit.equals(that.targetUnit);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ability, targetPoint, targetUnit, queued, sequence);
+        }
+    }
+
+    private static final class CommandGroup {
+        private final Set<Tag> units = new LinkedHashSet<>();
+        private final Optional<Unit> target;
+
+        CommandGroup(Optional<Unit> target) {
+            this.target = target;
+        }
+    }
+
+    private final ActionInterface delegate;
+    private final Map<CommandKey, CommandGroup> pendingCommands = new LinkedHashMap<>();
+    private final Map<Tag, Integer> commandsPerUnit = new HashMap<>();
+
+    private long commandsReceived = 0L;
+    private long commandsSent = 0L;
+
+    public CoalescingActionInterface(ActionInterface delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sends the commands issued since the last flush. Must be called once per step, before actions are sent. There is
+     * no budget here, so calling it again only sends commands issued since, and nothing if there are none.
+     */
+    public void flush() {
+        // Sending in order of sequence keeps each unit's commands in the order they were issued.
+        List<Map.Entry<CommandKey, CommandGroup>> groups = new ArrayList<>(pendingCommands.entrySet());
+        groups.sort(Comparator.comparingInt(entry -> entry.getKey().sequence));
+        for (Map.Entry<CommandKey, CommandGroup> entry : groups) {
+            send(entry.getKey(), entry.getValue());
+        }
+        pendingCommands.clear();
+        commandsPerUnit.clear();
+    }
+
+    /**
+     * Returns the number of unit commands issued to this interface, and the number that were sent after coalescing,
+     * since this method was last called.
+     */
+    public long[] getCommandCountsAndReset() {
+        long[] result = new long[]{commandsReceived, commandsSent};
+        commandsReceived = 0L;
+        commandsSent = 0L;
+        return result;
+    }
+
+    private void send(CommandKey key, CommandGroup group) {
+        ++commandsSent;
+        if (group.units.size() == 1) {
+            Tag unit = group.units.iterator().next();
+            if (key.targetPoint.isPresent()) {
+                delegate.unitCommand(unit, key.ability, key.targetPoint.get(), key.queued);
+            } else if (group.target.isPresent()) {
+                delegate.unitCommand(unit, key.ability, group.target.get(), key.queued);
+            } else {
+                delegate.unitCommand(unit, key.ability, key.queued);
+            }
+        } else {
+            if (key.targetPoint.isPresent()) {
+                delegate.unitCommand(group.units, key.ability, key.targetPoint.get(), key.queued);
+            } else if (group.target.isPresent()) {
+                delegate.unitCommand(group.units, key.ability, group.target.get(), key.queued);
+            } else {
+                delegate.unitCommand(group.units, key.ability, key.queued);
+            }
+        }
+    }
+
+    private ActionInterface add(Tag unit, Ability ability, Optional<Point2d> targetPoint, Optional<Unit> target,
+                                boolean queued) {
+        ++commandsReceived;
+        int sequence = commandsPerUnit.merge(unit, 1, Integer::sum) - 1;
+        CommandKey key = new CommandKey(ability, targetPoint, target.map(Unit::getTag), queued, sequence);
+        pendingCommands.computeIfAbsent(key, k -> new CommandGroup(target)).units.add(unit);
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, boolean queuedCommand) {
+        return add(unit.getTag(), ability, Optional.empty(), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, Point2d point, boolean queuedCommand) {
+        return add(unit.getTag(), ability, Optional.of(point), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, Unit target, boolean queuedCommand) {
+        return add(unit.getTag(), ability, Optional.empty(), Optional.of(target), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, boolean queuedMove) {
+        units.forEach(unit -> add(unit.getTag(), ability, Optional.empty(), Optional.empty(), queuedMove));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, Point2d point, boolean queuedCommand) {
+        units.forEach(unit -> add(unit.getTag(), ability, Optional.of(point), Optional.empty(), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, Unit target, boolean queuedCommand) {
+        units.forEach(unit -> add(unit.getTag(), ability, Optional.empty(), Optional.of(target), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, boolean queuedCommand) {
+        return add(unit, ability, Optional.empty(), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, Point2d point, boolean queuedCommand) {
+        return add(unit, ability, Optional.of(point), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, Unit target, boolean queuedCommand) {
+        return add(unit, ability, Optional.empty(), Optional.of(target), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, boolean queuedMove) {
+        units.forEach(unit -> add(unit, ability, Optional.empty(), Optional.empty(), queuedMove));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, Point2d point, boolean queuedCommand) {
+        units.forEach(unit -> add(unit, ability, Optional.of(point), Optional.empty(), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, Unit target, boolean queuedCommand) {
+        units.forEach(unit -> add(unit, ability, Optional.empty(), Optional.of(target), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public List<Tag> commands() {
+        return delegate.commands();
+    }
+
+    @Override
+    public ActionInterface toggleAutocast(Tag unitTag, Ability ability) {
+        return delegate.toggleAutocast(unitTag, ability);
+    }
+
+    @Override
+    public ActionInterface toggleAutocast(List<Tag> unitTags, Ability ability) {
+        return delegate.toggleAutocast(unitTags, ability);
+    }
+
+    @Override
+    public ActionInterface sendChat(String message, ActionChat.Channel channel) {
+        return delegate.sendChat(message, channel);
+    }
+
+    @Override
+    public boolean sendActions() {
+        flush();
+        return delegate.sendActions();
+    }
+}
@@ -11,15 +11,18 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Instrumentation over the ActionInterface to allow checking of APM.
+ * Instrumentation over the ActionInterface to allow checking of APM. Unit commands are also recorded in the
+ * given {@code ActionStatistics}.
  */
 public class InstrumentedActionInterface implements ActionInterface {
 
     private ActionInterface delegate;
+    private ActionStatistics statistics;
     private long count;
 
-    public InstrumentedActionInterface(ActionInterface delegate) {
+    public InstrumentedActionInterface(ActionInterface delegate, ActionStatistics statistics) {
         this.delegate = delegate;
+        this.statistics = statistics;
         this.count = 0;
     }
 
@@ -39,72 +42,84 @@ public class InstrumentedActionInterface implements ActionInterface {
     @Override
     public ActionInterface unitCommand(Unit unit, Ability ability, boolean queuedCommand) {
         increment();
+        statistics.recordAction(ability, List.of(unit));
         return delegate.unitCommand(unit, ability, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(Unit unit, Ability ability, Point2d point, boolean queuedCommand) {
         increment();
+        statistics.recordAction(ability, List.of(unit));
         return delegate.unitCommand(unit, ability, point, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(Unit unit, Ability ability, Unit target, boolean queuedCommand) {
         increment();
+        statistics.recordAction(ability, List.of(unit));
         return delegate.unitCommand(unit, ability, target, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(List<Unit> units, Ability ability, boolean queuedMove) {
         increment();
+        statistics.recordAction(ability, units);
         return delegate.unitCommand(units, ability, queuedMove);
     }
 
     @Override
     public ActionInterface unitCommand(List<Unit> units, Ability ability, Point2d point, boolean queuedCommand) {
         increment();
+        statistics.recordAction(ability, units);
         return delegate.unitCommand(units, ability, point, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(List<Unit> units, Ability ability, Unit target, boolean queuedCommand) {
         increment();
+        statistics.recordAction(ability, units);
         return delegate.unitCommand(units, ability, target, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(Tag unit, Ability ability, boolean queuedCommand) {
         increment();
+        statistics.recordActionForTags(ability, List.of(unit));
         return delegate.unitCommand(unit, ability, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(Tag unit, Ability ability, Point2d point, boolean queuedCommand) {
         increment();
+        statistics.recordActionForTags(ability, List.of(unit));
         return delegate.unitCommand(unit, ability, point, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(Tag unit, Ability ability, Unit target, boolean queuedCommand) {
         increment();
+        statistics.recordActionForTags(ability, List.of(unit));
         return delegate.unitCommand(unit, ability, target, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(Set<Tag> units, Ability ability, boolean queuedMove) {
         increment();
+        statistics.recordActionForTags(ability, units);
         return delegate.unitCommand(units, ability, queuedMove);
     }
 
     @Override
     public ActionInterface unitCommand(Set<Tag> units, Ability ability, Point2d point, boolean queuedCommand) {
         increment();
+        statistics.recordActionForTags(ability, units);
         return delegate.unitCommand(units, ability, point, queuedCommand);
     }
 
     @Override
     public ActionInterface unitCommand(Set<Tag> units, Ability ability, Unit target, boolean queuedCommand) {
         increment();
+        statistics.recordActionForTags(ability, units);
         return delegate.unitCommand(units, ability, target, queuedCommand);
     }
 
@@ -0,0 +1,72 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Instrumentation over the ObservationInterface, timing the calls that scan or copy the whole observation.
+ *
+ * Unlike the other instrumented interfaces this is a dynamic proxy, as ObservationInterface has dozens of methods
+ * and almost all of them are trivial getters that are passed straight through.
+ */
+public final class InstrumentedObservationInterface {
+
+    private static final Set<String> TIMED_METHODS = Set.of(
+            "getUnits",
+            "getRawObservation",
+            "getUnitTypeData",
+            "getAbilityData",
+            "getUpgradeData",
+            "getEffects");
+
+    // The name each timed method is recorded under, worked out once rather than on every call.
+    private static final Map<Method, String> TIMED_METHOD_NAMES = Arrays.stream(ObservationInterface.class.getMethods())
+            .filter(method -> TIMED_METHODS.contains(method.getName()))
+            .collect(Collectors.toUnmodifiableMap(Function.identity(), InstrumentedObservationInterface::describe));
+
+    private InstrumentedObservationInterface() {
+    }
+
+    public static ObservationInterface create(ObservationInterface delegate, CallStatistics statistics) {
+        return (ObservationInterface) Proxy.newProxyInstance(
+                ObservationInterface.class.getClassLoader(),
+                new Class<?>[]{ObservationInterface.class},
+                (proxy, method, args) -> {
+                    String methodName = TIMED_METHOD_NAMES.get(method);
+                    if (methodName == null) {
+                        return invoke(delegate, method, args);
+                    }
+                    return statistics.time(methodName, () -> invoke(delegate, method, args));
+                });
+    }
+
+    private static String describe(Method method) {
+        return method.getName() + Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(",", "(", ")"));
+    }
+
+    private static Object invoke(ObservationInterface delegate, Method method, Object[] args) {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.query.AvailableAbilities;
+import com.github.ocraft.s2client.protocol.query.QueryBuildingPlacement;
+import com.github.ocraft.s2client.protocol.query.QueryPathing;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.supalosa.bot.instrumentation.events.ServerQueryEvent;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Instrumentation over the QueryInterface. Every query is a synchronous round trip to the game server, so this
+ * times each one, attributes it to the class that made it and emits it as a JFR event.
+ */
+public class InstrumentedQueryInterface implements QueryInterface {
+
+    private final QueryInterface delegate;
+    private final CallStatistics statistics;
+
+    public InstrumentedQueryInterface(QueryInterface delegate, CallStatistics statistics) {
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    private <T> T time(String method, int requestCount, Supplier<T> query) {
+        ServerQueryEvent event = new ServerQueryEvent();
+        event.begin();
+        try {
+            return statistics.time(method, query);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = method;
+                event.requestCount = requestCount;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public AvailableAbilities getAbilitiesForUnit(Unit unit, boolean ignoreResourceRequirements) {
+        return time("getAbilitiesForUnit", 1,
+                () -> delegate.getAbilitiesForUnit(unit, ignoreResourceRequirements));
+    }
+
+    @Override
+    public List<AvailableAbilities> getAbilitiesForUnits(List<Unit> units, boolean ignoreResourceRequirements) {
+        return time("getAbilitiesForUnits", units.size(),
+                () -> delegate.getAbilitiesForUnits(units, ignoreResourceRequirements));
+    }
+
+    @Override
+    public float pathingDistance(Point2d start, Point2d end) {
+        return time("pathingDistance", 1, () -> delegate.pathingDistance(start, end));
+    }
+
+    @Override
+    public float pathingDistance(Unit start, Point2d end) {
+        return time("pathingDistance", 1, () -> delegate.pathingDistance(start, end));
+    }
+
+    @Override
+    public List<Float> pathingDistance(List<QueryPathing> queries) {
+        return time("pathingDistance(batch)", queries.size(), () -> delegate.pathingDistance(queries));
+    }
+
+    @Override
+    public boolean placement(Ability ability, Point2d target) {
+        return time("placement", 1, () -> delegate.placement(ability, target));
+    }
+
+    @Override
+    public boolean placement(Ability ability, Point2d target, Unit unit) {
+        return time("placement", 1, () -> delegate.placement(ability, target, unit));
+    }
+
+    @Override
+    public List<Boolean> placement(List<QueryBuildingPlacement> queries) {
+        return time("placement(batch)", queries.size(), () -> delegate.placement(queries));
+    }
+}
@@ -0,0 +1,68 @@
+package com.supalosa.bot.instrumentation;
+
+/**
+ * Fixed-size histogram of durations, for estimating percentiles without storing every sample. Buckets grow
+ * exponentially (four per doubling), so a percentile is accurate to within about 20%. The maximum is exact.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS_PER_DOUBLING = 4;
+    // Covers up to 2^32 microseconds, far longer than any step.
+    private static final int BUCKET_COUNT = 32 * BUCKETS_PER_DOUBLING + 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long samples = 0L;
+    private long totalNanos = 0L;
+    private long maxNanos = 0L;
+
+    public void record(long nanos) {
+        counts[bucketFor(nanos)]++;
+        ++samples;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    private static int bucketFor(long nanos) {
+        double micros = nanos / 1_000.0;
+        if (micros < 1.0) {
+            return 0;
+        }
+        int bucket = 1 + (int)Math.floor(Math.log(micros) / Math.log(2) * BUCKETS_PER_DOUBLING);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    // The upper bound of the bucket, in nanoseconds.
+    private static long upperBoundNanos(int bucket) {
+        return (long)(Math.pow(2, bucket / (double) BUCKETS_PER_DOUBLING) * 1_000.0);
+    }
+
+    /**
+     * Returns an estimate of the given percentile (0 to 100) in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (samples == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long)Math.ceil(samples * percentile / 100.0));
+        long seen = 0L;
+        for (int bucket = 0; bucket < BUCKET_COUNT; ++bucket) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBoundNanos(bucket), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+}
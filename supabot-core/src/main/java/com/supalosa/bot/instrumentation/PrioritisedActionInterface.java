@@ -0,0 +1,268 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.action.ActionChat;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Limits the number of actions sent per step. Unit commands are held until {@code flush}, then sent in order of
+ * priority until the budget is used up. Commands that don't fit are kept for later steps, and gain priority the
+ * longer they wait so that low priority commands are not starved.
+ *
+ * The priority of a command is taken from the calling thread's {@code ActionContext}.
+ */
+public class PrioritisedActionInterface implements ActionInterface {
+
+    // A waiting command is treated as one priority level higher for every this many loops it waits.
+    private static final long AGING_LOOPS_PER_LEVEL = 8L;
+
+    // Commands that have waited this long are out of date and dropped.
+    private static final long MAX_WAIT_LOOPS = 44L;
+
+    private static class ScheduledCommand {
+        final Ability ability;
+        final Optional<Point2d> targetPoint;
+        final Optional<Unit> targetUnit;
+        final boolean queued;
+
+        ScheduledCommand(Ability ability, Optional<Point2d> targetPoint, Optional<Unit> targetUnit, boolean queued) {
+            this.ability = ability;
+            this.targetPoint = targetPoint;
+            this.targetUnit = targetUnit;
+            this.queued = queued;
+        }
+
+        // Commands with the same key are sent as one action by CoalescingActionInterface.
+        List<Object> actionKey() {
+            return List.of(ability, targetPoint, targetUnit.map(Unit::getTag), queued);
+        }
+    }
+
+    // The commands waiting to be sent to one unit, in the order they were issued.
+    private static class PendingCommands {
+        final List<ScheduledCommand> commands = new ArrayList<>();
+        ActionPriority priority;
+        long issuedAt;
+
+        PendingCommands(ActionPriority priority, long issuedAt) {
+            this.priority = priority;
+            this.issuedAt = issuedAt;
+        }
+    }
+
+    private final ActionInterface delegate;
+    private final ObservationInterface observation;
+    private int actionsPerStep;
+
+    private final Map<Tag, PendingCommands> pendingCommands = new LinkedHashMap<>();
+    private final List<Consumer<Tag>> droppedCommandListeners = new ArrayList<>();
+    private long lastFlushedLoop = -1L;
+
+    private long deferredCount = 0L;
+    private long droppedCount = 0L;
+
+    public PrioritisedActionInterface(ActionInterface delegate, ObservationInterface observation, int actionsPerStep) {
+        this.delegate = delegate;
+        this.observation = observation;
+        this.actionsPerStep = actionsPerStep;
+    }
+
+    public void setActionsPerStep(int actionsPerStep) {
+        this.actionsPerStep = actionsPerStep;
+    }
+
+    /**
+     * Adds a listener that is told the unit whenever its pending commands are dropped for waiting too long, so
+     * anything that assumed they would be sent (e.g. {@link RedundantCommandFilter}) can forget them.
+     */
+    public void addDroppedCommandListener(Consumer<Tag> listener) {
+        droppedCommandListeners.add(listener);
+    }
+
+    public int getPendingUnitCount() {
+        return pendingCommands.size();
+    }
+
+    /**
+     * Returns the amount of units whose commands were deferred to a later step, and the amount of units whose
+     * commands were dropped for waiting too long, since this method was last called.
+     */
+    public long[] getDeferredAndDroppedCountsAndReset() {
+        long[] result = new long[]{deferredCount, droppedCount};
+        deferredCount = 0L;
+        droppedCount = 0L;
+        return result;
+    }
+
+    /**
+     * Sends the most urgent pending commands, up to the action budget. Must be called once per step, before actions
+     * are sent. Further calls in the same game loop do nothing, so the budget can't be spent twice in one step.
+     */
+    public void flush() {
+        long gameLoop = observation.getGameLoop();
+        if (gameLoop == lastFlushedLoop) {
+            return;
+        }
+        lastFlushedLoop = gameLoop;
+        pendingCommands.entrySet().removeIf(entry -> {
+            if (gameLoop - entry.getValue().issuedAt <= MAX_WAIT_LOOPS) {
+                return false;
+            }
+            ++droppedCount;
+            droppedCommandListeners.forEach(listener -> listener.accept(entry.getKey()));
+            return true;
+        });
+
+        List<Map.Entry<Tag, PendingCommands>> ordered = new ArrayList<>(pendingCommands.entrySet());
+        ordered.sort(Comparator.comparingDouble(entry -> effectivePriority(entry.getValue(), gameLoop)));
+        Set<List<Object>> actionsSent = new HashSet<>();
+        for (Map.Entry<Tag, PendingCommands> entry : ordered) {
+            List<ScheduledCommand> commands = entry.getValue().commands;
+            long newActions = commands.stream()
+                    .map(ScheduledCommand::actionKey)
+                    .distinct()
+                    .filter(key -> !actionsSent.contains(key))
+                    .count();
+            // Always send something, so a budget smaller than one unit's commands can't stall the queue.
+            if (!actionsSent.isEmpty() && actionsSent.size() + newActions > actionsPerStep) {
+                continue;
+            }
+            commands.forEach(command -> {
+                send(entry.getKey(), command);
+                actionsSent.add(command.actionKey());
+            });
+            pendingCommands.remove(entry.getKey());
+        }
+        deferredCount += pendingCommands.size();
+    }
+
+    private static double effectivePriority(PendingCommands pending, long gameLoop) {
+        return pending.priority.ordinal() - (gameLoop - pending.issuedAt) / (double) AGING_LOOPS_PER_LEVEL;
+    }
+
+    private void send(Tag tag, ScheduledCommand command) {
+        if (command.targetPoint.isPresent()) {
+            delegate.unitCommand(tag, command.ability, command.targetPoint.get(), command.queued);
+        } else if (command.targetUnit.isPresent()) {
+            delegate.unitCommand(tag, command.ability, command.targetUnit.get(), command.queued);
+        } else {
+            delegate.unitCommand(tag, command.ability, command.queued);
+        }
+    }
+
+    private ActionInterface schedule(Tag tag, Ability ability, Optional<Point2d> targetPoint, Optional<Unit> targetUnit,
+                                     boolean queued) {
+        ActionPriority priority = ActionContext.getPriority();
+        long gameLoop = observation.getGameLoop();
+        PendingCommands pending = pendingCommands.get(tag);
+        if (pending == null || (!queued && pending.issuedAt != gameLoop)) {
+            // A command that isn't queued replaces anything the unit was waiting to do from earlier steps. Commands
+            // from the same step are kept, as some (e.g. training) add to the unit's queue anyway.
+            pending = new PendingCommands(priority, gameLoop);
+            pendingCommands.put(tag, pending);
+        } else if (priority.compareTo(pending.priority) < 0) {
+            pending.priority = priority;
+        }
+        pending.commands.add(new ScheduledCommand(ability, targetPoint, targetUnit, queued));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, boolean queuedCommand) {
+        return schedule(unit.getTag(), ability, Optional.empty(), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, Point2d point, boolean queuedCommand) {
+        return schedule(unit.getTag(), ability, Optional.of(point), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, Unit target, boolean queuedCommand) {
+        return schedule(unit.getTag(), ability, Optional.empty(), Optional.of(target), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, boolean queuedMove) {
+        units.forEach(unit -> schedule(unit.getTag(), ability, Optional.empty(), Optional.empty(), queuedMove));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, Point2d point, boolean queuedCommand) {
+        units.forEach(unit -> schedule(unit.getTag(), ability, Optional.of(point), Optional.empty(), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, Unit target, boolean queuedCommand) {
+        units.forEach(unit -> schedule(unit.getTag(), ability, Optional.empty(), Optional.of(target), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, boolean queuedCommand) {
+        return schedule(unit, ability, Optional.empty(), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, Point2d point, boolean queuedCommand) {
+        return schedule(unit, ability, Optional.of(point), Optional.empty(), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, Unit target, boolean queuedCommand) {
+        return schedule(unit, ability, Optional.empty(), Optional.of(target), queuedCommand);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, boolean queuedMove) {
+        units.forEach(unit -> schedule(unit, ability, Optional.empty(), Optional.empty(), queuedMove));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, Point2d point, boolean queuedCommand) {
+        units.forEach(unit -> schedule(unit, ability, Optional.of(point), Optional.empty(), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, Unit target, boolean queuedCommand) {
+        units.forEach(unit -> schedule(unit, ability, Optional.empty(), Optional.of(target), queuedCommand));
+        return this;
+    }
+
+    @Override
+    public List<Tag> commands() {
+        return delegate.commands();
+    }
+
+    @Override
+    public ActionInterface toggleAutocast(Tag unitTag, Ability ability) {
+        return delegate.toggleAutocast(unitTag, ability);
+    }
+
+    @Override
+    public ActionInterface toggleAutocast(List<Tag> unitTags, Ability ability) {
+        return delegate.toggleAutocast(unitTags, ability);
+    }
+
+    @Override
+    public ActionInterface sendChat(String message, ActionChat.Channel channel) {
+        return delegate.sendChat(message, channel);
+    }
+
+    @Override
+    public boolean sendActions() {
+        flush();
+        return delegate.sendActions();
+    }
+}
@@ -0,0 +1,301 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.action.ActionChat;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.spatial.Point;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.github.ocraft.s2client.protocol.unit.UnitOrder;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Drops move, attack, repair and similar commands that would not change what a unit is doing, either because the
+ * unit is already carrying out that command or because the same command was sent to it in the last few loops.
+ * Other commands (training, building, stop etc.) are always sent.
+ */
+public class RedundantCommandFilter implements ActionInterface {
+
+    private static final Set<Ability> FILTERED_ABILITIES = Set.of(
+            Abilities.MOVE,
+            Abilities.ATTACK,
+            Abilities.SMART,
+            Abilities.EFFECT_REPAIR,
+            Abilities.HARVEST_GATHER);
+
+    // How long a sent command suppresses an identical one.
+    private static final long RECENT_COMMAND_LOOPS = 11L;
+
+    // Same threshold as TerranMicro uses for its move and attack checks.
+    private static final double SAME_POSITION_DISTANCE = 0.5;
+
+    private static class SentCommand {
+        final Ability ability;
+        final Optional<Point2d> targetPoint;
+        final Optional<Tag> targetUnit;
+        final long gameLoop;
+
+        SentCommand(Ability ability, Optional<Point2d> targetPoint, Optional<Tag> targetUnit, long gameLoop) {
+            this.ability = ability;
+            this.targetPoint = targetPoint;
+            this.targetUnit = targetUnit;
+            this.gameLoop = gameLoop;
+        }
+    }
+
+    private final ActionInterface delegate;
+    private final ObservationInterface observation;
+    private final ActionStatistics statistics;
+
+    private final Map<Tag, SentCommand> lastSentCommand = new HashMap<>();
+    // Units that were given an unfiltered command this loop, so their observed orders are out of date.
+    private final Set<Tag> ordersChangedThisLoop = new HashSet<>();
+    private long currentLoop = -1L;
+
+    private long filteredCount = 0L;
+
+    public RedundantCommandFilter(ActionInterface delegate, ObservationInterface observation,
+                                  ActionStatistics statistics) {
+        this.delegate = delegate;
+        this.observation = observation;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the amount of commands that have been filtered since this method was last called.
+     */
+    public long getFilteredCountAndReset() {
+        long result = this.filteredCount;
+        this.filteredCount = 0L;
+        return result;
+    }
+
+    /**
+     * Forgets the command last sent to the unit, e.g. because it was dropped before reaching the game, so that the
+     * next identical command is sent.
+     */
+    public void forget(Tag tag) {
+        lastSentCommand.remove(tag);
+    }
+
+    private void updateLoop() {
+        long gameLoop = observation.getGameLoop();
+        if (gameLoop != currentLoop) {
+            currentLoop = gameLoop;
+            ordersChangedThisLoop.clear();
+            lastSentCommand.values().removeIf(sent -> gameLoop - sent.gameLoop >= RECENT_COMMAND_LOOPS);
+        }
+    }
+
+    /**
+     * Returns true if the command should be sent to the unit, and records it if so.
+     */
+    private boolean shouldSend(Tag tag, Optional<Unit> unit, Ability ability, Optional<Point2d> targetPoint,
+                               Optional<Tag> targetUnit, boolean queued) {
+        updateLoop();
+        statistics.recordIssued();
+        if (queued) {
+            // Queued commands don't replace the current order.
+            return true;
+        }
+        if (!FILTERED_ABILITIES.contains(ability)) {
+            lastSentCommand.remove(tag);
+            ordersChangedThisLoop.add(tag);
+            return true;
+        }
+        SentCommand lastSent = lastSentCommand.get(tag);
+        if (lastSent != null && isSameCommand(lastSent.ability, lastSent.targetPoint, lastSent.targetUnit,
+                ability, targetPoint, targetUnit)) {
+            ++filteredCount;
+            statistics.recordFiltered();
+            return false;
+        }
+        if (!ordersChangedThisLoop.contains(tag)) {
+            Optional<UnitOrder> currentOrder = unit
+                    .or(() -> Optional.ofNullable(observation.getUnit(tag)).map(UnitInPool::unit))
+                    .flatMap(observed -> observed.getOrders().stream().findFirst());
+            if (currentOrder.isPresent() && isSameCommand(
+                    currentOrder.get().getAbility(),
+                    currentOrder.get().getTargetedWorldSpacePosition().map(Point::toPoint2d),
+                    currentOrder.get().getTargetedUnitTag(),
+                    ability, targetPoint, targetUnit)) {
+                ++filteredCount;
+                statistics.recordFiltered();
+                return false;
+            }
+        }
+        lastSentCommand.put(tag, new SentCommand(ability, targetPoint, targetUnit, currentLoop));
+        ordersChangedThisLoop.add(tag);
+        return true;
+    }
+
+    private static boolean isSameCommand(Ability ability, Optional<Point2d> targetPoint, Optional<Tag> targetUnit,
+                                         Ability otherAbility, Optional<Point2d> otherTargetPoint,
+                                         Optional<Tag> otherTargetUnit) {
+        if (!ability.equals(otherAbility)) {
+            return false;
+        }
+        if (targetPoint.isPresent() || otherTargetPoint.isPresent()) {
+            return targetPoint.isPresent() && otherTargetPoint.isPresent() &&
+                    targetPoint.get().distance(otherTargetPoint.get()) < SAME_POSITION_DISTANCE;
+        }
+        return targetUnit.isPresent() && targetUnit.equals(otherTargetUnit);
+    }
+
+    private boolean shouldSend(Unit unit, Ability ability, Optional<Point2d> targetPoint, Optional<Tag> targetUnit,
+                               boolean queued) {
+        return shouldSend(unit.getTag(), Optional.of(unit), ability, targetPoint, targetUnit, queued);
+    }
+
+    private boolean shouldSend(Tag tag, Ability ability, Optional<Point2d> targetPoint, Optional<Tag> targetUnit,
+                               boolean queued) {
+        return shouldSend(tag, Optional.empty(), ability, targetPoint, targetUnit, queued);
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, boolean queuedCommand) {
+        if (shouldSend(unit, ability, Optional.empty(), Optional.empty(), queuedCommand)) {
+            delegate.unitCommand(unit, ability, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, Point2d point, boolean queuedCommand) {
+        if (shouldSend(unit, ability, Optional.of(point), Optional.empty(), queuedCommand)) {
+            delegate.unitCommand(unit, ability, point, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Unit unit, Ability ability, Unit target, boolean queuedCommand) {
+        if (shouldSend(unit, ability, Optional.empty(), Optional.of(target.getTag()), queuedCommand)) {
+            delegate.unitCommand(unit, ability, target, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, boolean queuedMove) {
+        List<Unit> toSend = units.stream()
+                .filter(unit -> shouldSend(unit, ability, Optional.empty(), Optional.empty(), queuedMove))
+                .collect(Collectors.toList());
+        if (!toSend.isEmpty()) {
+            delegate.unitCommand(toSend, ability, queuedMove);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, Point2d point, boolean queuedCommand) {
+        List<Unit> toSend = units.stream()
+                .filter(unit -> shouldSend(unit, ability, Optional.of(point), Optional.empty(), queuedCommand))
+                .collect(Collectors.toList());
+        if (!toSend.isEmpty()) {
+            delegate.unitCommand(toSend, ability, point, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(List<Unit> units, Ability ability, Unit target, boolean queuedCommand) {
+        List<Unit> toSend = units.stream()
+                .filter(unit -> shouldSend(unit, ability, Optional.empty(), Optional.of(target.getTag()),
+                        queuedCommand))
+                .collect(Collectors.toList());
+        if (!toSend.isEmpty()) {
+            delegate.unitCommand(toSend, ability, target, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, boolean queuedCommand) {
+        if (shouldSend(unit, ability, Optional.empty(), Optional.empty(), queuedCommand)) {
+            delegate.unitCommand(unit, ability, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, Point2d point, boolean queuedCommand) {
+        if (shouldSend(unit, ability, Optional.of(point), Optional.empty(), queuedCommand)) {
+            delegate.unitCommand(unit, ability, point, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Tag unit, Ability ability, Unit target, boolean queuedCommand) {
+        if (shouldSend(unit, ability, Optional.empty(), Optional.of(target.getTag()), queuedCommand)) {
+            delegate.unitCommand(unit, ability, target, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, boolean queuedMove) {
+        Set<Tag> toSend = units.stream()
+                .filter(unit -> shouldSend(unit, ability, Optional.empty(), Optional.empty(), queuedMove))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!toSend.isEmpty()) {
+            delegate.unitCommand(toSend, ability, queuedMove);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, Point2d point, boolean queuedCommand) {
+        Set<Tag> toSend = units.stream()
+                .filter(unit -> shouldSend(unit, ability, Optional.of(point), Optional.empty(), queuedCommand))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!toSend.isEmpty()) {
+            delegate.unitCommand(toSend, ability, point, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public ActionInterface unitCommand(Set<Tag> units, Ability ability, Unit target, boolean queuedCommand) {
+        Set<Tag> toSend = units.stream()
+                .filter(unit -> shouldSend(unit, ability, Optional.empty(), Optional.of(target.getTag()),
+                        queuedCommand))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!toSend.isEmpty()) {
+            delegate.unitCommand(toSend, ability, target, queuedCommand);
+        }
+        return this;
+    }
+
+    @Override
+    public List<Tag> commands() {
+        return delegate.commands();
+    }
+
+    @Override
+    public ActionInterface toggleAutocast(Tag unitTag, Ability ability) {
+        return delegate.toggleAutocast(unitTag, ability);
+    }
+
+    @Override
+    public ActionInterface toggleAutocast(List<Tag> unitTags, Ability ability) {
+        return delegate.toggleAutocast(unitTags, ability);
+    }
+
+    @Override
+    public ActionInterface sendChat(String message, ActionChat.Channel channel) {
+        return delegate.sendChat(message, channel);
+    }
+
+    @Override
+    public boolean sendActions() {
+        return delegate.sendActions();
+    }
+}
@@ -0,0 +1,171 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.S2Agent;
+import com.github.ocraft.s2client.protocol.debug.Color;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.supalosa.bot.instrumentation.events.GameStepEvent;
+import com.supalosa.bot.instrumentation.events.SubsystemUpdateEvent;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Times the phases of each step and keeps a latency histogram per phase, plus one for the whole step. The bytes
+ * allocated by each phase are also counted, where the JVM supports it. Steps and phases are also emitted as JFR
+ * events, which cost next to nothing when no recording is running.
+ * Only used from the main thread.
+ */
+public class StepProfiler {
+
+    public static final String STEP = "Step";
+
+    // Phases in the order they were first seen, with the whole step first.
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Long> lastStepNanos = new LinkedHashMap<>();
+    private final Map<String, Long> allocatedBytes = new LinkedHashMap<>();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final boolean isAllocationSupported;
+    private long stepStartedAt = 0L;
+    private long stepAllocatedBefore = 0L;
+    private long gameLoop = 0L;
+    private GameStepEvent stepEvent = new GameStepEvent();
+
+    public StepProfiler() {
+        histograms.put(STEP, new LatencyHistogram());
+        this.isAllocationSupported = threadMXBean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported() &&
+                ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    public void startStep(long gameLoop) {
+        this.gameLoop = gameLoop;
+        stepAllocatedBefore = getAllocatedBytes();
+        stepStartedAt = System.nanoTime();
+        stepEvent = new GameStepEvent();
+        stepEvent.begin();
+    }
+
+    public void endStep() {
+        record(STEP, System.nanoTime() - stepStartedAt, getAllocatedBytes() - stepAllocatedBefore);
+        stepEvent.end();
+        if (stepEvent.shouldCommit()) {
+            stepEvent.gameLoop = gameLoop;
+            stepEvent.commit();
+        }
+    }
+
+    /**
+     * Runs one phase of the step and records how long it took.
+     */
+    public void span(String phase, Runnable runnable) {
+        SubsystemUpdateEvent event = new SubsystemUpdateEvent();
+        event.begin();
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            record(phase, System.nanoTime() - start, getAllocatedBytes() - allocatedBefore);
+            event.end();
+            if (event.shouldCommit()) {
+                event.gameLoop = gameLoop;
+                event.subsystem = phase;
+                event.commit();
+            }
+        }
+    }
+
+    private void record(String phase, long nanos, long allocated) {
+        histograms.computeIfAbsent(phase, k -> new LatencyHistogram()).record(nanos);
+        lastStepNanos.put(phase, nanos);
+        allocatedBytes.merge(phase, allocated, Long::sum);
+    }
+
+    private long getAllocatedBytes() {
+        return isAllocationSupported ?
+                ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId()) :
+                0L;
+    }
+
+    /**
+     * Returns the mean bytes allocated per step by the given phase, or 0 if it has not run (or allocation is not
+     * measured on this JVM).
+     */
+    public long getAllocatedBytesPerStep(String phase) {
+        LatencyHistogram histogram = histograms.get(phase);
+        if (histogram == null || histogram.getSamples() == 0) {
+            return 0L;
+        }
+        return allocatedBytes.getOrDefault(phase, 0L) / histogram.getSamples();
+    }
+
+    /**
+     * Returns how long the last complete step took.
+     */
+    public long getLastStepNanos() {
+        return lastStepNanos.getOrDefault(STEP, 0L);
+    }
+
+    public Map<String, LatencyHistogram> getHistograms() {
+        return histograms;
+    }
+
+    public void debug(S2Agent agent) {
+        float yPosition = 0.30f;
+        agent.debug().debugTextOut("Phase: last / p50 / p99 / max (ms)", Point2d.of(0.78f, yPosition),
+                Color.WHITE, 8);
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            yPosition += 0.015f;
+            LatencyHistogram histogram = entry.getValue();
+            agent.debug().debugTextOut(String.format(Locale.ROOT, "%s: %.2f / %.2f / %.2f / %.2f",
+                    entry.getKey(),
+                    lastStepNanos.getOrDefault(entry.getKey(), 0L) / 1_000_000.0,
+                    histogram.getPercentileNanos(50) / 1_000_000.0,
+                    histogram.getPercentileNanos(99) / 1_000_000.0,
+                    histogram.getMaxNanos() / 1_000_000.0), Point2d.of(0.78f, yPosition), Color.WHITE, 8);
+        }
+    }
+
+    /**
+     * Writes the latency of every phase to a CSV file.
+     */
+    public void writeCsv(Path path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("phase,samples,mean_ms,p50_ms,p99_ms,max_ms,allocated_kb_per_step");
+            histograms.forEach((phase, histogram) -> {
+                double meanNanos = histogram.getSamples() > 0 ?
+                        histogram.getTotalNanos() / (double) histogram.getSamples() :
+                        0.0;
+                writer.printf(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%d%n",
+                        phase,
+                        histogram.getSamples(),
+                        meanNanos / 1_000_000.0,
+                        histogram.getPercentileNanos(50) / 1_000_000.0,
+                        histogram.getPercentileNanos(99) / 1_000_000.0,
+                        histogram.getMaxNanos() / 1_000_000.0,
+                        getAllocatedBytesPerStep(phase) / 1024);
+            });
+        }
+    }
+
+    /**
+     * Prints the p50/p99/max latency and the allocation of every phase.
+     */
+    public void printSummary() {
+        histograms.forEach((phase, histogram) -> System.out.println(String.format(Locale.ROOT,
+                "%s: p50 %.2fms, p99 %.2fms, max %.2fms, %dKB allocated per step over %d steps",
+                phase,
+                histogram.getPercentileNanos(50) / 1_000_000.0,
+                histogram.getPercentileNanos(99) / 1_000_000.0,
+                histogram.getMaxNanos() / 1_000_000.0,
+                getAllocatedBytesPerStep(phase) / 1024,
+                histogram.getSamples())));
+    }
+}
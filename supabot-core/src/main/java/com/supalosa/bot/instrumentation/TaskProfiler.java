@@ -0,0 +1,139 @@
+package com.supalosa.bot.instrumentation;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the wall time, thread CPU time and allocations of each task step, aggregated by task type.
+ *
+ * Profiles are kept per type rather than per task, because task keys are often unique (e.g. they contain a UUID)
+ * and the number of tasks created over a game is unbounded. CPU time and allocations are measured on the calling
+ * thread. Either measurement reads as zero if the JVM doesn't support it.
+ */
+public class TaskProfiler {
+
+    public static class TaskProfile {
+        private long calls = 0L;
+        private long wallNanos = 0L;
+        private long cpuNanos = 0L;
+        private long allocatedBytes = 0L;
+        private long maxWallNanos = 0L;
+
+        private void add(long wall, long cpu, long allocated) {
+            ++calls;
+            wallNanos += wall;
+            cpuNanos += cpu;
+            allocatedBytes += allocated;
+            maxWallNanos = Math.max(maxWallNanos, wall);
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getMaxWallNanos() {
+            return maxWallNanos;
+        }
+    }
+
+    private final ThreadMXBean threadMXBean;
+    private final boolean isCpuTimeSupported;
+    private final boolean isAllocationSupported;
+
+    private final Map<String, TaskProfile> profilesByType = new HashMap<>();
+
+    public TaskProfiler() {
+        this.threadMXBean = ManagementFactory.getThreadMXBean();
+        this.isCpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+        if (isCpuTimeSupported && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        this.isAllocationSupported = threadMXBean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported() &&
+                ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Runs the step of a task and records its cost against the task's type.
+     */
+    public void profile(String taskType, Runnable step) {
+        long allocatedBefore = getAllocatedBytes();
+        long cpuBefore = getCpuTime();
+        long wallBefore = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            long wall = System.nanoTime() - wallBefore;
+            long cpu = getCpuTime() - cpuBefore;
+            long allocated = getAllocatedBytes() - allocatedBefore;
+            synchronized (this) {
+                profilesByType.computeIfAbsent(taskType, k -> new TaskProfile()).add(wall, cpu, allocated);
+            }
+        }
+    }
+
+    /**
+     * Returns the task types that have used the most CPU time, most expensive first.
+     */
+    public synchronized List<Map.Entry<String, TaskProfile>> getMostExpensiveTypes(int limit) {
+        return profilesByType.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, TaskProfile> entry) -> entry.getValue().getCpuNanos()).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes every task type to a CSV file, most expensive first.
+     */
+    public synchronized void writeCsv(Path path) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            writer.println("type,calls,wall_ms,cpu_ms,allocated_kb,max_wall_ms");
+            writeRows(writer, profilesByType);
+        }
+    }
+
+    private static void writeRows(PrintWriter writer, Map<String, TaskProfile> profiles) {
+        profiles.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, TaskProfile> entry) -> entry.getValue().getCpuNanos()).reversed())
+                .forEach(entry -> {
+                    TaskProfile profile = entry.getValue();
+                    writer.printf(Locale.ROOT, "%s,%d,%.3f,%.3f,%d,%.3f%n",
+                            entry.getKey(),
+                            profile.getCalls(),
+                            profile.getWallNanos() / 1_000_000.0,
+                            profile.getCpuNanos() / 1_000_000.0,
+                            profile.getAllocatedBytes() / 1024,
+                            profile.getMaxWallNanos() / 1_000_000.0);
+                });
+    }
+
+    private long getCpuTime() {
+        return isCpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0L;
+    }
+
+    private long getAllocatedBytes() {
+        return isAllocationSupported ?
+                ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId()) :
+                0L;
+    }
+}
@@ -0,0 +1,40 @@
+package com.supalosa.bot.instrumentation;
+
+/**
+ * The periodic updates whose interval is chosen by the {@link CadenceController}, with the bounds it may choose
+ * from. All values are in game loops.
+ */
+public enum UpdateCadence {
+    REGION_DATA(22L, 33L, 88L),
+    EXPANSION_VALIDATION(22L, 44L, 132L),
+    CREEP_ANALYSIS(110L, 220L, 660L),
+    DEFENDABLE_STRUCTURES(44L, 88L, 220L),
+    ENEMY_ARMY_CLUSTERS(11L, 22L, 66L),
+    PLACEMENT_GRID(22L, 44L, 132L),
+    UNIT_REMATCH(33L, 66L, 198L),
+    FIGHT_TARGETING(11L, 22L, 66L),
+    CLOAK_OR_BURROW_DETECTION(22L, 44L, 132L),
+    ARMY_PATHING(22L, 44L, 132L);
+
+    private final long minInterval;
+    private final long defaultInterval;
+    private final long maxInterval;
+
+    UpdateCadence(long minInterval, long defaultInterval, long maxInterval) {
+        this.minInterval = minInterval;
+        this.defaultInterval = defaultInterval;
+        this.maxInterval = maxInterval;
+    }
+
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    public long getDefaultInterval() {
+        return defaultInterval;
+    }
+
+    public long getMaxInterval() {
+        return maxInterval;
+    }
+}
@@ -0,0 +1,17 @@
+package com.supalosa.bot.instrumentation.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("supabot.GameStep")
+@Label("Game Step")
+@Category({"SupaBot", "Step"})
+@Description("One call to the bot's onStep.")
+public class GameStepEvent extends Event {
+
+    @Label("Game Loop")
+    public long gameLoop;
+}
@@ -0,0 +1,27 @@
+package com.supalosa.bot.instrumentation.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("supabot.Pathfinding")
+@Label("Pathfinding")
+@Category({"SupaBot", "Map"})
+@Description("A path search over a region graph.")
+public class PathfindingEvent extends Event {
+
+    @Label("Start Region")
+    public int startRegion;
+
+    @Label("End Region")
+    public int endRegion;
+
+    @Label("Found")
+    public boolean found;
+
+    @Label("Path Length")
+    @Description("Number of regions in the path.")
+    public int pathLength;
+}
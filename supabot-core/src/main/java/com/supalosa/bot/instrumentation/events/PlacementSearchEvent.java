@@ -0,0 +1,26 @@
+package com.supalosa.bot.instrumentation.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("supabot.PlacementSearch")
+@Label("Placement Search")
+@Category({"SupaBot", "Map"})
+@Description("A search for somewhere to place a structure.")
+public class PlacementSearchEvent extends Event {
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Placement Rules")
+    public String placementRules;
+
+    @Label("Found")
+    public boolean found;
+}
@@ -0,0 +1,26 @@
+package com.supalosa.bot.instrumentation.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("supabot.RegionRefresh")
+@Label("Region Refresh")
+@Category({"SupaBot", "Map"})
+@Description("Recalculation of the region data, or of one of the region graphs built from it.")
+public class RegionRefreshEvent extends Event {
+
+    @Label("Game Loop")
+    public long gameLoop;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Regions")
+    public int regionCount;
+
+    @Label("Ramp State Changed")
+    public boolean rampStateChanged;
+}
@@ -0,0 +1,21 @@
+package com.supalosa.bot.instrumentation.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("supabot.ServerQuery")
+@Label("Server Query")
+@Category({"SupaBot", "Server"})
+@Description("A synchronous query to the game server.")
+public class ServerQueryEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Requests")
+    @Description("Number of requests in the query, for batched queries.")
+    public int requestCount;
+}
@@ -0,0 +1,20 @@
+package com.supalosa.bot.instrumentation.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("supabot.SubsystemUpdate")
+@Label("Subsystem Update")
+@Category({"SupaBot", "Step"})
+@Description("One phase of a step, such as map awareness or the task manager.")
+public class SubsystemUpdateEvent extends Event {
+
+    @Label("Game Loop")
+    public long gameLoop;
+
+    @Label("Subsystem")
+    public String subsystem;
+}
@@ -0,0 +1,27 @@
+package com.supalosa.bot.instrumentation.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("supabot.TaskExecution")
+@Label("Task Execution")
+@Category({"SupaBot", "Tasks"})
+@Description("One step of a task.")
+public class TaskExecutionEvent extends Event {
+
+    @Label("Game Loop")
+    public long gameLoop;
+
+    @Label("Task Type")
+    public String taskType;
+
+    @Label("Task Key")
+    public String taskKey;
+
+    @Label("Units")
+    @Description("Number of units assigned to the task.")
+    public int unitCount;
+}
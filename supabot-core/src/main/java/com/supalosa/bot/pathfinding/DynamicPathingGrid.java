@@ -0,0 +1,257 @@
+package com.supalosa.bot.pathfinding;
+
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.supalosa.bot.GameData;
+import com.supalosa.bot.analysis.AnalysisResults;
+import com.supalosa.bot.analysis.Tile;
+import com.supalosa.bot.analysis.utils.Grid;
+import com.supalosa.bot.awareness.ObservationDelta;
+import com.supalosa.bot.awareness.ObservationDeltaListener;
+
+import java.util.*;
+
+/**
+ * A pathing grid that is kept in sync with the footprints of structures, resources and destructible rocks as they
+ * appear and disappear, unlike the pathing grid from the start of the game.
+ *
+ * Pathability is stored one bit per tile. Whether each ramp is blocked is recalculated only when the pathability
+ * of one of its tiles changes.
+ */
+public class DynamicPathingGrid implements ObservationDeltaListener {
+
+    private final GameData gameData;
+    private final int width;
+    private final int height;
+
+    // Pathability of the terrain, ignoring anything standing on it. Indexed by [x + y * width].
+    private final long[] terrainPathable;
+    // Buildable terrain from the placement grid, which (unlike the pathing grid) ignores the units on the map.
+    private final long[] terrainPlaceable;
+    // Pathability of the terrain, taking structures and rocks into account.
+    private final long[] pathable;
+    // Number of footprints covering each tile.
+    private final byte[] blockerCount;
+    // Ramp ID of each tile, or -1 if it's not a ramp.
+    private final int[] rampIds;
+
+    // Footprint rectangle (x, y, width, height) of each unit that is blocking the grid.
+    private final Map<Tag, int[]> placedFootprints = new HashMap<>();
+
+    private final Map<Integer, int[]> rampTiles = new HashMap<>();
+    private final Map<Integer, Boolean> rampBlocked = new HashMap<>();
+    private final Set<Integer> dirtyRamps = new HashSet<>();
+    // Incremented every time a ramp changes between blocked and unblocked.
+    private long rampStateVersion = 0L;
+
+    public DynamicPathingGrid(AnalysisResults analysisResults, GameData gameData) {
+        this.gameData = gameData;
+        Grid<Tile> grid = analysisResults.getGrid();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.terrainPathable = new long[(width * height + 63) / 64];
+        this.terrainPlaceable = new long[terrainPathable.length];
+        this.pathable = new long[terrainPathable.length];
+        this.blockerCount = new byte[width * height];
+        this.rampIds = new int[width * height];
+        Map<Integer, List<Integer>> tilesByRamp = new HashMap<>();
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                int index = x + y * width;
+                rampIds[index] = -1;
+                if (!grid.isSet(x, y)) {
+                    continue;
+                }
+                Tile tile = grid.get(x, y);
+                if (tile.pathable) {
+                    setBit(terrainPathable, index, true);
+                    setBit(pathable, index, true);
+                }
+                if (tile.placeable) {
+                    setBit(terrainPlaceable, index, true);
+                }
+                if (tile.rampId >= 0) {
+                    rampIds[index] = tile.rampId;
+                    tilesByRamp.computeIfAbsent(tile.rampId, rampId -> new ArrayList<>()).add(index);
+                }
+            }
+        }
+        tilesByRamp.forEach((rampId, tiles) -> {
+            rampTiles.put(rampId, tiles.stream().mapToInt(Integer::intValue).toArray());
+            dirtyRamps.add(rampId);
+        });
+        recalculateDirtyRamps();
+    }
+
+    @Override
+    public void onObservationDelta(ObservationDelta delta) {
+        delta.disappeared().forEach(unitInPool -> removeFootprint(unitInPool.getTag()));
+        delta.appeared().forEach(this::placeFootprint);
+        delta.typeChanged().forEach(unitInPool -> {
+            // Lifting off, landing and lowering depots all change the unit type.
+            removeFootprint(unitInPool.getTag());
+            placeFootprint(unitInPool);
+        });
+        recalculateDirtyRamps();
+    }
+
+    public boolean isPathable(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return getBit(pathable, x + y * width);
+    }
+
+    public boolean isPathable(Point2d point) {
+        return isPathable((int) point.getX(), (int) point.getY());
+    }
+
+    /**
+     * Returns true if no path exists from one side of the ramp to the other.
+     */
+    public boolean isRampBlocked(int rampId) {
+        return rampBlocked.getOrDefault(rampId, false);
+    }
+
+    /**
+     * Returns a number that changes whenever any ramp becomes blocked or unblocked, so consumers can tell when
+     * region connectivity needs to be rebuilt.
+     */
+    public long getRampStateVersion() {
+        return rampStateVersion;
+    }
+
+    private void placeFootprint(UnitInPool unitInPool) {
+        Unit unit = unitInPool.unit();
+        if (!isBlocker(unit)) {
+            return;
+        }
+        gameData.getUnitFootprint(unit.getType()).ifPresent(footprint -> {
+            int w = (int) footprint.getX();
+            int h = (int) footprint.getY();
+            // Note that a structure's origin is at its centre (biased to northeast for even numbers).
+            int xStart = (int) unit.getPosition().getX() - w / 2;
+            int yStart = (int) unit.getPosition().getY() - h / 2;
+            placedFootprints.put(unitInPool.getTag(), new int[]{xStart, yStart, w, h});
+            for (int y = Math.max(0, yStart); y < Math.min(height, yStart + h); ++y) {
+                for (int x = Math.max(0, xStart); x < Math.min(width, xStart + w); ++x) {
+                    int index = x + y * width;
+                    // Resources, rocks and starting structures are unpathable in the initial pathing grid. The
+                    // footprint is only approximate, so only the buildable ground under them is known to be
+                    // pathable once they're gone; anything else (e.g. the edge of a cliff) keeps its initial value.
+                    if (getBit(terrainPlaceable, index)) {
+                        setBit(terrainPathable, index, true);
+                    }
+                    if (blockerCount[index] < Byte.MAX_VALUE) {
+                        ++blockerCount[index];
+                    }
+                    updateTile(index);
+                }
+            }
+        });
+    }
+
+    private void removeFootprint(Tag tag) {
+        int[] footprint = placedFootprints.remove(tag);
+        if (footprint == null) {
+            return;
+        }
+        int xStart = footprint[0], yStart = footprint[1], w = footprint[2], h = footprint[3];
+        for (int y = Math.max(0, yStart); y < Math.min(height, yStart + h); ++y) {
+            for (int x = Math.max(0, xStart); x < Math.min(width, xStart + w); ++x) {
+                int index = x + y * width;
+                if (blockerCount[index] > 0) {
+                    --blockerCount[index];
+                }
+                updateTile(index);
+            }
+        }
+    }
+
+    private boolean isBlocker(Unit unit) {
+        if (unit.getFlying().orElse(false) || unit.getType().equals(Units.TERRAN_SUPPLY_DEPOT_LOWERED)) {
+            return false;
+        }
+        return unit.getAlliance() == Alliance.NEUTRAL || gameData.isStructure(unit.getType());
+    }
+
+    private void updateTile(int index) {
+        boolean isPathable = getBit(terrainPathable, index) && blockerCount[index] == 0;
+        if (getBit(pathable, index) != isPathable) {
+            setBit(pathable, index, isPathable);
+            if (rampIds[index] >= 0) {
+                dirtyRamps.add(rampIds[index]);
+            }
+        }
+    }
+
+    private void recalculateDirtyRamps() {
+        for (Integer rampId : dirtyRamps) {
+            boolean isBlocked = calculateIsBlocked(rampTiles.get(rampId));
+            Boolean wasBlocked = rampBlocked.put(rampId, isBlocked);
+            if (wasBlocked != null && wasBlocked != isBlocked) {
+                ++rampStateVersion;
+            }
+        }
+        dirtyRamps.clear();
+    }
+
+    /**
+     * Flood fills the ramp from one of its pathable tiles using 4-neighbours. The ramp is blocked if any of its
+     * tiles can't be reached. Unpathable tiles next to a reached tile count as reached, so structures standing on
+     * the ramp don't block it unless they close it off.
+     */
+    private boolean calculateIsBlocked(int[] tiles) {
+        if (tiles.length == 0) {
+            return false;
+        }
+        Set<Integer> tileSet = new HashSet<>(tiles.length);
+        int start = -1;
+        for (int tile : tiles) {
+            tileSet.add(tile);
+            if (start < 0 && getBit(pathable, tile)) {
+                start = tile;
+            }
+        }
+        if (start < 0) {
+            return true;
+        }
+        Set<Integer> visited = new HashSet<>(tiles.length);
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        visited.add(start);
+        while (!queue.isEmpty()) {
+            int head = queue.poll();
+            int x = head % width;
+            int[] neighbours = new int[]{
+                    x > 0 ? head - 1 : -1,
+                    x < width - 1 ? head + 1 : -1,
+                    head - width,
+                    head + width};
+            for (int neighbour : neighbours) {
+                if (neighbour >= 0 && tileSet.contains(neighbour) && visited.add(neighbour)) {
+                    if (getBit(pathable, neighbour)) {
+                        queue.add(neighbour);
+                    }
+                }
+            }
+        }
+        return visited.size() != tiles.length;
+    }
+
+    private static boolean getBit(long[] bits, int index) {
+        return (bits[index >> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >> 6] |= (1L << index);
+        } else {
+            bits[index >> 6] &= ~(1L << index);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.supalosa.bot.pathfinding;
 
 import com.supalosa.bot.analysis.Region;
+import com.supalosa.bot.instrumentation.events.PathfindingEvent;
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.shortestpath.AStarShortestPath;
 import org.jgrapht.graph.AsSubgraph;
@@ -48,6 +49,21 @@ public class RegionGraph extends SimpleWeightedGraph<Region, DefaultWeightedEdge
     }
 
     public Optional<RegionGraphPath> findPath(Region startRegion, Region endRegion) {
+        PathfindingEvent event = new PathfindingEvent();
+        event.begin();
+        Optional<RegionGraphPath> result = findPathImpl(startRegion, endRegion);
+        event.end();
+        if (event.shouldCommit()) {
+            event.startRegion = startRegion.regionId();
+            event.endRegion = endRegion.regionId();
+            event.found = result.isPresent();
+            event.pathLength = result.map(path -> path.getPath().size()).orElse(0);
+            event.commit();
+        }
+        return result;
+    }
+
+    private Optional<RegionGraphPath> findPathImpl(Region startRegion, Region endRegion) {
         AStarShortestPath<Region, DefaultWeightedEdge> pathfinder = new AStarShortestPath<>(
                 this, (sourceVertex, targetVertex) -> sourceVertex.centrePoint().distance(targetVertex.centrePoint()));
 
@@ -23,7 +23,11 @@ import com.supalosa.bot.analysis.Tile;
 import com.supalosa.bot.analysis.utils.Grid;
 import com.supalosa.bot.analysis.utils.InMemoryGrid;
 import com.supalosa.bot.awareness.MapAwareness;
+import com.supalosa.bot.awareness.ObservationDelta;
+import com.supalosa.bot.awareness.ObservationDeltaListener;
 import com.supalosa.bot.awareness.RegionData;
+import com.supalosa.bot.instrumentation.UpdateCadence;
+import com.supalosa.bot.instrumentation.events.PlacementSearchEvent;
 import com.supalosa.bot.pathfinding.BreadthFirstSearch;
 import com.supalosa.bot.task.terran.BuildUtils;
 import com.supalosa.bot.utils.UnitFilter;
@@ -37,7 +41,7 @@ import java.util.stream.Collectors;
 /**
  * Calculates where to place walls for different races.
  */
-public class StructurePlacementCalculator {
+public class StructurePlacementCalculator implements ObservationDeltaListener {
 
     private final AnalysisResults mapAnalysisResult;
     private final Point2d start;
@@ -55,6 +59,13 @@ public class StructurePlacementCalculator {
 
     private List<Unit> myStructures = new ArrayList<>();
     private long myStructuresUpdatedAt = 0L;
+    // Set when a structure or pending build order may have changed, so the reservation grid needs rebuilding.
+    private boolean myStructuresDirty = true;
+    // Set when a suggested location has been reserved. Reservations only last until the next rebuild, so that
+    // abandoned builds (worker killed, task cancelled etc) don't block their tiles forever.
+    private boolean hasReservations = false;
+    // Units that had a build order the last time their orders changed.
+    private final Set<Tag> unitsWithBuildOrders = new HashSet<>();
 
     // Grid of tiles available for free placement (i.e. not reserved tiles).
     // This grid is STATIC and should not be modified during the game.
@@ -484,6 +495,26 @@ public class StructurePlacementCalculator {
                                                              int structureWidth,
                                                              int structureHeight,
                                                              Optional<PlacementRules> placementRules) {
+        PlacementSearchEvent event = new PlacementSearchEvent();
+        event.begin();
+        Optional<ResolvedPlacementResult> result = suggestLocationForFreePlacementImpl(data, origin, structureWidth,
+                structureHeight, placementRules);
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = structureWidth;
+            event.height = structureHeight;
+            event.placementRules = placementRules.map(Object::toString).orElse("none");
+            event.found = result.isPresent();
+            event.commit();
+        }
+        return result;
+    }
+
+    private Optional<ResolvedPlacementResult> suggestLocationForFreePlacementImpl(AgentWithData data,
+                                                             Point2d origin,
+                                                             int structureWidth,
+                                                             int structureHeight,
+                                                             Optional<PlacementRules> placementRules) {
         Optional<PlacementRegion> region = placementRules.flatMap(PlacementRules::regionType);
 
         Optional<Point2d> atPosition = placementRules.flatMap(PlacementRules::at);
@@ -521,6 +552,7 @@ public class StructurePlacementCalculator {
                         structureHeight,
                         NOT_BUILDABLE
                 );
+                hasReservations = true;
             });
         }
         return resolvedLocation;
@@ -803,8 +835,6 @@ public class StructurePlacementCalculator {
         return ThreadLocalRandom.current().nextBoolean() ? 1 : -1;
     }
 
-    private static final long MY_STRUCTURE_UPDATE_INTERVAL = 22L * 2;
-
     private void updateMutableGridForStructure(AgentData data, Unit unit) {
         updateMutableGridForStructure(data, unit.getPosition().toPoint2d(), unit.getType(), Optional.of(unit.getTag()));
     }
@@ -834,8 +864,11 @@ public class StructurePlacementCalculator {
             debugStructureFootprintsResetAt = gameLoop;
         }
 
-        if (gameLoop > myStructuresUpdatedAt + MY_STRUCTURE_UPDATE_INTERVAL) {
+        if ((myStructuresDirty || hasReservations) &&
+                gameLoop > myStructuresUpdatedAt + data.cadenceController().getInterval(UpdateCadence.PLACEMENT_GRID)) {
             myStructuresUpdatedAt = gameLoop;
+            myStructuresDirty = false;
+            hasReservations = false;
             mutableFreePlacementGrid.clear();
             // Look at all placed structures.
             myStructures = agent.observation().getUnits(unitInPool -> {
@@ -874,6 +907,38 @@ public class StructurePlacementCalculator {
         }
     }
 
+    @Override
+    public void onObservationDelta(ObservationDelta delta) {
+        boolean structuresChanged = delta.appeared().stream().anyMatch(this::isMyStructure) ||
+                delta.disappeared().stream().anyMatch(this::isMyStructure) ||
+                delta.moved().stream().anyMatch(this::isMyStructure);
+        // Only order changes that add or remove a build order affect the reservations.
+        boolean buildOrdersChanged = false;
+        for (UnitInPool unitInPool : delta.ordersChanged()) {
+            if (unitInPool.unit().getAlliance() != Alliance.SELF) {
+                continue;
+            }
+            boolean hadBuildOrder = unitsWithBuildOrders.contains(unitInPool.getTag());
+            boolean hasBuildOrder = unitInPool.unit().getOrders().stream().anyMatch(order ->
+                    order.getTargetedWorldSpacePosition().isPresent() &&
+                    gameData.getAbility(order.getAbility()).map(AbilityData::isBuilding).orElse(false));
+            if (hasBuildOrder) {
+                unitsWithBuildOrders.add(unitInPool.getTag());
+            } else {
+                unitsWithBuildOrders.remove(unitInPool.getTag());
+            }
+            buildOrdersChanged |= (hadBuildOrder || hasBuildOrder);
+        }
+        for (UnitInPool unitInPool : delta.disappeared()) {
+            buildOrdersChanged |= unitsWithBuildOrders.remove(unitInPool.getTag());
+        }
+        myStructuresDirty |= (structuresChanged || buildOrdersChanged);
+    }
+
+    private boolean isMyStructure(UnitInPool unitInPool) {
+        return unitInPool.unit().getAlliance() == Alliance.SELF && gameData.isStructure(unitInPool.unit().getType());
+    }
+
     /**
      * Returns the modified footprint of a structure given its type.
      * This accounts for things like addons, minimum around production structures, etc.
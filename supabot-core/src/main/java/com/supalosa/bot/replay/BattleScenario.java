@@ -0,0 +1,42 @@
+package com.supalosa.bot.replay;
+
+import org.immutables.value.Value;
+
+import java.util.List;
+
+/**
+ * The units and resources that a {@link SyntheticGame} starts with.
+ */
+@Value.Immutable
+public interface BattleScenario {
+
+    String name();
+
+    List<UnitGroup> groups();
+
+    @Value.Default
+    default int minerals() {
+        return 500;
+    }
+
+    @Value.Default
+    default int vespene() {
+        return 200;
+    }
+
+    /**
+     * The number of steps to run the scenario for.
+     */
+    @Value.Default
+    default int steps() {
+        return 2000;
+    }
+
+    /**
+     * The game loop the scenario starts on. Defaults to 10 minutes in, where tasks expect an army to exist.
+     */
+    @Value.Default
+    default long startGameLoop() {
+        return 13440L;
+    }
+}
@@ -0,0 +1,296 @@
+package com.supalosa.bot.replay;
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import SC2APIProtocol.Sc2Api;
+import SC2APIProtocol.ScoreOuterClass;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.DebugInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.protocol.game.GameInfo;
+import com.github.ocraft.s2client.protocol.observation.Observation;
+import com.github.ocraft.s2client.protocol.score.Score;
+import com.github.ocraft.s2client.protocol.spatial.Point;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.google.protobuf.ByteString;
+
+import java.lang.reflect.Method;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A made-up base game for a {@link SyntheticGame}, so that a scenario can run without a recording (e.g. in a test).
+ *
+ * The map is empty apart from the terrain: a main base on high ground at each end, joined to the low ground in the
+ * middle by a ramp, so the map analysis has more than one region and ramp to work with. Our start location is in the
+ * west main and the enemy's is in the east main. There are no units (so no minerals), no unit type data, the score is
+ * zero, and the query and debug interfaces answer everything with an empty or zero value.
+ */
+public class BlankGame {
+
+    public static final int DEFAULT_WIDTH = 96;
+    public static final int DEFAULT_HEIGHT = 64;
+
+    // The unplayable edge of the map.
+    private static final int BORDER = 4;
+    // The width of each main base, from the edge of the playable area to its cliff.
+    private static final int MAIN_WIDTH = 20;
+    // The cliff between a main and the low ground, which has a ramp in the middle of it.
+    private static final int CLIFF_WIDTH = 4;
+    private static final int RAMP_HALF_WIDTH = 2;
+    private static final int LOW_GROUND = 128;
+    private static final int HIGH_GROUND = 160;
+    private static final int NOT_PATHABLE = 0;
+    private static final int PATHABLE = 255;
+
+    private final int width;
+    private final int height;
+    private final GameInterfaces interfaces;
+    private final GameInfo gameInfo;
+    private final Observation rawObservation;
+    private final Score score;
+
+    public BlankGame() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    public BlankGame(int width, int height) {
+        if (width < 2 * (BORDER + MAIN_WIDTH + CLIFF_WIDTH) + 1 || height < 2 * (BORDER + RAMP_HALF_WIDTH) + 1) {
+            throw new IllegalArgumentException("The map is too small: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.score = Score.from(score());
+        this.gameInfo = GameInfo.from(gameInfo());
+        this.rawObservation = Observation.from(Sc2Api.Observation.newBuilder()
+                .setGameLoop(0)
+                .setPlayerCommon(Sc2Api.PlayerCommon.newBuilder()
+                        .setPlayerId(1)
+                        .setMinerals(0)
+                        .setVespene(0)
+                        .setFoodCap(0)
+                        .setFoodUsed(0)
+                        .setFoodArmy(0)
+                        .setFoodWorkers(0)
+                        .setIdleWorkerCount(0)
+                        .setArmyCount(0)
+                        .setWarpGateCount(0)
+                        .setLarvaCount(0))
+                .setScore(score())
+                .build());
+        this.interfaces = new GameInterfaces(
+                RecordedCalls.proxy(ObservationInterface.class, this::observe),
+                RecordedCalls.proxy(QueryInterface.class, RecordedCalls::ignore),
+                RecordedCalls.proxy(ActionInterface.class, RecordedCalls::ignore),
+                RecordedCalls.proxy(DebugInterface.class, RecordedCalls::ignore));
+    }
+
+    /**
+     * Returns the interfaces to use as the base game.
+     */
+    public GameInterfaces interfaces() {
+        return interfaces;
+    }
+
+    public Point2d getStartLocation() {
+        return Point2d.of(BORDER + MAIN_WIDTH / 2f + 0.5f, height / 2f + 0.5f);
+    }
+
+    public Point2d getEnemyStartLocation() {
+        return Point2d.of(width - BORDER - MAIN_WIDTH / 2f - 0.5f, height / 2f + 0.5f);
+    }
+
+    private Object observe(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getGameInfo":
+                return gameInfo;
+            case "getStartLocation": {
+                Point2d start = getStartLocation();
+                return Point.of(start.getX(), start.getY(), terrainHeight((int) start.getX(), (int) start.getY()));
+            }
+            case "getPlayerId":
+                return 1;
+            case "getScore":
+                return score;
+            case "getRawObservation":
+                return rawObservation;
+            case "getCameraPos": {
+                Point2d start = getStartLocation();
+                return Point.of(start.getX(), start.getY());
+            }
+            case "terrainHeight": {
+                Point2d point = (Point2d) args[0];
+                return terrainHeight((int) point.getX(), (int) point.getY());
+            }
+            case "isPathable": {
+                Point2d point = (Point2d) args[0];
+                return pathing((int) point.getX(), (int) point.getY()) != NOT_PATHABLE;
+            }
+            case "isPlacable": {
+                Point2d point = (Point2d) args[0];
+                return placement((int) point.getX(), (int) point.getY()) != NOT_PATHABLE;
+            }
+            default:
+                return RecordedCalls.ignore(proxy, method, args);
+        }
+    }
+
+    // The height in world units, from the value in the terrain height grid.
+    private float terrainHeight(int x, int y) {
+        return -16f + 32f * terrain(x, y) / 255f;
+    }
+
+    private boolean isPlayable(int x, int y) {
+        return x >= BORDER && x < width - BORDER && y >= BORDER && y < height - BORDER;
+    }
+
+    // The distance into the cliff (0 at the high ground side), or -1 if the tile is not in a cliff.
+    private int cliffDepth(int x) {
+        int west = x - (BORDER + MAIN_WIDTH);
+        if (west >= 0 && west < CLIFF_WIDTH) {
+            return west;
+        }
+        int east = (width - BORDER - MAIN_WIDTH - 1) - x;
+        if (east >= 0 && east < CLIFF_WIDTH) {
+            return east;
+        }
+        return -1;
+    }
+
+    private boolean isRamp(int x, int y) {
+        return cliffDepth(x) >= 0 && Math.abs(y - height / 2) <= RAMP_HALF_WIDTH;
+    }
+
+    private boolean isMain(int x) {
+        return x < BORDER + MAIN_WIDTH || x >= width - BORDER - MAIN_WIDTH;
+    }
+
+    private int terrain(int x, int y) {
+        if (!isPlayable(x, y)) {
+            return 0;
+        }
+        int cliffDepth = cliffDepth(x);
+        if (cliffDepth >= 0) {
+            // The ramp (and the cliff around it) slopes down from the main to the low ground.
+            return HIGH_GROUND - (HIGH_GROUND - LOW_GROUND) * (cliffDepth + 1) / (CLIFF_WIDTH + 1);
+        }
+        return isMain(x) ? HIGH_GROUND : LOW_GROUND;
+    }
+
+    private int pathing(int x, int y) {
+        if (!isPlayable(x, y) || (cliffDepth(x) >= 0 && !isRamp(x, y))) {
+            return NOT_PATHABLE;
+        }
+        return PATHABLE;
+    }
+
+    private int placement(int x, int y) {
+        if (!isPlayable(x, y) || cliffDepth(x) >= 0) {
+            return NOT_PATHABLE;
+        }
+        return PATHABLE;
+    }
+
+    // An 8 bits per pixel grid, with the origin at the bottom left.
+    private Common.ImageData image(IntBinaryOperator value) {
+        byte[] data = new byte[width * height];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                data[y * width + x] = (byte) value.applyAsInt(x, y);
+            }
+        }
+        return Common.ImageData.newBuilder()
+                .setBitsPerPixel(8)
+                .setSize(Common.Size2DI.newBuilder().setX(width).setY(height))
+                .setData(ByteString.copyFrom(data))
+                .build();
+    }
+
+    private Sc2Api.ResponseGameInfo gameInfo() {
+        Point2d enemyStart = getEnemyStartLocation();
+        return Sc2Api.ResponseGameInfo.newBuilder()
+                .setMapName("Blank")
+                .setLocalMapPath("Blank.SC2Map")
+                .addPlayerInfo(Sc2Api.PlayerInfo.newBuilder()
+                        .setPlayerId(1)
+                        .setType(Sc2Api.PlayerType.Participant)
+                        .setRaceRequested(Common.Race.Terran)
+                        .setRaceActual(Common.Race.Terran))
+                .addPlayerInfo(Sc2Api.PlayerInfo.newBuilder()
+                        .setPlayerId(2)
+                        .setType(Sc2Api.PlayerType.Computer)
+                        .setRaceRequested(Common.Race.Zerg)
+                        .setRaceActual(Common.Race.Zerg)
+                        .setDifficulty(Sc2Api.Difficulty.Medium))
+                .setStartRaw(Raw.StartRaw.newBuilder()
+                        .setMapSize(Common.Size2DI.newBuilder().setX(width).setY(height))
+                        .setTerrainHeight(image(this::terrain))
+                        .setPathingGrid(image(this::pathing))
+                        .setPlacementGrid(image(this::placement))
+                        .setPlayableArea(Common.RectangleI.newBuilder()
+                                .setP0(Common.PointI.newBuilder().setX(BORDER).setY(BORDER))
+                                .setP1(Common.PointI.newBuilder().setX(width - BORDER).setY(height - BORDER)))
+                        // The start locations are the enemy's possible start locations.
+                        .addStartLocations(Common.Point2D.newBuilder()
+                                .setX(enemyStart.getX())
+                                .setY(enemyStart.getY())))
+                .setOptions(Sc2Api.InterfaceOptions.newBuilder()
+                        .setRaw(true)
+                        .setScore(true))
+                .build();
+    }
+
+    private static ScoreOuterClass.Score score() {
+        return ScoreOuterClass.Score.newBuilder()
+                .setScoreType(ScoreOuterClass.Score.ScoreType.Melee)
+                .setScore(0)
+                .setScoreDetails(ScoreOuterClass.ScoreDetails.newBuilder()
+                        .setIdleProductionTime(0f)
+                        .setIdleWorkerTime(0f)
+                        .setTotalValueUnits(0f)
+                        .setTotalValueStructures(0f)
+                        .setKilledValueUnits(0f)
+                        .setKilledValueStructures(0f)
+                        .setCollectedMinerals(0f)
+                        .setCollectedVespene(0f)
+                        .setCollectionRateMinerals(0f)
+                        .setCollectionRateVespene(0f)
+                        .setSpentMinerals(0f)
+                        .setSpentVespene(0f)
+                        .setFoodUsed(categoryScore())
+                        .setKilledMinerals(categoryScore())
+                        .setKilledVespene(categoryScore())
+                        .setLostMinerals(categoryScore())
+                        .setLostVespene(categoryScore())
+                        .setFriendlyFireMinerals(categoryScore())
+                        .setFriendlyFireVespene(categoryScore())
+                        .setUsedMinerals(categoryScore())
+                        .setUsedVespene(categoryScore())
+                        .setTotalUsedMinerals(categoryScore())
+                        .setTotalUsedVespene(categoryScore())
+                        .setTotalDamageDealt(vitalScore())
+                        .setTotalDamageTaken(vitalScore())
+                        .setTotalHealed(vitalScore())
+                        .setCurrentApm(0f)
+                        .setCurrentEffectiveApm(0f))
+                .build();
+    }
+
+    private static ScoreOuterClass.CategoryScoreDetails categoryScore() {
+        return ScoreOuterClass.CategoryScoreDetails.newBuilder()
+                .setNone(0f)
+                .setArmy(0f)
+                .setEconomy(0f)
+                .setTechnology(0f)
+                .setUpgrade(0f)
+                .build();
+    }
+
+    private static ScoreOuterClass.VitalScoreDetails vitalScore() {
+        return ScoreOuterClass.VitalScoreDetails.newBuilder()
+                .setLife(0f)
+                .setShields(0f)
+                .setEnergy(0f)
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.DebugInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+
+/**
+ * The interfaces an agent uses to talk to the game, for running an agent without a game (e.g. replaying a
+ * recording).
+ */
+public class GameInterfaces {
+
+    private final ObservationInterface observation;
+    private final QueryInterface query;
+    private final ActionInterface actions;
+    private final DebugInterface debug;
+
+    public GameInterfaces(ObservationInterface observation,
+                          QueryInterface query,
+                          ActionInterface actions,
+                          DebugInterface debug) {
+        this.observation = observation;
+        this.query = query;
+        this.actions = actions;
+        this.debug = debug;
+    }
+
+    public ObservationInterface observation() {
+        return observation;
+    }
+
+    public QueryInterface query() {
+        return query;
+    }
+
+    public ActionInterface actions() {
+        return actions;
+    }
+
+    public DebugInterface debug() {
+        return debug;
+    }
+}
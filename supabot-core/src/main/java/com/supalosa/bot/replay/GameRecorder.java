@@ -0,0 +1,196 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records what the bot sees during a game, so the game can be replayed through the bot without the game client
+ * (see {@link GameReplay}).
+ *
+ * The observation and query interfaces are wrapped so that the result of every call the bot makes is recorded,
+ * keyed by the call and its arguments. The units are recorded at the start of each step, and the unit events as they
+ * arrive. Only what changed since the previous step is written, and the file is compressed.
+ *
+ * Results that cannot be serialized are not recorded, and are reported once.
+ */
+public class GameRecorder {
+
+    static final int FORMAT_VERSION = 1;
+
+    // Answered from the recorded units rather than recorded.
+    static final Set<String> UNIT_METHODS = Set.of("getUnits", "getUnit");
+
+    private final Path path;
+    private Optional<ObjectOutputStream> out;
+
+    private RecordedFrame frame = new RecordedFrame();
+    private final Map<Long, byte[]> lastWrittenUnits = new HashMap<>();
+    private final Map<String, byte[]> lastWrittenCalls = new HashMap<>();
+    // The observation doesn't change during a step, so each call only needs to be recorded once per step.
+    private final Set<String> recordedThisStep = new HashSet<>();
+    private final Set<String> unrecordableMethods = new HashSet<>();
+
+    private long framesWritten = 0L;
+
+    private GameRecorder(Path path, ObjectOutputStream out) {
+        this.path = path;
+        this.out = Optional.of(out);
+    }
+
+    public static GameRecorder open(Path path) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(
+                new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(path))));
+        out.writeInt(FORMAT_VERSION);
+        return new GameRecorder(path, out);
+    }
+
+    /**
+     * Wraps an interface so that the results of calls made through it are recorded.
+     */
+    public <T> T wrap(Class<T> type, T delegate) {
+        return type.cast(Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result = RecordedCalls.invoke(delegate, method, args);
+                    if (method.getDeclaringClass() != Object.class && !UNIT_METHODS.contains(method.getName())) {
+                        RecordedCalls.key(method, args).ifPresent(key -> recordCall(method, key, result));
+                    }
+                    return result;
+                }));
+    }
+
+    private synchronized void recordCall(Method method, String key, Object result) {
+        if (out.isEmpty() || recordedThisStep.contains(key) || unrecordableMethods.contains(method.getName())) {
+            return;
+        }
+        recordedThisStep.add(key);
+        try {
+            byte[] bytes = RecordedCalls.serialize(result);
+            if (!Arrays.equals(bytes, lastWrittenCalls.get(key))) {
+                lastWrittenCalls.put(key, bytes);
+                frame.changedCalls.put(key, bytes);
+            }
+        } catch (IOException e) {
+            unrecordableMethods.add(method.getName());
+            System.out.println("Cannot record results of " + method.getName() + ": " + e);
+        }
+    }
+
+    /**
+     * Records the units at the start of a step. Call before anything else on the step.
+     */
+    public synchronized void beginStep(ObservationInterface observation) {
+        if (out.isEmpty()) {
+            return;
+        }
+        frame.gameLoop = observation.getGameLoop();
+        List<UnitInPool> units = observation.getUnits();
+        frame.unitTags = new long[units.size()];
+        frame.unitLastSeen = new long[units.size()];
+        for (int i = 0; i < units.size(); ++i) {
+            UnitInPool unit = units.get(i);
+            frame.unitTags[i] = unit.getTag().getValue();
+            frame.unitLastSeen[i] = unit.getLastSeenGameLoop();
+            recordUnit(unit);
+        }
+    }
+
+    private void recordUnit(UnitInPool unit) {
+        if (out.isEmpty()) {
+            return;
+        }
+        long tag = unit.getTag().getValue();
+        try {
+            byte[] bytes = RecordedCalls.serialize(unit.unit());
+            if (!Arrays.equals(bytes, lastWrittenUnits.get(tag))) {
+                lastWrittenUnits.put(tag, bytes);
+                frame.changedUnits.put(tag, bytes);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void onUnitCreated(UnitInPool unit) {
+        recordEvent(RecordedFrame.EventType.UNIT_CREATED, unit);
+    }
+
+    public synchronized void onUnitIdle(UnitInPool unit) {
+        recordEvent(RecordedFrame.EventType.UNIT_IDLE, unit);
+    }
+
+    public synchronized void onUnitDestroyed(UnitInPool unit) {
+        recordEvent(RecordedFrame.EventType.UNIT_DESTROYED, unit);
+    }
+
+    private void recordEvent(RecordedFrame.EventType type, UnitInPool unit) {
+        if (out.isEmpty()) {
+            return;
+        }
+        recordUnit(unit);
+        frame.events.add(new RecordedFrame.RecordedEvent(type, unit.getTag().getValue(), unit.getLastSeenGameLoop()));
+    }
+
+    /**
+     * Writes the step. Call after everything else on the step.
+     */
+    public synchronized void endStep() {
+        if (out.isEmpty()) {
+            return;
+        }
+        try {
+            out.get().writeObject(frame);
+            // Don't keep references to the written frames.
+            out.get().reset();
+            ++framesWritten;
+        } catch (IOException e) {
+            fail(e);
+        }
+        frame = new RecordedFrame();
+        recordedThisStep.clear();
+    }
+
+    public synchronized void close() {
+        if (out.isEmpty()) {
+            return;
+        }
+        try {
+            out.get().close();
+            System.out.println("Recorded " + framesWritten + " steps to " + path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        out = Optional.empty();
+    }
+
+    // Stops recording rather than affect the game.
+    private void fail(IOException e) {
+        System.out.println("Recording to " + path + " failed, stopping:");
+        e.printStackTrace();
+        out.ifPresent(stream -> {
+            try {
+                stream.close();
+            } catch (IOException closeException) {
+                closeException.printStackTrace();
+            }
+        });
+        out = Optional.empty();
+    }
+}
@@ -0,0 +1,189 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.S2Agent;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.DebugInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Plays back a game recorded by {@link GameRecorder}, through stub game interfaces that can be given to an agent.
+ *
+ * The observation and query interfaces answer each call with the result recorded for the same call and arguments,
+ * on this step or the most recent step before it. Calls that were never made during the recording (e.g. because the
+ * bot's code has changed) are answered with an empty or zero value, and counted. The action interface doesn't send
+ * anything, but logs each command so that runs can be compared.
+ */
+public class GameReplay implements AutoCloseable {
+
+    private final Path path;
+    private final ObjectInputStream in;
+    private final GameInterfaces interfaces;
+
+    private long gameLoop = 0L;
+    private final Map<Long, Unit> latestUnits = new HashMap<>();
+    private final Map<Long, UnitInPool> unitPool = new HashMap<>();
+    private List<UnitInPool> units = Collections.emptyList();
+    private List<RecordedFrame.RecordedEvent> events = Collections.emptyList();
+    private final Map<String, Object> latestResults = new HashMap<>();
+
+    private final List<String> commands = new ArrayList<>();
+    private final Map<String, Long> missedCalls = new TreeMap<>();
+    private long steps = 0L;
+
+    private GameReplay(Path path, ObjectInputStream in) {
+        this.path = path;
+        this.in = in;
+        this.interfaces = new GameInterfaces(
+                RecordedCalls.proxy(ObservationInterface.class, this::observe),
+                RecordedCalls.proxy(QueryInterface.class, (proxy, method, args) -> answer(method, args)),
+                RecordedCalls.proxy(ActionInterface.class, this::act),
+                RecordedCalls.proxy(DebugInterface.class, RecordedCalls::ignore));
+    }
+
+    public static GameReplay open(Path path) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(
+                new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path))));
+        int version = in.readInt();
+        if (version != GameRecorder.FORMAT_VERSION) {
+            in.close();
+            throw new IOException("Unsupported recording version " + version + " in " + path);
+        }
+        return new GameReplay(path, in);
+    }
+
+    /**
+     * Returns the interfaces to run the agent with. They answer from the current step.
+     */
+    public GameInterfaces interfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Moves to the next recorded step. Returns false at the end of the recording.
+     */
+    public boolean advance() throws IOException {
+        RecordedFrame frame;
+        try {
+            frame = (RecordedFrame) in.readObject();
+        } catch (EOFException e) {
+            return false;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not read " + path, e);
+        }
+        // Everything is decoded here, so that it isn't counted in the time taken by the agent.
+        gameLoop = frame.gameLoop;
+        frame.changedUnits.forEach((tag, bytes) -> latestUnits.put(tag, (Unit) RecordedCalls.deserialize(bytes)));
+        frame.changedCalls.forEach((key, bytes) -> latestResults.put(key, RecordedCalls.deserialize(bytes)));
+        List<UnitInPool> stepUnits = new ArrayList<>(frame.unitTags.length);
+        for (int i = 0; i < frame.unitTags.length; ++i) {
+            stepUnits.add(updateUnit(frame.unitTags[i], frame.unitLastSeen[i]));
+        }
+        frame.events.forEach(event -> updateUnit(event.tag, event.lastSeenGameLoop));
+        units = stepUnits;
+        events = frame.events;
+        ++steps;
+        return true;
+    }
+
+    // UnitInPools are kept for the whole game, as the agent holds on to them.
+    private UnitInPool updateUnit(long tag, long lastSeenGameLoop) {
+        UnitInPool unitInPool = unitPool.computeIfAbsent(tag, key -> UnitInPools.create(Tag.of(key)));
+        UnitInPools.update(unitInPool, latestUnits.get(tag), lastSeenGameLoop);
+        return unitInPool;
+    }
+
+    /**
+     * Sends the unit events that the agent received before the current step.
+     */
+    public void dispatchEvents(S2Agent agent) {
+        for (RecordedFrame.RecordedEvent event : events) {
+            UnitInPool unitInPool = unitPool.get(event.tag);
+            switch (event.type) {
+                case UNIT_CREATED:
+                    agent.onUnitCreated(unitInPool);
+                    break;
+                case UNIT_IDLE:
+                    agent.onUnitIdle(unitInPool);
+                    break;
+                case UNIT_DESTROYED:
+                    agent.onUnitDestroyed(unitInPool);
+                    break;
+            }
+        }
+    }
+
+    public long getGameLoop() {
+        return gameLoop;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the commands the agent issued, one per line, prefixed with the game loop.
+     */
+    public List<String> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    /**
+     * Returns the number of calls that had no recorded result, by method.
+     */
+    public Map<String, Long> getMissedCalls() {
+        return Collections.unmodifiableMap(missedCalls);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Object observe(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getGameLoop")) {
+            return gameLoop;
+        } else if (method.getName().equals("getUnits")) {
+            return UnitInPools.filter(units, args);
+        } else if (method.getName().equals("getUnit")) {
+            return unitPool.get(((Tag) args[0]).getValue());
+        }
+        return answer(method, args);
+    }
+
+    private synchronized Object answer(Method method, Object[] args) {
+        Optional<String> key = RecordedCalls.key(method, args);
+        if (key.isPresent() && latestResults.containsKey(key.get())) {
+            return RecordedCalls.toResult(latestResults.get(key.get()), method.getReturnType());
+        }
+        missedCalls.merge(method.getName(), 1L, Long::sum);
+        return RecordedCalls.defaultValue(method.getReturnType());
+    }
+
+    private synchronized Object act(Object proxy, Method method, Object[] args) {
+        commands.add("[" + gameLoop + "] " + RecordedCalls.describe(method, args));
+        if (method.getReturnType() == boolean.class) {
+            return true;
+        }
+        return RecordedCalls.ignore(proxy, method, args);
+    }
+}
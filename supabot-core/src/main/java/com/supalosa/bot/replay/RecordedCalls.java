@@ -0,0 +1,194 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers shared by the recorder and the replay, for identifying calls to the game interfaces and storing their
+ * results.
+ */
+final class RecordedCalls {
+
+    // Optional is not serializable, so present values are stored in this instead.
+    private static class PresentValue implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Object value;
+
+        private PresentValue(Object value) {
+            this.value = value;
+        }
+    }
+
+    private RecordedCalls() {
+    }
+
+    /**
+     * Returns a key that identifies a call, or empty if the call cannot be recorded (e.g. it takes a predicate).
+     * Units are identified by their tag, as the rest of the unit changes every step.
+     */
+    static Optional<String> key(Method method, Object[] args) {
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof Predicate || (arg != null && arg.getClass().isSynthetic())) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(describe(method, args));
+    }
+
+    /**
+     * Describes a call in a way that is stable between runs, for keys and the command log.
+     */
+    static String describe(Method method, Object[] args) {
+        String arguments = args == null ? "" : Arrays.stream(args)
+                .map(RecordedCalls::render)
+                .collect(Collectors.joining(", "));
+        return method.getName() + "(" + arguments + ")";
+    }
+
+    private static String render(Object arg) {
+        if (arg instanceof Unit) {
+            return "Unit#" + ((Unit) arg).getTag().getValue();
+        } else if (arg instanceof UnitInPool) {
+            return "Unit#" + ((UnitInPool) arg).getTag().getValue();
+        } else if (arg instanceof Collection) {
+            return ((Collection<?>) arg).stream()
+                    .map(RecordedCalls::render)
+                    .collect(Collectors.joining(", ", "[", "]"));
+        } else if (arg instanceof Optional) {
+            return ((Optional<?>) arg).map(RecordedCalls::render).orElse("empty");
+        }
+        return String.valueOf(arg);
+    }
+
+    /**
+     * Serializes a call result.
+     *
+     * @throws IOException if the result (or something it holds) is not serializable.
+     */
+    static byte[] serialize(Object result) throws IOException {
+        Object value = result instanceof Optional ?
+                ((Optional<?>) result).map(PresentValue::new).orElse(null) :
+                result;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes something that was serialized with {@link #serialize}.
+     */
+    static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not read a recorded result", e);
+        }
+    }
+
+    /**
+     * Converts a deserialized call result back to what the method returns.
+     */
+    static Object toResult(Object value, Class<?> returnType) {
+        if (returnType == Optional.class) {
+            return value == null ? Optional.empty() : Optional.ofNullable(((PresentValue) value).value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns a harmless value for a method that has no recorded result.
+     */
+    static Object defaultValue(Class<?> returnType) {
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        } else if (returnType == float.class) {
+            return 0f;
+        } else if (returnType == double.class) {
+            return 0.0;
+        } else if (returnType == List.class || returnType == Collection.class) {
+            return Collections.emptyList();
+        } else if (returnType == Set.class) {
+            return Collections.emptySet();
+        } else if (returnType == Map.class) {
+            return Collections.emptyMap();
+        } else if (returnType == Optional.class) {
+            return Optional.empty();
+        }
+        return null;
+    }
+
+    static Object invoke(Object delegate, Method method, Object[] args) {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a stub of a game interface. Object methods are answered by identity, everything else goes to the handler.
+     */
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> method.getDeclaringClass() == Object.class ?
+                        objectMethod(proxy, method, args) :
+                        handler.invoke(proxy, method, args)));
+    }
+
+    /**
+     * Answers a method that has nothing to answer, e.g. on the debug interface. Builder-style methods return the proxy.
+     */
+    static Object ignore(Object proxy, Method method, Object[] args) {
+        if (method.getReturnType().isInstance(proxy)) {
+            return proxy;
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "Replay " + proxy.getClass().getInterfaces()[0].getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.supalosa.bot.replay;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the bot saw on one step. Only the units and call results that changed since the previous frame are
+ * stored, so a frame has to be applied on top of all the frames before it.
+ */
+class RecordedFrame implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    enum EventType {
+        UNIT_CREATED,
+        UNIT_IDLE,
+        UNIT_DESTROYED
+    }
+
+    static class RecordedEvent implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final EventType type;
+        final long tag;
+        final long lastSeenGameLoop;
+
+        RecordedEvent(EventType type, long tag, long lastSeenGameLoop) {
+            this.type = type;
+            this.tag = tag;
+            this.lastSeenGameLoop = lastSeenGameLoop;
+        }
+    }
+
+    long gameLoop;
+    // The tags returned by getUnits(), in order, and when each of them was last seen.
+    long[] unitTags = new long[0];
+    long[] unitLastSeen = new long[0];
+    // Serialized units, by tag, that are new or changed since the previous frame.
+    final Map<Long, byte[]> changedUnits = new HashMap<>();
+    // Serialized call results, by call, that are new or changed since the previous frame.
+    final Map<String, byte[]> changedCalls = new HashMap<>();
+    // The unit events that were received before the step, in order.
+    final List<RecordedEvent> events = new ArrayList<>();
+}
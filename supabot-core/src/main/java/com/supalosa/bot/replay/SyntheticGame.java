@@ -0,0 +1,589 @@
+package com.supalosa.bot.replay;
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.S2Agent;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.observation.raw.Visibility;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.supalosa.bot.Constants;
+import com.supalosa.bot.analysis.AnalysisResults;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A made-up game for stress testing: the units of a {@link BattleScenario} are placed on a real map and fight each
+ * other with a very simple simulation, so that the agent has a large battle to handle every step.
+ *
+ * Everything that isn't about units (the map, game data, score etc) is answered by a base game, either a
+ * {@link GameReplay} that has been played to the end or a {@link BlankGame}. Neutral units (minerals, geysers) are also taken from the base
+ * game.
+ *
+ * The simulation only does what the agent needs to see: units move in straight lines, attack the nearest enemy in
+ * range (or the unit they were told to attack), and die. The enemy attacks our nearest unit. There is no pathing,
+ * collision, armour, splash or healing.
+ */
+public class SyntheticGame {
+
+    private static final long FIRST_TAG = 1L << 40;
+    private static final long LOOPS_PER_STEP = 2L;
+    private static final float LOOPS_PER_SECOND = 22.4f;
+    private static final float SECONDS_PER_STEP = LOOPS_PER_STEP / LOOPS_PER_SECOND;
+    private static final int MAX_PLACEMENT_RADIUS = 30;
+    private static final float MINERAL_LINE_RADIUS = 10f;
+
+    private static class UnitStats {
+        private final float health;
+        private final float speed;
+        private final float range;
+        private final float damage;
+        private final float cooldownLoops;
+        private final float radius;
+        private final boolean flying;
+        private final float supply;
+
+        private UnitStats(float health, float speed, float range, float damage, float cooldownSeconds, float radius,
+                          boolean flying, float supply) {
+            this.health = health;
+            this.speed = speed;
+            this.range = range;
+            this.damage = damage;
+            this.cooldownLoops = cooldownSeconds * LOOPS_PER_SECOND;
+            this.radius = radius;
+            this.flying = flying;
+            this.supply = supply;
+        }
+    }
+
+    // Roughly the real values, without upgrades or bonus damage.
+    private static final Map<UnitType, UnitStats> STATS = Map.of(
+            Units.TERRAN_SCV, new UnitStats(45f, 3.94f, 0.1f, 5f, 1.07f, 0.375f, false, 1f),
+            Units.TERRAN_MARINE, new UnitStats(45f, 3.15f, 5f, 6f, 0.61f, 0.375f, false, 1f),
+            Units.TERRAN_MARAUDER, new UnitStats(125f, 3.15f, 6f, 15f, 1.07f, 0.5625f, false, 2f),
+            Units.TERRAN_MEDIVAC, new UnitStats(150f, 3.5f, 0f, 0f, 1f, 0.75f, true, 2f),
+            Units.TERRAN_SIEGE_TANK, new UnitStats(175f, 3.15f, 7f, 20f, 1.04f, 0.875f, false, 3f),
+            Units.ZERG_ZERGLING, new UnitStats(35f, 4.13f, 0.1f, 5f, 0.497f, 0.375f, false, 0.5f),
+            Units.ZERG_ROACH, new UnitStats(145f, 3.15f, 4f, 16f, 1.43f, 0.625f, false, 2f),
+            Units.ZERG_HYDRALISK, new UnitStats(90f, 3.15f, 5f, 12f, 0.59f, 0.625f, false, 2f),
+            Units.ZERG_DRONE, new UnitStats(40f, 3.94f, 0.1f, 5f, 1.07f, 0.375f, false, 1f));
+    private static final UnitStats DEFAULT_STATS = new UnitStats(100f, 3.15f, 1f, 5f, 1f, 0.5f, false, 1f);
+
+    private enum OrderType {
+        NONE,
+        MOVE,
+        ATTACK,
+    }
+
+    private static class SimulatedUnit {
+        private final long tag;
+        private final UnitType type;
+        private final Alliance alliance;
+        private final UnitStats stats;
+        private final UnitInPool unitInPool;
+        private float x;
+        private float y;
+        private float facing = 0f;
+        private float health;
+        private float cooldown = 0f;
+        private OrderType orderType = OrderType.NONE;
+        private Ability ability;
+        private Optional<Point2d> targetPoint = Optional.empty();
+        private Optional<Long> targetTag = Optional.empty();
+
+        private SimulatedUnit(long tag, UnitType type, Alliance alliance, Point2d position) {
+            this.tag = tag;
+            this.type = type;
+            this.alliance = alliance;
+            this.stats = STATS.getOrDefault(type, DEFAULT_STATS);
+            this.unitInPool = UnitInPools.create(Tag.of(tag));
+            this.x = position.getX();
+            this.y = position.getY();
+            this.health = stats.health;
+        }
+
+        private boolean isIdle() {
+            return orderType == OrderType.NONE;
+        }
+
+        private void clearOrder() {
+            orderType = OrderType.NONE;
+            ability = null;
+            targetPoint = Optional.empty();
+            targetTag = Optional.empty();
+        }
+    }
+
+    private final GameInterfaces base;
+    private final BattleScenario scenario;
+    private final GameInterfaces interfaces;
+    private final List<UnitInPool> neutralUnits;
+
+    private final Map<Long, SimulatedUnit> simulatedUnits = new LinkedHashMap<>();
+    private List<UnitInPool> units = Collections.emptyList();
+    private final List<Consumer<S2Agent>> pendingEvents = new ArrayList<>();
+    private List<Consumer<S2Agent>> events = Collections.emptyList();
+    private long gameLoop;
+    private long nextTag = FIRST_TAG;
+    private boolean started = false;
+    private long commandCount = 0L;
+
+    public SyntheticGame(GameInterfaces base, BattleScenario scenario) {
+        this.base = base;
+        this.scenario = scenario;
+        this.gameLoop = scenario.startGameLoop();
+        this.neutralUnits = base.observation().getUnits(Alliance.NEUTRAL);
+        this.interfaces = new GameInterfaces(
+                RecordedCalls.proxy(ObservationInterface.class, this::observe),
+                base.query(),
+                RecordedCalls.proxy(ActionInterface.class, this::act),
+                base.debug());
+    }
+
+    /**
+     * Returns the interfaces to run the agent with.
+     */
+    public GameInterfaces interfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Places the scenario's units on pathable tiles of the map. Must be called before the first step.
+     * Groups that are spread over several bases are placed at the mineral lines nearest their position.
+     */
+    public void placeUnits(AnalysisResults analysis, Point2d start, Point2d enemyStart) {
+        List<Point2d> expansions = findMineralLines();
+        Set<Integer> occupied = new HashSet<>();
+        for (UnitGroup group : scenario.groups()) {
+            Point2d centre = Point2d.of(
+                    start.getX() + (enemyStart.getX() - start.getX()) * group.position(),
+                    start.getY() + (enemyStart.getY() - start.getY()) * group.position());
+            List<Point2d> bases = expansions.stream()
+                    .sorted(Comparator.comparing(expansion -> expansion.distance(centre)))
+                    .limit(Math.max(1, group.bases()))
+                    .collect(Collectors.toList());
+            if (group.bases() <= 1 || bases.isEmpty()) {
+                bases = List.of(centre);
+            }
+            for (int i = 0; i < group.count(); ++i) {
+                Point2d base = bases.get(i % bases.size());
+                Optional<Point2d> position = findFreeTile(analysis, base, occupied);
+                if (position.isEmpty()) {
+                    System.out.println("No room to place " + group.type() + " near " + base);
+                    break;
+                }
+                long tag = nextTag++;
+                simulatedUnits.put(tag, new SimulatedUnit(tag, group.type(), group.alliance(), position.get()));
+            }
+        }
+    }
+
+    // The centre of each cluster of mineral fields in the base game.
+    private List<Point2d> findMineralLines() {
+        List<List<Point2d>> clusters = new ArrayList<>();
+        neutralUnits.stream()
+                .map(UnitInPool::unit)
+                .filter(unit -> Constants.MINERAL_TYPES.contains(unit.getType()))
+                .map(unit -> unit.getPosition().toPoint2d())
+                .forEach(position -> clusters.stream()
+                        .filter(cluster -> cluster.get(0).distance(position) < MINERAL_LINE_RADIUS)
+                        .findFirst()
+                        .orElseGet(() -> {
+                            List<Point2d> cluster = new ArrayList<>();
+                            clusters.add(cluster);
+                            return cluster;
+                        })
+                        .add(position));
+        return clusters.stream()
+                .map(cluster -> Point2d.of(
+                        (float) cluster.stream().mapToDouble(Point2d::getX).average().orElse(0.0),
+                        (float) cluster.stream().mapToDouble(Point2d::getY).average().orElse(0.0)))
+                .collect(Collectors.toList());
+    }
+
+    // Searches outwards in rings from the point.
+    private Optional<Point2d> findFreeTile(AnalysisResults analysis, Point2d point, Set<Integer> occupied) {
+        int centreX = (int) point.getX();
+        int centreY = (int) point.getY();
+        for (int radius = 0; radius <= MAX_PLACEMENT_RADIUS; ++radius) {
+            for (int dx = -radius; dx <= radius; ++dx) {
+                for (int dy = -radius; dy <= radius; ++dy) {
+                    if (Math.max(Math.abs(dx), Math.abs(dy)) != radius) {
+                        continue;
+                    }
+                    int x = centreX + dx;
+                    int y = centreY + dy;
+                    if (analysis.getTile(x, y).map(tile -> tile.pathable).orElse(false) &&
+                            occupied.add(x * 65536 + y)) {
+                        return Optional.of(Point2d.of(x + 0.5f, y + 0.5f));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Moves to the next step. The first step shows the units as placed, after that each step simulates two game
+     * loops.
+     */
+    public synchronized void advance() {
+        if (started) {
+            gameLoop += LOOPS_PER_STEP;
+            simulate();
+        } else {
+            started = true;
+            simulatedUnits.values().forEach(unit -> {
+                if (unit.alliance == Alliance.SELF) {
+                    pendingEvents.add(agent -> agent.onUnitCreated(unit.unitInPool));
+                    pendingEvents.add(agent -> agent.onUnitIdle(unit.unitInPool));
+                }
+            });
+        }
+        List<UnitInPool> stepUnits = new ArrayList<>(simulatedUnits.size() + neutralUnits.size());
+        simulatedUnits.values().forEach(unit -> {
+            UnitInPools.update(unit.unitInPool, toUnit(unit), gameLoop);
+            stepUnits.add(unit.unitInPool);
+        });
+        stepUnits.addAll(neutralUnits);
+        units = stepUnits;
+        events = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+    }
+
+    /**
+     * Sends the unit events that the agent would have received before the current step.
+     */
+    public void dispatchEvents(S2Agent agent) {
+        events.forEach(event -> event.accept(agent));
+    }
+
+    public long getGameLoop() {
+        return gameLoop;
+    }
+
+    public long countUnits(Alliance alliance) {
+        return simulatedUnits.values().stream().filter(unit -> unit.alliance == alliance).count();
+    }
+
+    /**
+     * Returns the number of unit commands the agent has issued.
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    private void simulate() {
+        // The enemy attacks our nearest unit.
+        simulatedUnits.values().stream()
+                .filter(unit -> unit.alliance == Alliance.ENEMY)
+                .filter(unit -> unit.isIdle() || unit.targetTag.map(tag -> !simulatedUnits.containsKey(tag)).orElse(false))
+                .forEach(unit -> nearestHostile(unit, Float.MAX_VALUE).ifPresentOrElse(target -> {
+                    unit.orderType = OrderType.ATTACK;
+                    unit.ability = Abilities.ATTACK;
+                    unit.targetPoint = Optional.empty();
+                    unit.targetTag = Optional.of(target.tag);
+                }, unit::clearOrder));
+
+        // Damage is applied after everyone has moved and attacked, so the order units are processed in doesn't matter.
+        Map<Long, Float> damage = new HashMap<>();
+        Set<SimulatedUnit> becameIdle = new HashSet<>();
+        for (SimulatedUnit unit : simulatedUnits.values()) {
+            unit.cooldown = Math.max(0f, unit.cooldown - LOOPS_PER_STEP);
+            Optional<SimulatedUnit> target = acquireTarget(unit);
+            if (target.isPresent()) {
+                SimulatedUnit victim = target.get();
+                if (inRange(unit, victim)) {
+                    face(unit, victim.x, victim.y);
+                    if (unit.cooldown <= 0f && unit.stats.damage > 0f) {
+                        damage.merge(victim.tag, unit.stats.damage, Float::sum);
+                        unit.cooldown = unit.stats.cooldownLoops;
+                    }
+                } else {
+                    moveTowards(unit, victim.x, victim.y);
+                }
+            } else if (unit.targetPoint.isPresent() || unit.targetTag.isPresent()) {
+                Optional<Point2d> destination = unit.targetPoint.or(() -> unit.targetTag.flatMap(this::positionOf));
+                if (destination.isEmpty() || moveTowards(unit, destination.get().getX(), destination.get().getY())) {
+                    unit.clearOrder();
+                    becameIdle.add(unit);
+                }
+            }
+        }
+
+        damage.forEach((tag, amount) -> {
+            SimulatedUnit unit = simulatedUnits.get(tag);
+            unit.health -= amount;
+            if (unit.health <= 0f) {
+                simulatedUnits.remove(tag);
+                UnitInPools.update(unit.unitInPool, toUnit(unit), gameLoop - LOOPS_PER_STEP);
+                pendingEvents.add(agent -> agent.onUnitDestroyed(unit.unitInPool));
+            }
+        });
+        // Units whose target died become idle.
+        simulatedUnits.values().stream()
+                .filter(unit -> unit.orderType == OrderType.ATTACK && unit.targetPoint.isEmpty())
+                .filter(unit -> unit.targetTag.map(damage::containsKey).orElse(false))
+                .filter(unit -> !simulatedUnits.containsKey(unit.targetTag.get()))
+                .forEach(unit -> {
+                    unit.clearOrder();
+                    becameIdle.add(unit);
+                });
+        becameIdle.stream()
+                .filter(unit -> unit.alliance == Alliance.SELF && simulatedUnits.containsKey(unit.tag))
+                .forEach(unit -> pendingEvents.add(agent -> agent.onUnitIdle(unit.unitInPool)));
+    }
+
+    // The unit to attack: the ordered target, or the nearest enemy in range when attack-moving or idle.
+    private Optional<SimulatedUnit> acquireTarget(SimulatedUnit unit) {
+        if (unit.orderType == OrderType.MOVE) {
+            return Optional.empty();
+        }
+        if (unit.targetTag.isPresent()) {
+            SimulatedUnit target = simulatedUnits.get(unit.targetTag.get());
+            return target != null && target.alliance != unit.alliance ? Optional.of(target) : Optional.empty();
+        }
+        return nearestHostile(unit, unit.stats.range);
+    }
+
+    private Optional<SimulatedUnit> nearestHostile(SimulatedUnit unit, float range) {
+        SimulatedUnit nearest = null;
+        float nearestDistance = Float.MAX_VALUE;
+        for (SimulatedUnit other : simulatedUnits.values()) {
+            if (other.alliance == unit.alliance) {
+                continue;
+            }
+            float distance = distance(unit, other.x, other.y) - unit.stats.radius - other.stats.radius;
+            if (distance <= range && distance < nearestDistance) {
+                nearest = other;
+                nearestDistance = distance;
+            }
+        }
+        return Optional.ofNullable(nearest);
+    }
+
+    private Optional<Point2d> positionOf(long tag) {
+        SimulatedUnit unit = simulatedUnits.get(tag);
+        if (unit != null) {
+            return Optional.of(Point2d.of(unit.x, unit.y));
+        }
+        return Optional.ofNullable(base.observation().getUnit(Tag.of(tag)))
+                .map(unitInPool -> unitInPool.unit().getPosition().toPoint2d());
+    }
+
+    private static boolean inRange(SimulatedUnit unit, SimulatedUnit target) {
+        return distance(unit, target.x, target.y) <= unit.stats.range + unit.stats.radius + target.stats.radius;
+    }
+
+    private static float distance(SimulatedUnit unit, float x, float y) {
+        float dx = x - unit.x;
+        float dy = y - unit.y;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static void face(SimulatedUnit unit, float x, float y) {
+        unit.facing = (float) Math.atan2(y - unit.y, x - unit.x);
+    }
+
+    // Returns true if the unit arrived.
+    private static boolean moveTowards(SimulatedUnit unit, float x, float y) {
+        float distance = distance(unit, x, y);
+        float step = unit.stats.speed * SECONDS_PER_STEP;
+        if (distance <= step) {
+            unit.x = x;
+            unit.y = y;
+            return true;
+        }
+        face(unit, x, y);
+        unit.x += (x - unit.x) / distance * step;
+        unit.y += (y - unit.y) / distance * step;
+        return false;
+    }
+
+    private Unit toUnit(SimulatedUnit unit) {
+        Raw.Unit.Builder builder = Raw.Unit.newBuilder()
+                .setDisplayType(Raw.DisplayType.Visible)
+                .setAlliance(unit.alliance == Alliance.SELF ? Raw.Alliance.Self : Raw.Alliance.Enemy)
+                .setTag(unit.tag)
+                .setUnitType(unit.type.getUnitTypeId())
+                .setOwner(unit.alliance == Alliance.SELF ? 1 : 2)
+                .setPos(Common.Point.newBuilder().setX(unit.x).setY(unit.y).setZ(0f))
+                .setFacing(unit.facing)
+                .setRadius(unit.stats.radius)
+                .setBuildProgress(1f)
+                .setCloak(Raw.CloakState.NotCloaked)
+                .setIsSelected(false)
+                .setIsOnScreen(false)
+                .setIsBlip(false)
+                .setIsPowered(false)
+                .setHealth(Math.max(0f, unit.health))
+                .setHealthMax(unit.stats.health)
+                .setShield(0f)
+                .setShieldMax(0f)
+                .setEnergy(0f)
+                .setEnergyMax(0f)
+                .setIsFlying(unit.stats.flying)
+                .setIsBurrowed(false)
+                .setWeaponCooldown(unit.cooldown);
+        if (unit.ability != null) {
+            Raw.UnitOrder.Builder order = Raw.UnitOrder.newBuilder()
+                    .setAbilityId(unit.ability.getAbilityId())
+                    .setProgress(0f);
+            unit.targetPoint.ifPresent(point ->
+                    order.setTargetWorldSpacePos(Common.Point.newBuilder().setX(point.getX()).setY(point.getY())));
+            unit.targetTag.ifPresent(order::setTargetUnitTag);
+            builder.addOrders(order);
+        }
+        return Unit.from(builder.build());
+    }
+
+    private Object observe(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getGameLoop":
+                return gameLoop;
+            case "getUnits":
+                return UnitInPools.filter(units, args);
+            case "getUnit": {
+                SimulatedUnit simulated = simulatedUnits.get(((Tag) args[0]).getValue());
+                return simulated != null ? simulated.unitInPool : base.observation().getUnit((Tag) args[0]);
+            }
+            case "getChatMessages":
+            case "getActionErrors":
+                return Collections.emptyList();
+            case "getMinerals":
+                return scenario.minerals();
+            case "getVespene":
+                return scenario.vespene();
+            case "getFoodCap":
+                return 200;
+            case "getFoodUsed":
+                return (int) supply(unit -> true);
+            case "getFoodWorkers":
+                return (int) supply(SyntheticGame::isWorker);
+            case "getFoodArmy":
+                return (int) supply(unit -> !isWorker(unit));
+            case "getArmyCount":
+                return (int) simulatedUnits.values().stream()
+                        .filter(unit -> unit.alliance == Alliance.SELF && !isWorker(unit))
+                        .count();
+            case "getIdleWorkerCount":
+                return 0;
+            case "getVisibility":
+                return Visibility.VISIBLE;
+            default:
+                return RecordedCalls.invoke(base.observation(), method, args);
+        }
+    }
+
+    private static boolean isWorker(SimulatedUnit unit) {
+        return unit.type == Units.TERRAN_SCV;
+    }
+
+    private synchronized float supply(Predicate<SimulatedUnit> predicate) {
+        return (float) simulatedUnits.values().stream()
+                .filter(unit -> unit.alliance == Alliance.SELF)
+                .filter(predicate)
+                .mapToDouble(unit -> unit.stats.supply)
+                .sum();
+    }
+
+    private synchronized Object act(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("unitCommand")) {
+            ++commandCount;
+            command(args);
+        }
+        if (method.getReturnType() == boolean.class) {
+            return true;
+        }
+        return RecordedCalls.ignore(proxy, method, args);
+    }
+
+    // The arguments before the ability are the units being commanded, and the one after it (if any) is the target.
+    // Queued commands replace the current order. Abilities the simulation doesn't know about (e.g. stim) are ignored.
+    private void command(Object[] args) {
+        List<Long> tags = new ArrayList<>();
+        Ability ability = null;
+        Optional<Point2d> targetPoint = Optional.empty();
+        Optional<Long> targetTag = Optional.empty();
+        for (Object arg : args) {
+            if (ability == null) {
+                if (arg instanceof Ability) {
+                    ability = (Ability) arg;
+                } else {
+                    addTags(arg, tags);
+                }
+            } else if (arg instanceof Point2d) {
+                targetPoint = Optional.of((Point2d) arg);
+            } else if (arg instanceof Unit || arg instanceof UnitInPool || arg instanceof Tag) {
+                List<Long> target = new ArrayList<>(1);
+                addTags(arg, target);
+                targetTag = target.stream().findFirst();
+            }
+        }
+        if (ability == null) {
+            return;
+        }
+        String name = ability.toString();
+        boolean isStop = name.startsWith("STOP") || name.startsWith("HOLD_POSITION");
+        OrderType orderType = orderType(name);
+        if (orderType == OrderType.NONE && !isStop) {
+            return;
+        }
+        for (long tag : tags) {
+            SimulatedUnit unit = simulatedUnits.get(tag);
+            if (unit == null || unit.alliance != Alliance.SELF) {
+                continue;
+            }
+            unit.clearOrder();
+            if (orderType != OrderType.NONE && (targetPoint.isPresent() || targetTag.isPresent())) {
+                unit.orderType = orderType;
+                unit.ability = ability;
+                unit.targetPoint = targetPoint;
+                unit.targetTag = targetTag;
+            }
+        }
+    }
+
+    private static void addTags(Object arg, List<Long> tags) {
+        if (arg instanceof Unit) {
+            tags.add(((Unit) arg).getTag().getValue());
+        } else if (arg instanceof UnitInPool) {
+            tags.add(((UnitInPool) arg).getTag().getValue());
+        } else if (arg instanceof Tag) {
+            tags.add(((Tag) arg).getValue());
+        } else if (arg instanceof Collection) {
+            ((Collection<?>) arg).forEach(element -> addTags(element, tags));
+        }
+    }
+
+    private static OrderType orderType(String name) {
+        if (name.startsWith("ATTACK") || name.equals("SMART")) {
+            return OrderType.ATTACK;
+        } else if (name.startsWith("MOVE")) {
+            return OrderType.MOVE;
+        }
+        return OrderType.NONE;
+    }
+}
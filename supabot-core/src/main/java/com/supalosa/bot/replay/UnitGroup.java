@@ -0,0 +1,31 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import org.immutables.value.Value;
+
+/**
+ * A group of identical units placed by a {@link BattleScenario}.
+ */
+@Value.Immutable
+public interface UnitGroup {
+
+    Alliance alliance();
+
+    UnitType type();
+
+    int count();
+
+    /**
+     * Where to place the group, as a fraction of the way from our start location (0) to the enemy's (1).
+     */
+    float position();
+
+    /**
+     * The number of bases (the expansions nearest the position) to spread the group over.
+     */
+    @Value.Default
+    default int bases() {
+        return 1;
+    }
+}
@@ -0,0 +1,87 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Creates and updates UnitInPools for the replay. The client library only creates them inside its own unit pool,
+ * so this is done by reflection: a UnitInPool is created from its tag, and has one Unit field (the latest data) and
+ * one long field (the game loop it was last seen on).
+ */
+final class UnitInPools {
+
+    private static final Constructor<UnitInPool> CONSTRUCTOR;
+    private static final Field UNIT_FIELD;
+    private static final Field LAST_SEEN_FIELD;
+
+    static {
+        try {
+            CONSTRUCTOR = UnitInPool.class.getDeclaredConstructor(Tag.class);
+            CONSTRUCTOR.setAccessible(true);
+            UNIT_FIELD = findField(Unit.class);
+            LAST_SEEN_FIELD = findField(long.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Unsupported UnitInPool in this version of the client library", e);
+        }
+    }
+
+    private UnitInPools() {
+    }
+
+    private static Field findField(Class<?> type) {
+        Field field = Arrays.stream(UnitInPool.class.getDeclaredFields())
+                .filter(candidate -> !Modifier.isStatic(candidate.getModifiers()))
+                .filter(candidate -> candidate.getType() == type)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("UnitInPool has no " + type.getSimpleName() + " field"));
+        field.setAccessible(true);
+        return field;
+    }
+
+    static UnitInPool create(Tag tag) {
+        try {
+            return CONSTRUCTOR.newInstance(tag);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a UnitInPool", e);
+        }
+    }
+
+    static void update(UnitInPool unitInPool, Unit unit, long lastSeenGameLoop) {
+        try {
+            UNIT_FIELD.set(unitInPool, unit);
+            LAST_SEEN_FIELD.setLong(unitInPool, lastSeenGameLoop);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not update a UnitInPool", e);
+        }
+    }
+
+    /**
+     * Answers {@code ObservationInterface.getUnits} from the given units, applying any alliance or filter arguments.
+     */
+    @SuppressWarnings("unchecked")
+    static List<UnitInPool> filter(List<UnitInPool> units, Object[] args) {
+        Stream<UnitInPool> stream = units.stream();
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof Alliance) {
+                    stream = stream.filter(unitInPool -> unitInPool.unit().getAlliance() == arg);
+                } else if (arg instanceof Predicate) {
+                    stream = stream.filter((Predicate<UnitInPool>) arg);
+                }
+            }
+        }
+        return stream.collect(Collectors.toList());
+    }
+}
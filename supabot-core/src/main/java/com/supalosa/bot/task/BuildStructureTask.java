@@ -18,6 +18,7 @@ import com.supalosa.bot.AgentWithData;
 import com.supalosa.bot.Constants;
 import com.supalosa.bot.analysis.Region;
 import com.supalosa.bot.awareness.RegionData;
+import com.supalosa.bot.instrumentation.ActionContext;
 import com.supalosa.bot.placement.PlacementRegion;
 import com.supalosa.bot.placement.PlacementRules;
 import com.supalosa.bot.placement.ResolvedPlacementResult;
@@ -25,16 +26,19 @@ import com.supalosa.bot.task.army.TerranWorkerRushDefenceTask;
 import com.supalosa.bot.task.message.TaskMessage;
 import com.supalosa.bot.task.message.TaskPromise;
 
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class BuildStructureTask extends BaseTask {
 
     private static final long BUILD_ATTEMPT_INTERVAL = 22;
+    // How often to look for a worker while we don't have one.
+    private static final long WORKER_REQUEST_INTERVAL = 5L;
     private static final long MAX_BUILD_ATTEMPTS = 15;
 
     private final Ability ability;
@@ -111,20 +115,24 @@ public class BuildStructureTask extends BaseTask {
         if (assignedWorker.isEmpty()) {
             // No worker for the job - find one.
             if (gameLoop > nextAssignedWorkerAttempt) {
-                nextAssignedWorkerAttempt = gameLoop + 5L;
-                assignedWorker = findWorker(taskManager, agentWithData, agentWithData, placementRules);
-                // Resume the construction if applicable.
-                assignedWorker.ifPresentOrElse(theWorker -> {
-                    matchingUnitAtLocation.ifPresent(tag -> {
-                        UnitInPool unit = agentWithData.observation().getUnit(tag);
-                        if (unit != null) {
-                            agentWithData.actions().unitCommand(theWorker, Abilities.SMART, unit.unit(), false);
-                        }
-                    });
-                }, () -> {
-                    //Reset the banned worker set if we couldn't find a worker.
-                    bannedWorkers.clear();
-                });
+                // The worker is assigned at the end of the step, together with the other build tasks' workers, so
+                // the callback runs outside of this task's step and needs the task's action context again.
+                requestWorker(taskManager, agentWithData, agentWithData, placementRules, foundWorker ->
+                        ActionContext.run(getActionPriority(), ActionContext.sourceForTaskKey(getKey()), () -> {
+                            assignedWorker = foundWorker;
+                            // Resume the construction if applicable.
+                            assignedWorker.ifPresentOrElse(theWorker -> {
+                                matchingUnitAtLocation.ifPresent(tag -> {
+                                    UnitInPool unit = agentWithData.observation().getUnit(tag);
+                                    if (unit != null) {
+                                        agentWithData.actions().unitCommand(theWorker, Abilities.SMART, unit.unit(), false);
+                                    }
+                                });
+                            }, () -> {
+                                //Reset the banned worker set if we couldn't find a worker.
+                                bannedWorkers.clear();
+                            });
+                        }));
             }
         } else {
             // Validate the assigned worker or the action.
@@ -294,52 +302,42 @@ public class BuildStructureTask extends BaseTask {
         }
     }
 
-    private Optional<Tag> findWorker(TaskManager taskManager, S2Agent agent, AgentData data, Optional<PlacementRules> placementRules) {
+    private void requestWorker(TaskManager taskManager, S2Agent agent, AgentData data,
+                               Optional<PlacementRules> placementRules, Consumer<Optional<Tag>> onAssigned) {
         // This should probably be a predicate associated to the PlacementRules it itself.
         boolean nearBaseOnly = placementRules
                 .filter(rule -> rule.regionType().filter(PlacementRegion::isPlayerBase).isPresent())
                 .isPresent();
+        final Predicate<UnitInPool> isAvailableWorker = unitInPool -> unitInPool.unit() != null &&
+                Constants.WORKER_TYPES.contains(unitInPool.unit().getType()) &&
+                !bannedWorkers.contains(unitInPool.getTag()) &&
+                !UnitInPool.isCarryingMinerals().test(unitInPool) &&
+                !UnitInPool.isCarryingVespene().test(unitInPool);
         if (resolvedPlacementResult.isPresent()) {
             // If location is known, find closest unit to that location.
             // Avoid using workers that are carrying minerals.
             Point2d targetPosition = resolvedPlacementResult.get().asPoint2d();
-            return taskManager.findFreeUnitForTask(
-                    this,
-                    agent.observation(),
-                    unitInPool -> unitInPool.unit() != null &&
-                            Constants.WORKER_TYPES.contains(unitInPool.unit().getType()) &&
-                            !bannedWorkers.contains(unitInPool.getTag()) &&
-                            !UnitInPool.isCarryingMinerals().test(unitInPool) &&
-                            !UnitInPool.isCarryingVespene().test(unitInPool),
-                    Comparator.comparing((UnitInPool unitInPool) ->
-                            unitInPool.unit().getPosition().toPoint2d().distance(targetPosition))
-            ).map(unitInPool -> unitInPool.getTag());
+            taskManager.requestBuilder(this, targetPosition, isAvailableWorker, onAssigned);
         } else if (nearBaseOnly) {
             // If the placement rules require the structure in the base, choose a worker in a player base only.
             Optional<RegionData> playerBaseRegion = data.mapAwareness().getRandomPlayerBaseRegion();
             Optional<Point2d> baseLocation = playerBaseRegion.map(RegionData::region).map(Region::centrePoint);
-            return baseLocation.flatMap(location -> taskManager.findFreeUnitForTask(
+            baseLocation.ifPresentOrElse(location -> taskManager.requestBuilder(
                     this,
-                    agent.observation(),
-                    unitInPool -> unitInPool.unit() != null &&
-                            Constants.WORKER_TYPES.contains(unitInPool.unit().getType()) &&
-                            !bannedWorkers.contains(unitInPool.getTag()) &&
-                            !UnitInPool.isCarryingMinerals().test(unitInPool) &&
-                            !UnitInPool.isCarryingVespene().test(unitInPool) &&
-                            data.mapAwareness()
-                                    .getRegionDataForPoint(unitInPool.unit().getPosition().toPoint2d())
-                                    .map(RegionData::isPlayerBase).orElse(false),
-                    Comparator.comparing((UnitInPool unitInPool) ->
-                            unitInPool.unit().getPosition().toPoint2d().distance(location))))
-                    .map(unitInPool -> unitInPool.getTag());
+                    location,
+                    isAvailableWorker.and(unitInPool -> data.mapAwareness()
+                            .getRegionDataForPoint(unitInPool.unit().getPosition().toPoint2d())
+                            .map(RegionData::isPlayerBase).orElse(false)),
+                    onAssigned),
+                    () -> onAssigned.accept(Optional.empty()));
         } else {
-            // Take any worker.
-            return taskManager.findFreeUnitForTask(
+            // Take any worker, preferring those near our main base.
+            taskManager.requestBuilder(
                     this,
-                    agent.observation(),
+                    agent.observation().getStartLocation().toPoint2d(),
                     unitInPool -> unitInPool.unit() != null &&
-                            Constants.WORKER_TYPES.contains(unitInPool.unit().getType())
-            ).map(unitInPool -> unitInPool.getTag());
+                            Constants.WORKER_TYPES.contains(unitInPool.unit().getType()),
+                    onAssigned);
         }
     }
 
@@ -388,6 +386,17 @@ public class BuildStructureTask extends BaseTask {
         return isComplete;
     }
 
+    @Override
+    public long getUpdateInterval() {
+        return assignedWorker.isEmpty() ? WORKER_REQUEST_INTERVAL : 1L;
+    }
+
+    @Override
+    public TaskSchedulingPriority getSchedulingPriority() {
+        // Action errors are only reported on the step they happen, so the builder has to be checked every step.
+        return assignedWorker.isPresent() ? TaskSchedulingPriority.CRITICAL : TaskSchedulingPriority.NORMAL;
+    }
+
     @Override
     public String getKey() {
         return taskKey;
@@ -449,6 +458,11 @@ public class BuildStructureTask extends BaseTask {
         return "[" + buildAttempts + "/" + MAX_BUILD_ATTEMPTS + "] Build " + targetUnitType + " @ " + resolvedPlacementResult.map(ResolvedPlacementResult::asPoint2d).map(p2d -> p2d.getX() + "," + p2d.getY()).orElse("anywhere");
     }
 
+    @Override
+    public Set<Class<? extends TaskMessage>> getSubscribedMessageTypes() {
+        return Set.of(TerranWorkerRushDefenceTask.WorkerRushDetected.class);
+    }
+
     @Override
     public Optional<TaskPromise> onTaskMessage(Task taskOrigin, TaskMessage message) {
         // Abort construction task if worker rush detected.
@@ -0,0 +1,105 @@
+package com.supalosa.bot.task;
+
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.supalosa.bot.utils.MinCostAssignment;
+import com.supalosa.bot.utils.TrackedUnitMap;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Collects the builder requests made by tasks during a step, then assigns workers to all of them at once so that
+ * the total distance travelled is minimised, rather than letting the first task take a worker that a later task
+ * was closer to.
+ */
+class BuilderAssigner {
+
+    private static class BuilderRequest {
+        final Point2d target;
+        final Predicate<UnitInPool> predicate;
+        final Consumer<Optional<Tag>> onAssigned;
+
+        BuilderRequest(Point2d target, Predicate<UnitInPool> predicate, Consumer<Optional<Tag>> onAssigned) {
+            this.target = target;
+            this.predicate = predicate;
+            this.onAssigned = onAssigned;
+        }
+    }
+
+    // Pending requests, in the order they were made. A task only has one request at a time.
+    private final Map<Task, BuilderRequest> requests = new LinkedHashMap<>();
+
+    void request(Task task, Point2d target, Predicate<UnitInPool> predicate, Consumer<Optional<Tag>> onAssigned) {
+        requests.put(task, new BuilderRequest(target, predicate, onAssigned));
+    }
+
+    boolean hasRequests() {
+        return !requests.isEmpty();
+    }
+
+    /**
+     * Assigns workers to the pending requests and clears them. Every request's callback is called, with an empty
+     * value if no worker could be found for it.
+     *
+     * @param workers Index of our workers.
+     * @param isFree Whether a worker is free to be assigned.
+     * @param reserve Reserves the worker for the task.
+     */
+    void assign(TrackedUnitMap workers, Predicate<UnitInPool> isFree, BiConsumer<UnitInPool, Task> reserve) {
+        // Callbacks may make new requests, which are left for the next step.
+        Map<Task, BuilderRequest> pending = new LinkedHashMap<>(requests);
+        requests.clear();
+        List<Task> tasks = new ArrayList<>();
+        pending.forEach((task, request) -> {
+            if (!task.isComplete()) {
+                tasks.add(task);
+            }
+        });
+        // An optimal matching only ever uses one of each request's N nearest workers (for N requests), because at
+        // most N-1 of them can be taken by the other requests.
+        List<UnitInPool> candidates = new ArrayList<>();
+        Set<Tag> candidateTags = new HashSet<>();
+        for (Task task : tasks) {
+            BuilderRequest request = pending.get(task);
+            Set<Tag> found = new HashSet<>();
+            for (int i = 0; i < tasks.size(); ++i) {
+                Optional<UnitInPool> nearest = workers.getNearest(request.target, unitInPool ->
+                        !found.contains(unitInPool.getTag()) && isFree.test(unitInPool) &&
+                                request.predicate.test(unitInPool));
+                if (nearest.isEmpty()) {
+                    break;
+                }
+                found.add(nearest.get().getTag());
+                if (candidateTags.add(nearest.get().getTag())) {
+                    candidates.add(nearest.get());
+                }
+            }
+        }
+        int columns = Math.max(candidates.size(), tasks.size());
+        double[][] cost = new double[tasks.size()][columns];
+        for (int row = 0; row < tasks.size(); ++row) {
+            BuilderRequest request = pending.get(tasks.get(row));
+            for (int column = 0; column < columns; ++column) {
+                if (column < candidates.size() && request.predicate.test(candidates.get(column))) {
+                    cost[row][column] = candidates.get(column).unit().getPosition().toPoint2d()
+                            .distance(request.target);
+                } else {
+                    cost[row][column] = MinCostAssignment.INFEASIBLE;
+                }
+            }
+        }
+        int[] assignment = MinCostAssignment.solve(cost);
+        for (int row = 0; row < tasks.size(); ++row) {
+            Task task = tasks.get(row);
+            Optional<UnitInPool> worker = assignment[row] >= 0 ?
+                    Optional.of(candidates.get(assignment[row])) :
+                    Optional.empty();
+            worker.ifPresent(unitInPool -> reserve.accept(unitInPool, task));
+            pending.get(task).onAssigned.accept(worker.map(UnitInPool::getTag));
+        }
+    }
+}
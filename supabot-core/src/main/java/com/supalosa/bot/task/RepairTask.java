@@ -12,10 +12,10 @@ import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 import com.supalosa.bot.AgentWithData;
 import com.supalosa.bot.GameData;
+import com.supalosa.bot.instrumentation.ActionPriority;
 import com.supalosa.bot.task.army.TerranWorkerRushDefenceTask;
 import com.supalosa.bot.task.message.TaskMessage;
 import com.supalosa.bot.task.message.TaskPromise;
-import com.supalosa.bot.utils.UnitComparator;
 import com.supalosa.bot.utils.UnitFilter;
 
 import java.util.*;
@@ -36,7 +36,6 @@ public class RepairTask implements Task {
     private long hpObservationCyclesGainingHp = 0;
 
     private float previousHpObservation = -1f;
-    private long previousHpObservationAt = 0L;
     private static final long HP_OBSERVATION_INTERVAL = 5L;
 
     private boolean isComplete = false;
@@ -91,14 +90,10 @@ public class RepairTask implements Task {
 
         if (repairers.size() < targetRepairers) {
             Optional<UnitInPool> maybeRepairer = taskManager.findFreeUnitForTask(this,
-                    agentWithData.observation(),
-                UnitFilter.builder()
-                        .alliance(Alliance.SELF)
-                        .unitType(Units.TERRAN_SCV)
-                        .inRangeOf(unitToRepair.unit().getPosition().toPoint2d())
-                        .range(22f)
-                        .build(),
-                UnitComparator.builder().distanceToUnitInPool(unitToRepair).ascending(true).build());
+                    agentWithData.gameData().getMyWorkerMap(),
+                    unitToRepair.unit().getPosition().toPoint2d(),
+                    22f,
+                    UnitInPool.isUnit(Units.TERRAN_SCV));
             maybeRepairer.ifPresent(repairer -> {
                 repairers.add(repairer.unit());
             });
@@ -119,28 +114,26 @@ public class RepairTask implements Task {
                             .build());
             targetRepairers = Math.max(1, Math.min((int)((unitToRepair.unit().getRadius() + 1)*2), unitsNearby.size()));
         }*/
-        if (gameLoop > previousHpObservationAt + HP_OBSERVATION_INTERVAL) {
-            int maxRepairers = (int)Math.max(1f, unitToRepair.unit().getRadius()) * 2;
-            float currentHpObservation = unitToRepair.unit().getHealth().orElse(previousHpObservation);
-            if (previousHpObservation < 0f) {
-                previousHpObservation = currentHpObservation;
-            }
-            if (currentHpObservation < previousHpObservation) {
-                float delta = previousHpObservation - currentHpObservation;
-                double healingRequiredPerObservation = (HP_OBSERVATION_INTERVAL * healingPerTick(unitToRepair.unit(), agentWithData.gameData()));
-                int neededExtraRepairers = (int) Math.floor(delta / healingRequiredPerObservation);
-                targetRepairers = Math.min(maxRepairers, Math.max(1, targetRepairers + neededExtraRepairers));
-                hpObservationCyclesGainingHp = 0;
-            } else {
-                ++hpObservationCyclesGainingHp;
-                if (hpObservationCyclesGainingHp >= 4) {
-                    // Every 4 cycles that the structure is stable or gaining hp, remove one assigned healer.
-                    targetRepairers = Math.max(1, targetRepairers - 1);
-                    hpObservationCyclesGainingHp = 0L;
-                }
-            }
+        int maxRepairers = (int)Math.max(1f, unitToRepair.unit().getRadius()) * 2;
+        float currentHpObservation = unitToRepair.unit().getHealth().orElse(previousHpObservation);
+        if (previousHpObservation < 0f) {
             previousHpObservation = currentHpObservation;
         }
+        if (currentHpObservation < previousHpObservation) {
+            float delta = previousHpObservation - currentHpObservation;
+            double healingRequiredPerObservation = (HP_OBSERVATION_INTERVAL * healingPerTick(unitToRepair.unit(), agentWithData.gameData()));
+            int neededExtraRepairers = (int) Math.floor(delta / healingRequiredPerObservation);
+            targetRepairers = Math.min(maxRepairers, Math.max(1, targetRepairers + neededExtraRepairers));
+            hpObservationCyclesGainingHp = 0;
+        } else {
+            ++hpObservationCyclesGainingHp;
+            if (hpObservationCyclesGainingHp >= 4) {
+                // Every 4 cycles that the structure is stable or gaining hp, remove one assigned healer.
+                targetRepairers = Math.max(1, targetRepairers - 1);
+                hpObservationCyclesGainingHp = 0L;
+            }
+        }
+        previousHpObservation = currentHpObservation;
         assignedRepairers = repairers.stream().map(unit -> unit.getTag()).collect(Collectors.toSet());
         if (repairers.size() > 0) {
             // TODO maybe better repair task.
@@ -174,6 +167,17 @@ public class RepairTask implements Task {
         return taskKey;
     }
 
+    @Override
+    public long getUpdateInterval() {
+        // The HP observations assume they are this far apart.
+        return HP_OBSERVATION_INTERVAL;
+    }
+
+    @Override
+    public ActionPriority getActionPriority() {
+        return ActionPriority.DEFENCE;
+    }
+
     @Override
     public boolean isSimilarTo(Task otherTask) {
         if (!(otherTask instanceof RepairTask)) {
@@ -204,6 +208,11 @@ public class RepairTask implements Task {
         return "Repair " + repairTarget.map(tag -> tag.getValue().toString()).orElse("<unknown>") + " x(" + assignedRepairers.size() + "/" + targetRepairers + ")";
     }
 
+    @Override
+    public Set<Class<? extends TaskMessage>> getSubscribedMessageTypes() {
+        return Set.of(TerranWorkerRushDefenceTask.WorkerRushDetected.class);
+    }
+
     @Override
     public Optional<TaskPromise> onTaskMessage(Task taskOrigin, TaskMessage message) {
         // Abort repair task if worker rush detected.
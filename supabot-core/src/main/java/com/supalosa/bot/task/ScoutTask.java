@@ -19,6 +19,7 @@ import com.supalosa.bot.Constants;
 import com.supalosa.bot.analysis.Region;
 import com.supalosa.bot.analysis.Tile;
 import com.supalosa.bot.awareness.RegionData;
+import com.supalosa.bot.instrumentation.ActionPriority;
 import com.supalosa.bot.task.message.TaskMessage;
 import com.supalosa.bot.task.message.TaskPromise;
 import com.supalosa.bot.task.terran.ImmutableScanRequestTaskMessage;
@@ -32,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
@@ -54,6 +56,8 @@ public class ScoutTask implements Task {
     private long sleepUntil = 0L;
     private int sleepCount = 0;
     private static final int MAX_SLEEP_COUNT = 10;
+    // Tiles not seen for this long are scored as highly as tiles that have never been seen.
+    private static final long STALE_TILE_TIME = 60L * 22L;
 
     private final boolean canLinger;
 
@@ -174,6 +178,7 @@ public class ScoutTask implements Task {
             return;
         }
         Optional<UnitOrder> currentOrder = scouter.getOrders().stream().findFirst();
+        long gameLoop = agentWithData.observation().getGameLoop();
 
         Optional<RegionData> regionToScout = agentWithData.mapAwareness().getRegionDataForPoint(scoutTarget.get());
         if (regionToScout.isPresent()) {
@@ -182,7 +187,7 @@ public class ScoutTask implements Task {
             if (currentOrder.isEmpty() ||
                     (maybeCurrentTarget.isPresent() &&
                             scouter.getPosition().distance(maybeCurrentTarget.get()) < 1.5)) {
-                // Score tiles by distance and visibility.
+                // Score tiles by distance and how long ago they were last seen.
                 int iterations = 50;
                 Optional<Point2d> destination = Optional.empty();
                 double maxScore = Double.MIN_VALUE;
@@ -193,12 +198,13 @@ public class ScoutTask implements Task {
                     if (!visited.contains(maybeTile)) {
                         visited.add(maybeTile);
                         double distance = scoutTarget.get().distance(maybeTile);
-                        Visibility visibility = agentWithData.observation().getVisibility(maybeTile);
+                        OptionalLong lastSeen = agentWithData.mapAwareness().getLastSeenGameLoop(maybeTile);
                         double score = distance;
-                        if (visibility == Visibility.FULL_HIDDEN || visibility == Visibility.HIDDEN) {
+                        if (lastSeen.isEmpty()) {
                             score *= 2;
-                        } else if (visibility == Visibility.FOGGED) {
-                            score *= 1.5;
+                        } else if (lastSeen.getAsLong() < gameLoop) {
+                            long staleness = gameLoop - lastSeen.getAsLong();
+                            score *= 1.0 + Math.min(1.0, staleness / (double) STALE_TILE_TIME);
                         }
                         if (score > maxScore) {
                             maxScore = score;
@@ -258,6 +264,16 @@ public class ScoutTask implements Task {
         return taskKey;
     }
 
+    @Override
+    public TaskSchedulingPriority getSchedulingPriority() {
+        return TaskSchedulingPriority.LOW;
+    }
+
+    @Override
+    public ActionPriority getActionPriority() {
+        return ActionPriority.HOUSEKEEPING;
+    }
+
     @Override
     public boolean isSimilarTo(Task otherTask) {
         if (!(otherTask instanceof ScoutTask)) {
@@ -376,6 +376,11 @@ public class SimpleBuildOrderTask extends BaseTask {
         return "BuildOrder";
     }
 
+    @Override
+    public TaskSchedulingPriority getSchedulingPriority() {
+        return TaskSchedulingPriority.HIGH;
+    }
+
     @Override
     public boolean isSimilarTo(Task otherTask) {
         return otherTask instanceof SimpleBuildOrderTask;
@@ -2,11 +2,13 @@ package com.supalosa.bot.task;
 
 import com.github.ocraft.s2client.bot.S2Agent;
 import com.supalosa.bot.AgentWithData;
+import com.supalosa.bot.instrumentation.ActionPriority;
 import com.supalosa.bot.task.message.TaskMessage;
 import com.supalosa.bot.task.message.TaskPromise;
 import org.apache.commons.lang3.NotImplementedException;
 
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 public interface Task {
@@ -39,12 +41,43 @@ public interface Task {
 
     boolean isSimilarTo(Task otherTask);
 
+    /**
+     * How often, in game loops, the task wants {@code onStep} to be called. The task manager may call it later than
+     * this if the step is over its time budget.
+     */
+    default long getUpdateInterval() {
+        return 1L;
+    }
+
+    /**
+     * Determines which tasks are deferred first when a step is over its time budget.
+     */
+    default TaskSchedulingPriority getSchedulingPriority() {
+        return TaskSchedulingPriority.NORMAL;
+    }
+
+    /**
+     * Determines which of the task's commands are sent first when more commands are issued than the action budget
+     * allows.
+     */
+    default ActionPriority getActionPriority() {
+        return ActionPriority.MACRO;
+    }
+
     void debug(S2Agent agent);
 
     String getDebugText();
 
     /**
-     * Called when a task has sent a message.
+     * The types of message that this task wants to receive in {@code onTaskMessage}. Subclasses of these types are
+     * delivered too. This is read once, when the task is added to the task manager.
+     */
+    default Set<Class<? extends TaskMessage>> getSubscribedMessageTypes() {
+        return Set.of();
+    }
+
+    /**
+     * Called when a task has sent a message of a type that this task subscribes to.
      *
      * @param taskOrigin The task that sent the message.
      * @param message The message from another task.
@@ -3,6 +3,7 @@ package com.supalosa.bot.task;
 import com.github.ocraft.s2client.bot.S2Agent;
 import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
 import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 import com.supalosa.bot.AgentData;
@@ -15,12 +16,14 @@ import com.supalosa.bot.task.message.TaskMessageResponse;
 import com.supalosa.bot.task.message.TaskPromise;
 import com.supalosa.bot.task.mission.MissionTask;
 import com.supalosa.bot.task.mission.TaskWithArmy;
+import com.supalosa.bot.utils.TrackedUnitMap;
 
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
@@ -59,6 +62,11 @@ public interface TaskManager {
      */
     void releaseUnit(Tag unit, Task task);
 
+    /**
+     * Releases a unit that has been destroyed from whichever task it was assigned to.
+     */
+    void onUnitDestroyed(Tag unit);
+
     /**
      * Finds a free unit that is not reserved. It will be reserved for the task until that task is complete.
      *
@@ -83,6 +91,33 @@ public interface TaskManager {
                                              Predicate<UnitInPool> predicate,
                                              Comparator<UnitInPool> comparator);
 
+    /**
+     * Finds the free unit nearest to a point from a maintained spatial index, rather than scanning all units.
+     * It will be reserved for the task until that task is complete.
+     *
+     * @param unitMap Index to search, e.g. {@code GameData.getMyWorkerMap()}.
+     * @param point Point to search around.
+     * @param maxRadius Maximum distance from the point to search.
+     * @param predicate Predicate that is used to find appropriate unit.
+     * @return Optional unit if unreserved unit is found matching predicate, or empty.
+     */
+    Optional<UnitInPool> findFreeUnitForTask(Task task,
+                                             TrackedUnitMap unitMap,
+                                             Point2d point,
+                                             double maxRadius,
+                                             Predicate<UnitInPool> predicate);
+
+    /**
+     * Requests a free worker to build near the given point. The requests from all tasks are assigned together at the
+     * end of the step, minimising the total distance the workers need to travel. The chosen worker is reserved for
+     * the task and passed to the callback, which is given an empty value if no worker was found.
+     *
+     * @param target Point that the worker needs to get to.
+     * @param predicate Predicate that is used to find appropriate workers.
+     * @param onAssigned Called with the worker at the end of the step.
+     */
+    void requestBuilder(Task task, Point2d target, Predicate<UnitInPool> predicate, Consumer<Optional<Tag>> onAssigned);
+
     /**
      * Finds a free army for a task that needs an army (such as a defensive/offensive task).
      *
@@ -112,6 +147,11 @@ public interface TaskManager {
 
     void onStep(AgentWithData agentWithData);
 
+    /**
+     * Reports how much time each kind of task used over the game.
+     */
+    void onGameEnd();
+
     /**
      * Adds a task to be tracked and executed by the task manager.
      *
@@ -133,7 +173,7 @@ public interface TaskManager {
     boolean dispatchUnit(Unit unit);
 
     /**
-     * Dispatch a message to all other tasks. Multiple tasks can respond.
+     * Dispatch a message to the other tasks that subscribe to its type. Multiple tasks can respond.
      *
      * @param task The task sending the message.
      * @param message The message to send.
@@ -141,6 +181,12 @@ public interface TaskManager {
      */
     List<TaskPromise> dispatchMessage(Task task, TaskMessage message);
 
+    /**
+     * Completes a promise at the end of the current step, so the callbacks of the requesting task don't run in the
+     * middle of the responding task's step.
+     */
+    void completePromise(TaskPromise promise, TaskMessageResponse response);
+
     /**
      * Move units (matching a predicate) from one task to another.
      * @return The amount of units moved.
@@ -155,5 +201,15 @@ public interface TaskManager {
 
     long countTasks(Predicate<Task> filter);
 
+    /**
+     * Counts the tasks of the given type that match the filter. Only tasks of that type are visited.
+     */
+    <T extends Task> long countTasks(Class<T> type, Predicate<T> filter);
+
+    /**
+     * Enables periodic validation of the task manager's unit assignments. This is too expensive to run normally.
+     */
+    void setDebugMode(boolean debugMode);
+
     <T> T visitTasks(TaskVisitor<T> visitor);
 }
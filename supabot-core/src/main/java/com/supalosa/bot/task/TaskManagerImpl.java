@@ -3,6 +3,7 @@ package com.supalosa.bot.task;
 import com.github.ocraft.s2client.bot.S2Agent;
 import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.UnitType;
 import com.github.ocraft.s2client.protocol.debug.Color;
 import com.github.ocraft.s2client.protocol.spatial.Point2d;
 import com.github.ocraft.s2client.protocol.unit.Alliance;
@@ -10,39 +11,103 @@ import com.github.ocraft.s2client.protocol.unit.PassengerUnit;
 import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import com.supalosa.bot.AgentWithData;
+import com.supalosa.bot.awareness.ObservationDelta;
+import com.supalosa.bot.awareness.ObservationDeltaListener;
+import com.supalosa.bot.instrumentation.ActionContext;
+import com.supalosa.bot.instrumentation.TaskProfiler;
+import com.supalosa.bot.instrumentation.UpdateCadence;
+import com.supalosa.bot.instrumentation.events.TaskExecutionEvent;
 import com.supalosa.bot.task.army.ArmyTask;
 import com.supalosa.bot.task.message.TaskMessage;
+import com.supalosa.bot.task.message.TaskMessageResponse;
 import com.supalosa.bot.task.message.TaskPromise;
 import com.supalosa.bot.task.mission.MissionTask;
 import com.supalosa.bot.task.mission.TaskWithArmy;
+import com.supalosa.bot.utils.TrackedUnitMap;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class TaskManagerImpl implements TaskManager {
+public class TaskManagerImpl implements TaskManager, ObservationDeltaListener {
+
+    // Time that tasks can use per step before non-critical tasks are deferred.
+    private static final long DEFAULT_STEP_BUDGET_NANOS = 20_000_000L;
+    // A task that has been deferred for this long is run regardless of the budget, and reported as starved.
+    private static final long MAX_DEFERRAL_TIME = 22L;
+    // Starved tasks are reported together at most this often, so an overloaded game doesn't flood the log.
+    private static final long STARVATION_REPORT_INTERVAL = 22L * 10;
+    // New units are dispatched to tasks in batches of this size, so a large wave doesn't all land in one step.
+    private static final int MAX_UNITS_DISPATCHED_PER_STEP = 16;
+    // Assignments are swept for stale units and completed tasks this often, or every second in debug mode.
+    private static final long ASSIGNMENT_VALIDATION_INTERVAL = 22L * 10;
+    private static final long DEBUG_ASSIGNMENT_VALIDATION_INTERVAL = 22L;
 
     private final Map<Tag, Task> unitToTaskMap;
     private final Map<String, Task> taskSet;
-    private List<TaskWithUnits> orderedTasksNeedingUnits;
+    // Tasks that take units. Priorities can change, so this is sorted when units are dispatched.
+    private final List<TaskWithUnits> orderedTasksNeedingUnits;
     private Map<ArmyTask, Optional<MissionTask>> armyTaskToMissionMap;
 
-    // Cache of task -> units. The task manager is the authoritative source for this.
-    private Multimap<Task, Tag> taskToUnitCache;
+    // Index of task -> units, the inverse of unitToTaskMap. Both are updated together.
+    private final Multimap<Task, Tag> taskToUnitCache;
+    // Index of task class -> tasks, used for counting tasks of a kind.
+    private final Multimap<Class<? extends Task>, Task> tasksByType;
+    // Free units by type, and tasks by the unit types they want.
+    private final UnitAllocationIndex unitAllocation;
+    // Type of each assigned unit, so it can go back into the free pool when released.
+    private final Map<Tag, UnitType> assignedUnitTypes;
+    // Free units that have appeared or changed type, and haven't been offered to the tasks yet.
+    private final Set<Tag> unitsToDispatch;
+    private final BuilderAssigner builderAssigner;
+    // Index of message type -> tasks subscribed to it, in the order the tasks were added.
+    private final Multimap<Class<? extends TaskMessage>, Task> messageSubscribers;
+    // Responses to be sent to promises at the end of the step.
+    private final Map<TaskPromise, TaskMessageResponse> pendingPromiseCompletions;
 
+    private long currentGameLoop = 0L;
+    private long orderedTasksSortedAt = -1L;
     private long unitToTaskMapCleanedAt = 0L;
     private long unassignedUnitsDispatchedAt = 0L;
+    // If true, assignments are validated against the observation and the tasks more often.
+    private boolean debugMode = false;
+
+    private final long stepBudgetNanos;
+    // The game loop that each task last ran, and the game loop it has been due since (if it's waiting to run).
+    private final Map<Task, Long> taskLastRunAt = new HashMap<>();
+    private final Map<Task, Long> taskDueSince = new HashMap<>();
+    private int tasksDeferredLastStep = 0;
+    private long starvedTaskCount = 0L;
+    private long starvedTasksSinceReport = 0L;
+    private long starvationReportedAt = 0L;
+    private String lastStarvedTask = "";
+
+    private final TaskProfiler taskProfiler = new TaskProfiler();
 
     public TaskManagerImpl() {
+        this(DEFAULT_STEP_BUDGET_NANOS);
+    }
+
+    public TaskManagerImpl(long stepBudgetNanos) {
+        this.stepBudgetNanos = stepBudgetNanos;
         this.unitToTaskMap = new HashMap<>();
         this.taskSet = new HashMap<>();
         this.orderedTasksNeedingUnits = new ArrayList<>();
         this.armyTaskToMissionMap = new HashMap<>();
         this.taskToUnitCache = HashMultimap.create();
+        this.tasksByType = HashMultimap.create();
+        this.unitAllocation = new UnitAllocationIndex();
+        this.assignedUnitTypes = new HashMap<>();
+        this.unitsToDispatch = new LinkedHashSet<>();
+        this.builderAssigner = new BuilderAssigner();
+        this.messageSubscribers = LinkedHashMultimap.create();
+        this.pendingPromiseCompletions = new LinkedHashMap<>();
     }
 
     @Override
@@ -52,8 +117,7 @@ public class TaskManagerImpl implements TaskManager {
 
     @Override
     public void reserveUnit(Unit unit, Task task) {
-        unitToTaskMap.put(unit.getTag(), task);
-        taskToUnitCache.put(task, unit.getTag());
+        assignUnit(unit, task);
         if (task instanceof TaskWithUnits) {
             ((TaskWithUnits)task).onUnitAdded(unit);
         }
@@ -69,9 +133,65 @@ public class TaskManagerImpl implements TaskManager {
     @Override
     public void releaseUnit(Tag unitTag, Task task) {
         if (unitToTaskMap.get(unitTag) == task) {
-            unitToTaskMap.remove(unitTag);
+            unassignUnit(unitTag, true);
+        }
+    }
+
+    @Override
+    public void onUnitDestroyed(Tag unitTag) {
+        unassignUnit(unitTag, false);
+        unitAllocation.removeFreeUnit(unitTag);
+        unitsToDispatch.remove(unitTag);
+    }
+
+    @Override
+    public void onObservationDelta(ObservationDelta delta) {
+        delta.appeared().forEach(unitInPool -> {
+            Tag tag = unitInPool.getTag();
+            if (unitInPool.unit().getAlliance() == Alliance.SELF && !unitToTaskMap.containsKey(tag)) {
+                unitAllocation.addFreeUnit(tag, unitInPool.unit().getType());
+                unitsToDispatch.add(tag);
+            }
+        });
+        delta.typeChanged().forEach(unitInPool -> {
+            Tag tag = unitInPool.getTag();
+            if (unitAllocation.isFree(tag)) {
+                // Morphed units (e.g. orbital commands) may be wanted by a different task.
+                unitAllocation.addFreeUnit(tag, unitInPool.unit().getType());
+                unitsToDispatch.add(tag);
+            } else if (assignedUnitTypes.containsKey(tag)) {
+                assignedUnitTypes.put(tag, unitInPool.unit().getType());
+            }
+        });
+        delta.disappeared().forEach(unitInPool -> {
+            unitAllocation.removeFreeUnit(unitInPool.getTag());
+            unitsToDispatch.remove(unitInPool.getTag());
+        });
+    }
+
+    private void assignUnit(Unit unit, Task task) {
+        Tag unitTag = unit.getTag();
+        Task previousTask = unitToTaskMap.put(unitTag, task);
+        if (previousTask != null && previousTask != task) {
+            taskToUnitCache.remove(previousTask, unitTag);
+        }
+        taskToUnitCache.put(task, unitTag);
+        assignedUnitTypes.put(unitTag, unit.getType());
+        unitAllocation.removeFreeUnit(unitTag);
+    }
+
+    /**
+     * Removes the unit from its task. If the unit is still alive, it goes back into the free pool.
+     */
+    private void unassignUnit(Tag unitTag, boolean isAlive) {
+        Task task = unitToTaskMap.remove(unitTag);
+        if (task != null) {
             taskToUnitCache.remove(task, unitTag);
         }
+        UnitType type = assignedUnitTypes.remove(unitTag);
+        if (isAlive && type != null) {
+            unitAllocation.addFreeUnit(unitTag, type);
+        }
     }
 
     @Override
@@ -94,10 +214,9 @@ public class TaskManagerImpl implements TaskManager {
     public Optional<UnitInPool> findFreeUnitForTask(Task task, ObservationInterface observationInterface,
                                              Predicate<UnitInPool> predicate,
                                              Comparator<UnitInPool> comparator) {
-        Stream<UnitInPool> freeUnits = observationInterface.getUnits(unitInPool ->
-                unitInPool.unit().getAlliance() == Alliance.SELF &&
-                !unitToTaskMap.containsKey(unitInPool.getTag()) &&
-                        predicate.test(unitInPool)).stream();
+        Stream<UnitInPool> freeUnits = unitAllocation.getFreeUnits().stream()
+                .map(observationInterface::getUnit)
+                .filter(unitInPool -> unitInPool != null && predicate.test(unitInPool));
 
         if (comparator == null) {
             return freeUnits.findAny().map(unit -> {
@@ -112,6 +231,23 @@ public class TaskManagerImpl implements TaskManager {
         }
     }
 
+    @Override
+    public Optional<UnitInPool> findFreeUnitForTask(Task task, TrackedUnitMap unitMap, Point2d point, double maxRadius,
+                                                    Predicate<UnitInPool> predicate) {
+        return unitMap.getNearestWithin(point, maxRadius, unitInPool ->
+                        !unitToTaskMap.containsKey(unitInPool.getTag()) && predicate.test(unitInPool))
+                .map(unit -> {
+                    this.reserveUnit(unit.unit(), task);
+                    return unit;
+                });
+    }
+
+    @Override
+    public void requestBuilder(Task task, Point2d target, Predicate<UnitInPool> predicate,
+                               Consumer<Optional<Tag>> onAssigned) {
+        builderAssigner.request(task, target, predicate, onAssigned);
+    }
+
     @Override
     public Optional<ArmyTask> findFreeArmyForTask(MissionTask missionTask, Predicate<ArmyTask> predicate) {
         return findFreeArmyForTask(missionTask,
@@ -136,37 +272,35 @@ public class TaskManagerImpl implements TaskManager {
 
     @Override
     public final void onStep(AgentWithData agentWithData) {
-        // Create the task:unit cache.
-        taskToUnitCache = HashMultimap.create(taskSet.size(), unitToTaskMap.size() / Math.max(1, taskSet.size()));
-        unitToTaskMap.forEach((unit, task) -> {
-            taskToUnitCache.put(task, unit);
-        });
-        // Run task logic, and clean up completed tasks.
+        long stepStartedAt = System.nanoTime();
+        long gameLoop = agentWithData.observation().getGameLoop();
+        currentGameLoop = gameLoop;
+        // Find the tasks that are due to run, and clean up completed tasks.
         List<Task> tasksFinishedThisStep = new ArrayList<>();
         Set<Tag> unitsReleasedThisStep = new HashSet<>();
-        List<Task> tasksForStep = new ArrayList<>(taskSet.values());
-        tasksForStep.forEach(task -> {
-            if (!task.isComplete()) {
-                task.onStep(this, agentWithData);
-            } else {
+        List<Task> tasksForStep = new ArrayList<>();
+        taskSet.values().forEach(task -> {
+            if (task.isComplete()) {
                 tasksFinishedThisStep.add(task);
-                Collection<Tag> unitsForTask = taskToUnitCache.get(task);
-                unitsReleasedThisStep.addAll(unitsForTask);
-                taskToUnitCache.removeAll(task);
+                unitsReleasedThisStep.addAll(taskToUnitCache.removeAll(task));
+            } else if (isTaskDue(task, gameLoop)) {
+                taskDueSince.putIfAbsent(task, gameLoop);
+                tasksForStep.add(task);
             }
         });
+        runTasksWithinBudget(tasksForStep, agentWithData, gameLoop, stepStartedAt);
+        if (builderAssigner.hasRequests()) {
+            builderAssigner.assign(agentWithData.gameData().getMyWorkerMap(),
+                    unitInPool -> !unitToTaskMap.containsKey(unitInPool.getTag()),
+                    (unitInPool, task) -> reserveUnit(unitInPool.unit(), task));
+        }
         // Unassign units from tasks that were completed.
-        unitsReleasedThisStep.forEach(unitToTaskMap::remove);
-        tasksFinishedThisStep.forEach(task -> {
-            taskSet.remove(task.getKey());
-            armyTaskToMissionMap.remove(task);
+        unitsReleasedThisStep.forEach(tag -> {
+            unitToTaskMap.remove(tag);
+            assignedUnitTypes.remove(tag);
         });
+        tasksFinishedThisStep.forEach(this::removeTask);
         // Reassign units that were assigned to tasks that don't exist anymore.
-        orderedTasksNeedingUnits = taskSet.values().stream()
-                .filter(task -> task instanceof TaskWithUnits) // TODO: this smells...
-                .map(task -> (TaskWithUnits)task)
-                .sorted(Comparator.comparing(TaskWithUnits::getPriority).reversed()
-        ).collect(Collectors.toList());
         if (unitsReleasedThisStep.size() > 0) {
             unitsReleasedThisStep.forEach(tag -> {
                 UnitInPool unit = agentWithData.observation().getUnit(tag);
@@ -175,41 +309,21 @@ public class TaskManagerImpl implements TaskManager {
                 }
             });
         }
-        long gameLoop = agentWithData.observation().getGameLoop();
-        if (gameLoop > unassignedUnitsDispatchedAt + 66L) {
-            // Every ~3 seconds, assign unallocated units to tasks.
+        dispatchNewUnits(agentWithData.observation());
+        if (gameLoop > unassignedUnitsDispatchedAt +
+                agentWithData.cadenceController().getInterval(UpdateCadence.UNIT_REMATCH)) {
+            // Every ~3 seconds (by default), offer free units to the tasks that want their type.
             unassignedUnitsDispatchedAt = gameLoop;
-            agentWithData.observation().getUnits(Alliance.SELF).forEach(unitInPool -> {
-                if (!unitToTaskMap.containsKey(unitInPool.getTag())) {
-                    dispatchUnit(unitInPool.unit());
-                }
-            });
+            rematchFreeUnits(agentWithData.observation());
         }
-        // Remove assignments to tasks that are complete.
-        if (gameLoop > unitToTaskMapCleanedAt + 22L) {
+        // Destroyed units are unassigned as they die, but units that die unseen (e.g. inside a transport) and
+        // reservations held by completed tasks are only cleaned up by walking every assignment.
+        if (gameLoop > unitToTaskMapCleanedAt +
+                (debugMode ? DEBUG_ASSIGNMENT_VALIDATION_INTERVAL : ASSIGNMENT_VALIDATION_INTERVAL)) {
             unitToTaskMapCleanedAt = gameLoop;
-            Set<Tag> missingUnits = new HashSet<>();
-            Set<Tag> unitsInPassengers = new HashSet<>();
-            unitToTaskMap.forEach((tag, task) -> {
-                UnitInPool unitInPool = agentWithData.observation().getUnit(tag);
-                if (unitInPool == null) {
-                    missingUnits.add(tag);
-                } else if (unitInPool.unit().getPassengers().size() > 0) {
-                    for (PassengerUnit passengerUnit : unitInPool.unit().getPassengers()) {
-                        unitsInPassengers.add(passengerUnit.getTag());
-                    }
-                }
-                // DEBUG
-                if (task instanceof TaskWithUnits) {
-                    if (!((TaskWithUnits)task).hasUnit(tag) && (unitInPool != null || unitsInPassengers.contains(tag))) {
-                        System.out.println("Warning: Task " +task.getKey() + " doesn't think it has unit " + tag);
-                        missingUnits.add(tag);
-                    }
-                }
-            });
-            missingUnits.removeAll(unitsInPassengers);
-            missingUnits.forEach(unitToTaskMap::remove);
+            validateAssignments(agentWithData.observation());
         }
+        completePendingPromises();
         // Remove assignments to missions that are complete.
         // This can be done every tick because we don't expect lots of missions.
         armyTaskToMissionMap.forEach((armyTask, missionTask) -> {
@@ -219,6 +333,174 @@ public class TaskManagerImpl implements TaskManager {
         });
     }
 
+    private void dispatchNewUnits(ObservationInterface observationInterface) {
+        int dispatched = 0;
+        Iterator<Tag> iterator = unitsToDispatch.iterator();
+        while (iterator.hasNext() && dispatched < MAX_UNITS_DISPATCHED_PER_STEP) {
+            Tag tag = iterator.next();
+            iterator.remove();
+            if (!unitAllocation.isFree(tag)) {
+                continue;
+            }
+            UnitInPool unitInPool = observationInterface.getUnit(tag);
+            if (unitInPool != null) {
+                dispatchUnit(unitInPool.unit());
+                ++dispatched;
+            }
+        }
+    }
+
+    /**
+     * Offers free units to the tasks that want their type. Units of the same type are interchangeable to the tasks,
+     * so once one is turned down the rest of that type are skipped.
+     */
+    private void rematchFreeUnits(ObservationInterface observationInterface) {
+        ensureDemandIndexed();
+        for (UnitType type : unitAllocation.getMatchableTypes()) {
+            for (Tag tag : new ArrayList<>(unitAllocation.getFreeUnitsOfType(type))) {
+                UnitInPool unitInPool = observationInterface.getUnit(tag);
+                if (unitInPool == null) {
+                    unitAllocation.removeFreeUnit(tag);
+                } else if (!dispatchUnit(unitInPool.unit())) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean isTaskDue(Task task, long gameLoop) {
+        Long lastRunAt = taskLastRunAt.get(task);
+        return lastRunAt == null || gameLoop >= lastRunAt + task.getUpdateInterval();
+    }
+
+    /**
+     * Runs the due tasks in order of priority, then by how long they have been waiting. Once the step's budget is
+     * used up, the remaining tasks are deferred to the next step unless they are critical or have been waiting too
+     * long.
+     */
+    private void runTasksWithinBudget(List<Task> tasksForStep, AgentWithData agentWithData, long gameLoop,
+                                      long stepStartedAt) {
+        tasksForStep.sort(Comparator.comparing(Task::getSchedulingPriority)
+                .thenComparing(task -> taskDueSince.get(task)));
+        int tasksDeferred = 0;
+        for (Task task : tasksForStep) {
+            boolean isOverBudget = System.nanoTime() - stepStartedAt > stepBudgetNanos;
+            if (isOverBudget && task.getSchedulingPriority() != TaskSchedulingPriority.CRITICAL) {
+                long deferredFor = gameLoop - taskDueSince.get(task);
+                if (deferredFor < MAX_DEFERRAL_TIME) {
+                    ++tasksDeferred;
+                    continue;
+                }
+                ++starvedTaskCount;
+                ++starvedTasksSinceReport;
+                lastStarvedTask = task.getKey() + " (" + deferredFor + " loops)";
+            }
+            stepTask(task, this, agentWithData);
+            taskLastRunAt.put(task, gameLoop);
+            taskDueSince.remove(task);
+        }
+        tasksDeferredLastStep = tasksDeferred;
+        if (starvedTasksSinceReport > 0 && gameLoop >= starvationReportedAt + STARVATION_REPORT_INTERVAL) {
+            System.out.println("[" + gameLoop + "] " + starvedTasksSinceReport + " tasks starved and ran over budget " +
+                    "since loop " + starvationReportedAt + ", latest " + lastStarvedTask);
+            starvedTasksSinceReport = 0L;
+            starvationReportedAt = gameLoop;
+        }
+    }
+
+    private void stepTask(Task task, TaskManager taskManager, AgentWithData agentWithData) {
+        TaskExecutionEvent event = new TaskExecutionEvent();
+        event.begin();
+        taskProfiler.profile(task.getClass().getSimpleName(),
+                () -> ActionContext.run(task.getActionPriority(), ActionContext.sourceForTaskKey(task.getKey()),
+                        () -> task.onStep(taskManager, agentWithData)));
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameLoop = agentWithData.observation().getGameLoop();
+            event.taskType = task.getClass().getSimpleName();
+            event.taskKey = task.getKey();
+            event.unitCount = task instanceof TaskWithUnits ? ((TaskWithUnits) task).getSize() : 0;
+            event.commit();
+        }
+    }
+
+    /**
+     * Removes assignments of units that no longer exist, or that their task doesn't think it has, and checks that
+     * the indexes agree with each other.
+     */
+    private void validateAssignments(ObservationInterface observationInterface) {
+        Set<Tag> missingUnits = new HashSet<>();
+        Set<Tag> unitsInPassengers = new HashSet<>();
+        unitToTaskMap.forEach((tag, task) -> {
+            UnitInPool unitInPool = observationInterface.getUnit(tag);
+            if (unitInPool == null) {
+                missingUnits.add(tag);
+            } else if (unitInPool.unit().getPassengers().size() > 0) {
+                for (PassengerUnit passengerUnit : unitInPool.unit().getPassengers()) {
+                    unitsInPassengers.add(passengerUnit.getTag());
+                }
+            }
+            if (task instanceof TaskWithUnits) {
+                if (!((TaskWithUnits)task).hasUnit(tag) && (unitInPool != null || unitsInPassengers.contains(tag))) {
+                    System.out.println("Warning: Task " +task.getKey() + " doesn't think it has unit " + tag);
+                    missingUnits.add(tag);
+                }
+            }
+            if (!taskToUnitCache.containsEntry(task, tag)) {
+                System.out.println("Warning: Unit " + tag + " is missing from the index of task " + task.getKey());
+            }
+        });
+        if (taskToUnitCache.size() != unitToTaskMap.size()) {
+            System.out.println("Warning: Task index has " + taskToUnitCache.size() + " units, expected " +
+                    unitToTaskMap.size());
+        }
+        if (tasksByType.size() != taskSet.size()) {
+            System.out.println("Warning: Task type index has " + tasksByType.size() + " tasks, expected " +
+                    taskSet.size());
+        }
+        unitAllocation.getFreeUnits().forEach(tag -> {
+            if (unitToTaskMap.containsKey(tag)) {
+                System.out.println("Warning: Unit " + tag + " is both free and assigned to " +
+                        unitToTaskMap.get(tag).getKey());
+            }
+        });
+        missingUnits.removeAll(unitsInPassengers);
+        missingUnits.forEach(tag -> unassignUnit(tag, observationInterface.getUnit(tag) != null));
+    }
+
+    private void removeTask(Task task) {
+        taskSet.remove(task.getKey());
+        tasksByType.remove(task.getClass(), task);
+        task.getSubscribedMessageTypes().forEach(type -> messageSubscribers.remove(type, task));
+        taskLastRunAt.remove(task);
+        taskDueSince.remove(task);
+        if (task instanceof TaskWithUnits) {
+            orderedTasksNeedingUnits.remove(task);
+            orderedTasksSortedAt = -1L;
+        }
+        armyTaskToMissionMap.remove(task);
+    }
+
+    @Override
+    public void setDebugMode(boolean debugMode) {
+        this.debugMode = debugMode;
+    }
+
+    @Override
+    public void onGameEnd() {
+        if (!debugMode) {
+            return;
+        }
+        try {
+            taskProfiler.writeCsv(Path.of("TaskProfile.csv"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        taskProfiler.getMostExpensiveTypes(5).forEach(entry -> System.out.println("Task " + entry.getKey() + ": " +
+                entry.getValue().getCalls() + " steps, " + (entry.getValue().getCpuNanos() / 1_000_000L) +
+                "ms CPU, " + (entry.getValue().getAllocatedBytes() / (1024 * 1024)) + "MB allocated"));
+    }
+
     @Override
     public boolean addTask(Task task, int maxParallel) {
         int similarCount = this.countSimilarTasks(task);
@@ -230,6 +512,12 @@ public class TaskManagerImpl implements TaskManager {
             return false;
         }
         taskSet.put(task.getKey(), task);
+        tasksByType.put(task.getClass(), task);
+        task.getSubscribedMessageTypes().forEach(type -> messageSubscribers.put(type, task));
+        if (task instanceof TaskWithUnits) {
+            orderedTasksNeedingUnits.add((TaskWithUnits)task);
+            orderedTasksSortedAt = -1L;
+        }
         if (task instanceof ArmyTask) {
             armyTaskToMissionMap.put((ArmyTask)task, Optional.empty());
         }
@@ -238,7 +526,19 @@ public class TaskManagerImpl implements TaskManager {
 
     @Override
     public int countSimilarTasks(Task task) {
-        return (int)taskSet.values().stream().filter(otherTask -> task.isSimilarTo(otherTask)).count();
+        // Tasks are only similar to tasks of the same class (or a subclass or superclass of it), so other kinds of
+        // tasks don't need to be checked.
+        int count = 0;
+        for (Class<? extends Task> type : tasksByType.keySet()) {
+            if (type.isAssignableFrom(task.getClass()) || task.getClass().isAssignableFrom(type)) {
+                for (Task otherTask : tasksByType.get(type)) {
+                    if (task.isSimilarTo(otherTask)) {
+                        ++count;
+                    }
+                }
+            }
+        }
+        return count;
     }
 
     @Override
@@ -248,8 +548,21 @@ public class TaskManagerImpl implements TaskManager {
         agent.debug().debugTextOut("ResMin: " + totalReservedMinerals() + ", ResVes: " + totalReservedVespene(),
                 Point2d.of(0.01f, yPosition), Color.WHITE, 8);
         yPosition += spacing;
-        agent.debug().debugTextOut("Tasks (" + taskSet.size() + ")", Point2d.of(0.01f, yPosition), Color.WHITE, 8);
+        agent.debug().debugTextOut("Tasks (" + taskSet.size() + "), Deferred: " + tasksDeferredLastStep +
+                        , Starved: " + starvedTaskCount +
+                        ", Free units: " + unitAllocation.getFreeUnitCount(),
+                Point2d.of(0.01f, yPosition), Color.WHITE, 8);
         yPosition += spacing;
+        for (Map.Entry<String, TaskProfiler.TaskProfile> entry : taskProfiler.getMostExpensiveTypes(5)) {
+            TaskProfiler.TaskProfile profile = entry.getValue();
+            agent.debug().debugTextOut(String.format("%s: %.0fus CPU, %.0fus wall, %dKB per step",
+                            entry.getKey(),
+                            profile.getCpuNanos() / 1000.0 / profile.getCalls(),
+                            profile.getWallNanos() / 1000.0 / profile.getCalls(),
+                            profile.getAllocatedBytes() / 1024 / profile.getCalls()),
+                    Point2d.of(0.01f, yPosition), Color.YELLOW, 8);
+            yPosition += spacing;
+        }
         for (Map.Entry<String, Task> entry : taskSet.entrySet()) {
             Task task = entry.getValue();
             task.debug(agent);
@@ -269,49 +582,83 @@ public class TaskManagerImpl implements TaskManager {
 
     @Override
     public boolean dispatchUnit(Unit unit) {
-        for (TaskWithUnits task : orderedTasksNeedingUnits) {
+        ensureDemandIndexed();
+        for (TaskWithUnits task : unitAllocation.getTasksWanting(unit.getType())) {
             if (!task.isComplete() && task.wantsUnit(unit)) {
                 reserveUnit(unit, task);
                 return true;
             }
         }
+        if (!unitToTaskMap.containsKey(unit.getTag())) {
+            unitAllocation.addFreeUnit(unit.getTag(), unit.getType());
+        }
         return false;
     }
 
+    /**
+     * Tasks' priorities and wanted units can change, so the demand index is rebuilt at most once per step, when
+     * units are dispatched.
+     */
+    private void ensureDemandIndexed() {
+        if (orderedTasksSortedAt != currentGameLoop) {
+            orderedTasksSortedAt = currentGameLoop;
+            orderedTasksNeedingUnits.sort(Comparator.comparing(TaskWithUnits::getPriority).reversed());
+            unitAllocation.rebuildDemand(orderedTasksNeedingUnits);
+        }
+    }
+
     @Override
     public List<TaskPromise> dispatchMessage(Task task, TaskMessage message) {
         List<TaskPromise> responses = new ArrayList<>();
-        taskSet.values().forEach(respondingTask -> {
-            if (task != respondingTask) {
-                Optional<TaskPromise> response = respondingTask.onTaskMessage(task, message);
-                response.ifPresent(promise -> responses.add(promise));
+        // A task can subscribe to more than one supertype of the message, but should only receive it once.
+        Set<Task> delivered = new HashSet<>();
+        for (Class<? extends TaskMessage> type : new ArrayList<>(messageSubscribers.keySet())) {
+            if (!type.isInstance(message)) {
+                continue;
             }
-        });
+            for (Task respondingTask : new ArrayList<>(messageSubscribers.get(type))) {
+                if (task != respondingTask && !respondingTask.isComplete() && delivered.add(respondingTask)) {
+                    Optional<TaskPromise> response = respondingTask.onTaskMessage(task, message);
+                    response.ifPresent(promise -> responses.add(promise));
+                }
+            }
+        }
         return responses;
     }
 
+    @Override
+    public void completePromise(TaskPromise promise, TaskMessageResponse response) {
+        // Like CompletableFuture, only the first completion counts.
+        pendingPromiseCompletions.putIfAbsent(promise, response);
+    }
+
+    private void completePendingPromises() {
+        // Callbacks can complete more promises, which are sent in the same step.
+        while (!pendingPromiseCompletions.isEmpty()) {
+            Map<TaskPromise, TaskMessageResponse> completions = new LinkedHashMap<>(pendingPromiseCompletions);
+            pendingPromiseCompletions.clear();
+            completions.forEach(TaskPromise::complete);
+        }
+    }
+
     @Override
     public int reassignUnits(TaskWithUnits from, TaskWithUnits to, ObservationInterface observationInterface, Predicate<Unit> predicate) {
-        AtomicInteger moved = new AtomicInteger();
-        unitToTaskMap.forEach((tag, task) -> {
-            if (task == from) {
-                UnitInPool unitInPool = observationInterface.getUnit(tag);
-                if (unitInPool == null) {
-                    return;
-                }
-                Unit unit = unitInPool.unit();
-                // TODO consider whether we want `wantsUnit`
-                if (predicate.test(unit)/* && to.wantsUnit(unit)*/) {
-                    moved.incrementAndGet();
-                    unitToTaskMap.put(tag, to);
-                    taskToUnitCache.remove(from, tag);
-                    from.onUnitRemoved(unit);
-                    taskToUnitCache.put(to, tag);
-                    to.onUnitAdded(unit);
-                }
+        int moved = 0;
+        for (Tag tag : new ArrayList<>(taskToUnitCache.get(from))) {
+            UnitInPool unitInPool = observationInterface.getUnit(tag);
+            if (unitInPool == null) {
+                continue;
             }
-        });
-        return moved.get();
+            Unit unit = unitInPool.unit();
+            // TODO consider whether we want `wantsUnit`
+            if (predicate.test(unit)/* && to.wantsUnit(unit)*/) {
+                ++moved;
+                assignUnit(unit, to);
+                from.onUnitRemoved(unit);
+                to.onUnitAdded(unit);
+            }
+        }
+        return moved;
     }
 
     @Override
@@ -334,6 +681,21 @@ public class TaskManagerImpl implements TaskManager {
         return taskSet.values().stream().filter(filter).count();
     }
 
+    @Override
+    public <T extends Task> long countTasks(Class<T> type, Predicate<T> filter) {
+        long count = 0;
+        for (Class<? extends Task> taskType : tasksByType.keySet()) {
+            if (type.isAssignableFrom(taskType)) {
+                for (Task task : tasksByType.get(taskType)) {
+                    if (filter.test(type.cast(task))) {
+                        ++count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
     @Override
     public <T> T visitTasks(TaskVisitor<T> visitor) {
         taskSet.values().forEach(task -> visitor.visit(task));
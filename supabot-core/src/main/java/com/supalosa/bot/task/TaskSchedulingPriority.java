@@ -0,0 +1,13 @@
+package com.supalosa.bot.task;
+
+/**
+ * How important it is for a task to run on the step it is due. When a step runs over its time budget, the task
+ * manager defers due tasks starting from the lowest priority.
+ */
+public enum TaskSchedulingPriority {
+    // Always runs when due, even if the step is over budget.
+    CRITICAL,
+    HIGH,
+    NORMAL,
+    LOW
+}
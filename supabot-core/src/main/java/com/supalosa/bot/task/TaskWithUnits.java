@@ -8,6 +8,8 @@ import com.supalosa.bot.production.UnitTypeRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * A Task that requests units from the TaskManager.
@@ -21,6 +23,14 @@ public interface TaskWithUnits extends Task, UnitRequester {
      */
     boolean wantsUnit(Unit unit);
 
+    /**
+     * Returns the unit types that this task might want. Units are only offered to the tasks that want their type,
+     * and {@code wantsUnit} is still checked before a unit is assigned.
+     */
+    default Set<UnitType> getWantedUnitTypes() {
+        return getRequestedUnits().stream().map(UnitTypeRequest::unitType).collect(Collectors.toSet());
+    }
+
     /**
      * Returns true if this army has the given unit in it.
      */
@@ -0,0 +1,89 @@
+package com.supalosa.bot.task;
+
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.SetMultimap;
+
+import java.util.*;
+
+/**
+ * Indexes the units that are not assigned to a task by type, and the tasks that want units by the types they
+ * want, so a unit only has to be offered to tasks that might take it.
+ */
+class UnitAllocationIndex {
+
+    private final SetMultimap<UnitType, Tag> freeUnitsByType = LinkedHashMultimap.create();
+    private final Map<Tag, UnitType> freeUnitTypes = new HashMap<>();
+
+    // Tasks that want each unit type, highest priority first.
+    private final ListMultimap<UnitType, TaskWithUnits> demandByType =
+            MultimapBuilder.hashKeys().arrayListValues().build();
+
+    void addFreeUnit(Tag tag, UnitType type) {
+        UnitType previousType = freeUnitTypes.put(tag, type);
+        if (previousType != null) {
+            freeUnitsByType.remove(previousType, tag);
+        }
+        freeUnitsByType.put(type, tag);
+    }
+
+    void removeFreeUnit(Tag tag) {
+        UnitType type = freeUnitTypes.remove(tag);
+        if (type != null) {
+            freeUnitsByType.remove(type, tag);
+        }
+    }
+
+    boolean isFree(Tag tag) {
+        return freeUnitTypes.containsKey(tag);
+    }
+
+    /**
+     * Returns every free unit. The returned collection is a live view.
+     */
+    Set<Tag> getFreeUnits() {
+        return Collections.unmodifiableSet(freeUnitTypes.keySet());
+    }
+
+    /**
+     * Returns the free units that were last seen as the given type. The returned collection is a live view.
+     */
+    Set<Tag> getFreeUnitsOfType(UnitType type) {
+        return Collections.unmodifiableSet(freeUnitsByType.get(type));
+    }
+
+    int getFreeUnitCount() {
+        return freeUnitTypes.size();
+    }
+
+    /**
+     * Rebuilds the demand index from the tasks, which must already be sorted by priority (highest first).
+     */
+    void rebuildDemand(List<? extends TaskWithUnits> tasksByPriority) {
+        demandByType.clear();
+        for (TaskWithUnits task : tasksByPriority) {
+            if (!task.isComplete()) {
+                task.getWantedUnitTypes().forEach(type -> demandByType.put(type, task));
+            }
+        }
+    }
+
+    /**
+     * Returns the tasks that might want a unit of the given type, highest priority first.
+     */
+    List<TaskWithUnits> getTasksWanting(UnitType type) {
+        return demandByType.get(type);
+    }
+
+    /**
+     * Returns the unit types that have both free units and tasks that want them.
+     */
+    Set<UnitType> getMatchableTypes() {
+        Set<UnitType> types = new HashSet<>(demandByType.keySet());
+        types.retainAll(freeUnitsByType.keySet());
+        return types;
+    }
+}
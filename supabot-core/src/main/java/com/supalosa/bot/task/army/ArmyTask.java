@@ -68,6 +68,11 @@ public interface ArmyTask extends TaskWithUnits {
      */
     double getPower();
 
+    /**
+     * Returns true if the army is in an engagement (it has seen a threat within the last 10 seconds).
+     */
+    boolean isEngaging();
+
     /**
      * Return the name of the army (which is a proxy for its function)
      */
@@ -16,6 +16,8 @@ import com.supalosa.bot.awareness.Army;
 import com.supalosa.bot.awareness.MapAwareness;
 import com.supalosa.bot.awareness.RegionData;
 import com.supalosa.bot.engagement.ThreatCalculator;
+import com.supalosa.bot.instrumentation.ActionPriority;
+import com.supalosa.bot.instrumentation.UpdateCadence;
 import com.supalosa.bot.pathfinding.RegionGraphPath;
 import com.supalosa.bot.production.UnitRequester;
 import com.supalosa.bot.production.UnitTypeRequest;
@@ -34,7 +36,6 @@ public abstract class DefaultArmyTask<A,D,R,I> extends DefaultTaskWithUnits impl
     private static final long NORMAL_UPDATE_INTERVAL = 11;
     private final String armyName;
     private final String armyKey;
-    private final Map<Tag, Float> rememberedUnitHealth = new HashMap<>();
     private final ThreatCalculator threatCalculator;
 
     private Optional<Point2d> targetPosition = Optional.empty();
@@ -207,12 +208,13 @@ public abstract class DefaultArmyTask<A,D,R,I> extends DefaultTaskWithUnits impl
                 .filter(task -> taskManager.hasTask(task))
                 .collect(Collectors.toList());
 
+        // Only the army logic is throttled, the rest of the step (merging, cleanup, regions) runs every time.
         if (gameLoop > nextArmyLogicUpdateAt) {
             nextArmyLogicUpdateAt = gameLoop + armyLogicUpdate(agentWithData, allUnits);
         }
 
         // Handle pathfinding.
-        if (gameLoop > waypointsCalculatedAt + 44L) {
+        if (gameLoop > waypointsCalculatedAt + agentWithData.cadenceController().getInterval(UpdateCadence.ARMY_PATHING)) {
             waypointsCalculatedAt = gameLoop;
             calculateNewPath(agentWithData);
         }
@@ -542,6 +544,17 @@ public abstract class DefaultArmyTask<A,D,R,I> extends DefaultTaskWithUnits impl
         return Optional.empty();
     }
 
+    @Override
+    public TaskSchedulingPriority getSchedulingPriority() {
+        // Armies are the most likely to be in a fight, so they should not be deferred.
+        return TaskSchedulingPriority.HIGH;
+    }
+
+    @Override
+    public ActionPriority getActionPriority() {
+        return ActionPriority.MICRO;
+    }
+
     @Override
     public String getKey() {
         return "Army." + armyKey;
@@ -643,6 +656,11 @@ public abstract class DefaultArmyTask<A,D,R,I> extends DefaultTaskWithUnits impl
         return threatCalculator.calculatePower(this.getCurrentCompositionCache(), this.upgrades);
     }
 
+    @Override
+    public boolean isEngaging() {
+        return isEngaging;
+    }
+
     @Override
     public Optional<? extends Task> getParentTask() {
         return parentArmy;
@@ -13,6 +13,7 @@ import com.supalosa.bot.production.StaticUnitRequester;
 import com.supalosa.bot.production.UnitRequester;
 import com.supalosa.bot.production.UnitTypeRequest;
 import com.supalosa.bot.engagement.WorkerDefenceThreatCalculator;
+import com.supalosa.bot.instrumentation.ActionPriority;
 import com.supalosa.bot.task.Task;
 import com.supalosa.bot.task.TaskManager;
 import com.supalosa.bot.task.message.TaskMessage;
@@ -82,6 +83,11 @@ public class TerranWorkerRushDefenceTask extends DefaultArmyTask {
         actionInterface.sendChat("[WorkerRush] " + message, ActionChat.Channel.BROADCAST);
     }
 
+    @Override
+    public ActionPriority getActionPriority() {
+        return ActionPriority.DEFENCE;
+    }
+
     @Override
     public boolean isSimilarTo(Task otherTask) {
         if (otherTask instanceof TerranWorkerRushDefenceTask) {
@@ -89,8 +89,15 @@ public class DefenceTask extends DefaultTaskWithUnits implements MissionTask {
             Race.TERRAN, List.of(L0_TERRAN_DEFENCE, L1_TERRAN_DEFENCE, L2_TERRAN_DEFENCE, L3_TERRAN_DEFENCE));
 
     // Time between attacks to be considered unique. A sustained attack longer than this is counted as multiple attacks.
+    // This is part of the defence logic, not a throttle on how often the task runs.
     private static final long ATTACK_INTERVAL = 22L * 20;
 
+    // The armies do the fighting, so the defence itself only needs to be re-evaluated this often.
+    private static final long UPDATE_INTERVAL = 6L;
+
+    // How much the priority decays every two game loops without a threat.
+    private static final double PRIORITY_DECAY = 0.75;
+
     private Optional<Race> playerRace = Optional.empty();
     private List<UnitTypeRequest> targetComposition = Collections.emptyList();
 
@@ -116,6 +123,7 @@ public class DefenceTask extends DefaultTaskWithUnits implements MissionTask {
     // The composition of all armies taking part in this defence.
     private Map<UnitType, Integer> overallComposition;
     private long minimumDurationRemaining = 0;
+    private long lastUpdatedAt = -1L;
 
     /**
      *
@@ -134,10 +142,14 @@ public class DefenceTask extends DefaultTaskWithUnits implements MissionTask {
 
     @Override
     public void onStepImpl(TaskManager taskManager, AgentWithData agentWithData) {
+        long gameLoop = agentWithData.observation().getGameLoop();
+        long elapsedLoops = lastUpdatedAt < 0 ? 1L : gameLoop - lastUpdatedAt;
+        lastUpdatedAt = gameLoop;
+
         if (this.priority <= 0.0 && minimumDurationRemaining <= 0) {
             this.isComplete = true;
         }
-        minimumDurationRemaining --;
+        minimumDurationRemaining -= elapsedLoops;
         // Calculate what the defence should look like.
         if (playerRace.isEmpty()) {
             playerRace = agentWithData.observation().getGameInfo().getPlayersInfo().stream()
@@ -158,13 +170,10 @@ public class DefenceTask extends DefaultTaskWithUnits implements MissionTask {
         List<Army> armyList = agentWithData.enemyAwareness().getMaybeEnemyArmies(region.centrePoint(), 20f);
         virtualEnemyArmy = Army.toVirtualArmy(armyList);
 
-
-        long gameLoop = agentWithData.observation().getGameLoop();
-
         // Manage the priority of the threat.
         if (virtualEnemyArmy.threat() < 0.1) {
             // Decay of defence priority.
-            priority = priority * 0.75;
+            priority = priority * Math.pow(PRIORITY_DECAY, elapsedLoops / 2.0);
             if (priority < 0.1) {
                 priority = 0.0;
             }
@@ -298,6 +307,11 @@ public class DefenceTask extends DefaultTaskWithUnits implements MissionTask {
         return "Defence." + region.regionId();
     }
 
+    @Override
+    public long getUpdateInterval() {
+        return UPDATE_INTERVAL;
+    }
+
     @Override
     public boolean isSimilarTo(Task otherTask) {
         if (otherTask == this) {
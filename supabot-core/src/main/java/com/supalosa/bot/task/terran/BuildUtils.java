@@ -1,7 +1,6 @@
 package com.supalosa.bot.task.terran;
 
 import SC2APIProtocol.Raw;
-import com.github.ocraft.s2client.bot.S2Agent;
 import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
 import com.github.ocraft.s2client.protocol.data.Abilities;
@@ -81,7 +80,8 @@ public class BuildUtils {
         return units.stream().map(unit -> unit.getPosition().toPoint2d()).collect(Collectors.toSet());
     }
 
-    public static void reassignGasWorkers(S2Agent agent, int minMineralWorkersPerCc, int maxGasWorkers) {
+    public static void reassignGasWorkers(AgentWithData agent, int minMineralWorkersPerCc, int maxGasWorkers) {
+        GameData gameData = agent.gameData();
         List<Unit> commandCentres = agent.observation().getUnits(unitInPool ->
                         unitInPool.unit().getAlliance() == Alliance.SELF &&
                                 (Constants.ALL_TOWN_HALL_TYPES.contains(unitInPool.unit().getType()))).stream()
@@ -117,11 +117,9 @@ public class BuildUtils {
                     }
                 }
                 if (delta > 0) {
-                    List<Unit> nearbyScvs = agent.observation().getUnits(unitInPool ->
-                                    unitInPool.unit().getAlliance().equals(Alliance.SELF) &&
-                                            unitInPool.unit().getType() == Units.TERRAN_SCV &&
-                                            UnitInPool.isCarryingMinerals().test(unitInPool) &&
-                                            unitInPool.unit().getPosition().distance(refinery.getPosition()) < 8.0f)
+                    List<Unit> nearbyScvs = gameData.getMyWorkerMap().getInRadius(refinery.getPosition().toPoint2d(), 8.0,
+                                    unitInPool -> unitInPool.unit().getType() == Units.TERRAN_SCV &&
+                                            UnitInPool.isCarryingMinerals().test(unitInPool))
                             .stream().map(UnitInPool::unit).collect(Collectors.toList());
                     for (int i = 0; i < Math.min(nearbyScvs.size(), delta); ++i) {
                         if (requiredGasWorkers.get() <= 0) {
@@ -132,14 +130,12 @@ public class BuildUtils {
                     }
                     ccsDoneThisRun.add(nearCc.get());
                 } else if (nearCc.isPresent() && delta < 0) {
-                    List<Unit> nearbyScvs = agent.observation().getUnits(unitInPool ->
-                                    unitInPool.unit().getOrders().stream().anyMatch(order -> order.getTargetedUnitTag().equals(Optional.of(refinery.getTag()))) &&
-                                            unitInPool.unit().getAlliance().equals(Alliance.SELF) &&
-                                            unitInPool.unit().getType() == Units.TERRAN_SCV &&
-                                            unitInPool.unit().getPosition().distance(refinery.getPosition()) < 8.0f)
+                    List<Unit> nearbyScvs = gameData.getMyWorkerMap().getInRadius(refinery.getPosition().toPoint2d(), 8.0,
+                                    unitInPool -> unitInPool.unit().getType() == Units.TERRAN_SCV &&
+                                            unitInPool.unit().getOrders().stream().anyMatch(order -> order.getTargetedUnitTag().equals(Optional.of(refinery.getTag()))))
                             .stream().map(UnitInPool::unit).collect(Collectors.toList());
 
-                    Optional<Unit> nearMinerals = Utils.findNearestMineralPatch(agent.observation(), nearCc.get().getPosition().toPoint2d());
+                    Optional<Unit> nearMinerals = Utils.findNearestMineralPatch(gameData, nearCc.get().getPosition().toPoint2d());
                     for (int i = 0; i < Math.min(nearbyScvs.size(), Math.abs(delta)); ++i) {
                         agent.actions().unitCommand(nearbyScvs.get(i), Abilities.SMART, nearMinerals.get(), false);
                     }
@@ -199,7 +195,7 @@ public class BuildUtils {
         });
     }
 
-    public static void rebalanceWorkers(S2Agent agent) {
+    public static void rebalanceWorkers(AgentWithData agent) {
         // rebalance workers
         Map<Tag, Integer> ccToWorkerCount = new HashMap<>();
         int totalWorkers = agent.observation().getFoodWorkers();
@@ -226,21 +222,18 @@ public class BuildUtils {
             });
             if (givers.size() > 0 && takers.size() > 0) {
                 Queue<Tag> donatedWorkers = new LinkedList<>();
-                agent.observation().getUnits(Alliance.SELF, UnitInPool.isUnit(Units.TERRAN_SCV)).forEach(scvInPool -> {
-                    scvInPool.getUnit().ifPresent(scv -> {
-                        givers.forEach(giver -> {
-                            if (scv.getPosition().distance(giver.getPosition()) < 10) {
-                                if (donatedWorkers.size() < averageWorkers) {
-                                    donatedWorkers.add(scv.getTag());
-                                }
-                            }
-                        });
+                givers.forEach(giver -> {
+                    agent.gameData().getMyWorkerMap().getInRadius(giver.getPosition().toPoint2d(), 10.0,
+                            UnitInPool.isUnit(Units.TERRAN_SCV)).forEach(scvInPool -> {
+                        if (donatedWorkers.size() < averageWorkers) {
+                            donatedWorkers.add(scvInPool.getTag());
+                        }
                     });
                 });
                 takers.entrySet().forEach(taker -> {
                     Unit takerCc = taker.getKey();
                     int takerAmount = taker.getValue();
-                    Optional<Unit> nearestMineralPatch = Utils.findNearestMineralPatch(agent.observation(), takerCc.getPosition().toPoint2d());
+                    Optional<Unit> nearestMineralPatch = Utils.findNearestMineralPatch(agent.gameData(), takerCc.getPosition().toPoint2d());
                     if (donatedWorkers.size() > 0) {
                         while (!donatedWorkers.isEmpty() && takerAmount > 0) {
                             --takerAmount;
@@ -3,6 +3,7 @@ package com.supalosa.bot.task.terran;
 import com.github.ocraft.s2client.bot.S2Agent;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
 import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.data.UnitType;
 import com.github.ocraft.s2client.protocol.data.Units;
 import com.github.ocraft.s2client.protocol.debug.Color;
 import com.github.ocraft.s2client.protocol.observation.raw.Visibility;
@@ -50,15 +51,16 @@ public class OrbitalCommandManagerTask extends DefaultTaskWithUnits {
         Optional<Point2d> scannedPoint();
     }
 
+    // Scans and mules don't need to react faster than this.
+    private static final long UPDATE_INTERVAL = 11L;
+
     private List<UnitInPool> enemySiegeTanks = new ArrayList<>();
     private Map<Point, List<UnitInPool>> siegeTankClusters = new HashMap<>();
     private long lastSiegeTankSeenAt = 0L;
 
-    private long siegeTankClustersCalculatedAt = 0L;
-
     private final Map<ScanRequestTaskMessage, TaskPromise> scanRequests = new HashMap<>();
+    // Points that have been scanned (or muled), so they are not used again while the scan lasts.
     private final Map<Point2d, Long> scannedClusters = new HashMap<>();
-    private long scanRequestsUpdatedAt = 0L;
     private Map<Point2d, List<Point2d>> scanRequestClusters = new HashMap<>();
 
     public OrbitalCommandManagerTask(int priority) {
@@ -80,13 +82,15 @@ public class OrbitalCommandManagerTask extends DefaultTaskWithUnits {
         if (enemySiegeTanks.size() > 0) {
             lastSiegeTankSeenAt = gameLoop;
         }
-
-        if (gameLoop > siegeTankClustersCalculatedAt + 33L) {
-            siegeTankClustersCalculatedAt = gameLoop;
-            siegeTankClusters = Expansions.cluster(enemySiegeTanks, 3.0);
-            if (siegeTankClusters.size() <= 1) {
-                return;
+        new HashMap<>(scannedClusters).forEach((scannedCluster, time) -> {
+            // Scan lasts for 12.3 seconds.
+            if (gameLoop > time + 22L * 12) {
+                scannedClusters.remove(scannedCluster);
             }
+        });
+
+        siegeTankClusters = Expansions.cluster(enemySiegeTanks, 3.0);
+        if (siegeTankClusters.size() > 1) {
             // Sort cluster size descending.
             List<Point> clustersBySizeDescending = siegeTankClusters.entrySet().stream()
                     .sorted(Comparator.comparingInt((Map.Entry<Point, List<UnitInPool>> entry) -> entry.getValue().size()).reversed())
@@ -107,7 +111,7 @@ public class OrbitalCommandManagerTask extends DefaultTaskWithUnits {
                     break;
                 }
             }
-            if (targetFound != null) {
+            if (targetFound != null && !isNearScannedCluster(targetFound.toPoint2d())) {
                 Point2d target2d = targetFound.toPoint2d();
                 Optional<UnitInPool> ccWithEnergy = getAssignedUnits().stream()
                         .map(tag -> agentWithData.observation().getUnit(tag))
@@ -119,30 +123,28 @@ public class OrbitalCommandManagerTask extends DefaultTaskWithUnits {
                     } else {
                         agentWithData.actions().unitCommand(cc.unit(), Abilities.EFFECT_CALL_DOWN_MULE, target2d, false);
                     }
+                    scannedClusters.put(target2d, gameLoop);
                 });
             }
         }
 
-        if (gameLoop > scanRequestsUpdatedAt + 11L) {
-            scanRequestsUpdatedAt = gameLoop;
-            if (scanRequests.size() > 0) {
-                List<Point2d> requestedPoints = scanRequests.keySet().stream()
-                        .filter(request -> request.requiredBefore() > gameLoop)
-                        .map(request -> request.point2d())
-                        .collect(Collectors.toList());
-                scanRequestClusters = Utils.clusterPoints(requestedPoints, 10f);
-                Set<ScanRequestTaskMessage> toRemove = new HashSet<>();
-                scanRequests.forEach((request, promise) -> {
-                    if (gameLoop > request.requiredBefore()) {
-                        promise.complete(ImmutableScanRequestTaskMessageResponse.builder()
-                                .respondingTask(this)
-                                .isSuccess(false)
-                                .build());
-                        toRemove.add(request);
-                    }
-                });
-                toRemove.forEach(key -> scanRequests.remove(key));
-            }
+        if (scanRequests.size() > 0) {
+            List<Point2d> requestedPoints = scanRequests.keySet().stream()
+                    .filter(request -> request.requiredBefore() > gameLoop)
+                    .map(request -> request.point2d())
+                    .collect(Collectors.toList());
+            scanRequestClusters = Utils.clusterPoints(requestedPoints, 10f);
+            Set<ScanRequestTaskMessage> toRemove = new HashSet<>();
+            scanRequests.forEach((request, promise) -> {
+                if (gameLoop > request.requiredBefore()) {
+                    taskManager.completePromise(promise, ImmutableScanRequestTaskMessageResponse.builder()
+                            .respondingTask(this)
+                            .isSuccess(false)
+                            .build());
+                    toRemove.add(request);
+                }
+            });
+            toRemove.forEach(key -> scanRequests.remove(key));
         }
 
         if (siegeTankClusters.size() == 0) {
@@ -150,33 +152,23 @@ public class OrbitalCommandManagerTask extends DefaultTaskWithUnits {
             float reserveCcEnergy = (scanRequests.size() > 0 || agentWithData.fightManager().hasSeenCloakedOrBurrowedUnits() ? 100f : 50f);
             Set<Point2d> scanClusters = new HashSet<>(agentWithData.fightManager().getCloakedOrBurrowedUnitClusters());
             scanClusters.addAll(scanRequestClusters.keySet());
-            new HashMap<>(scannedClusters).forEach((scannedCluster, time) -> {
-                // Scan lasts for 12.3 seconds.
-                if (gameLoop > time + 22L * 12) {
-                    scannedClusters.remove(scannedCluster);
-                }
-            });
             agentWithData.observation().getUnits(unitInPool -> unitInPool.unit().getAlliance() == Alliance.SELF &&
                     UnitInPool.isUnit(Units.TERRAN_ORBITAL_COMMAND).test(unitInPool)).forEach(unit -> {
                 if (unit.unit().getEnergy().isPresent() && unit.unit().getEnergy().get() > reserveCcEnergy) {
-                    Optional<Unit> nearestMineral = Utils.findNearestMineralPatch(agentWithData.observation(), unit.unit().getPosition().toPoint2d());
+                    Optional<Unit> nearestMineral = Utils.findNearestMineralPatch(agentWithData.gameData(), unit.unit().getPosition().toPoint2d());
                     nearestMineral.ifPresent(mineral -> {
                         agentWithData.actions().unitCommand(unit.unit(), Abilities.EFFECT_CALL_DOWN_MULE, mineral, false);
                     });
                 }
                 if (scanClusters.size() > 0 && unit.unit().getEnergy().isPresent() && unit.unit().getEnergy().get() > 50f) {
                     Set<ScanRequestTaskMessage> scanRequestsToRemove = new HashSet<>();
-                    scanClusters.stream().filter(scanPoint ->
-                            // Return scan points that are not near an already scanned point.
-                            !scannedClusters.keySet().stream()
-                                    .anyMatch(alreadyScannedPoint -> alreadyScannedPoint.distance(scanPoint) < 8f)
-                    ).findFirst().ifPresent(scanPoint -> {
+                    scanClusters.stream().filter(scanPoint -> !isNearScannedCluster(scanPoint)).findFirst().ifPresent(scanPoint -> {
                         agentWithData.actions().unitCommand(unit.unit(), Abilities.EFFECT_SCAN, scanPoint, false);
                         scannedClusters.put(scanPoint, gameLoop);
                         scanClusters.remove(scanPoint);
                         scanRequests.forEach((request, promise) -> {
                             if (scanPoint.distance(request.point2d()) < 12.0f) {
-                                promise.complete(ImmutableScanRequestTaskMessageResponse.builder()
+                                taskManager.completePromise(promise, ImmutableScanRequestTaskMessageResponse.builder()
                                         .scannedPoint(scanPoint)
                                         .respondingTask(this)
                                         .isSuccess(true)
@@ -191,6 +183,19 @@ public class OrbitalCommandManagerTask extends DefaultTaskWithUnits {
         }
     }
 
+    /**
+     * Returns true if the point is near a point that has already been scanned.
+     */
+    private boolean isNearScannedCluster(Point2d point) {
+        return scannedClusters.keySet().stream()
+                .anyMatch(alreadyScannedPoint -> alreadyScannedPoint.distance(point) < 8f);
+    }
+
+    @Override
+    public long getUpdateInterval() {
+        return UPDATE_INTERVAL;
+    }
+
     @Override
     public Optional<TaskResult> getResult() {
         return Optional.empty();
@@ -236,11 +241,21 @@ public class OrbitalCommandManagerTask extends DefaultTaskWithUnits {
         return unit.getType() == Units.TERRAN_ORBITAL_COMMAND;
     }
 
+    @Override
+    public Set<UnitType> getWantedUnitTypes() {
+        return Set.of(Units.TERRAN_ORBITAL_COMMAND);
+    }
+
     @Override
     public List<UnitTypeRequest> getRequestedUnits() {
         return new ArrayList<>();
     }
 
+    @Override
+    public Set<Class<? extends TaskMessage>> getSubscribedMessageTypes() {
+        return Set.of(ScanRequestTaskMessage.class);
+    }
+
     @Override
     public Optional<TaskPromise> onTaskMessage(Task taskOrigin, TaskMessage message) {
         if (message instanceof ScanRequestTaskMessage) {
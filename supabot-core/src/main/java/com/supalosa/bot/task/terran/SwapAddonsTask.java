@@ -171,6 +171,11 @@ public class SwapAddonsTask extends BaseTask {
         return "Swapping " + structure1.map(unit -> unit.unit().getType()) + " and " + structure2.map(unit -> unit.unit().getType());
     }
 
+    @Override
+    public Set<Class<? extends TaskMessage>> getSubscribedMessageTypes() {
+        return Set.of(TerranWorkerRushDefenceTask.WorkerRushDetected.class);
+    }
+
     @Override
     public Optional<TaskPromise> onTaskMessage(Task taskOrigin, TaskMessage message) {
         // Abort repair task if worker rush detected.
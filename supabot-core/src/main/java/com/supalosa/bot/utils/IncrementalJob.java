@@ -0,0 +1,40 @@
+package com.supalosa.bot.utils;
+
+/**
+ * A piece of work that can be done in small chunks, so it can be spread over several steps.
+ *
+ * @param <R> The type of the result.
+ */
+public interface IncrementalJob<R> {
+
+    /**
+     * Does the next chunk of work. A chunk should be small (well under a millisecond) so the caller can stop
+     * close to its deadline.
+     *
+     * @return True if the job is finished and the result is ready.
+     */
+    boolean step();
+
+    /**
+     * Returns the result of the job. Only called after {@code step()} has returned true. May return null if the job
+     * had nothing to work with, in which case the previous result is kept.
+     */
+    R getResult();
+
+    /**
+     * Returns a job that finishes immediately without a result, for when there is nothing to work on.
+     */
+    static <R> IncrementalJob<R> empty() {
+        return new IncrementalJob<>() {
+            @Override
+            public boolean step() {
+                return true;
+            }
+
+            @Override
+            public R getResult() {
+                return null;
+            }
+        };
+    }
+}
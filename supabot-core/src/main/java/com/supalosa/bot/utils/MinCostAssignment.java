@@ -0,0 +1,91 @@
+package com.supalosa.bot.utils;
+
+import java.util.Arrays;
+
+/**
+ * Solves the assignment problem (minimum-cost bipartite matching) with the Hungarian algorithm.
+ */
+public final class MinCostAssignment {
+
+    /**
+     * Cost of a pair that must not be matched.
+     */
+    public static final double INFEASIBLE = 1e9;
+
+    private MinCostAssignment() {
+    }
+
+    /**
+     * Assigns each row to a distinct column so that the total cost is minimised.
+     *
+     * @param cost Cost of assigning row i to column j. Must have no more rows than columns.
+     * @return The column assigned to each row, or -1 if the row could only be assigned at {@code INFEASIBLE} cost.
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        if (rows == 0) {
+            return new int[0];
+        }
+        int columns = cost[0].length;
+        if (rows > columns) {
+            throw new IllegalArgumentException("Cannot assign " + rows + " rows to " + columns + " columns");
+        }
+        // Potentials and matching are 1-indexed, with column 0 as a sentinel.
+        double[] rowPotential = new double[rows + 1];
+        double[] columnPotential = new double[columns + 1];
+        int[] rowForColumn = new int[columns + 1];
+        int[] previousColumn = new int[columns + 1];
+        double[] minSlack = new double[columns + 1];
+        boolean[] used = new boolean[columns + 1];
+        for (int row = 1; row <= rows; ++row) {
+            rowForColumn[0] = row;
+            int column = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[column] = true;
+                int currentRow = rowForColumn[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int nextColumn = 0;
+                for (int j = 1; j <= columns; ++j) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    double slack = cost[currentRow - 1][j - 1] - rowPotential[currentRow] - columnPotential[j];
+                    if (slack < minSlack[j]) {
+                        minSlack[j] = slack;
+                        previousColumn[j] = column;
+                    }
+                    if (minSlack[j] < delta) {
+                        delta = minSlack[j];
+                        nextColumn = j;
+                    }
+                }
+                for (int j = 0; j <= columns; ++j) {
+                    if (used[j]) {
+                        rowPotential[rowForColumn[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (rowForColumn[column] != 0);
+            // Follow the augmenting path back to the sentinel.
+            do {
+                int previous = previousColumn[column];
+                rowForColumn[column] = rowForColumn[previous];
+                column = previous;
+            } while (column != 0);
+        }
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+        for (int j = 1; j <= columns; ++j) {
+            int row = rowForColumn[j];
+            if (row != 0 && cost[row - 1][j - 1] < INFEASIBLE) {
+                result[row - 1] = j - 1;
+            }
+        }
+        return result;
+    }
+}
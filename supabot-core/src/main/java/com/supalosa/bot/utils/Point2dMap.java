@@ -41,6 +41,24 @@ public class Point2dMap<T>  {
         index.insert(item, new double[]{point.getX(), point.getY()});
     }
 
+    /**
+     * Removes an item that was inserted at the given point.
+     *
+     * @return True if the item was found and removed.
+     */
+    public boolean remove(T item, Point2d point2d) {
+        return index.remove(item, new double[]{point2d.getX(), point2d.getY()});
+    }
+
+    /**
+     * Moves an item from the point it was inserted at to a new point.
+     *
+     * @return True if the item was found and moved.
+     */
+    public boolean move(T item, Point2d from, Point2d to) {
+        return index.move(item, new double[]{from.getX(), from.getY()}, new double[]{to.getX(), to.getY()});
+    }
+
     private Stream<ItemWithDistance> internalGetStreamInRadius(Point2d point, double radius) {
         Collection<T> initialResults = index.query(new double[]{point.getX() - radius,
                         point.getY() - radius},
@@ -0,0 +1,149 @@
+package com.supalosa.bot.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Work that is computed between steps, while the game server is simulating, and picked up on the next step.
+ *
+ * Subsystems schedule work during the step. Once the step's actions have been sent the work is launched on a
+ * background thread, and at the start of the next step it is joined and the results are handed back on the main
+ * thread. The work must only use data captured when it was scheduled, as the observation is updated while it runs.
+ *
+ * When pipelining is disabled, the same work is run on the main thread when it would have been launched, so the
+ * results become visible on the same step either way.
+ */
+public class StepPipeline {
+
+    private static class ScheduledWork<R> {
+        private final String name;
+        private final Supplier<R> work;
+        private final Consumer<R> onComplete;
+        private Optional<Future<R>> future = Optional.empty();
+
+        private ScheduledWork(String name, Supplier<R> work, Consumer<R> onComplete) {
+            this.name = name;
+            this.work = work;
+            this.onComplete = onComplete;
+        }
+
+        private void launch(Optional<ExecutorService> executor) {
+            if (executor.isPresent()) {
+                future = Optional.of(executor.get().submit(work::get));
+            } else {
+                // Run it here, but keep any failure in the future so it is reported on join like background work.
+                FutureTask<R> task = new FutureTask<>(work::get);
+                task.run();
+                future = Optional.of(task);
+            }
+        }
+
+        private void join() throws ExecutionException, InterruptedException {
+            if (future.isPresent()) {
+                Optional.ofNullable(future.get().get()).ifPresent(onComplete);
+            }
+        }
+    }
+
+    private Optional<ExecutorService> executor = Optional.empty();
+    private List<ScheduledWork<?>> scheduled = new ArrayList<>();
+    private List<ScheduledWork<?>> launched = new ArrayList<>();
+
+    // Statistics for the debug overlay.
+    private long lastJoinWaitNanos = 0L;
+    private long lastLaunchNanos = 0L;
+    private int lastWorkCount = 0;
+
+    /**
+     * Schedules work to be launched once this step's actions have been sent.
+     *
+     * @param name Name of the work, for error messages.
+     * @param work The computation. Runs on a background thread if pipelining is enabled.
+     * @param onComplete Receives the result on the main thread at the start of the next step.
+     */
+    public <R> void schedule(String name, Supplier<R> work, Consumer<R> onComplete) {
+        scheduled.add(new ScheduledWork<>(name, work, onComplete));
+    }
+
+    /**
+     * Launches everything that was scheduled on this step. Called after the actions have been sent.
+     */
+    public void launch() {
+        long start = System.nanoTime();
+        lastWorkCount = scheduled.size();
+        for (ScheduledWork<?> work : scheduled) {
+            work.launch(executor);
+        }
+        launched.addAll(scheduled);
+        scheduled = new ArrayList<>();
+        lastLaunchNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Waits for the work launched on the previous step, and hands the results back. Called at the start of a step.
+     */
+    public void join() {
+        long start = System.nanoTime();
+        List<ScheduledWork<?>> toJoin = launched;
+        launched = new ArrayList<>();
+        for (ScheduledWork<?> work : toJoin) {
+            try {
+                work.join();
+            } catch (ExecutionException e) {
+                System.out.println("Pipelined work " + work.name + " failed:");
+                e.getCause().printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        lastJoinWaitNanos = System.nanoTime() - start;
+    }
+
+    public void setEnabled(boolean enabled) {
+        if (enabled && executor.isEmpty()) {
+            executor = Optional.of(Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("pipeline-worker-%d").setDaemon(true).build()));
+        } else if (!enabled && executor.isPresent()) {
+            // Anything already launched keeps running, and is still joined on the next step.
+            executor.get().shutdown();
+            executor = Optional.empty();
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor.isPresent();
+    }
+
+    public void shutdown() {
+        executor.ifPresent(ExecutorService::shutdown);
+    }
+
+    /**
+     * Returns how long the last join waited for background work (plus the time to hand back the results).
+     */
+    public long getLastJoinWaitNanos() {
+        return lastJoinWaitNanos;
+    }
+
+    /**
+     * Returns how long the last launch took. When pipelining is disabled, this is the time spent doing the work.
+     */
+    public long getLastLaunchNanos() {
+        return lastLaunchNanos;
+    }
+
+    public int getLastWorkCount() {
+        return lastWorkCount;
+    }
+}
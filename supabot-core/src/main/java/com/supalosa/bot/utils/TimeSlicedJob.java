@@ -0,0 +1,144 @@
+package com.supalosa.bot.utils;
+
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs a periodic {@link IncrementalJob} a slice at a time. Once the interval has passed since the last run started,
+ * a new job is created and stepped each game loop until the per-step budget is used up, then resumed on the next
+ * step. The result only becomes visible once the whole job has finished, so readers never see a half-built result.
+ * Only used from the main thread.
+ *
+ * @param <R> The type of the result.
+ */
+public class TimeSlicedJob<R> {
+
+    private final String name;
+    private long intervalLoops;
+    private final long budgetNanos;
+    private final LongSupplier nanoTime;
+
+    private Optional<IncrementalJob<R>> currentJob = Optional.empty();
+    private Optional<R> result = Optional.empty();
+    private long startedAt = Long.MIN_VALUE;
+    private long completedAt = Long.MIN_VALUE;
+    private boolean restartRequested = false;
+
+    // Statistics for the debug overlay.
+    private int slicesForLastRun = 0;
+    private int slicesForCurrentRun = 0;
+
+    /**
+     * @param name Name of the job, for debugging.
+     * @param intervalLoops Minimum number of game loops between the start of each run.
+     * @param budgetNanos Time the job may use per step. At least one chunk is done every step regardless, so the
+     *                    job always makes progress.
+     */
+    public TimeSlicedJob(String name, long intervalLoops, long budgetNanos) {
+        this(name, intervalLoops, budgetNanos, System::nanoTime);
+    }
+
+    TimeSlicedJob(String name, long intervalLoops, long budgetNanos, LongSupplier nanoTime) {
+        this.name = name;
+        this.intervalLoops = intervalLoops;
+        this.budgetNanos = budgetNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Starts a new run if one is due, then works on the current run until the budget is used.
+     *
+     * @param jobFactory Creates the job if a new run is started. The job may hold on to anything it needs from
+     *                   the current step, such as the observation.
+     * @return True if a run finished on this step.
+     */
+    public boolean onStep(long gameLoop, Supplier<IncrementalJob<R>> jobFactory) {
+        if (restartRequested || (currentJob.isEmpty() && gameLoop >= startedAt + intervalLoops)) {
+            restartRequested = false;
+            start(gameLoop, jobFactory);
+        }
+        if (currentJob.isEmpty()) {
+            return false;
+        }
+        long deadline = nanoTime.getAsLong() + budgetNanos;
+        IncrementalJob<R> job = currentJob.get();
+        ++slicesForCurrentRun;
+        do {
+            if (job.step()) {
+                finish(job, gameLoop);
+                return true;
+            }
+        } while (nanoTime.getAsLong() < deadline);
+        return false;
+    }
+
+    /**
+     * Abandons the current run (if any) and does a fresh run to completion immediately, ignoring the budget.
+     * For when the result must reflect a change straight away.
+     */
+    public void runToCompletion(long gameLoop, Supplier<IncrementalJob<R>> jobFactory) {
+        restartRequested = false;
+        start(gameLoop, jobFactory);
+        IncrementalJob<R> job = currentJob.get();
+        ++slicesForCurrentRun;
+        while (!job.step()) {
+            // Keep going.
+        }
+        finish(job, gameLoop);
+    }
+
+    /**
+     * Changes the minimum number of game loops between the start of each run. Takes effect from the next run.
+     */
+    public void setIntervalLoops(long intervalLoops) {
+        this.intervalLoops = intervalLoops;
+    }
+
+    /**
+     * Abandons the current run (if any) and starts a new one on the next step.
+     */
+    public void restart() {
+        restartRequested = true;
+    }
+
+    private void start(long gameLoop, Supplier<IncrementalJob<R>> jobFactory) {
+        startedAt = gameLoop;
+        slicesForCurrentRun = 0;
+        currentJob = Optional.of(jobFactory.get());
+    }
+
+    private void finish(IncrementalJob<R> job, long gameLoop) {
+        // A job that had nothing to work with (e.g. no observation yet) leaves the previous result in place.
+        R jobResult = job.getResult();
+        if (jobResult != null) {
+            result = Optional.of(jobResult);
+        }
+        completedAt = gameLoop;
+        slicesForLastRun = slicesForCurrentRun;
+        currentJob = Optional.empty();
+    }
+
+    public Optional<R> getResult() {
+        return result;
+    }
+
+    public boolean isRunning() {
+        return currentJob.isPresent();
+    }
+
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of steps the last completed run was spread over.
+     */
+    public int getSlicesForLastRun() {
+        return slicesForLastRun;
+    }
+}
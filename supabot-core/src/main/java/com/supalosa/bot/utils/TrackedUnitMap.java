@@ -0,0 +1,132 @@
+package com.supalosa.bot.utils;
+
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A spatial index of units that is maintained incrementally rather than rebuilt every step.
+ * Units are added and removed as they are created and destroyed, and their indexed position is
+ * only moved when the unit has moved more than {@code MOVE_EPSILON} from where it was indexed.
+ */
+public class TrackedUnitMap {
+
+    // Units that moved less than this distance are not moved in the index.
+    private static final float MOVE_EPSILON = 0.5f;
+    // The initial radius of an unbounded nearest-neighbour search. The radius is doubled until a result is found.
+    private static final double INITIAL_SEARCH_RADIUS = 8.0;
+    // Larger than the diagonal of the largest possible map.
+    private static final double MAX_SEARCH_RADIUS = 400.0;
+
+    private final Map<Tag, UnitInPool> units = new HashMap<>();
+    private final Map<Tag, Point2d> indexedPositions = new HashMap<>();
+    private final Point2dMap<UnitInPool> index;
+
+    public TrackedUnitMap() {
+        this.index = new Point2dMap<>(unitInPool -> indexedPositions.get(unitInPool.getTag()));
+    }
+
+    /**
+     * Adds a unit to the index. Does nothing if the unit is already tracked.
+     */
+    public void add(UnitInPool unitInPool) {
+        Tag tag = unitInPool.getTag();
+        if (units.containsKey(tag)) {
+            return;
+        }
+        Point2d position = unitInPool.unit().getPosition().toPoint2d();
+        units.put(tag, unitInPool);
+        indexedPositions.put(tag, position);
+        index.insert(unitInPool, position);
+    }
+
+    /**
+     * Removes a unit from the index.
+     *
+     * @return True if the unit was tracked.
+     */
+    public boolean remove(Tag tag) {
+        UnitInPool unitInPool = units.remove(tag);
+        if (unitInPool == null) {
+            return false;
+        }
+        Point2d position = indexedPositions.get(tag);
+        index.remove(unitInPool, position);
+        indexedPositions.remove(tag);
+        return true;
+    }
+
+    public boolean contains(Tag tag) {
+        return units.containsKey(tag);
+    }
+
+    public int size() {
+        return units.size();
+    }
+
+    public Collection<UnitInPool> getAll() {
+        return Collections.unmodifiableCollection(units.values());
+    }
+
+    /**
+     * Moves units that have drifted from their indexed position, and drops units that are no longer alive.
+     * Stationary units cost a single distance check.
+     */
+    public void refresh() {
+        List<Tag> deadUnits = new ArrayList<>();
+        units.forEach((tag, unitInPool) -> {
+            if (!unitInPool.isAlive()) {
+                deadUnits.add(tag);
+                return;
+            }
+            Point2d indexedPosition = indexedPositions.get(tag);
+            Point2d currentPosition = unitInPool.unit().getPosition().toPoint2d();
+            if (indexedPosition.distance(currentPosition) > MOVE_EPSILON) {
+                index.move(unitInPool, indexedPosition, currentPosition);
+                indexedPositions.put(tag, currentPosition);
+            }
+        });
+        deadUnits.forEach(this::remove);
+    }
+
+    public Collection<UnitInPool> getInRadius(Point2d point, double radius) {
+        return index.getInRadius(point, radius);
+    }
+
+    public Collection<UnitInPool> getInRadius(Point2d point, double radius, Predicate<UnitInPool> filter) {
+        return index.getInRadius(point, radius, filter);
+    }
+
+    public Optional<UnitInPool> getNearestInRadius(Point2d point, double radius, Predicate<UnitInPool> filter) {
+        return index.getNearestInRadius(point, radius, filter);
+    }
+
+    /**
+     * Returns the nearest unit matching the filter, regardless of distance.
+     */
+    public Optional<UnitInPool> getNearest(Point2d point, Predicate<UnitInPool> filter) {
+        return getNearestWithin(point, MAX_SEARCH_RADIUS, filter);
+    }
+
+    /**
+     * Returns the nearest unit matching the filter within the radius. Rather than querying the full radius at once,
+     * the search starts small and grows, so the common case of a nearby match only touches a small part of the index.
+     */
+    public Optional<UnitInPool> getNearestWithin(Point2d point, double maxRadius, Predicate<UnitInPool> filter) {
+        if (units.isEmpty()) {
+            return Optional.empty();
+        }
+        maxRadius = Math.min(maxRadius, MAX_SEARCH_RADIUS);
+        double radius = Math.min(INITIAL_SEARCH_RADIUS, maxRadius);
+        while (true) {
+            Optional<UnitInPool> result = index.getNearestInRadius(point, radius, filter);
+            if (result.isPresent() || radius >= maxRadius) {
+                return result;
+            }
+            radius = Math.min(radius * 2, maxRadius);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.supalosa.bot.utils;
+
+import com.github.ocraft.s2client.protocol.unit.Tag;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Maps the tags of live units to small, dense integer handles. Handles of destroyed units are recycled, so the
+ * largest handle stays close to the number of units alive at once. Per-unit state can then be stored in arrays
+ * indexed by handle rather than in {@code Map<Tag, ...>}.
+ *
+ * Note that a handle can be reused by a different unit after {@link #release(Tag)}, so anything caching state by
+ * handle should check {@link #getTagValue(int)} if it may outlive the unit.
+ */
+public class UnitHandleRegistry {
+
+    public static final int NO_HANDLE = -1;
+
+    private static final long EMPTY_KEY = 0L;
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Open-addressing map of tag value -> handle. Tags are never 0, so 0 marks an empty slot.
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    // Handle -> tag value (or EMPTY_KEY if the handle is free).
+    private long[] handleToTag;
+    private int nextUnusedHandle = 0;
+    // Stack of released handles.
+    private int[] freeHandles;
+    private int freeHandleCount = 0;
+
+    public UnitHandleRegistry() {
+        this.keys = new long[INITIAL_CAPACITY * 2];
+        this.values = new int[INITIAL_CAPACITY * 2];
+        this.mask = keys.length - 1;
+        this.handleToTag = new long[INITIAL_CAPACITY];
+        this.freeHandles = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the handle for the tag, allocating one if the tag does not have one yet.
+     */
+    public int acquire(Tag tag) {
+        long key = tag.getValue();
+        int slot = findSlot(key);
+        if (keys[slot] == key) {
+            return values[slot];
+        }
+        int handle;
+        if (freeHandleCount > 0) {
+            handle = freeHandles[--freeHandleCount];
+        } else {
+            handle = nextUnusedHandle++;
+            if (handle >= handleToTag.length) {
+                handleToTag = Arrays.copyOf(handleToTag, handleToTag.length * 2);
+            }
+        }
+        handleToTag[handle] = key;
+        keys[slot] = key;
+        values[slot] = handle;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the handle for the tag, or {@code NO_HANDLE} if it does not have one.
+     */
+    public int getHandle(Tag tag) {
+        long key = tag.getValue();
+        int slot = findSlot(key);
+        return keys[slot] == key ? values[slot] : NO_HANDLE;
+    }
+
+    /**
+     * Releases the handle held by the tag, making it available for reuse.
+     */
+    public void release(Tag tag) {
+        long key = tag.getValue();
+        int slot = findSlot(key);
+        if (keys[slot] != key) {
+            return;
+        }
+        int handle = values[slot];
+        handleToTag[handle] = EMPTY_KEY;
+        if (freeHandleCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeHandles.length * 2);
+        }
+        freeHandles[freeHandleCount++] = handle;
+        removeSlot(slot);
+        --size;
+    }
+
+    /**
+     * Returns the raw value of the tag holding the handle, or 0 if the handle is free.
+     */
+    public long getTagValue(int handle) {
+        if (handle < 0 || handle >= nextUnusedHandle) {
+            return EMPTY_KEY;
+        }
+        return handleToTag[handle];
+    }
+
+    public Optional<Tag> getTag(int handle) {
+        long tagValue = getTagValue(handle);
+        return tagValue == EMPTY_KEY ? Optional.empty() : Optional.of(Tag.of(tagValue));
+    }
+
+    /**
+     * The number of tags that currently hold a handle.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * All handles are strictly less than this value, so arrays of this size can be indexed by any handle.
+     */
+    public int handleLimit() {
+        return nextUnusedHandle;
+    }
+
+    private int findSlot(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the entry at the slot, shifting back any entries in the same probe sequence (no tombstones).
+     */
+    private void removeSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY_KEY) {
+            int ideal = mix(keys[next]) & mask;
+            // Move the entry into the gap if the gap lies between its ideal slot and its current slot.
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY_KEY;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[newCapacity];
+        values = new int[newCapacity];
+        mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
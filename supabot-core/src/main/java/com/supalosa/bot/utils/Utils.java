@@ -1,31 +1,16 @@
 package com.supalosa.bot.utils;
 
-import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
 import com.github.ocraft.s2client.protocol.spatial.Point2d;
-import com.github.ocraft.s2client.protocol.unit.Alliance;
 import com.github.ocraft.s2client.protocol.unit.Unit;
-import com.supalosa.bot.Constants;
+import com.supalosa.bot.GameData;
 
 import java.util.*;
 
 public class Utils {
 
-    public static Optional<Unit> findNearestMineralPatch(ObservationInterface observationInterface, Point2d start) {
-        List<UnitInPool> units = observationInterface.getUnits(Alliance.NEUTRAL);
-        double distance = Double.MAX_VALUE;
-        Unit target = null;
-        for (UnitInPool unitInPool : units) {
-            Unit unit = unitInPool.unit();
-            if (Constants.MINERAL_TYPES.contains(unit.getType())) {
-                double d = unit.getPosition().toPoint2d().distance(start);
-                if (d < distance) {
-                    distance = d;
-                    target = unit;
-                }
-            }
-        }
-        return Optional.ofNullable(target);
+    public static Optional<Unit> findNearestMineralPatch(GameData gameData, Point2d start) {
+        return gameData.getMineralFieldMap().getNearest(start, unitInPool -> true).map(UnitInPool::unit);
     }
 
     public static Map<Point2d, List<Point2d>> clusterPoints(List<Point2d> points, double distanceApart) {
@@ -0,0 +1,78 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnemyUnitHistoryTest {
+
+    private static final Tag TAG = Tag.of(100L);
+
+    @Test
+    void estimatesVelocityAndPredictsPosition() {
+        EnemyUnitHistory history = new EnemyUnitHistory();
+        // Moving 1 unit to the right every 4 loops.
+        for (int i = 0; i < 5; ++i) {
+            history.record(TAG, Point2d.of(10f + i, 10f), 100f, i * EnemyUnitHistory.SAMPLE_INTERVAL);
+        }
+        assertThat(history.getLastKnownPosition(TAG)).hasValue(Point2d.of(14f, 10f));
+        assertThat(history.getVelocity(TAG)).hasValue(Point2d.of(0.25f, 0f));
+        assertThat(history.getPredictedPosition(TAG, 16L + 8L)).hasValue(Point2d.of(16f, 10f));
+    }
+
+    @Test
+    void ignoresSamplesWithinInterval() {
+        EnemyUnitHistory history = new EnemyUnitHistory();
+        history.record(TAG, Point2d.of(10f, 10f), 100f, 0L);
+        history.record(TAG, Point2d.of(50f, 50f), 100f, 1L);
+        assertThat(history.getLastKnownPosition(TAG)).hasValue(Point2d.of(10f, 10f));
+    }
+
+    @Test
+    void ringBufferOverwritesOldestSamples() {
+        EnemyUnitHistory history = new EnemyUnitHistory();
+        int samples = EnemyUnitHistory.SAMPLES_PER_UNIT * 3;
+        for (int i = 0; i < samples; ++i) {
+            history.record(TAG, Point2d.of(i, 0f), 200f - i, i * EnemyUnitHistory.SAMPLE_INTERVAL);
+        }
+        long lastLoop = (samples - 1) * EnemyUnitHistory.SAMPLE_INTERVAL;
+        assertThat(history.getLastSeenGameLoop(TAG)).hasValue(lastLoop);
+        // Only the last SAMPLES_PER_UNIT samples are retained, so a window covering the whole game is truncated.
+        assertThat(history.getHealthChangeSince(List.of(TAG), 0L))
+                .isEqualTo(-(EnemyUnitHistory.SAMPLES_PER_UNIT - 1));
+    }
+
+    @Test
+    void freedSlotStartsFreshHistory() {
+        EnemyUnitHistory history = new EnemyUnitHistory();
+        history.record(TAG, Point2d.of(10f, 10f), 100f, 0L);
+        history.forget(TAG);
+        assertThat(history.getLastKnownPosition(TAG)).isEmpty();
+        assertThat(history.getTrackedUnitCount()).isZero();
+
+        Tag newTag = Tag.of(200L);
+        history.record(newTag, Point2d.of(30f, 30f), 100f, 4L);
+        assertThat(history.getVelocity(newTag)).isEmpty();
+        assertThat(history.getLastKnownPosition(newTag)).hasValue(Point2d.of(30f, 30f));
+    }
+
+    @Test
+    void evictsTheLeastRecentlySeenUnitWhenFull() {
+        EnemyUnitHistory history = new EnemyUnitHistory();
+        for (int i = 0; i < EnemyUnitHistory.MAX_TRACKED_UNITS; ++i) {
+            // Unit 1 is seen last, so it is not the oldest even though it was recorded first.
+            history.record(Tag.of(i + 1L), Point2d.of(i, 0f), 100f, i == 0 ? 10_000L : i);
+        }
+        Tag newTag = Tag.of(EnemyUnitHistory.MAX_TRACKED_UNITS + 1L);
+        history.record(newTag, Point2d.of(5f, 5f), 100f, 10_001L);
+
+        assertThat(history.getTrackedUnitCount()).isEqualTo(EnemyUnitHistory.MAX_TRACKED_UNITS);
+        assertThat(history.getLastKnownPosition(newTag)).hasValue(Point2d.of(5f, 5f));
+        assertThat(history.getLastKnownPosition(Tag.of(1L))).hasValue(Point2d.of(0f, 0f));
+        assertThat(history.getLastKnownPosition(Tag.of(2L))).isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package com.supalosa.bot.awareness;
+
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LastSeenRasterTest {
+
+    @Test
+    void recordsVisibleTilesWithBottomLeftOrigin() {
+        LastSeenRaster raster = new LastSeenRaster();
+        // 3x2 map, rows are stored top row first. Only the top-left tile is visible, the rest are hidden or fogged.
+        byte[] visibility = new byte[] {
+                2, 1, 0,
+                0, 1, 0};
+        raster.update(visibility, 3, 2, 100L);
+
+        assertThat(raster.getLastSeenGameLoop(0, 1)).isEqualTo(100);
+        assertThat(raster.getLastSeenGameLoop(0, 0)).isEqualTo(LastSeenRaster.NEVER_SEEN);
+        assertThat(raster.getLastSeenGameLoop(1, 1)).isEqualTo(LastSeenRaster.NEVER_SEEN);
+        assertThat(raster.hasBeenSeen(Point2d.of(0.5f, 1.5f))).isTrue();
+    }
+
+    @Test
+    void keepsLastSeenTimeWhenTileIsFogged() {
+        LastSeenRaster raster = new LastSeenRaster();
+        raster.update(new byte[] {2, 2, 0, 0}, 2, 2, 10L);
+        raster.update(new byte[] {1, 2, 0, 2}, 2, 2, 20L);
+
+        assertThat(raster.getLastSeenGameLoop(0, 1)).isEqualTo(10);
+        assertThat(raster.getLastSeenGameLoop(1, 1)).isEqualTo(20);
+        assertThat(raster.getLastSeenGameLoop(1, 0)).isEqualTo(20);
+        assertThat(raster.getLastSeenGameLoop(5, 5)).isEqualTo(LastSeenRaster.NEVER_SEEN);
+    }
+}
@@ -0,0 +1,23 @@
+package com.supalosa.bot.instrumentation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ActionContextTest {
+
+    @Test
+    void stripsTheUuidFromTaskKeys() {
+        assertThat(ActionContext.sourceForTaskKey("SCOUT." + UUID.randomUUID())).isEqualTo("SCOUT");
+        assertThat(ActionContext.sourceForTaskKey("TERRAN_BARRACKS." + UUID.randomUUID())).isEqualTo("TERRAN_BARRACKS");
+    }
+
+    @Test
+    void keepsTaskKeysWithoutAUuid() {
+        assertThat(ActionContext.sourceForTaskKey("Army.Main")).isEqualTo("Army.Main");
+        assertThat(ActionContext.sourceForTaskKey("Defence.12")).isEqualTo("Defence.12");
+        assertThat(ActionContext.sourceForTaskKey("OCMgr")).isEqualTo("OCMgr");
+    }
+}
@@ -0,0 +1,56 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ActionStatisticsTest {
+
+    @Test
+    void peakApmOnlyCountsTheLastMinute() {
+        ActionStatistics statistics = new ActionStatistics(mock(ObservationInterface.class));
+        sendActions(statistics, 10);
+        statistics.endStep(0L);
+        sendActions(statistics, 5);
+        statistics.endStep(1000L);
+        // The first step is more than a minute (1344 loops) before this one.
+        sendActions(statistics, 8);
+        statistics.endStep(1400L);
+
+        assertThat(statistics.getPeakActionsPerMinute()).isEqualTo(15);
+        assertThat(statistics.getTotalActions()).isEqualTo(23);
+    }
+
+    @Test
+    void reportAttributesCommandsToTheirSource() throws IOException {
+        ActionStatistics statistics = new ActionStatistics(mock(ObservationInterface.class));
+        ActionContext.run(ActionPriority.MICRO, "ArmyTask", () -> {
+            statistics.recordIssued();
+            statistics.recordIssued();
+            statistics.recordFiltered();
+        });
+        sendActions(statistics, 3);
+        statistics.endStep(2L);
+
+        Path report = Files.createTempFile("ActionReport", ".txt");
+        statistics.writeReport(report);
+        List<String> lines = Files.readAllLines(report);
+        Files.delete(report);
+
+        assertThat(lines).contains("  ArmyTask (1): 2", "  3-4    1");
+    }
+
+    private static void sendActions(ActionStatistics statistics, int count) {
+        for (int i = 0; i < count; ++i) {
+            statistics.recordActionForTags(Abilities.MOVE, List.of());
+        }
+    }
+}
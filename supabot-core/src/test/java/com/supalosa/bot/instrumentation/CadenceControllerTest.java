@@ -0,0 +1,60 @@
+package com.supalosa.bot.instrumentation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CadenceControllerTest {
+
+    private static final long BUDGET = 10_000_000L;
+
+    @Test
+    void usesDefaultIntervalsWithModerateLoad() {
+        CadenceController controller = new CadenceController(BUDGET);
+        for (int i = 0; i < 100; ++i) {
+            controller.onStepCompleted(BUDGET / 2, false);
+        }
+        for (UpdateCadence cadence : UpdateCadence.values()) {
+            assertThat(controller.getInterval(cadence)).isEqualTo(cadence.getDefaultInterval());
+        }
+        assertThat(controller.isDegraded()).isFalse();
+    }
+
+    @Test
+    void backsOffToMaximumAndDegradesWhenOverBudget() {
+        CadenceController controller = new CadenceController(BUDGET);
+        for (int i = 0; i < 100; ++i) {
+            controller.onStepCompleted(BUDGET * 2, false);
+        }
+        assertThat(controller.getInterval(UpdateCadence.REGION_DATA))
+                .isEqualTo(UpdateCadence.REGION_DATA.getMaxInterval());
+        assertThat(controller.isDegraded()).isTrue();
+    }
+
+    @Test
+    void tightensOnlyWhenFightingWithHeadroom() {
+        CadenceController controller = new CadenceController(BUDGET);
+        for (int i = 0; i < 100; ++i) {
+            controller.onStepCompleted(BUDGET / 10, false);
+        }
+        assertThat(controller.getScale()).isEqualTo(1.0);
+        for (int i = 0; i < 100; ++i) {
+            controller.onStepCompleted(BUDGET / 10, true);
+        }
+        assertThat(controller.getInterval(UpdateCadence.FIGHT_TARGETING))
+                .isEqualTo(UpdateCadence.FIGHT_TARGETING.getMinInterval());
+    }
+
+    @Test
+    void recoversAfterLoadDrops() {
+        CadenceController controller = new CadenceController(BUDGET);
+        for (int i = 0; i < 100; ++i) {
+            controller.onStepCompleted(BUDGET * 2, false);
+        }
+        for (int i = 0; i < 200; ++i) {
+            controller.onStepCompleted(BUDGET / 2, false);
+        }
+        assertThat(controller.isDegraded()).isFalse();
+        assertThat(controller.getScale()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class CoalescingActionInterfaceTest {
+
+    private static final Tag UNIT_A = Tag.of(1L);
+    private static final Tag UNIT_B = Tag.of(2L);
+    private static final Tag UNIT_C = Tag.of(3L);
+    private static final Point2d TARGET = Point2d.of(10f, 10f);
+    private static final Point2d OTHER_TARGET = Point2d.of(20f, 20f);
+
+    private ActionInterface delegate;
+    private CoalescingActionInterface actions;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ActionInterface.class);
+        actions = new CoalescingActionInterface(delegate);
+    }
+
+    @Test
+    void mergesIdenticalCommands() {
+        actions.unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        actions.unitCommand(UNIT_B, Abilities.MOVE, TARGET, false);
+        actions.unitCommand(Set.of(UNIT_C), Abilities.MOVE, TARGET, false);
+        verify(delegate, never()).unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+
+        actions.flush();
+        verify(delegate).unitCommand(Set.of(UNIT_A, UNIT_B, UNIT_C), Abilities.MOVE, TARGET, false);
+        verifyNoMoreInteractions(delegate);
+        assertThat(actions.getCommandCountsAndReset()).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void keepsDifferentCommandsApart() {
+        actions.unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        actions.unitCommand(UNIT_B, Abilities.MOVE, OTHER_TARGET, false);
+        actions.unitCommand(UNIT_C, Abilities.ATTACK, TARGET, false);
+        actions.flush();
+
+        verify(delegate).unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        verify(delegate).unitCommand(UNIT_B, Abilities.MOVE, OTHER_TARGET, false);
+        verify(delegate).unitCommand(UNIT_C, Abilities.ATTACK, TARGET, false);
+        assertThat(actions.getCommandCountsAndReset()).containsExactly(3L, 3L);
+    }
+
+    @Test
+    void preservesTheOrderOfEachUnitsCommands() {
+        actions.unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        actions.unitCommand(UNIT_A, Abilities.ATTACK, OTHER_TARGET, true);
+        // Unit B's first command is the same as unit A's second, but can't be merged with it.
+        actions.unitCommand(UNIT_B, Abilities.ATTACK, OTHER_TARGET, true);
+        actions.unitCommand(UNIT_C, Abilities.MOVE, TARGET, false);
+        actions.unitCommand(UNIT_C, Abilities.ATTACK, OTHER_TARGET, true);
+        actions.flush();
+
+        InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).unitCommand(Set.of(UNIT_A, UNIT_C), Abilities.MOVE, TARGET, false);
+        inOrder.verify(delegate).unitCommand(Set.of(UNIT_A, UNIT_C), Abilities.ATTACK, OTHER_TARGET, true);
+        verify(delegate).unitCommand(UNIT_B, Abilities.ATTACK, OTHER_TARGET, true);
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    void doesNotMergeQueuedWithUnqueuedCommands() {
+        actions.unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        actions.unitCommand(UNIT_B, Abilities.MOVE, TARGET, true);
+        actions.unitCommand(UNIT_C, Abilities.MOVE, TARGET, true);
+        actions.flush();
+
+        verify(delegate).unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        verify(delegate).unitCommand(Set.of(UNIT_B, UNIT_C), Abilities.MOVE, TARGET, true);
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    void flushOnlySendsCommandsOnce() {
+        actions.unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        actions.flush();
+        actions.flush();
+        actions.sendActions();
+
+        verify(delegate).unitCommand(UNIT_A, Abilities.MOVE, TARGET, false);
+        verify(delegate).sendActions();
+        verifyNoMoreInteractions(delegate);
+    }
+}
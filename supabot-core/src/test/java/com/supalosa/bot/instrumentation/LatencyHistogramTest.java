@@ -0,0 +1,33 @@
+package com.supalosa.bot.instrumentation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1ms to 100ms in 1ms steps.
+        for (int i = 1; i <= 100; ++i) {
+            histogram.record(i * 1_000_000L);
+        }
+        assertThat((double) histogram.getPercentileNanos(50)).isCloseTo(50_000_000.0, within(10_000_000.0));
+        assertThat((double) histogram.getPercentileNanos(99)).isCloseTo(99_000_000.0, within(20_000_000.0));
+        assertThat(histogram.getMaxNanos()).isEqualTo(100_000_000L);
+    }
+
+    @Test
+    void percentileNeverExceedsMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_500_000L);
+        assertThat(histogram.getPercentileNanos(99)).isEqualTo(1_500_000L);
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        assertThat(new LatencyHistogram().getPercentileNanos(50)).isZero();
+    }
+}
@@ -0,0 +1,151 @@
+package com.supalosa.bot.instrumentation;
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrioritisedActionInterfaceTest {
+
+    private static final Tag UNIT_A = Tag.of(1L);
+    private static final Tag UNIT_B = Tag.of(2L);
+    private static final Tag UNIT_C = Tag.of(3L);
+
+    private ActionInterface delegate;
+    private ObservationInterface observation;
+    private long gameLoop = 0L;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ActionInterface.class);
+        observation = mock(ObservationInterface.class);
+        when(observation.getGameLoop()).thenAnswer(invocation -> gameLoop);
+    }
+
+    @Test
+    void sendsNoMoreActionsThanTheBudget() {
+        PrioritisedActionInterface actions = new PrioritisedActionInterface(delegate, observation, 2);
+        actions.unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        actions.unitCommand(UNIT_B, Abilities.MOVE, point(2), false);
+        actions.unitCommand(UNIT_C, Abilities.MOVE, point(3), false);
+        actions.flush();
+
+        verify(delegate).unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        verify(delegate).unitCommand(UNIT_B, Abilities.MOVE, point(2), false);
+        verify(delegate, never()).unitCommand(UNIT_C, Abilities.MOVE, point(3), false);
+        assertThat(actions.getPendingUnitCount()).isEqualTo(1);
+        assertThat(actions.getDeferredAndDroppedCountsAndReset()).containsExactly(1L, 0L);
+
+        gameLoop = 2L;
+        actions.flush();
+        verify(delegate).unitCommand(UNIT_C, Abilities.MOVE, point(3), false);
+        assertThat(actions.getPendingUnitCount()).isZero();
+    }
+
+    @Test
+    void identicalCommandsOnlyUseTheBudgetOnce() {
+        PrioritisedActionInterface actions = new PrioritisedActionInterface(delegate, observation, 1);
+        actions.unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        actions.unitCommand(UNIT_B, Abilities.MOVE, point(1), false);
+        actions.unitCommand(UNIT_C, Abilities.MOVE, point(1), false);
+        actions.flush();
+
+        verify(delegate, times(3)).unitCommand(any(Tag.class), any(), any(Point2d.class), anyBoolean());
+        assertThat(actions.getPendingUnitCount()).isZero();
+    }
+
+    @Test
+    void sendsTheMostUrgentCommandsFirst() {
+        PrioritisedActionInterface actions = new PrioritisedActionInterface(delegate, observation, 1);
+        ActionContext.run(ActionPriority.HOUSEKEEPING, "Scout",
+                () -> actions.unitCommand(UNIT_A, Abilities.MOVE, point(1), false));
+        ActionContext.run(ActionPriority.MICRO, "Army",
+                () -> actions.unitCommand(UNIT_B, Abilities.ATTACK, point(2), false));
+        actions.unitCommand(UNIT_C, Abilities.MOVE, point(3), false);
+        actions.flush();
+
+        verify(delegate).unitCommand(UNIT_B, Abilities.ATTACK, point(2), false);
+        verify(delegate, times(1)).unitCommand(any(Tag.class), any(), any(Point2d.class), anyBoolean());
+        assertThat(actions.getPendingUnitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void waitingCommandsGainPriority() {
+        PrioritisedActionInterface actions = new PrioritisedActionInterface(delegate, observation, 1);
+        ActionContext.run(ActionPriority.HOUSEKEEPING, "Scout",
+                () -> actions.unitCommand(UNIT_A, Abilities.MOVE, point(1), false));
+        actions.unitCommand(UNIT_B, Abilities.MOVE, point(2), false);
+        actions.flush();
+        verify(delegate).unitCommand(UNIT_B, Abilities.MOVE, point(2), false);
+
+        // After waiting 10 loops, the housekeeping command is more urgent than a new macro command.
+        gameLoop = 10L;
+        actions.unitCommand(UNIT_C, Abilities.MOVE, point(3), false);
+        actions.flush();
+        verify(delegate).unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        verify(delegate, never()).unitCommand(UNIT_C, Abilities.MOVE, point(3), false);
+    }
+
+    @Test
+    void dropsCommandsThatWaitedTooLong() {
+        PrioritisedActionInterface actions = new PrioritisedActionInterface(delegate, observation, 1);
+        actions.unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        ActionContext.run(ActionPriority.MICRO, "Army",
+                () -> actions.unitCommand(UNIT_B, Abilities.ATTACK, point(2), false));
+        actions.flush();
+
+        gameLoop = 45L;
+        actions.flush();
+        verify(delegate, never()).unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        assertThat(actions.getPendingUnitCount()).isZero();
+        assertThat(actions.getDeferredAndDroppedCountsAndReset()).containsExactly(1L, 1L);
+    }
+
+    @Test
+    void tellsListenersWhichUnitsHadCommandsDropped() {
+        PrioritisedActionInterface actions = new PrioritisedActionInterface(delegate, observation, 1);
+        List<Tag> dropped = new ArrayList<>();
+        actions.addDroppedCommandListener(dropped::add);
+        actions.unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        actions.unitCommand(UNIT_B, Abilities.MOVE, point(2), false);
+        actions.flush();
+        assertThat(dropped).isEmpty();
+
+        gameLoop = 45L;
+        actions.flush();
+        assertThat(dropped).containsExactly(UNIT_B);
+    }
+
+    @Test
+    void flushOnlySpendsTheBudgetOncePerLoop() {
+        PrioritisedActionInterface actions = new PrioritisedActionInterface(delegate, observation, 1);
+        actions.unitCommand(UNIT_A, Abilities.MOVE, point(1), false);
+        actions.unitCommand(UNIT_B, Abilities.MOVE, point(2), false);
+        actions.flush();
+        actions.flush();
+        actions.sendActions();
+
+        verify(delegate, times(1)).unitCommand(any(Tag.class), any(), any(Point2d.class), anyBoolean());
+        verify(delegate).sendActions();
+        assertThat(actions.getPendingUnitCount()).isEqualTo(1);
+    }
+
+    private static Point2d point(int x) {
+        return Point2d.of(x, 10f);
+    }
+}
@@ -0,0 +1,134 @@
+package com.supalosa.bot.instrumentation;
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RedundantCommandFilterTest {
+
+    private static final Tag UNIT = Tag.of(1L);
+    private static final Point2d TARGET = Point2d.of(10f, 10f);
+    private static final Point2d OTHER_TARGET = Point2d.of(20f, 20f);
+
+    private ActionInterface delegate;
+    private RedundantCommandFilter filter;
+    private long gameLoop = 0L;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ActionInterface.class);
+        ObservationInterface observation = mock(ObservationInterface.class);
+        when(observation.getGameLoop()).thenAnswer(invocation -> gameLoop);
+        filter = new RedundantCommandFilter(delegate, observation, new ActionStatistics(observation));
+    }
+
+    @Test
+    void dropsARepeatedCommand() {
+        filter.unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+        gameLoop = 2L;
+        filter.unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+
+        verify(delegate, times(1)).unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+        assertThat(filter.getFilteredCountAndReset()).isEqualTo(1L);
+
+        // The command is sent again once it's no longer recent.
+        gameLoop = 20L;
+        filter.unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+        verify(delegate, times(2)).unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+    }
+
+    @Test
+    void sendsAForgottenCommandAgain() {
+        filter.unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+        // e.g. the scheduler dropped the command before it reached the game.
+        filter.forget(UNIT);
+        gameLoop = 2L;
+        filter.unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+
+        verify(delegate, times(2)).unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+        assertThat(filter.getFilteredCountAndReset()).isZero();
+    }
+
+    @Test
+    void keepsACommandWithADifferentTarget() {
+        filter.unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+        filter.unitCommand(UNIT, Abilities.MOVE, OTHER_TARGET, false);
+
+        verify(delegate).unitCommand(UNIT, Abilities.MOVE, TARGET, false);
+        verify(delegate).unitCommand(UNIT, Abilities.MOVE, OTHER_TARGET, false);
+        assertThat(filter.getFilteredCountAndReset()).isZero();
+    }
+
+    @Test
+    void dropsACommandTheUnitIsAlreadyCarryingOut() {
+        Unit movingUnit = unitWithOrder(Abilities.MOVE, TARGET);
+        filter.unitCommand(movingUnit, Abilities.MOVE, TARGET, false);
+
+        verifyNoInteractions(delegate);
+        assertThat(filter.getFilteredCountAndReset()).isEqualTo(1L);
+    }
+
+    @Test
+    void changingOrdersResetsTheFilterForTheLoop() {
+        Unit movingUnit = unitWithOrder(Abilities.MOVE, TARGET);
+        filter.unitCommand(UNIT, Abilities.STOP, false);
+        // The observed order is out of date after the stop, so the move has to be sent again.
+        filter.unitCommand(movingUnit, Abilities.MOVE, TARGET, false);
+
+        verify(delegate).unitCommand(UNIT, Abilities.STOP, false);
+        verify(delegate).unitCommand(movingUnit, Abilities.MOVE, TARGET, false);
+
+        // In a later loop the observed order is trusted again.
+        gameLoop = 20L;
+        filter.unitCommand(movingUnit, Abilities.MOVE, TARGET, false);
+        verify(delegate, times(1)).unitCommand(movingUnit, Abilities.MOVE, TARGET, false);
+        assertThat(filter.getFilteredCountAndReset()).isEqualTo(1L);
+    }
+
+    private static Unit unitWithOrder(Abilities ability, Point2d target) {
+        return Unit.from(Raw.Unit.newBuilder()
+                .setDisplayType(Raw.DisplayType.Visible)
+                .setAlliance(Raw.Alliance.Self)
+                .setTag(UNIT.getValue())
+                .setUnitType(Units.TERRAN_MARINE.getUnitTypeId())
+                .setOwner(1)
+                .setPos(Common.Point.newBuilder().setX(0f).setY(0f).setZ(0f))
+                .setFacing(0f)
+                .setRadius(0.375f)
+                .setBuildProgress(1f)
+                .setCloak(Raw.CloakState.NotCloaked)
+                .setIsSelected(false)
+                .setIsOnScreen(false)
+                .setIsBlip(false)
+                .setIsPowered(false)
+                .setHealth(45f)
+                .setHealthMax(45f)
+                .setShield(0f)
+                .setShieldMax(0f)
+                .setEnergy(0f)
+                .setEnergyMax(0f)
+                .setIsFlying(false)
+                .setIsBurrowed(false)
+                .setWeaponCooldown(0f)
+                .addOrders(Raw.UnitOrder.newBuilder()
+                        .setAbilityId(ability.getAbilityId())
+                        .setProgress(0f)
+                        .setTargetWorldSpacePos(Common.Point.newBuilder().setX(target.getX()).setY(target.getY())))
+                .build());
+    }
+}
@@ -13,6 +13,8 @@ import com.supalosa.bot.analysis.AnalysisResults;
 import com.supalosa.bot.analysis.Tile;
 import com.supalosa.bot.analysis.utils.Grid;
 import com.supalosa.bot.analysis.utils.InMemoryGrid;
+import com.supalosa.bot.instrumentation.CadenceController;
+import com.supalosa.bot.instrumentation.UpdateCadence;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +36,7 @@ class StructurePlacementCalculatorTest {
     private static final int GRID_WIDTH = 255;
     private static final int GRID_HEIGHT = 10;
 
+    private ObservationInterface observationInterface;
     private AgentWithData agentWithData;
     private GameData gameData;
     private AnalysisResults analysisResults;
@@ -41,7 +44,7 @@ class StructurePlacementCalculatorTest {
 
     @BeforeEach
     void setUp() {
-        ObservationInterface observationInterface = mock(ObservationInterface.class);
+        observationInterface = mock(ObservationInterface.class);
         HashMap<Ability, AbilityData> ability = new HashMap<>();
         Data.AbilityData builder = Data.AbilityData.newBuilder()
                 .setAbilityId(1)
@@ -55,6 +58,8 @@ class StructurePlacementCalculatorTest {
         gameData = new GameData(observationInterface);
         agentWithData = mock(AgentWithData.class);
         when(agentWithData.gameData()).thenReturn(gameData);
+        when(agentWithData.observation()).thenReturn(observationInterface);
+        when(agentWithData.cadenceController()).thenReturn(new CadenceController());
         analysisResults = mock(AnalysisResults.class);
         Point2d start = Point2d.of(0f, 0f);
 
@@ -189,4 +194,24 @@ class StructurePlacementCalculatorTest {
             structurePlacementCalculator.clearMutableGrid();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testReservationsAreClearedWithoutStructureChanges() {
+        long interval = new CadenceController().getInterval(UpdateCadence.PLACEMENT_GRID);
+        when(observationInterface.getGameLoop()).thenReturn(interval + 1L);
+        structurePlacementCalculator.onStep(agentWithData, agentWithData);
+
+        Point2d point = Point2d.of(5, 5);
+        assertThat(structurePlacementCalculator.suggestLocationForFreePlacement(agentWithData, point,
+                Abilities.BUILD_BARRACKS, Units.TERRAN_BARRACKS, Optional.of(PlacementRules.exact()))).isNotEmpty();
+        // The suggested location is reserved until the next rebuild.
+        assertThat(structurePlacementCalculator.suggestLocationForFreePlacement(agentWithData, point,
+                Abilities.BUILD_BARRACKS, Units.TERRAN_BARRACKS, Optional.of(PlacementRules.exact()))).isEmpty();
+
+        // Nothing has changed, but the reservation of the abandoned build expires.
+        when(observationInterface.getGameLoop()).thenReturn(2L * interval + 2L);
+        structurePlacementCalculator.onStep(agentWithData, agentWithData);
+        assertThat(structurePlacementCalculator.suggestLocationForFreePlacement(agentWithData, point,
+                Abilities.BUILD_BARRACKS, Units.TERRAN_BARRACKS, Optional.of(PlacementRules.exact()))).isNotEmpty();
+    }
+}
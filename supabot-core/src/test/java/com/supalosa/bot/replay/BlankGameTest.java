@@ -0,0 +1,45 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.game.raw.StartRaw;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlankGameTest {
+
+    @Test
+    void answersWhatTheBotNeedsToStart() {
+        BlankGame game = new BlankGame();
+        ObservationInterface observation = game.interfaces().observation();
+
+        StartRaw startRaw = observation.getGameInfo(true).getStartRaw().orElseThrow();
+        assertThat(startRaw.getMapSize().getX()).isEqualTo(BlankGame.DEFAULT_WIDTH);
+        assertThat(startRaw.getMapSize().getY()).isEqualTo(BlankGame.DEFAULT_HEIGHT);
+        assertThat(startRaw.getStartLocations()).containsExactly(game.getEnemyStartLocation());
+        assertThat(observation.getStartLocation().toPoint2d()).isEqualTo(game.getStartLocation());
+        assertThat(observation.getScore().getDetails().getCollectionRateMinerals()).isZero();
+        assertThat(observation.getRawObservation().getRaw()).isEmpty();
+        assertThat(observation.getUnits(Alliance.NEUTRAL)).isEmpty();
+    }
+
+    @Test
+    void mainsAreJoinedToTheLowGroundByARamp() {
+        BlankGame game = new BlankGame();
+        ObservationInterface observation = game.interfaces().observation();
+        Point2d start = game.getStartLocation();
+        Point2d middle = Point2d.of(BlankGame.DEFAULT_WIDTH / 2f, start.getY());
+
+        assertThat(observation.terrainHeight(start)).isGreaterThan(observation.terrainHeight(middle));
+        assertThat(observation.isPlacable(start)).isTrue();
+        // The ramp is straight across from the start location, and the cliff is either side of it.
+        Point2d ramp = Point2d.of(25f, start.getY());
+        assertThat(observation.isPathable(ramp)).isTrue();
+        assertThat(observation.isPlacable(ramp)).isFalse();
+        assertThat(observation.isPathable(Point2d.of(25f, start.getY() + 10f))).isFalse();
+        // The edge of the map is not playable.
+        assertThat(observation.isPathable(Point2d.of(1f, 1f))).isFalse();
+    }
+}
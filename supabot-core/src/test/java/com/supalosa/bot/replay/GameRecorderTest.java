@@ -0,0 +1,90 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.protocol.action.ActionChat;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GameRecorderTest {
+
+    private static final Point2d START = Point2d.of(1f, 1f);
+    private static final Point2d END = Point2d.of(5f, 5f);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaysRecordedResults() throws IOException {
+        Path path = tempDir.resolve("game.rec");
+        ObservationInterface observation = mock(ObservationInterface.class);
+        when(observation.getUnits()).thenReturn(Collections.emptyList());
+        QueryInterface query = mock(QueryInterface.class);
+
+        GameRecorder recorder = GameRecorder.open(path);
+        QueryInterface recordedQuery = recorder.wrap(QueryInterface.class, query);
+        ObservationInterface recordedObservation = recorder.wrap(ObservationInterface.class, observation);
+        recordStep(recorder, observation, query, recordedObservation, recordedQuery, 0L, 100, 4f);
+        recordStep(recorder, observation, query, recordedObservation, recordedQuery, 2L, 150, 3f);
+        // Nothing is asked on the last step.
+        when(observation.getGameLoop()).thenReturn(4L);
+        recorder.beginStep(observation);
+        recorder.endStep();
+        recorder.close();
+
+        try (GameReplay replay = GameReplay.open(path)) {
+            ObservationInterface replayedObservation = replay.interfaces().observation();
+            QueryInterface replayedQuery = replay.interfaces().query();
+
+            assertThat(replay.advance()).isTrue();
+            assertThat(replayedObservation.getGameLoop()).isEqualTo(0L);
+            assertThat(replayedObservation.getMinerals()).isEqualTo(100);
+            assertThat(replayedQuery.pathingDistance(START, END)).isEqualTo(4f);
+
+            assertThat(replay.advance()).isTrue();
+            assertThat(replayedObservation.getMinerals()).isEqualTo(150);
+            assertThat(replayedQuery.pathingDistance(START, END)).isEqualTo(3f);
+
+            // Answered from the most recent step that asked.
+            assertThat(replay.advance()).isTrue();
+            assertThat(replayedObservation.getGameLoop()).isEqualTo(4L);
+            assertThat(replayedQuery.pathingDistance(START, END)).isEqualTo(3f);
+            assertThat(replayedObservation.getUnits()).isEmpty();
+
+            // Never asked during the recording.
+            assertThat(replayedQuery.pathingDistance(END, START)).isEqualTo(0f);
+            assertThat(replay.getMissedCalls()).containsEntry("pathingDistance", 1L);
+
+            replay.interfaces().actions().sendChat("hello", ActionChat.Channel.TEAM);
+            assertThat(replay.getCommands()).containsExactly("[4] sendChat(hello, TEAM)");
+
+            assertThat(replay.advance()).isFalse();
+        }
+    }
+
+    private void recordStep(GameRecorder recorder,
+                            ObservationInterface observation,
+                            QueryInterface query,
+                            ObservationInterface recordedObservation,
+                            QueryInterface recordedQuery,
+                            long gameLoop,
+                            int minerals,
+                            float distance) {
+        when(observation.getGameLoop()).thenReturn(gameLoop);
+        when(observation.getMinerals()).thenReturn(minerals);
+        when(query.pathingDistance(START, END)).thenReturn(distance);
+        recorder.beginStep(observation);
+        recordedObservation.getMinerals();
+        recordedQuery.pathingDistance(START, END);
+        recorder.endStep();
+    }
+}
@@ -0,0 +1,112 @@
+package com.supalosa.bot.replay;
+
+import com.github.ocraft.s2client.bot.S2Agent;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.supalosa.bot.analysis.AnalysisResults;
+import com.supalosa.bot.analysis.Tile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SyntheticGameTest {
+
+    private static final Point2d START = Point2d.of(10f, 10f);
+    private static final Point2d ENEMY_START = Point2d.of(90f, 10f);
+
+    private GameInterfaces base;
+    private AnalysisResults analysis;
+    private S2Agent agent;
+
+    @BeforeEach
+    void setUp() {
+        base = new GameInterfaces(mock(ObservationInterface.class), null, null, null);
+        Tile tile = new Tile();
+        tile.pathable = true;
+        analysis = mock(AnalysisResults.class);
+        when(analysis.getTile(anyInt(), anyInt())).thenReturn(Optional.of(tile));
+        agent = mock(S2Agent.class);
+    }
+
+    @Test
+    void placesUnitsAndReportsSupply() {
+        SyntheticGame game = new SyntheticGame(base, scenario(
+                group(Alliance.SELF, Units.TERRAN_MARINE, 10, 0f),
+                group(Alliance.SELF, Units.TERRAN_MARAUDER, 5, 0f),
+                group(Alliance.ENEMY, Units.ZERG_ZERGLING, 4, 1f)));
+        game.placeUnits(analysis, START, ENEMY_START);
+        game.advance();
+        game.dispatchEvents(agent);
+
+        ObservationInterface observation = game.interfaces().observation();
+        assertThat(observation.getGameLoop()).isEqualTo(1000L);
+        assertThat(observation.getUnits(Alliance.SELF)).hasSize(15);
+        assertThat(observation.getUnits(Alliance.ENEMY)).hasSize(4);
+        assertThat(observation.getFoodArmy()).isEqualTo(20);
+        assertThat(observation.getMinerals()).isEqualTo(500);
+        // No two units share a tile.
+        assertThat(observation.getUnits().stream()
+                .map(unitInPool -> unitInPool.unit().getPosition().toPoint2d())
+                .distinct()).hasSize(19);
+        verify(agent, times(15)).onUnitCreated(any());
+        verify(agent, times(15)).onUnitIdle(any());
+    }
+
+    @Test
+    void unitsFightWhenOrderedToAttack() {
+        SyntheticGame game = new SyntheticGame(base, scenario(
+                group(Alliance.SELF, Units.TERRAN_MARINE, 20, 0f),
+                group(Alliance.ENEMY, Units.ZERG_ZERGLING, 2, 1f)));
+        game.placeUnits(analysis, START, ENEMY_START);
+        game.advance();
+
+        List<Unit> marines = game.interfaces().observation().getUnits(Alliance.SELF).stream()
+                .map(UnitInPool::unit)
+                .collect(Collectors.toList());
+        game.interfaces().actions().unitCommand(marines, Abilities.ATTACK, ENEMY_START, false);
+        assertThat(game.getCommandCount()).isEqualTo(1L);
+
+        for (int i = 0; i < 1000 && game.countUnits(Alliance.ENEMY) > 0; ++i) {
+            game.advance();
+            game.dispatchEvents(agent);
+        }
+        assertThat(game.countUnits(Alliance.ENEMY)).isZero();
+        assertThat(game.countUnits(Alliance.SELF)).isEqualTo(20L);
+        verify(agent, times(2)).onUnitDestroyed(any());
+        verify(agent, never()).onUnitCreated(any());
+    }
+
+    private static BattleScenario scenario(UnitGroup... groups) {
+        return ImmutableBattleScenario.builder()
+                .name("test")
+                .addGroups(groups)
+                .startGameLoop(1000L)
+                .build();
+    }
+
+    private static UnitGroup group(Alliance alliance, Units type, int count, float position) {
+        return ImmutableUnitGroup.builder()
+                .alliance(alliance)
+                .type(type)
+                .count(count)
+                .position(position)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.supalosa.bot.task;
+
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UnitAllocationIndexTest {
+
+    @Test
+    void freeUnitIsReindexedWhenTypeChanges() {
+        UnitAllocationIndex index = new UnitAllocationIndex();
+        Tag tag = Tag.of(1L);
+        index.addFreeUnit(tag, Units.TERRAN_COMMAND_CENTER);
+        index.addFreeUnit(tag, Units.TERRAN_ORBITAL_COMMAND);
+
+        assertThat(index.getFreeUnitsOfType(Units.TERRAN_COMMAND_CENTER)).isEmpty();
+        assertThat(index.getFreeUnitsOfType(Units.TERRAN_ORBITAL_COMMAND)).containsExactly(tag);
+        assertThat(index.getFreeUnitCount()).isEqualTo(1);
+
+        index.removeFreeUnit(tag);
+        assertThat(index.isFree(tag)).isFalse();
+        assertThat(index.getFreeUnitsOfType(Units.TERRAN_ORBITAL_COMMAND)).isEmpty();
+    }
+
+    @Test
+    void demandIsIndexedByWantedTypeInPriorityOrder() {
+        TaskWithUnits highPriority = taskWanting(Units.TERRAN_MARINE, Units.TERRAN_MARAUDER);
+        TaskWithUnits lowPriority = taskWanting(Units.TERRAN_MARINE);
+        TaskWithUnits complete = taskWanting(Units.TERRAN_MARINE);
+        when(complete.isComplete()).thenReturn(true);
+
+        UnitAllocationIndex index = new UnitAllocationIndex();
+        index.rebuildDemand(List.of(highPriority, lowPriority, complete));
+
+        assertThat(index.getTasksWanting(Units.TERRAN_MARINE)).containsExactly(highPriority, lowPriority);
+        assertThat(index.getTasksWanting(Units.TERRAN_MARAUDER)).containsExactly(highPriority);
+        assertThat(index.getTasksWanting(Units.TERRAN_SCV)).isEmpty();
+    }
+
+    @Test
+    void onlyTypesWithSupplyAndDemandAreMatchable() {
+        UnitAllocationIndex index = new UnitAllocationIndex();
+        index.addFreeUnit(Tag.of(1L), Units.TERRAN_MARINE);
+        index.addFreeUnit(Tag.of(2L), Units.TERRAN_SCV);
+        index.rebuildDemand(List.of(taskWanting(Units.TERRAN_MARINE, Units.TERRAN_MEDIVAC)));
+
+        assertThat(index.getMatchableTypes()).containsExactly(Units.TERRAN_MARINE);
+    }
+
+    private static TaskWithUnits taskWanting(Units... types) {
+        TaskWithUnits task = mock(TaskWithUnits.class);
+        when(task.getWantedUnitTypes()).thenReturn(Set.of(types));
+        return task;
+    }
+}
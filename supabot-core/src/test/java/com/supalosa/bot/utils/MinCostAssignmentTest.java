@@ -0,0 +1,34 @@
+package com.supalosa.bot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinCostAssignmentTest {
+
+    @Test
+    void minimisesTotalCostRatherThanGreedyChoice() {
+        // Greedily giving row 0 its nearest column (0) leaves row 1 with a cost of 10, for a total of 11.
+        double[][] cost = {
+                {1, 2, 9},
+                {2, 10, 10},
+        };
+        assertThat(MinCostAssignment.solve(cost)).containsExactly(1, 0);
+    }
+
+    @Test
+    void infeasiblePairsAreLeftUnassigned() {
+        double[][] cost = {
+                {MinCostAssignment.INFEASIBLE, MinCostAssignment.INFEASIBLE},
+                {3, 4},
+        };
+        int[] result = MinCostAssignment.solve(cost);
+        assertThat(result[0]).isEqualTo(-1);
+        assertThat(result[1]).isEqualTo(0);
+    }
+
+    @Test
+    void emptyInputHasEmptyResult() {
+        assertThat(MinCostAssignment.solve(new double[0][0])).isEmpty();
+    }
+}
@@ -0,0 +1,56 @@
+package com.supalosa.bot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StepPipelineTest {
+
+    @Test
+    void resultsAreHandedBackOnJoin() {
+        checkResultsHandedBackOnJoin(false);
+        checkResultsHandedBackOnJoin(true);
+    }
+
+    @Test
+    void failureDoesNotStopOtherWork() {
+        checkFailureDoesNotStopOtherWork(false);
+        checkFailureDoesNotStopOtherWork(true);
+    }
+
+    private void checkResultsHandedBackOnJoin(boolean enabled) {
+        StepPipeline pipeline = new StepPipeline();
+        pipeline.setEnabled(enabled);
+        List<Integer> results = new ArrayList<>();
+        pipeline.schedule("first", () -> 1, results::add);
+        pipeline.schedule("second", () -> 2, results::add);
+
+        pipeline.launch();
+        assertThat(results).isEmpty();
+        pipeline.join();
+        assertThat(results).containsExactly(1, 2);
+
+        // Nothing is handed back twice.
+        pipeline.join();
+        assertThat(results).containsExactly(1, 2);
+        pipeline.shutdown();
+    }
+
+    private void checkFailureDoesNotStopOtherWork(boolean enabled) {
+        StepPipeline pipeline = new StepPipeline();
+        pipeline.setEnabled(enabled);
+        List<Integer> results = new ArrayList<>();
+        pipeline.schedule("failing", () -> {
+            throw new IllegalStateException("Expected failure");
+        }, results::add);
+        pipeline.schedule("working", () -> 2, results::add);
+
+        pipeline.launch();
+        pipeline.join();
+        assertThat(results).containsExactly(2);
+        pipeline.shutdown();
+    }
+}
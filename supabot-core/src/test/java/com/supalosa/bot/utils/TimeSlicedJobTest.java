@@ -0,0 +1,95 @@
+package com.supalosa.bot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeSlicedJobTest {
+
+    // Counts to the given number, taking 1ms of (fake) time per chunk.
+    private static class CountingJob implements IncrementalJob<Integer> {
+        private final AtomicLong clock;
+        private final int target;
+        private int count = 0;
+
+        CountingJob(AtomicLong clock, int target) {
+            this.clock = clock;
+            this.target = target;
+        }
+
+        @Override
+        public boolean step() {
+            clock.addAndGet(1_000_000L);
+            return ++count >= target;
+        }
+
+        @Override
+        public Integer getResult() {
+            return count;
+        }
+    }
+
+    @Test
+    void spreadsWorkOverStepsAndPublishesOnCompletion() {
+        AtomicLong clock = new AtomicLong();
+        TimeSlicedJob<Integer> job = new TimeSlicedJob<>("test", 100L, 3_000_000L, clock::get);
+
+        // 10 chunks at 3 chunks per step takes 4 steps.
+        assertThat(job.onStep(0L, () -> new CountingJob(clock, 10))).isFalse();
+        assertThat(job.getResult()).isEmpty();
+        assertThat(job.onStep(1L, () -> new CountingJob(clock, 10))).isFalse();
+        assertThat(job.onStep(2L, () -> new CountingJob(clock, 10))).isFalse();
+        assertThat(job.isRunning()).isTrue();
+        assertThat(job.onStep(3L, () -> new CountingJob(clock, 10))).isTrue();
+        assertThat(job.getResult()).contains(10);
+        assertThat(job.getSlicesForLastRun()).isEqualTo(4);
+        assertThat(job.isRunning()).isFalse();
+    }
+
+    @Test
+    void waitsForTheIntervalBeforeStartingAgain() {
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger jobsCreated = new AtomicInteger();
+        TimeSlicedJob<Integer> job = new TimeSlicedJob<>("test", 10L, 3_000_000L, clock::get);
+        for (long gameLoop = 0; gameLoop < 25; ++gameLoop) {
+            job.onStep(gameLoop, () -> {
+                jobsCreated.incrementAndGet();
+                return new CountingJob(clock, 1);
+            });
+        }
+        // Started on loops 0, 10 and 20.
+        assertThat(jobsCreated.get()).isEqualTo(3);
+    }
+
+    @Test
+    void alwaysMakesProgressWithNoBudget() {
+        AtomicLong clock = new AtomicLong();
+        TimeSlicedJob<Integer> job = new TimeSlicedJob<>("test", 100L, 0L, clock::get);
+        job.onStep(0L, () -> new CountingJob(clock, 2));
+        assertThat(job.onStep(1L, () -> new CountingJob(clock, 2))).isTrue();
+        assertThat(job.getResult()).contains(2);
+    }
+
+    @Test
+    void runToCompletionReplacesRunInProgress() {
+        AtomicLong clock = new AtomicLong();
+        TimeSlicedJob<Integer> job = new TimeSlicedJob<>("test", 100L, 1_000_000L, clock::get);
+        job.onStep(0L, () -> new CountingJob(clock, 10));
+        job.runToCompletion(1L, () -> new CountingJob(clock, 5));
+        assertThat(job.getResult()).contains(5);
+        assertThat(job.getCompletedAt()).isEqualTo(1L);
+        assertThat(job.isRunning()).isFalse();
+    }
+
+    @Test
+    void emptyJobKeepsPreviousResult() {
+        AtomicLong clock = new AtomicLong();
+        TimeSlicedJob<Integer> job = new TimeSlicedJob<>("test", 1L, 1_000_000L, clock::get);
+        job.onStep(0L, () -> new CountingJob(clock, 1));
+        assertThat(job.onStep(1L, IncrementalJob::empty)).isTrue();
+        assertThat(job.getResult()).contains(1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.supalosa.bot.utils;
+
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnitHandleRegistryTest {
+
+    @Test
+    void acquireIsIdempotent() {
+        UnitHandleRegistry registry = new UnitHandleRegistry();
+        int handle = registry.acquire(Tag.of(1234L));
+        assertThat(registry.acquire(Tag.of(1234L))).isEqualTo(handle);
+        assertThat(registry.getHandle(Tag.of(1234L))).isEqualTo(handle);
+        assertThat(registry.getTag(handle)).isEqualTo(Optional.of(Tag.of(1234L)));
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void releasedHandlesAreRecycled() {
+        UnitHandleRegistry registry = new UnitHandleRegistry();
+        int first = registry.acquire(Tag.of(1L));
+        registry.acquire(Tag.of(2L));
+        registry.release(Tag.of(1L));
+
+        assertThat(registry.getHandle(Tag.of(1L))).isEqualTo(UnitHandleRegistry.NO_HANDLE);
+        assertThat(registry.getTag(first)).isEmpty();
+        // The next tag takes the released handle, so the handles stay dense.
+        assertThat(registry.acquire(Tag.of(3L))).isEqualTo(first);
+        assertThat(registry.handleLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void survivesGrowthAndChurn() {
+        UnitHandleRegistry registry = new UnitHandleRegistry();
+        for (long i = 1; i <= 5000; ++i) {
+            registry.acquire(Tag.of(i * 7919L));
+        }
+        // Release every other unit, which exercises removal within long probe sequences.
+        for (long i = 1; i <= 5000; i += 2) {
+            registry.release(Tag.of(i * 7919L));
+        }
+        Set<Integer> handles = new HashSet<>();
+        for (long i = 2; i <= 5000; i += 2) {
+            int handle = registry.getHandle(Tag.of(i * 7919L));
+            assertThat(handle).isNotEqualTo(UnitHandleRegistry.NO_HANDLE);
+            assertThat(registry.getTagValue(handle)).isEqualTo(i * 7919L);
+            handles.add(handle);
+        }
+        assertThat(handles).hasSize(2500);
+        assertThat(registry.size()).isEqualTo(2500);
+        for (long i = 1; i <= 5000; i += 2) {
+            assertThat(registry.getHandle(Tag.of(i * 7919L))).isEqualTo(UnitHandleRegistry.NO_HANDLE);
+        }
+    }
+}